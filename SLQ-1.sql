@@ -8,6 +8,8 @@ CREATE TABLE CompraComida (
     Cantidad INT NOT NULL,
     Realizado BOOLEAN NOT NULL DEFAULT FALSE, -- Indica si la compra fue realizada
     SuperMercado VARCHAR(255) NOT NULL,
+    Version INT NOT NULL DEFAULT 0, -- Versión para el bloqueo optimista (la incrementa cada actualización)
+    Modificado TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6), -- Último cambio, para la sincronización incremental
     CONSTRAINT chk_Foto_Comida CHECK (Foto = 0 OR NumeroUnicoFoto IS NOT NULL) -- Validación lógica
 );
 
@@ -21,6 +23,8 @@ CREATE TABLE CompraLimpieza (
     Cantidad INT NOT NULL,
     Realizado BOOLEAN NOT NULL DEFAULT FALSE, -- Indica si la compra fue realizada
     SuperMercado VARCHAR(255) NOT NULL,
+    Version INT NOT NULL DEFAULT 0, -- Versión para el bloqueo optimista (la incrementa cada actualización)
+    Modificado TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6), -- Último cambio, para la sincronización incremental
     CONSTRAINT chk_Foto_Limpieza CHECK (Foto = 0 OR NumeroUnicoFoto IS NOT NULL) -- Validación lógica
 );
 
@@ -34,16 +38,68 @@ CREATE TABLE CompraVarios (
     Cantidad INT NOT NULL,
     Realizado BOOLEAN NOT NULL DEFAULT FALSE, -- Indica si la compra fue realizada
     SuperMercado VARCHAR(255) NOT NULL,
+    Version INT NOT NULL DEFAULT 0, -- Versión para el bloqueo optimista (la incrementa cada actualización)
+    Modificado TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6), -- Último cambio, para la sincronización incremental
     CONSTRAINT chk_Foto_Varios CHECK (Foto = 0 OR NumeroUnicoFoto IS NOT NULL) -- Validación lógica
 );
 
+-- Bases de datos creadas antes de añadir la columna Version:
+-- ALTER TABLE CompraComida ADD COLUMN Version INT NOT NULL DEFAULT 0;
+-- ALTER TABLE CompraLimpieza ADD COLUMN Version INT NOT NULL DEFAULT 0;
+-- ALTER TABLE CompraVarios ADD COLUMN Version INT NOT NULL DEFAULT 0;
+
+-- Índices para los filtros por Realizado y SuperMercado y para MAX(NumeroUnicoFoto).
+-- La aplicación los crea al arrancar si no existen (ver Util.MigradorEsquema, que registra las versiones aplicadas
+-- en la tabla HistorialEsquema)
+CREATE INDEX idx_CompraComida_realizado_supermercado ON CompraComida (Realizado, SuperMercado);
+CREATE INDEX idx_CompraComida_supermercado ON CompraComida (SuperMercado);
+CREATE INDEX idx_CompraComida_numero_foto ON CompraComida (NumeroUnicoFoto);
+CREATE INDEX idx_CompraLimpieza_realizado_supermercado ON CompraLimpieza (Realizado, SuperMercado);
+CREATE INDEX idx_CompraLimpieza_supermercado ON CompraLimpieza (SuperMercado);
+CREATE INDEX idx_CompraLimpieza_numero_foto ON CompraLimpieza (NumeroUnicoFoto);
+CREATE INDEX idx_CompraVarios_realizado_supermercado ON CompraVarios (Realizado, SuperMercado);
+CREATE INDEX idx_CompraVarios_supermercado ON CompraVarios (SuperMercado);
+CREATE INDEX idx_CompraVarios_numero_foto ON CompraVarios (NumeroUnicoFoto);
+
+-- Secuencia de números únicos de foto, compartida por las tres tablas de compras.
+-- La aplicación reserva bloques de números incrementando Siguiente (ver dao.SecuenciaFoto)
+CREATE TABLE SecuenciaFoto (
+    Nombre VARCHAR(50) PRIMARY KEY,
+    Siguiente INT NOT NULL -- Primer número aún no reservado
+);
+
 -- Tabla Tarea para las relaciones
 CREATE TABLE Tarea (
     Id INT AUTO_INCREMENT PRIMARY KEY,
     IDCompraComida INT NULL,
     IDCompraLimpieza INT NULL,
     IDCompraVarios INT NULL,
+    Modificado TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
     FOREIGN KEY (IDCompraComida) REFERENCES CompraComida(IdUnico) ON DELETE CASCADE,
     FOREIGN KEY (IDCompraLimpieza) REFERENCES CompraLimpieza(IdUnico) ON DELETE CASCADE,
     FOREIGN KEY (IDCompraVarios) REFERENCES CompraVarios(IdUnico) ON DELETE CASCADE
 );
+
+-- Filas cambiadas desde la última recepción del almacén local (ver Util.Sincronizador)
+CREATE INDEX idx_CompraComida_modificado ON CompraComida (Modificado);
+CREATE INDEX idx_CompraLimpieza_modificado ON CompraLimpieza (Modificado);
+CREATE INDEX idx_CompraVarios_modificado ON CompraVarios (Modificado);
+CREATE INDEX idx_Tarea_modificado ON Tarea (Modificado);
+
+-- Última escritura diferida aplicada por cada cliente (ver dao.DiarioEscrituras).
+-- Se actualiza en la misma transacción que las escrituras, para no aplicar dos veces un registro del diario
+CREATE TABLE DiarioAplicado (
+    Cliente VARCHAR(36) PRIMARY KEY, -- Identificador del cliente, guardado junto al archivo del diario
+    Secuencia BIGINT NOT NULL        -- Última secuencia aplicada
+);
+
+-- Altas del almacén local ya insertadas en el servidor (ver Util.Sincronizador).
+-- Se escriben en la misma transacción que las altas y se borran cuando el cliente las confirma en local, para que
+-- un ciclo interrumpido entre ambas confirmaciones no vuelva a insertarlas
+CREATE TABLE AltasSincronizadas (
+    Cliente VARCHAR(36) NOT NULL, -- Identificador del almacén local
+    Tabla VARCHAR(50) NOT NULL,
+    IdLocal INT NOT NULL,         -- Identificador provisional en el almacén local
+    IdServidor INT NOT NULL,      -- Identificador asignado por el servidor
+    PRIMARY KEY (Cliente, Tabla, IdLocal)
+);
@@ -1,5 +1,8 @@
 import oneDrive.OneDriveConnection;
+import Util.HibernateUtil;
 import Util.PruebaConexion;
+import dao.AutocompletadoProductos;
+import dao.InstantaneaCompras;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -36,6 +39,12 @@ public class Main extends Application {
                 }
             }).start();
 
+            // Cargar la instantánea local de las compras para mostrar las listas sin esperar a la base de datos
+            InstantaneaCompras.getInstancia().iniciar();
+
+            // Cargar en segundo plano los nombres de producto para el autocompletado
+            AutocompletadoProductos.getInstancia().iniciar();
+
             // Configurar la ventana principal
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/vistas/MenuPrincipal.fxml"));
             Parent root = loader.load();
@@ -54,6 +63,14 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Libera los recursos de la base de datos al cerrar la aplicación, guardando antes la instantánea de compras.
+     */
+    @Override
+    public void stop() {
+        HibernateUtil.shutdown();
+    }
+
     /**
      * Maneja la integración con Microsoft OneDrive.
      */
@@ -0,0 +1,225 @@
+package Util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Almacén local embebido (H2 en un archivo del perfil del usuario) para el modo sin conexión.
+ *
+ * <p>Con `todolist.offline.habilitado=true`, {@link HibernateUtil#getSessionFactory()} devuelve la fábrica de
+ * sesiones de este almacén: los DAO leen y escriben en local, sin depender de la red ni del estado de MySQL, y
+ * {@link Sincronizador} intercambia los cambios con el servidor en segundo plano.</p>
+ *
+ * <p><strong>Esquema local:</strong></p>
+ * <ul>
+ *     <li>Las mismas tablas que el servidor, más `CambiosPendientes`, que anota el disparador
+ *     {@link RegistroCambiosLocal}.</li>
+ *     <li>Los identificadores generados en local empiezan en {@link #ID_LOCAL_MINIMO}, muy por encima de los del
+ *     servidor, para que no coincidan con ellos; al sincronizarse, la fila recibe el identificador definitivo del
+ *     servidor.</li>
+ *     <li>Las claves foráneas de `Tarea` usan `ON UPDATE CASCADE` para seguir a ese cambio de identificador.</li>
+ * </ul>
+ *
+ * <p><strong>Propiedades admitidas (prefijo `todolist.offline.`):</strong></p>
+ * <ul>
+ *     <li>`habilitado`: activa el modo sin conexión.</li>
+ *     <li>`ruta`: archivo de la base de datos local, sin extensión (por defecto `~/.todolist/local`).</li>
+ *     <li>`intervalo_ms` / `tamano_lote`: ver {@link Sincronizador}.</li>
+ * </ul>
+ *
+ * <p>La caché de segundo nivel no se usa en el almacén local: las lecturas ya son locales y así los cambios
+ * que aplica el sincronizador por JDBC se ven inmediatamente.</p>
+ */
+public final class AlmacenLocal {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenLocal.class);
+
+    private static final String PREFIJO = "todolist.offline.";
+
+    /**
+     * Tablas de compras del almacén local, en el mismo orden en que se sincronizan.
+     */
+    static final String[] TABLAS_COMPRAS = {"CompraComida", "CompraLimpieza", "CompraVarios"};
+
+    /**
+     * Primer identificador de las filas creadas en local. Los identificadores siguen siendo positivos, como
+     * exigen las validaciones de los DAO y controladores.
+     */
+    static final int ID_LOCAL_MINIMO = 2_000_000_000;
+
+    private static volatile SessionFactory sessionFactory;
+    private static StandardServiceRegistry registry;
+    private static HikariDataSource dataSource;
+
+    private AlmacenLocal() {
+    }
+
+    /**
+     * Indica si el modo sin conexión está habilitado en la configuración.
+     *
+     * @return `true` si `todolist.offline.habilitado` es `true`.
+     */
+    public static boolean isHabilitado() {
+        return Configuracion.getBooleano(PREFIJO + "habilitado", false);
+    }
+
+    /**
+     * Devuelve la fábrica de sesiones del almacén local, creando el almacén y arrancando la sincronización la
+     * primera vez.
+     *
+     * @return La fábrica de sesiones sobre la base de datos local.
+     * @throws ExceptionInInitializerError Si no se puede abrir o preparar la base de datos local.
+     */
+    public static SessionFactory getSessionFactory() {
+        if (sessionFactory == null) {
+            synchronized (AlmacenLocal.class) {
+                if (sessionFactory == null) {
+                    try {
+                        dataSource = crearDataSource();
+                        try (Connection conexion = dataSource.getConnection()) {
+                            crearEsquema(conexion);
+                        }
+                        StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().configure();
+                        builder.applySetting(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+                        builder.getSettings().remove(AvailableSettings.JAKARTA_JDBC_URL);
+                        builder.getSettings().remove(AvailableSettings.JAKARTA_JDBC_USER);
+                        builder.getSettings().remove(AvailableSettings.JAKARTA_JDBC_PASSWORD);
+                        builder.getSettings().remove(AvailableSettings.JAKARTA_JDBC_DRIVER);
+                        builder.getSettings().remove(AvailableSettings.DIALECT);  // Se detecta H2
+                        builder.applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                        builder.applySetting(AvailableSettings.USE_QUERY_CACHE, false);
+                        registry = builder.build();
+                        sessionFactory = new MetadataSources(registry).getMetadataBuilder().build()
+                                .getSessionFactoryBuilder().build();
+                        logger.info("Almacén local abierto en {}.", getRuta());
+                        Sincronizador.iniciar();
+                    } catch (Exception e) {
+                        cerrarRecursos();
+                        throw new ExceptionInInitializerError("Error al abrir el almacén local: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return sessionFactory;
+    }
+
+    /**
+     * Abre una conexión JDBC al almacén local, para el sincronizador.
+     *
+     * @return Conexión que el llamante debe cerrar.
+     * @throws SQLException Si la base de datos local no está disponible.
+     */
+    static Connection abrirConexion() throws SQLException {
+        getSessionFactory();
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Detiene la sincronización y cierra el almacén local. Los cambios pendientes quedan guardados y se
+     * envían en el siguiente arranque.
+     */
+    public static void cerrar() {
+        synchronized (AlmacenLocal.class) {
+            if (sessionFactory == null) {
+                return;
+            }
+            Sincronizador.detener();
+            cerrarRecursos();
+            logger.info("Almacén local cerrado correctamente.");
+        }
+    }
+
+    private static void cerrarRecursos() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+        sessionFactory = null;
+        if (registry != null) {
+            StandardServiceRegistryBuilder.destroy(registry);
+            registry = null;
+        }
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    private static String getRuta() {
+        return Configuracion.getTexto(PREFIJO + "ruta",
+                System.getProperty("user.home") + File.separator + ".todolist" + File.separator + "local");
+    }
+
+    private static HikariDataSource crearDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("ToDoListLocal");
+        // MODE=MySQL para que las consultas nativas (UNION ALL, LIMIT) se comporten igual que en el servidor
+        config.setJdbcUrl("jdbc:h2:file:" + getRuta() + ";MODE=MySQL;DATABASE_TO_UPPER=false");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMinimumIdle(1);
+        config.setMaximumPoolSize(Configuracion.getEntero("todolist.async.hilos", 4) + 2);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Crea las tablas, índices y disparadores locales si no existen.
+     */
+    private static void crearEsquema(Connection conexion) throws SQLException {
+        String[] sufijos = {"Comida", "Limpieza", "Varios"};
+        try (Statement st = conexion.createStatement()) {
+            for (int i = 0; i < TABLAS_COMPRAS.length; i++) {
+                String tabla = TABLAS_COMPRAS[i];
+                st.execute("CREATE TABLE IF NOT EXISTS " + tabla + " ("
+                        + "IdUnico INT GENERATED BY DEFAULT AS IDENTITY (START WITH " + ID_LOCAL_MINIMO + ") PRIMARY KEY, "
+                        + "NombreProducto VARCHAR(255) NOT NULL, "
+                        + "Descripcion VARCHAR(455) NOT NULL, "
+                        + "Foto BOOLEAN NOT NULL DEFAULT FALSE, "
+                        + "NumeroUnicoFoto INT NULL, "
+                        + "Cantidad INT NOT NULL, "
+                        + "Realizado BOOLEAN NOT NULL DEFAULT FALSE, "
+                        + "SuperMercado VARCHAR(255) NOT NULL, "
+                        + "Version INT NOT NULL DEFAULT 0, "
+                        + "CONSTRAINT chk_Foto_" + sufijos[i] + " CHECK (Foto = FALSE OR NumeroUnicoFoto IS NOT NULL))");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_" + tabla + "_realizado_supermercado ON " + tabla + " (Realizado, SuperMercado)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_" + tabla + "_supermercado ON " + tabla + " (SuperMercado)");
+            }
+            st.execute("CREATE TABLE IF NOT EXISTS Tarea ("
+                    + "Id INT GENERATED BY DEFAULT AS IDENTITY (START WITH " + ID_LOCAL_MINIMO + ") PRIMARY KEY, "
+                    + "IDCompraComida INT NULL, "
+                    + "IDCompraLimpieza INT NULL, "
+                    + "IDCompraVarios INT NULL, "
+                    + "FOREIGN KEY (IDCompraComida) REFERENCES CompraComida(IdUnico) ON DELETE CASCADE ON UPDATE CASCADE, "
+                    + "FOREIGN KEY (IDCompraLimpieza) REFERENCES CompraLimpieza(IdUnico) ON DELETE CASCADE ON UPDATE CASCADE, "
+                    + "FOREIGN KEY (IDCompraVarios) REFERENCES CompraVarios(IdUnico) ON DELETE CASCADE ON UPDATE CASCADE)");
+            st.execute("CREATE TABLE IF NOT EXISTS CambiosPendientes ("
+                    + "Tabla VARCHAR(50) NOT NULL, "
+                    + "IdUnico INT NOT NULL, "
+                    + "Operacion VARCHAR(10) NOT NULL, "
+                    + "VersionBase INT NULL, "
+                    + "Cambio BIGINT NOT NULL, "
+                    + "PRIMARY KEY (Tabla, IdUnico))");
+            // Última escritura diferida aplicada (dao.DiarioEscrituras), también cuando los DAO trabajan en local
+            st.execute("CREATE TABLE IF NOT EXISTS DiarioAplicado (Cliente VARCHAR(36) PRIMARY KEY, Secuencia BIGINT NOT NULL)");
+            // Identificador de este almacén en la tabla AltasSincronizadas del servidor (Util.Sincronizador)
+            st.execute("CREATE TABLE IF NOT EXISTS ClienteSincronizacion (Id VARCHAR(36) PRIMARY KEY)");
+            // Hora del servidor hasta la que se recibió cada tabla (Util.Sincronizador)
+            st.execute("CREATE TABLE IF NOT EXISTS MarcasRecepcion (Tabla VARCHAR(50) PRIMARY KEY, Modificado TIMESTAMP(6) NOT NULL)");
+            for (String tabla : new String[]{"CompraComida", "CompraLimpieza", "CompraVarios", "Tarea"}) {
+                st.execute("CREATE TRIGGER IF NOT EXISTS trg_cambios_" + tabla + " AFTER INSERT, UPDATE, DELETE ON " + tabla
+                        + " FOR EACH ROW CALL '" + RegistroCambiosLocal.class.getName() + "'");
+            }
+        }
+    }
+}
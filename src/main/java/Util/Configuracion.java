@@ -0,0 +1,116 @@
+package Util;
+
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Clase utilitaria que centraliza la lectura de las propiedades de configuración de la aplicación.
+ *
+ * <p>Las propiedades se leen del archivo `hibernate.cfg.xml` (tanto las propias de Hibernate como
+ * las de la aplicación, con prefijo `todolist.`) y pueden sobrescribirse con propiedades del sistema
+ * (`-Dtodolist.pool.maximo=20`), lo que permite cambiar de modo sin recompilar.</p>
+ *
+ * <p><strong>Mejoras en Seguridad y Robustez:</strong></p>
+ * <ul>
+ *     <li>Los valores no numéricos o vacíos se ignoran y se usa el valor por defecto, registrando un aviso.</li>
+ *     <li>La carga se realiza una sola vez y de forma segura en entornos multi-hilo.</li>
+ * </ul>
+ */
+public final class Configuracion {
+
+    private static final Logger logger = LoggerFactory.getLogger(Configuracion.class);
+
+    /**
+     * Propiedades cargadas desde `hibernate.cfg.xml`, combinadas con las propiedades del sistema.
+     */
+    private static volatile Map<String, Object> propiedades;
+
+    private Configuracion() {
+    }
+
+    /**
+     * Devuelve todas las propiedades de configuración cargadas.
+     *
+     * @return Mapa inmutable con las propiedades.
+     */
+    public static Map<String, Object> getPropiedades() {
+        if (propiedades == null) {
+            synchronized (Configuracion.class) {
+                if (propiedades == null) {
+                    Map<String, Object> cargadas = new HashMap<>();
+                    StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().configure();
+                    builder.getSettings().forEach((clave, valor) -> cargadas.put(String.valueOf(clave), valor));
+                    System.getProperties().forEach((clave, valor) -> {
+                        if (String.valueOf(clave).startsWith("todolist.") || String.valueOf(clave).startsWith("hibernate.")) {
+                            cargadas.put(String.valueOf(clave), valor);
+                        }
+                    });
+                    propiedades = Map.copyOf(cargadas);
+                }
+            }
+        }
+        return propiedades;
+    }
+
+    /**
+     * Obtiene una propiedad de texto.
+     *
+     * @param clave         Nombre de la propiedad.
+     * @param valorDefecto  Valor a devolver si la propiedad no existe.
+     * @return El valor de la propiedad sin espacios al principio ni al final.
+     */
+    public static String getTexto(String clave, String valorDefecto) {
+        Object valor = getPropiedades().get(clave);
+        if (valor == null || valor.toString().isBlank()) {
+            return valorDefecto;
+        }
+        return valor.toString().trim();
+    }
+
+    /**
+     * Obtiene una propiedad booleana.
+     *
+     * @param clave         Nombre de la propiedad.
+     * @param valorDefecto  Valor a devolver si la propiedad no existe.
+     * @return El valor de la propiedad.
+     */
+    public static boolean getBooleano(String clave, boolean valorDefecto) {
+        String valor = getTexto(clave, null);
+        return valor == null ? valorDefecto : Boolean.parseBoolean(valor);
+    }
+
+    /**
+     * Obtiene una propiedad numérica entera.
+     *
+     * @param clave         Nombre de la propiedad.
+     * @param valorDefecto  Valor a devolver si la propiedad no existe o no es un número.
+     * @return El valor de la propiedad.
+     */
+    public static int getEntero(String clave, int valorDefecto) {
+        return (int) getLargo(clave, valorDefecto);
+    }
+
+    /**
+     * Obtiene una propiedad numérica larga.
+     *
+     * @param clave         Nombre de la propiedad.
+     * @param valorDefecto  Valor a devolver si la propiedad no existe o no es un número.
+     * @return El valor de la propiedad.
+     */
+    public static long getLargo(String clave, long valorDefecto) {
+        String valor = getTexto(clave, null);
+        if (valor == null) {
+            return valorDefecto;
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            logger.warn("Valor no numérico para la propiedad {}: '{}'. Se usa {}.", clave, valor, valorDefecto);
+            return valorDefecto;
+        }
+    }
+}
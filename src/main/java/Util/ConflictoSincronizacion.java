@@ -0,0 +1,17 @@
+package Util;
+
+import java.time.Instant;
+
+/**
+ * Cambio local descartado durante la sincronización porque la fila también cambió en el servidor.
+ *
+ * <p>Los conflictos se resuelven a favor del servidor: la fila local se sustituye por la del servidor (o se borra
+ * si el servidor ya no la tiene).</p>
+ *
+ * @param tabla     Tabla de la fila en conflicto.
+ * @param id        Identificador de la fila.
+ * @param operacion Operación local descartada (`UPDATE` o `DELETE`).
+ * @param fecha     Momento en que se detectó el conflicto.
+ */
+public record ConflictoSincronizacion(String tabla, int id, String operacion, Instant fecha) {
+}
@@ -0,0 +1,170 @@
+package Util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ejecutor acotado para las operaciones de base de datos asíncronas.
+ *
+ * <p>Las operaciones se ejecutan en un número fijo de hilos (`todolist.async.hilos`) con una cola de espera
+ * limitada (`todolist.async.cola`). Si la cola está llena, la operación se rechaza inmediatamente en lugar de
+ * acumular trabajo sin límite; el futuro devuelto termina con `RejectedExecutionException`.</p>
+ *
+ * <p><strong>Tiempo máximo y cancelación:</strong></p>
+ * <ul>
+ *     <li>Cada operación tiene un tiempo máximo; al superarlo, el futuro termina con `TimeoutException`.</li>
+ *     <li>Al cancelar el futuro o agotar el tiempo, la tarea se retira de la cola si aún no había empezado, o se
+ *     interrumpe su hilo si ya estaba en ejecución.</li>
+ * </ul>
+ *
+ * <p>Los hilos son de tipo daemon, por lo que no impiden cerrar la aplicación, y el número de hilos no debería
+ * superar el tamaño máximo del pool de conexiones.</p>
+ */
+public final class EjecutorBD {
+
+    private static final Logger logger = LoggerFactory.getLogger(EjecutorBD.class);
+
+    private static volatile ThreadPoolExecutor ejecutor;
+
+    private EjecutorBD() {
+    }
+
+    /**
+     * Devuelve el tiempo máximo por defecto de una operación.
+     *
+     * @return Valor de `todolist.async.timeout_ms`, o 30 segundos si no está configurado.
+     */
+    public static Duration getTimeoutPorDefecto() {
+        return Duration.ofMillis(Configuracion.getLargo("todolist.async.timeout_ms", 30_000L));
+    }
+
+    /**
+     * Ejecuta una operación de forma asíncrona con el tiempo máximo por defecto.
+     *
+     * @param operacion Nombre de la operación, usado en los mensajes de log.
+     * @param tarea     Operación a ejecutar.
+     * @return Futuro con el resultado de la operación.
+     */
+    public static <T> CompletableFuture<T> ejecutar(String operacion, Supplier<T> tarea) {
+        return ejecutar(operacion, tarea, getTimeoutPorDefecto());
+    }
+
+    /**
+     * Ejecuta una operación de forma asíncrona con el tiempo máximo indicado.
+     *
+     * @param operacion Nombre de la operación, usado en los mensajes de log.
+     * @param tarea     Operación a ejecutar.
+     * @param timeout   Tiempo máximo de la operación, contando la espera en cola.
+     * @return Futuro con el resultado de la operación. Termina con `RejectedExecutionException` si la cola está
+     * llena, con `TimeoutException` si se supera el tiempo, o con la excepción lanzada por la operación.
+     * @throws IllegalArgumentException Si el tiempo máximo no es positivo.
+     */
+    public static <T> CompletableFuture<T> ejecutar(String operacion, Supplier<T> tarea, Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("El tiempo máximo debe ser positivo.");
+        }
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Future<?> envio;
+        try {
+            envio = getEjecutor().submit(() -> {
+                if (resultado.isDone()) {
+                    return;  // Cancelada o expirada mientras esperaba en la cola
+                }
+                try {
+                    resultado.complete(tarea.get());
+                } catch (Throwable e) {
+                    resultado.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Operación '{}' rechazada: la cola de operaciones de base de datos está llena.", operacion);
+            resultado.completeExceptionally(e);
+            return resultado;
+        }
+
+        resultado.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        resultado.whenComplete((valor, error) -> {
+            if (error instanceof TimeoutException || error instanceof CancellationException) {
+                envio.cancel(true);
+                logger.warn("Operación '{}' {}.", operacion,
+                        error instanceof TimeoutException ? "cancelada tras superar " + timeout.toMillis() + " ms" : "cancelada");
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Devuelve el número de operaciones en ejecución y en cola.
+     *
+     * @return Operaciones pendientes, o 0 si el ejecutor no se ha creado.
+     */
+    public static int getPendientes() {
+        ThreadPoolExecutor actual = ejecutor;
+        return actual == null ? 0 : actual.getActiveCount() + actual.getQueue().size();
+    }
+
+    /**
+     * Detiene el ejecutor esperando como máximo unos segundos a las operaciones en curso.
+     * Debe llamarse al apagar la aplicación, antes de cerrar Hibernate.
+     */
+    public static void cerrar() {
+        synchronized (EjecutorBD.class) {
+            if (ejecutor == null) {
+                return;
+            }
+            ejecutor.shutdown();
+            try {
+                if (!ejecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    ejecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                ejecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            ejecutor = null;
+            logger.info("Ejecutor de operaciones de base de datos detenido.");
+        }
+    }
+
+    private static ThreadPoolExecutor getEjecutor() {
+        if (ejecutor == null) {
+            synchronized (EjecutorBD.class) {
+                if (ejecutor == null) {
+                    int hilos = Math.max(1, Configuracion.getEntero("todolist.async.hilos", 4));
+                    int cola = Math.max(1, Configuracion.getEntero("todolist.async.cola", 100));
+                    ejecutor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(cola), new FabricaHilos(), new ThreadPoolExecutor.AbortPolicy());
+                    logger.info("Ejecutor de operaciones de base de datos creado: {} hilos, cola de {}.", hilos, cola);
+                }
+            }
+        }
+        return ejecutor;
+    }
+
+    /**
+     * Crea hilos daemon con nombre reconocible en los volcados de hilos y en los logs.
+     */
+    private static final class FabricaHilos implements ThreadFactory {
+        private final AtomicInteger contador = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread hilo = new Thread(r, "bd-async-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    }
+}
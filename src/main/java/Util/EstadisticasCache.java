@@ -0,0 +1,39 @@
+package Util;
+
+/**
+ * Instantánea inmutable de los aciertos y fallos de la caché de segundo nivel y de la caché de consultas.
+ *
+ * @param aciertosEntidades  Entidades encontradas en la caché de segundo nivel.
+ * @param fallosEntidades    Entidades buscadas en la caché de segundo nivel que hubo que leer de la base de datos.
+ * @param escriturasEntidades Entidades guardadas en la caché de segundo nivel.
+ * @param aciertosConsultas  Consultas resueltas desde la caché de consultas.
+ * @param fallosConsultas    Consultas buscadas en la caché de consultas que hubo que ejecutar en la base de datos.
+ * @param escriturasConsultas Resultados de consultas guardados en la caché.
+ */
+public record EstadisticasCache(long aciertosEntidades,
+                                long fallosEntidades,
+                                long escriturasEntidades,
+                                long aciertosConsultas,
+                                long fallosConsultas,
+                                long escriturasConsultas) {
+
+    /**
+     * Proporción de búsquedas de entidades resueltas desde la caché.
+     *
+     * @return Valor entre 0 y 1, o 0 si aún no hubo búsquedas.
+     */
+    public double tasaAciertosEntidades() {
+        long total = aciertosEntidades + fallosEntidades;
+        return total == 0 ? 0 : (double) aciertosEntidades / total;
+    }
+
+    /**
+     * Proporción de consultas resueltas desde la caché.
+     *
+     * @return Valor entre 0 y 1, o 0 si aún no hubo consultas cacheables.
+     */
+    public double tasaAciertosConsultas() {
+        long total = aciertosConsultas + fallosConsultas;
+        return total == 0 ? 0 : (double) aciertosConsultas / total;
+    }
+}
@@ -0,0 +1,23 @@
+package Util;
+
+/**
+ * Instantánea inmutable del estado del pool de conexiones.
+ *
+ * @param conexionesActivas          Conexiones prestadas en este momento.
+ * @param conexionesInactivas        Conexiones abiertas y disponibles en el pool.
+ * @param conexionesTotales          Total de conexiones abiertas (activas + inactivas).
+ * @param hilosEsperando             Hilos bloqueados esperando una conexión.
+ * @param adquisiciones              Número de conexiones entregadas desde el arranque.
+ * @param latenciaMediaAdquisicionMs Tiempo medio de espera para obtener una conexión, en milisegundos.
+ * @param latenciaMaximaAdquisicionMs Mayor tiempo de espera registrado para obtener una conexión, en milisegundos.
+ * @param timeouts                   Número de peticiones que agotaron el tiempo de espera.
+ */
+public record EstadisticasPool(int conexionesActivas,
+                               int conexionesInactivas,
+                               int conexionesTotales,
+                               int hilosEsperando,
+                               long adquisiciones,
+                               double latenciaMediaAdquisicionMs,
+                               double latenciaMaximaAdquisicionMs,
+                               long timeouts) {
+}
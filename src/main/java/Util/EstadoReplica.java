@@ -0,0 +1,11 @@
+package Util;
+
+/**
+ * Estado de una réplica de lectura según la última comprobación.
+ *
+ * @param url             URL JDBC de la réplica.
+ * @param disponible      Si la réplica responde y su retraso está dentro de la tolerancia.
+ * @param retrasoSegundos Retraso de replicación en segundos, o `-1` si no se pudo determinar.
+ */
+public record EstadoReplica(String url, boolean disponible, long retrasoSegundos) {
+}
@@ -1,10 +1,24 @@
 package Util;
 
+import dao.DiarioEscrituras;
+import dao.InstantaneaCompras;
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
  * Clase utilitaria para gestionar la sesión de Hibernate.
@@ -16,6 +30,12 @@ import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
  *     <li>Configurar Hibernate desde el archivo de configuración `hibernate.cfg.xml`.</li>
  *     <li>Proporcionar un método para obtener el `SessionFactory`.</li>
  *     <li>Gestionar el cierre del `SessionFactory` y el `StandardServiceRegistry` para evitar fugas de memoria.</li>
+ *     <li>Entregar a Hibernate el pool de conexiones de {@link PoolConexiones} cuando `todolist.pool.habilitado` es `true`.</li>
+ *     <li>Activar la caché de segundo nivel y de consultas (JCache + Ehcache) cuando `todolist.cache.habilitada` es `true`.</li>
+ *     <li>Aplicar las migraciones de esquema pendientes ({@link MigradorEsquema}) antes de crear el `SessionFactory`.</li>
+ *     <li>Abrir las sesiones de solo lectura sobre una réplica de {@link PoolReplicas} cuando `todolist.replicas.habilitado`
+ *     es `true`, volviendo al servidor principal si ninguna está disponible.</li>
+ *     <li>Trabajar sobre el almacén local de {@link AlmacenLocal} cuando `todolist.offline.habilitado` es `true`.</li>
  * </ul>
  *
  * <p><strong>Mejoras en Seguridad y Robustez:</strong></p>
@@ -27,6 +47,8 @@ import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
  */
 public class HibernateUtil {
 
+    private static final Logger logger = LoggerFactory.getLogger(HibernateUtil.class);
+
     /**
      * Registro de servicios estándar utilizado para configurar Hibernate.
      * Este objeto es parte de la configuración de Hibernate, gestionando todos los servicios necesarios para la sesión.
@@ -40,7 +62,20 @@ public class HibernateUtil {
     private static SessionFactory sessionFactory;
 
     /**
-     * Devuelve el objeto `SessionFactory`, creando uno nuevo si no existe.
+     * Devuelve la fábrica de sesiones que usan los DAO.
+     *
+     * <p>En modo sin conexión (`todolist.offline.habilitado=true`) es la del almacén local de {@link AlmacenLocal},
+     * que se sincroniza con el servidor en segundo plano; en otro caso es la del servidor principal
+     * ({@link #getSessionFactoryServidor()}).</p>
+     *
+     * @return La fábrica de sesiones de los DAO.
+     */
+    public static SessionFactory getSessionFactory() {
+        return AlmacenLocal.isHabilitado() ? AlmacenLocal.getSessionFactory() : getSessionFactoryServidor();
+    }
+
+    /**
+     * Devuelve el objeto `SessionFactory` del servidor principal, creando uno nuevo si no existe.
      * Este método está diseñado para ser seguro en entornos multi-hilo.
      *
      * <p>En primer lugar, se verifica si la fábrica de sesiones ya existe. Si no es así,
@@ -51,13 +86,26 @@ public class HibernateUtil {
      *
      * @return La instancia única de `SessionFactory`.
      */
-    public static SessionFactory getSessionFactory() {
+    public static SessionFactory getSessionFactoryServidor() {
         if (sessionFactory == null) {
             synchronized (HibernateUtil.class) {
                 if (sessionFactory == null) { // Doble comprobación para garantizar seguridad en multi-hilos.
                     try {
+                        // Aplicar las migraciones de esquema pendientes antes de que Hibernate valide el esquema
+                        MigradorEsquema.migrar();
+
                         // Crear el registro de servicios estándar
-                        registry = new StandardServiceRegistryBuilder().configure().build();
+                        StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().configure();
+
+                        // En modo pool, Hibernate obtiene las conexiones del DataSource de HikariCP,
+                        // que ya tiene las credenciales configuradas
+                        if (PoolConexiones.isHabilitado()) {
+                            builder.applySetting(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, PoolConexiones.getDataSource());
+                            builder.getSettings().remove(AvailableSettings.JAKARTA_JDBC_USER);
+                            builder.getSettings().remove(AvailableSettings.JAKARTA_JDBC_PASSWORD);
+                        }
+                        aplicarCache(builder);
+                        registry = builder.build();
 
                         // Crear los metadatos desde las configuraciones
                         MetadataSources sources = new MetadataSources(registry);
@@ -72,6 +120,7 @@ public class HibernateUtil {
                         if (registry != null) {
                             StandardServiceRegistryBuilder.destroy(registry);
                         }
+                        PoolConexiones.cerrar();
                         // Lanzar una excepción detallada con el mensaje de error
                         throw new ExceptionInInitializerError("Error al inicializar Hibernate SessionFactory: " + e.getMessage());
                     }
@@ -81,6 +130,130 @@ public class HibernateUtil {
         return sessionFactory;
     }
 
+    /**
+     * Abre una sesión de solo lectura para consultas de listado y búsqueda.
+     *
+     * <p>En modo réplica, la sesión usa una conexión de una réplica disponible, que se devuelve a su pool al
+     * cerrar la sesión. Si el modo réplica está deshabilitado o ninguna réplica está disponible, la sesión se
+     * abre sobre el servidor principal. En ambos casos las entidades se cargan en modo solo lectura.</p>
+     *
+     * <p>Las sesiones de una réplica usan `CacheMode.GET`: aprovechan la caché de segundo nivel y de consultas, pero
+     * no guardan en ella lo que leen, para que los datos de una réplica retrasada no se sirvan después a quien lee
+     * del servidor principal.</p>
+     *
+     * <p>La sesión no debe usarse para escribir: en una réplica las escrituras fallarían o se perderían.</p>
+     *
+     * <p>En modo sin conexión la sesión se abre siempre sobre el almacén local.</p>
+     *
+     * @return Sesión de solo lectura que el llamante debe cerrar.
+     */
+    public static Session abrirSesionLectura() {
+        boolean local = AlmacenLocal.isHabilitado();
+        SessionFactory factory = getSessionFactory();
+        Connection conexion = !local && PoolReplicas.isHabilitado() ? PoolReplicas.obtenerConexion() : null;
+        Session session;
+        if (conexion == null) {
+            session = factory.openSession();
+        } else {
+            // Hibernate no cierra las conexiones que recibe, así que se cierran al terminar la sesión
+            session = factory.withOptions()
+                    .connection(conexion)
+                    .eventListeners(new CierreConexion(conexion))
+                    .openSession();
+            // La réplica puede ir retrasada: se leen las cachés compartidas, pero sin guardar en ellas lo leído
+            session.setCacheMode(CacheMode.GET);
+        }
+        session.setDefaultReadOnly(true);
+        return session;
+    }
+
+    /**
+     * Abre una conexión JDBC de solo lectura, con el mismo criterio que {@link #abrirSesionLectura()}: el almacén
+     * local en modo sin conexión, una réplica disponible en modo réplica o, si no, el servidor principal.
+     *
+     * <p>Es para los DAO que leen con JDBC directo; la conexión no debe usarse para escribir.</p>
+     *
+     * @return Conexión que el llamante debe cerrar.
+     * @throws SQLException Si no se puede abrir la conexión.
+     */
+    public static Connection abrirConexionLectura() throws SQLException {
+        if (AlmacenLocal.isHabilitado()) {
+            return AlmacenLocal.abrirConexion();
+        }
+        Connection conexion = PoolReplicas.isHabilitado() ? PoolReplicas.obtenerConexion() : null;
+        return conexion != null ? conexion : PoolConexiones.abrirConexionServidor();
+    }
+
+    /**
+     * Indica si la caché de segundo nivel está habilitada en la configuración.
+     *
+     * @return `true` si `todolist.cache.habilitada` es `true`.
+     */
+    public static boolean isCacheHabilitada() {
+        return Configuracion.getBooleano("todolist.cache.habilitada", false);
+    }
+
+    /**
+     * Elimina de la caché de segundo nivel los datos de la entidad indicada y los resultados de consultas guardados.
+     *
+     * <p>Las escrituras hechas con Hibernate (`save`, `update`, `delete`) mantienen la caché al día por sí solas;
+     * este método es necesario tras las escrituras que van directamente por JDBC (lotes) y que Hibernate no ve.
+     * Si la caché está deshabilitada no hace nada.</p>
+     *
+     * @param entidad Clase de la entidad cuyos datos se han modificado.
+     */
+    public static void invalidarCache(Class<?> entidad) {
+        if (sessionFactory == null || sessionFactory.isClosed() || !isCacheHabilitada()) {
+            return;
+        }
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(entidad);
+        cache.evictQueryRegions();
+        cache.evictDefaultQueryRegion();
+    }
+
+    /**
+     * Devuelve los aciertos y fallos acumulados de la caché de segundo nivel y de consultas.
+     *
+     * @return Instantánea de las estadísticas; todo a cero si la caché está deshabilitada o Hibernate no está iniciado.
+     */
+    public static EstadisticasCache getEstadisticasCache() {
+        if (sessionFactory == null || sessionFactory.isClosed() || !isCacheHabilitada()) {
+            return new EstadisticasCache(0, 0, 0, 0, 0, 0);
+        }
+        Statistics estadisticas = sessionFactory.getStatistics();
+        return new EstadisticasCache(
+                estadisticas.getSecondLevelCacheHitCount(),
+                estadisticas.getSecondLevelCacheMissCount(),
+                estadisticas.getSecondLevelCachePutCount(),
+                estadisticas.getQueryCacheHitCount(),
+                estadisticas.getQueryCacheMissCount(),
+                estadisticas.getQueryCachePutCount());
+    }
+
+    /**
+     * Configura la caché de segundo nivel según `todolist.cache.habilitada`.
+     *
+     * <p>Con la caché habilitada se usan JCache con Ehcache como proveedor (regiones y límites en el archivo
+     * `todolist.cache.configuracion`) y se activan las estadísticas para poder consultar aciertos y fallos.
+     * Con la caché deshabilitada se desactiva explícitamente, aunque las entidades estén anotadas con `@Cache`.</p>
+     */
+    private static void aplicarCache(StandardServiceRegistryBuilder builder) {
+        if (!isCacheHabilitada()) {
+            builder.applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            builder.applySetting(AvailableSettings.USE_QUERY_CACHE, false);
+            return;
+        }
+        builder.applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        builder.applySetting(AvailableSettings.USE_QUERY_CACHE, true);
+        builder.applySetting(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+        builder.applySetting(ConfigSettings.PROVIDER, "org.ehcache.jsr107.EhcacheCachingProvider");
+        builder.applySetting(ConfigSettings.CONFIG_URI, Configuracion.getTexto("todolist.cache.configuracion", "ehcache.xml"));
+        builder.applySetting(AvailableSettings.GENERATE_STATISTICS, true);
+        // Las estadísticas no deben registrar un resumen en el log al cerrar cada sesión
+        builder.applySetting(AvailableSettings.LOG_SESSION_METRICS, false);
+    }
+
     /**
      * Apaga el `SessionFactory` y destruye el registro de servicios estándar.
      * Este método debe ser llamado al cerrar la aplicación para liberar recursos.
@@ -88,11 +261,39 @@ public class HibernateUtil {
      * <p>Utiliza un chequeo para asegurarse de que el `SessionFactory` no esté cerrado antes de intentar cerrarlo.</p>
      */
     public static void shutdown() {
+        EjecutorBD.cerrar(); // Terminar las operaciones asíncronas antes de cerrar las sesiones
+        DiarioEscrituras.cerrarSiAbierto(); // Aplicar las escrituras diferidas pendientes que dé tiempo
+        InstantaneaCompras.cerrarSiIniciada(); // Guardar la instantánea de compras con los datos finales
+        AlmacenLocal.cerrar(); // Detener la sincronización y cerrar el almacén local, si se abrió
+        PoolReplicas.cerrar(); // Cerrar los pools de réplicas, si se crearon
         if (sessionFactory != null && !sessionFactory.isClosed()) {
             sessionFactory.close(); // Cerrar el SessionFactory
         }
         if (registry != null) {
             StandardServiceRegistryBuilder.destroy(registry); // Destruir el registro de servicios
         }
+        PoolConexiones.cerrar(); // Cerrar el pool de conexiones, si se creó
+    }
+
+    /**
+     * Devuelve la conexión de la réplica a su pool cuando se cierra la sesión que la usaba.
+     */
+    private static final class CierreConexion implements SessionEventListener {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Connection conexion;
+
+        private CierreConexion(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public void end() {
+            try {
+                conexion.close();
+            } catch (SQLException e) {
+                logger.warn("Error al devolver la conexión de la réplica al pool: {}", e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,646 @@
+package Util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria para búsquedas de texto sobre documentos con nombre y descripción, con resultados
+ * ordenados por relevancia (BM25).
+ *
+ * <p>Cada documento se identifica con una clave `long` que elige el llamante. Para cada término se guarda la
+ * lista de documentos que lo contienen y cuántas veces, de modo que una búsqueda solo recorre las listas de sus
+ * propios términos, sin importar el número total de documentos.</p>
+ *
+ * <ul>
+ *     <li><strong>Términos:</strong> el texto se pasa a minúsculas, se le quitan las tildes y se parte por todo
+ *     lo que no sea letra o dígito. Se descartan las palabras vacías más frecuentes del castellano.</li>
+ *     <li><strong>Campos:</strong> cada aparición en el nombre cuenta como {@link #PESO_NOMBRE} apariciones en la
+ *     descripción.</li>
+ *     <li><strong>Puntuación:</strong> BM25 con `k1 = 1.2` y `b = 0.75`. Una búsqueda de varios términos devuelve
+ *     los documentos que contienen alguno, por delante los que contienen más y los más raros.</li>
+ *     <li><strong>Borrados:</strong> borrar o sustituir un documento solo lo marca como borrado; sus entradas se
+ *     eliminan de las listas al compactar, cuando hay más documentos borrados que vivos.</li>
+ *     <li><strong>Recorrido:</strong> las listas se recorren a la vez por número de documento (MaxScore). En cuanto
+ *     hay suficientes resultados, los términos cuya aportación máxima ya no basta para entrar entre los mejores
+ *     dejan de proponer candidatos y solo se consultan, con saltos, para los documentos que proponen los demás.</li>
+ * </ul>
+ *
+ * <p>Es seguro para varios hilos: las búsquedas se ejecutan en paralelo y las modificaciones en exclusiva.</p>
+ */
+public final class IndiceInvertido {
+
+    /**
+     * Número de veces que cuenta cada aparición de un término en el nombre.
+     */
+    public static final int PESO_NOMBRE = 2;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * Número mínimo de documentos borrados para compactar.
+     */
+    private static final int COMPACTAR_DESDE = 10_000;
+
+    private static final Pattern SEPARADOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Set<String> PALABRAS_VACIAS = Set.of("a", "al", "con", "de", "del", "e", "el", "en", "la",
+            "las", "lo", "los", "o", "para", "por", "sin", "u", "un", "una", "unos", "unas", "y");
+
+    /**
+     * Longitudes de documento para las que cada búsqueda precalcula el denominador de BM25.
+     */
+    private static final int LONGITUDES_PRECALCULADAS = 256;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final Map<String, Postings> terminos = new HashMap<>();
+    private final MapaClaves documentos = new MapaClaves();
+
+    // Datos por número de documento interno
+    private long[] claves = new long[1024];
+    private int[] longitudes = new int[1024];
+    private Postings[][] terminosDocumento = new Postings[1024][];
+    private long[] borrados = new long[1024 / 64];
+    private int siguienteDocumento;
+    private int vivos;
+    private long sumaLongitudes;
+
+    /**
+     * Añade un documento al índice, o lo sustituye si ya existía uno con la misma clave.
+     *
+     * @param clave       Clave del documento.
+     * @param nombre      Nombre del documento; puede ser `null`.
+     * @param descripcion Descripción del documento; puede ser `null`.
+     */
+    public void agregar(long clave, String nombre, String descripcion) {
+        Map<String, int[]> frecuencias = new HashMap<>();
+        for (String termino : terminos(nombre)) {
+            frecuencias.computeIfAbsent(termino, t -> new int[1])[0] += PESO_NOMBRE;
+        }
+        for (String termino : terminos(descripcion)) {
+            frecuencias.computeIfAbsent(termino, t -> new int[1])[0]++;
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            quitarDocumento(clave);
+            int documento = siguienteDocumento++;
+            asegurarCapacidad(siguienteDocumento);
+            int longitud = 0;
+            for (int[] frecuencia : frecuencias.values()) {
+                longitud += frecuencia[0];
+            }
+            Postings[] propios = new Postings[frecuencias.size()];
+            int i = 0;
+            for (Map.Entry<String, int[]> entrada : frecuencias.entrySet()) {
+                Postings postings = terminos.computeIfAbsent(entrada.getKey(), Postings::new);
+                postings.anadir(documento, entrada.getValue()[0], longitud);
+                propios[i++] = postings;
+            }
+            claves[documento] = clave;
+            longitudes[documento] = longitud;
+            terminosDocumento[documento] = propios;
+            documentos.poner(clave, documento);
+            vivos++;
+            sumaLongitudes += longitud;
+            compactarSiProcede();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Borra un documento del índice. No hace nada si la clave no está indexada.
+     *
+     * @param clave Clave del documento.
+     */
+    public void borrar(long clave) {
+        cerrojo.writeLock().lock();
+        try {
+            quitarDocumento(clave);
+            compactarSiProcede();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los documentos más relevantes para el texto indicado.
+     *
+     * @param texto  Texto de la búsqueda; se descompone en términos igual que los documentos.
+     * @param limite Número máximo de resultados.
+     * @param filtro Condición que deben cumplir las claves de los resultados, o `null` para no filtrar.
+     * @return Resultados ordenados de mayor a menor puntuación (a igual puntuación, por clave); vacío si ningún
+     * término del texto está indexado.
+     */
+    public List<Coincidencia> buscar(String texto, int limite, LongPredicate filtro) {
+        Set<String> consulta = new LinkedHashSet<>(terminos(texto));
+        if (consulta.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        cerrojo.readLock().lock();
+        try {
+            if (vivos == 0) {
+                return List.of();
+            }
+            double longitudMedia = (double) sumaLongitudes / vivos;
+            float[] normas = new float[LONGITUDES_PRECALCULADAS];
+            for (int longitud = 0; longitud < normas.length; longitud++) {
+                normas[longitud] = norma(longitud, longitudMedia);
+            }
+            List<Cursor> lista = new ArrayList<>(consulta.size());
+            for (String termino : consulta) {
+                Postings postings = terminos.get(termino);
+                if (postings != null) {
+                    lista.add(new Cursor(postings, vivos, longitudMedia));
+                }
+            }
+            if (lista.isEmpty()) {
+                return List.of();
+            }
+            lista.sort(Comparator.comparingDouble(cursor -> cursor.cota));
+            Cursor[] cursores = lista.toArray(new Cursor[0]);
+            float[] cotasAcumuladas = new float[cursores.length];
+            float suma = 0;
+            for (int i = 0; i < cursores.length; i++) {
+                suma += cursores[i].cota;
+                cotasAcumuladas[i] = suma;
+            }
+
+            // MaxScore: los términos [0, esenciales) no bastan por sí solos para entrar entre los mejores, así que
+            // solo se consultan para completar la puntuación de los candidatos que aportan los demás
+            Mejores mejores = new Mejores(limite, claves);
+            int esenciales = 0;
+            boolean hayBorrados = siguienteDocumento > vivos;
+            while (true) {
+                int documento = Integer.MAX_VALUE;
+                for (int i = esenciales; i < cursores.length; i++) {
+                    documento = Math.min(documento, cursores[i].documento());
+                }
+                if (documento == Integer.MAX_VALUE) {
+                    break;
+                }
+                int longitud = longitudes[documento];
+                float norma = longitud < LONGITUDES_PRECALCULADAS ? normas[longitud] : norma(longitud, longitudMedia);
+                float puntuacion = 0;
+                for (int i = esenciales; i < cursores.length; i++) {
+                    if (cursores[i].documento() == documento) {
+                        puntuacion += cursores[i].puntuar(norma);
+                        cursores[i].posicion++;
+                    }
+                }
+                if ((hayBorrados && (borrados[documento >>> 6] & (1L << documento)) != 0)
+                        || (filtro != null && !filtro.test(claves[documento]))) {
+                    continue;
+                }
+                boolean descartado = false;
+                for (int i = esenciales - 1; i >= 0; i--) {
+                    if (mejores.isLleno() && puntuacion + cotasAcumuladas[i] < mejores.getUmbral()) {
+                        descartado = true;  // Ni con el máximo de los términos que faltan llegaría
+                        break;
+                    }
+                    if (cursores[i].avanzarHasta(documento)) {
+                        puntuacion += cursores[i].puntuar(norma);
+                    }
+                }
+                if (!descartado && mejores.ofrecer(documento, puntuacion) && mejores.isLleno()) {
+                    while (esenciales < cursores.length && cotasAcumuladas[esenciales] < mejores.getUmbral()) {
+                        esenciales++;
+                    }
+                }
+            }
+            return mejores.getResultado();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve el número de documentos indexados.
+     *
+     * @return Número de documentos vivos.
+     */
+    public int getDocumentos() {
+        cerrojo.readLock().lock();
+        try {
+            return vivos;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve el número de términos distintos indexados.
+     *
+     * @return Número de términos.
+     */
+    public int getTerminos() {
+        cerrojo.readLock().lock();
+        try {
+            return terminos.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Descompone un texto en los términos que usa el índice, en el orden en que aparecen.
+     *
+     * @param texto Texto a descomponer; puede ser `null`.
+     * @return Lista de términos, con repeticiones.
+     */
+    static List<String> terminos(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String normalizado = texto;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 127) {
+                normalizado = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        List<String> resultado = new ArrayList<>();
+        for (String termino : SEPARADOR.split(normalizado.toLowerCase(Locale.ROOT))) {
+            if (!termino.isEmpty() && !PALABRAS_VACIAS.contains(termino)) {
+                resultado.add(termino);
+            }
+        }
+        return resultado;
+    }
+
+    private static float norma(int longitud, double longitudMedia) {
+        return (float) (K1 * (1 - B + B * longitud / longitudMedia));
+    }
+
+    private void quitarDocumento(long clave) {
+        int documento = documentos.quitar(clave);
+        if (documento < 0) {
+            return;
+        }
+        for (Postings postings : terminosDocumento[documento]) {
+            if (--postings.vivos == 0) {
+                terminos.remove(postings.termino);  // Sus entradas son todas de documentos borrados
+            }
+        }
+        terminosDocumento[documento] = null;
+        borrados[documento >>> 6] |= 1L << documento;
+        vivos--;
+        sumaLongitudes -= longitudes[documento];
+    }
+
+    private void compactarSiProcede() {
+        int borrados = siguienteDocumento - vivos;
+        if (borrados >= COMPACTAR_DESDE && borrados > vivos) {
+            compactar();
+        }
+    }
+
+    /**
+     * Elimina de las listas las entradas de los documentos borrados y renumera los vivos de forma consecutiva.
+     */
+    private void compactar() {
+        int[] nuevos = new int[siguienteDocumento];
+        int total = 0;
+        for (int d = 0; d < siguienteDocumento; d++) {
+            nuevos[d] = terminosDocumento[d] != null ? total++ : -1;
+        }
+        for (Postings postings : terminos.values()) {
+            int j = 0;
+            postings.maximaFrecuencia = 0;
+            postings.minimaLongitud = Integer.MAX_VALUE;
+            for (int i = 0; i < postings.tamano; i++) {
+                int nuevo = nuevos[postings.documentos[i]];
+                if (nuevo >= 0) {
+                    postings.maximaFrecuencia = Math.max(postings.maximaFrecuencia, postings.frecuencias[i]);
+                    postings.minimaLongitud = Math.min(postings.minimaLongitud, longitudes[postings.documentos[i]]);
+                    postings.documentos[j] = nuevo;
+                    postings.frecuencias[j++] = postings.frecuencias[i];
+                }
+            }
+            postings.tamano = j;
+        }
+        for (int d = 0; d < siguienteDocumento; d++) {
+            int nuevo = nuevos[d];
+            if (nuevo >= 0) {
+                claves[nuevo] = claves[d];
+                longitudes[nuevo] = longitudes[d];
+                terminosDocumento[nuevo] = terminosDocumento[d];
+                documentos.poner(claves[nuevo], nuevo);
+            }
+        }
+        Arrays.fill(terminosDocumento, total, siguienteDocumento, null);
+        Arrays.fill(borrados, 0);
+        siguienteDocumento = total;
+    }
+
+    private void asegurarCapacidad(int capacidad) {
+        if (capacidad > claves.length) {
+            int nueva = Math.max(capacidad, claves.length * 2);
+            claves = Arrays.copyOf(claves, nueva);
+            longitudes = Arrays.copyOf(longitudes, nueva);
+            terminosDocumento = Arrays.copyOf(terminosDocumento, nueva);
+            borrados = Arrays.copyOf(borrados, (nueva + 63) / 64);
+        }
+    }
+
+    /**
+     * Documento encontrado por una búsqueda.
+     *
+     * @param clave      Clave del documento.
+     * @param puntuacion Relevancia BM25; solo es comparable entre resultados de la misma búsqueda.
+     */
+    public record Coincidencia(long clave, double puntuacion) {
+    }
+
+    /**
+     * Lista de documentos de un término, en orden de número de documento.
+     */
+    private static final class Postings {
+        private final String termino;
+        private int[] documentos = new int[4];
+        private int[] frecuencias = new int[4];
+        private int tamano;
+        private int vivos;
+        // Cotas de la lista para calcular la aportación máxima del término; los borrados no las reducen
+        private int maximaFrecuencia;
+        private int minimaLongitud = Integer.MAX_VALUE;
+
+        private Postings(String termino) {
+            this.termino = termino;
+        }
+
+        private void anadir(int documento, int frecuencia, int longitud) {
+            if (tamano == documentos.length) {
+                documentos = Arrays.copyOf(documentos, tamano * 2);
+                frecuencias = Arrays.copyOf(frecuencias, tamano * 2);
+            }
+            documentos[tamano] = documento;
+            frecuencias[tamano++] = frecuencia;
+            vivos++;
+            maximaFrecuencia = Math.max(maximaFrecuencia, frecuencia);
+            minimaLongitud = Math.min(minimaLongitud, longitud);
+        }
+    }
+
+    /**
+     * Recorrido de la lista de un término durante una búsqueda.
+     */
+    private static final class Cursor {
+        private final int[] documentos;
+        private final int[] frecuencias;
+        private final int tamano;
+        private final float peso;
+        /**
+         * Aportación máxima del término a la puntuación de un documento.
+         */
+        private final float cota;
+        private int posicion;
+
+        private Cursor(Postings postings, int documentosVivos, double longitudMedia) {
+            documentos = postings.documentos;
+            frecuencias = postings.frecuencias;
+            tamano = postings.tamano;
+            double idf = Math.log(1 + (documentosVivos - postings.vivos + 0.5) / (postings.vivos + 0.5));
+            peso = (float) (idf * (K1 + 1));
+            cota = peso * postings.maximaFrecuencia
+                    / (postings.maximaFrecuencia + norma(postings.minimaLongitud, longitudMedia));
+        }
+
+        private int documento() {
+            return posicion < tamano ? documentos[posicion] : Integer.MAX_VALUE;
+        }
+
+        private float puntuar(float norma) {
+            int frecuencia = frecuencias[posicion];
+            return peso * frecuencia / (frecuencia + norma);
+        }
+
+        /**
+         * Avanza hasta el primer documento mayor o igual que el indicado, con saltos de tamaño creciente seguidos
+         * de una búsqueda binaria.
+         *
+         * @return `true` si el término aparece en el documento.
+         */
+        private boolean avanzarHasta(int documento) {
+            if (posicion >= tamano || documentos[posicion] >= documento) {
+                return posicion < tamano && documentos[posicion] == documento;
+            }
+            int bajo = posicion;
+            int salto = 1;
+            while (bajo + salto < tamano && documentos[bajo + salto] < documento) {
+                bajo += salto;
+                salto <<= 1;
+            }
+            int encontrado = Arrays.binarySearch(documentos, bajo + 1, Math.min(bajo + salto + 1, tamano), documento);
+            posicion = encontrado >= 0 ? encontrado : -encontrado - 1;
+            return encontrado >= 0;
+        }
+    }
+
+    /**
+     * Los `limite` mejores documentos vistos hasta el momento, en un montículo de mínimos cuya raíz es el peor.
+     */
+    private static final class Mejores {
+        private final int[] documentos;
+        private final float[] puntuaciones;
+        private final long[] claves;
+        private int tamano;
+
+        private Mejores(int limite, long[] claves) {
+            documentos = new int[limite];
+            puntuaciones = new float[limite];
+            this.claves = claves;
+        }
+
+        private boolean isLleno() {
+            return tamano == documentos.length;
+        }
+
+        /**
+         * Puntuación del peor documento guardado; solo tiene sentido con el montículo lleno.
+         */
+        private float getUmbral() {
+            return puntuaciones[0];
+        }
+
+        /**
+         * Guarda el documento si está entre los mejores.
+         *
+         * @return `true` si se guardó.
+         */
+        private boolean ofrecer(int documento, float puntuacion) {
+            if (tamano < documentos.length) {
+                documentos[tamano] = documento;
+                puntuaciones[tamano] = puntuacion;
+                subir(tamano++);
+                return true;
+            }
+            if (!peor(puntuaciones[0], documentos[0], puntuacion, documento)) {
+                return false;
+            }
+            documentos[0] = documento;
+            puntuaciones[0] = puntuacion;
+            bajar();
+            return true;
+        }
+
+        private List<Coincidencia> getResultado() {
+            Coincidencia[] resultado = new Coincidencia[tamano];
+            while (tamano > 0) {
+                resultado[tamano - 1] = new Coincidencia(claves[documentos[0]], puntuaciones[0]);
+                tamano--;
+                documentos[0] = documentos[tamano];
+                puntuaciones[0] = puntuaciones[tamano];
+                bajar();
+            }
+            return Arrays.asList(resultado);
+        }
+
+        /**
+         * Indica si el documento `a` va detrás de `b`: menor puntuación o, a igual puntuación, mayor clave.
+         */
+        private boolean peor(float puntuacionA, int documentoA, float puntuacionB, int documentoB) {
+            return puntuacionA < puntuacionB || (puntuacionA == puntuacionB && claves[documentoA] > claves[documentoB]);
+        }
+
+        private boolean peor(int i, int j) {
+            return peor(puntuaciones[i], documentos[i], puntuaciones[j], documentos[j]);
+        }
+
+        private void subir(int posicion) {
+            while (posicion > 0) {
+                int padre = (posicion - 1) / 2;
+                if (!peor(posicion, padre)) {
+                    return;
+                }
+                intercambiar(posicion, padre);
+                posicion = padre;
+            }
+        }
+
+        private void bajar() {
+            int posicion = 0;
+            while (true) {
+                int menor = posicion;
+                int izquierdo = 2 * posicion + 1;
+                if (izquierdo < tamano && peor(izquierdo, menor)) {
+                    menor = izquierdo;
+                }
+                if (izquierdo + 1 < tamano && peor(izquierdo + 1, menor)) {
+                    menor = izquierdo + 1;
+                }
+                if (menor == posicion) {
+                    return;
+                }
+                intercambiar(posicion, menor);
+                posicion = menor;
+            }
+        }
+
+        private void intercambiar(int i, int j) {
+            int documento = documentos[i];
+            documentos[i] = documentos[j];
+            documentos[j] = documento;
+            float puntuacion = puntuaciones[i];
+            puntuaciones[i] = puntuaciones[j];
+            puntuaciones[j] = puntuacion;
+        }
+    }
+
+    /**
+     * Tabla hash de clave de documento a número de documento, con direccionamiento abierto para no crear un objeto
+     * por documento. Los borrados desplazan hacia atrás las entradas siguientes, así que no quedan marcas.
+     */
+    private static final class MapaClaves {
+        private static final int LIBRE = -1;
+
+        private long[] claves = new long[1024];
+        private int[] valores = nuevosValores(1024);
+        private int tamano;
+
+        private void poner(long clave, int valor) {
+            if ((tamano + 1) * 4 > valores.length * 3) {
+                redimensionar();
+            }
+            int i = posicion(clave, valores.length);
+            while (valores[i] != LIBRE && claves[i] != clave) {
+                i = (i + 1) & (valores.length - 1);
+            }
+            if (valores[i] == LIBRE) {
+                tamano++;
+            }
+            claves[i] = clave;
+            valores[i] = valor;
+        }
+
+        /**
+         * Quita la clave y devuelve su valor, o {@link #LIBRE} si no estaba.
+         */
+        private int quitar(long clave) {
+            int mascara = valores.length - 1;
+            int i = posicion(clave, valores.length);
+            while (valores[i] != LIBRE && claves[i] != clave) {
+                i = (i + 1) & mascara;
+            }
+            int valor = valores[i];
+            if (valor == LIBRE) {
+                return LIBRE;
+            }
+            int hueco = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mascara;
+                if (valores[j] == LIBRE) {
+                    break;
+                }
+                int ideal = posicion(claves[j], valores.length);
+                // La entrada j puede ocupar el hueco si su posición ideal no está entre el hueco (excluido) y j
+                boolean entre = hueco <= j ? hueco < ideal && ideal <= j : hueco < ideal || ideal <= j;
+                if (!entre) {
+                    claves[hueco] = claves[j];
+                    valores[hueco] = valores[j];
+                    hueco = j;
+                }
+            }
+            valores[hueco] = LIBRE;
+            tamano--;
+            return valor;
+        }
+
+        private void redimensionar() {
+            long[] clavesAnteriores = claves;
+            int[] valoresAnteriores = valores;
+            claves = new long[clavesAnteriores.length * 2];
+            valores = nuevosValores(valoresAnteriores.length * 2);
+            tamano = 0;
+            for (int i = 0; i < valoresAnteriores.length; i++) {
+                if (valoresAnteriores[i] != LIBRE) {
+                    poner(clavesAnteriores[i], valoresAnteriores[i]);
+                }
+            }
+        }
+
+        private static int posicion(long clave, int capacidad) {
+            long h = clave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & (capacidad - 1);
+        }
+
+        private static int[] nuevosValores(int capacidad) {
+            int[] valores = new int[capacidad];
+            Arrays.fill(valores, LIBRE);
+            return valores;
+        }
+    }
+}
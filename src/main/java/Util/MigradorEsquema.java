@@ -0,0 +1,276 @@
+package Util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Aplica al arrancar las migraciones de esquema pendientes, antes de que {@link HibernateUtil} cree la fábrica de
+ * sesiones (que solo valida el esquema con `hibernate.hbm2ddl.auto=validate`).
+ *
+ * <p><strong>Funcionamiento:</strong></p>
+ * <ul>
+ *     <li>La tabla `HistorialEsquema` guarda una fila por cada migración aplicada.</li>
+ *     <li>Al arrancar se lee la versión más alta aplicada con una sola consulta; si coincide con la última
+ *     migración conocida no se hace nada más, por lo que la comprobación cuesta unos milisegundos.</li>
+ *     <li>Las migraciones pendientes se aplican en orden de versión. En MySQL se toma un bloqueo con nombre
+ *     (`GET_LOCK`) para que dos clientes que arrancan a la vez no apliquen la misma migración.</li>
+ *     <li>Cada paso comprueba si su tabla, columna o índice ya existe, de modo que las bases de datos creadas con
+ *     `SLQ-1.sql` (o con alguno de estos cambios aplicado a mano) se migran sin errores.</li>
+ * </ul>
+ *
+ * <p>Se desactiva con `todolist.migraciones.habilitadas=false`. Las migraciones nuevas se añaden al final de
+ * {@link #MIGRACIONES} con la siguiente versión; una migración ya publicada no debe modificarse.</p>
+ */
+public final class MigradorEsquema {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigradorEsquema.class);
+
+    private static final String NOMBRE_BLOQUEO = "todolist_migraciones";
+
+    private static final String[] TABLAS_COMPRAS = {"CompraComida", "CompraLimpieza", "CompraVarios"};
+
+    /**
+     * Migraciones conocidas, en orden de versión.
+     */
+    private static final List<Migracion> MIGRACIONES = List.of(
+            new Migracion(1, "Tablas de compras y de tareas", MigradorEsquema::crearTablas),
+            new Migracion(2, "Tabla SecuenciaFoto para los números únicos de foto", conexion ->
+                    ejecutar(conexion, "CREATE TABLE IF NOT EXISTS SecuenciaFoto (Nombre VARCHAR(50) PRIMARY KEY, "
+                            + "Siguiente INT NOT NULL)")),
+            new Migracion(3, "Columna Version para el bloqueo optimista", conexion -> {
+                for (String tabla : TABLAS_COMPRAS) {
+                    agregarColumna(conexion, tabla, "Version", "INT NOT NULL DEFAULT 0");
+                }
+            }),
+            new Migracion(4, "Índices para los filtros por Realizado y SuperMercado y para NumeroUnicoFoto", conexion -> {
+                for (String tabla : TABLAS_COMPRAS) {
+                    // Filtro (realizado, supermercado) y solo realizado; InnoDB añade IdUnico al final del índice,
+                    // por lo que también sirve para el orden y el cursor de las páginas
+                    crearIndice(conexion, tabla, "idx_" + tabla + "_realizado_supermercado", "Realizado, SuperMercado");
+                    // Filtro solo por supermercado
+                    crearIndice(conexion, tabla, "idx_" + tabla + "_supermercado", "SuperMercado");
+                    // MAX(NumeroUnicoFoto) al crear la secuencia de fotos
+                    crearIndice(conexion, tabla, "idx_" + tabla + "_numero_foto", "NumeroUnicoFoto");
+                }
+            }),
+            new Migracion(5, "Tabla DiarioAplicado para las escrituras diferidas", conexion ->
+                    ejecutar(conexion, "CREATE TABLE IF NOT EXISTS DiarioAplicado (Cliente VARCHAR(36) PRIMARY KEY, "
+                            + "Secuencia BIGINT NOT NULL)")),
+            new Migracion(6, "Tabla AltasSincronizadas para no duplicar las altas del almacén local", conexion ->
+                    ejecutar(conexion, "CREATE TABLE IF NOT EXISTS AltasSincronizadas (Cliente VARCHAR(36) NOT NULL, "
+                            + "Tabla VARCHAR(50) NOT NULL, IdLocal INT NOT NULL, IdServidor INT NOT NULL, "
+                            + "PRIMARY KEY (Cliente, Tabla, IdLocal))")),
+            new Migracion(7, "Columna Modificado para la recepción incremental del almacén local", conexion -> {
+                for (String tabla : new String[]{"CompraComida", "CompraLimpieza", "CompraVarios", "Tarea"}) {
+                    agregarColumna(conexion, tabla, "Modificado",
+                            "TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)");
+                    crearIndice(conexion, tabla, "idx_" + tabla + "_modificado", "Modificado");
+                }
+            })
+    );
+
+    private MigradorEsquema() {
+    }
+
+    /**
+     * Aplica las migraciones pendientes si están habilitadas en la configuración.
+     *
+     * @return Número de migraciones aplicadas (0 si el esquema ya estaba actualizado o las migraciones están deshabilitadas).
+     * @throws IllegalStateException Si no se puede leer el historial o falla alguna migración.
+     */
+    public static int migrar() {
+        if (!Configuracion.getBooleano("todolist.migraciones.habilitadas", true)) {
+            return 0;
+        }
+        long inicio = System.nanoTime();
+        // Autocommit: en MySQL cada sentencia DDL confirma la transacción en curso
+        try (Connection conexion = PoolConexiones.abrirConexionServidor()) {
+            int ultima = getUltimaVersion();
+            int actual = leerVersion(conexion);
+            if (actual >= ultima) {
+                logger.info("Esquema actualizado (versión {}), comprobado en {} ms.", actual, (System.nanoTime() - inicio) / 1_000_000);
+                return 0;
+            }
+            return aplicarPendientes(conexion, ultima);
+        } catch (SQLException e) {
+            logger.error("Error al migrar el esquema de la base de datos: {}", e.getMessage());
+            throw new IllegalStateException("No se pudo migrar el esquema de la base de datos", e);
+        }
+    }
+
+    /**
+     * Devuelve la versión del esquema que conoce esta versión de la aplicación.
+     *
+     * @return Versión de la última migración.
+     */
+    public static int getUltimaVersion() {
+        return MIGRACIONES.get(MIGRACIONES.size() - 1).version();
+    }
+
+    private static int aplicarPendientes(Connection conexion, int ultima) throws SQLException {
+        boolean bloqueado = bloquear(conexion);
+        try {
+            // Otro cliente pudo aplicarlas mientras se esperaba el bloqueo
+            int actual = leerVersion(conexion);
+            int aplicadas = 0;
+            for (Migracion migracion : MIGRACIONES) {
+                if (migracion.version() <= actual) {
+                    continue;
+                }
+                long inicio = System.nanoTime();
+                logger.info("Aplicando migración {}: {}.", migracion.version(), migracion.descripcion());
+                migracion.paso().aplicar(conexion);
+                long duracion = (System.nanoTime() - inicio) / 1_000_000;
+                registrar(conexion, migracion, duracion);
+                aplicadas++;
+                logger.info("Migración {} aplicada en {} ms.", migracion.version(), duracion);
+            }
+            logger.info("Esquema migrado de la versión {} a la {} ({} migraciones).", actual, ultima, aplicadas);
+            return aplicadas;
+        } finally {
+            if (bloqueado) {
+                desbloquear(conexion);
+            }
+        }
+    }
+
+    /**
+     * Crea el historial si no existe y devuelve la versión más alta aplicada.
+     */
+    private static int leerVersion(Connection conexion) throws SQLException {
+        ejecutar(conexion, "CREATE TABLE IF NOT EXISTS HistorialEsquema ("
+                + "Version INT PRIMARY KEY, "
+                + "Descripcion VARCHAR(255) NOT NULL, "
+                + "AplicadaEn TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                + "DuracionMs BIGINT NOT NULL)");
+        try (Statement st = conexion.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(Version) FROM HistorialEsquema")) {
+            return rs.next() ? rs.getInt(1) : 0;  // getInt devuelve 0 si el historial está vacío
+        }
+    }
+
+    private static void registrar(Connection conexion, Migracion migracion, long duracion) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "INSERT INTO HistorialEsquema (Version, Descripcion, DuracionMs) VALUES (?, ?, ?)")) {
+            ps.setInt(1, migracion.version());
+            ps.setString(2, migracion.descripcion());
+            ps.setLong(3, duracion);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Toma el bloqueo con nombre de MySQL. En otras bases de datos no se bloquea.
+     *
+     * @return `true` si se tomó el bloqueo y hay que liberarlo.
+     */
+    private static boolean bloquear(Connection conexion) throws SQLException {
+        if (!esMySql(conexion)) {
+            return false;
+        }
+        try (PreparedStatement ps = conexion.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, NOMBRE_BLOQUEO);
+            ps.setInt(2, Configuracion.getEntero("todolist.migraciones.espera_bloqueo_s", 60));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Otro cliente está migrando el esquema y no liberó el bloqueo a tiempo.");
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void desbloquear(Connection conexion) {
+        try (PreparedStatement ps = conexion.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, NOMBRE_BLOQUEO);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            logger.warn("No se pudo liberar el bloqueo de migraciones: {}", e.getMessage());
+        }
+    }
+
+    private static boolean esMySql(Connection conexion) throws SQLException {
+        String producto = conexion.getMetaData().getDatabaseProductName();
+        return producto.equalsIgnoreCase("MySQL") || producto.equalsIgnoreCase("MariaDB");
+    }
+
+    // ========================
+    // Pasos de las migraciones
+    // ========================
+
+    private static void crearTablas(Connection conexion) throws SQLException {
+        String[] sufijos = {"Comida", "Limpieza", "Varios"};
+        for (int i = 0; i < TABLAS_COMPRAS.length; i++) {
+            ejecutar(conexion, "CREATE TABLE IF NOT EXISTS " + TABLAS_COMPRAS[i] + " ("
+                    + "IdUnico INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "NombreProducto VARCHAR(255) NOT NULL, "
+                    + "Descripcion VARCHAR(455) NOT NULL, "
+                    + "Foto BOOLEAN NOT NULL DEFAULT FALSE, "
+                    + "NumeroUnicoFoto INT NULL, "
+                    + "Cantidad INT NOT NULL, "
+                    + "Realizado BOOLEAN NOT NULL DEFAULT FALSE, "
+                    + "SuperMercado VARCHAR(255) NOT NULL, "
+                    + "CONSTRAINT chk_Foto_" + sufijos[i] + " CHECK (Foto = 0 OR NumeroUnicoFoto IS NOT NULL))");
+        }
+        ejecutar(conexion, "CREATE TABLE IF NOT EXISTS Tarea ("
+                + "Id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "IDCompraComida INT NULL, "
+                + "IDCompraLimpieza INT NULL, "
+                + "IDCompraVarios INT NULL, "
+                + "FOREIGN KEY (IDCompraComida) REFERENCES CompraComida(IdUnico) ON DELETE CASCADE, "
+                + "FOREIGN KEY (IDCompraLimpieza) REFERENCES CompraLimpieza(IdUnico) ON DELETE CASCADE, "
+                + "FOREIGN KEY (IDCompraVarios) REFERENCES CompraVarios(IdUnico) ON DELETE CASCADE)");
+    }
+
+    private static void agregarColumna(Connection conexion, String tabla, String columna, String definicion) throws SQLException {
+        DatabaseMetaData metaDatos = conexion.getMetaData();
+        try (ResultSet rs = metaDatos.getColumns(conexion.getCatalog(), null, tabla, columna)) {
+            if (rs.next()) {
+                logger.info("La columna {}.{} ya existe.", tabla, columna);
+                return;
+            }
+        }
+        ejecutar(conexion, "ALTER TABLE " + tabla + " ADD COLUMN " + columna + " " + definicion);
+    }
+
+    private static void crearIndice(Connection conexion, String tabla, String indice, String columnas) throws SQLException {
+        DatabaseMetaData metaDatos = conexion.getMetaData();
+        try (ResultSet rs = metaDatos.getIndexInfo(conexion.getCatalog(), null, tabla, false, true)) {
+            while (rs.next()) {
+                if (indice.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    logger.info("El índice {} ya existe.", indice);
+                    return;
+                }
+            }
+        }
+        ejecutar(conexion, "CREATE INDEX " + indice + " ON " + tabla + " (" + columnas + ")");
+    }
+
+    private static void ejecutar(Connection conexion, String sql) throws SQLException {
+        try (Statement st = conexion.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    /**
+     * Paso de una migración, ejecutado sobre una conexión en modo autocommit.
+     */
+    @FunctionalInterface
+    private interface Paso {
+        void aplicar(Connection conexion) throws SQLException;
+    }
+
+    /**
+     * Migración identificada por su versión.
+     */
+    private record Migracion(int version, String descripcion, Paso paso) {
+    }
+}
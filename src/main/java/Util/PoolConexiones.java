@@ -0,0 +1,214 @@
+package Util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.hibernate.cfg.JdbcSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase utilitaria que gestiona el pool de conexiones JDBC (HikariCP) usado por Hibernate.
+ *
+ * <p>Se activa con la propiedad `todolist.pool.habilitado` de `hibernate.cfg.xml`. Cuando está activo,
+ * `HibernateUtil` entrega este `DataSource` a Hibernate en lugar de usar su gestor de conexiones interno,
+ * que no está pensado para producción.</p>
+ *
+ * <p><strong>Propiedades admitidas (prefijo `todolist.pool.`):</strong></p>
+ * <ul>
+ *     <li>`minimo` / `maximo`: tamaño mínimo de conexiones inactivas y tamaño máximo del pool.</li>
+ *     <li>`inactividad_ms`: tiempo tras el cual se cierran las conexiones inactivas que superen el mínimo.</li>
+ *     <li>`vida_maxima_ms`: tiempo máximo de vida de una conexión antes de renovarla.</li>
+ *     <li>`timeout_conexion_ms` / `timeout_validacion_ms`: esperas máximas para obtener y validar una conexión.</li>
+ *     <li>`keepalive_ms`: intervalo con el que se validan las conexiones inactivas.</li>
+ *     <li>`deteccion_fugas_ms`: tiempo tras el cual una conexión no devuelta se registra como posible fuga.</li>
+ * </ul>
+ *
+ * <p>Las estadísticas (activas, inactivas, hilos en espera y latencia de adquisición) se consultan con
+ * {@link #getEstadisticas()}.</p>
+ */
+public final class PoolConexiones {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolConexiones.class);
+
+    private static final String PREFIJO = "todolist.pool.";
+
+    /**
+     * DataSource del pool, o `null` si el modo pool no está activo o aún no se ha creado.
+     */
+    private static volatile HikariDataSource dataSource;
+
+    /**
+     * Métricas de adquisición de conexiones acumuladas desde la creación del pool.
+     */
+    private static final MetricasAdquisicion metricas = new MetricasAdquisicion();
+
+    private PoolConexiones() {
+    }
+
+    /**
+     * Indica si el modo pool está habilitado en la configuración.
+     *
+     * @return `true` si `todolist.pool.habilitado` es `true`.
+     */
+    public static boolean isHabilitado() {
+        return Configuracion.getBooleano(PREFIJO + "habilitado", false);
+    }
+
+    /**
+     * Devuelve el `DataSource` del pool, creándolo la primera vez.
+     *
+     * @return El `DataSource` con pool de conexiones.
+     * @throws IllegalStateException Si falta la URL de conexión en la configuración.
+     */
+    public static DataSource getDataSource() {
+        if (dataSource == null) {
+            synchronized (PoolConexiones.class) {
+                if (dataSource == null) {
+                    dataSource = crearDataSource();
+                }
+            }
+        }
+        return dataSource;
+    }
+
+    /**
+     * Abre una conexión al servidor principal sin pasar por Hibernate: del pool si está habilitado o, si no,
+     * directamente con el `DriverManager`.
+     *
+     * @return Conexión en modo autocommit que el llamante debe cerrar.
+     * @throws SQLException Si el servidor no está disponible.
+     */
+    public static Connection abrirConexionServidor() throws SQLException {
+        Connection conexion = isHabilitado()
+                ? getDataSource().getConnection()
+                : DriverManager.getConnection(Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_URL, null),
+                Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_USER, null),
+                Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_PASSWORD, null));
+        conexion.setAutoCommit(true);
+        return conexion;
+    }
+
+    /**
+     * Devuelve una instantánea del estado del pool.
+     *
+     * @return Estadísticas actuales, o todas a cero si el pool no se ha creado.
+     */
+    public static EstadisticasPool getEstadisticas() {
+        HikariDataSource ds = dataSource;
+        HikariPoolMXBean pool = ds != null ? ds.getHikariPoolMXBean() : null;
+        if (pool == null) {
+            return new EstadisticasPool(0, 0, 0, 0, metricas.adquisiciones.sum(), 0, 0, metricas.timeouts.sum());
+        }
+        return new EstadisticasPool(
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(),
+                metricas.adquisiciones.sum(),
+                metricas.latenciaMediaMs(),
+                metricas.latenciaMaximaNanos.get() / 1_000_000.0,
+                metricas.timeouts.sum());
+    }
+
+    /**
+     * Cierra el pool y todas sus conexiones. Debe llamarse al apagar la aplicación.
+     */
+    public static void cerrar() {
+        synchronized (PoolConexiones.class) {
+            if (dataSource != null && !dataSource.isClosed()) {
+                dataSource.close();
+                logger.info("Pool de conexiones cerrado correctamente.");
+            }
+            dataSource = null;
+        }
+    }
+
+    /**
+     * Construye el `HikariDataSource` a partir de la configuración de conexión de Hibernate
+     * y de las propiedades `todolist.pool.*`.
+     */
+    private static HikariDataSource crearDataSource() {
+        String url = Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_URL, null);
+        if (url == null) {
+            throw new IllegalStateException("No se ha configurado 'jakarta.persistence.jdbc.url' en hibernate.cfg.xml.");
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("ToDoListPool");
+        config.setJdbcUrl(url);
+        config.setUsername(Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_USER, null));
+        config.setPassword(Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_PASSWORD, null));
+        String driver = Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_DRIVER, null);
+        if (driver != null) {
+            config.setDriverClassName(driver);
+        }
+
+        // Tamaño y ciclo de vida del pool
+        config.setMinimumIdle(Configuracion.getEntero(PREFIJO + "minimo", 2));
+        config.setMaximumPoolSize(Configuracion.getEntero(PREFIJO + "maximo", 10));
+        config.setIdleTimeout(Configuracion.getLargo(PREFIJO + "inactividad_ms", 300_000));
+        config.setMaxLifetime(Configuracion.getLargo(PREFIJO + "vida_maxima_ms", 1_800_000));
+        config.setKeepaliveTime(Configuracion.getLargo(PREFIJO + "keepalive_ms", 120_000));
+
+        // Validación y detección de fugas
+        config.setConnectionTimeout(Configuracion.getLargo(PREFIJO + "timeout_conexion_ms", 10_000));
+        config.setValidationTimeout(Configuracion.getLargo(PREFIJO + "timeout_validacion_ms", 3_000));
+        config.setLeakDetectionThreshold(Configuracion.getLargo(PREFIJO + "deteccion_fugas_ms", 30_000));
+
+        // Caché de sentencias preparadas en el driver de MySQL
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+
+        config.setMetricsTrackerFactory(metricas);
+
+        HikariDataSource ds = new HikariDataSource(config);
+        logger.info("Pool de conexiones creado (mínimo={}, máximo={}).", config.getMinimumIdle(), config.getMaximumPoolSize());
+        return ds;
+    }
+
+    /**
+     * Recoge las métricas de adquisición de conexiones que publica HikariCP.
+     */
+    private static final class MetricasAdquisicion implements MetricsTrackerFactory, IMetricsTracker {
+
+        private final LongAdder adquisiciones = new LongAdder();
+        private final LongAdder nanosAcumulados = new LongAdder();
+        private final AtomicLong latenciaMaximaNanos = new AtomicLong();
+        private final LongAdder timeouts = new LongAdder();
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return this;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            adquisiciones.increment();
+            nanosAcumulados.add(elapsedAcquiredNanos);
+            latenciaMaximaNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        private double latenciaMediaMs() {
+            long total = adquisiciones.sum();
+            return total == 0 ? 0 : nanosAcumulados.sum() / (double) total / 1_000_000.0;
+        }
+    }
+}
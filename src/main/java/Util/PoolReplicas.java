@@ -0,0 +1,251 @@
+package Util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.JdbcSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase utilitaria que gestiona los pools de conexiones (HikariCP) de las réplicas de lectura de MySQL.
+ *
+ * <p>Se activa con `todolist.replicas.habilitado`. {@link HibernateUtil#abrirSesionLectura()} pide aquí una
+ * conexión para las sesiones de solo lectura; las escrituras siguen yendo siempre al servidor principal.</p>
+ *
+ * <p><strong>Propiedades admitidas (prefijo `todolist.replicas.`):</strong></p>
+ * <ul>
+ *     <li>`urls`: URLs JDBC de las réplicas separadas por comas (mismo usuario y contraseña que el principal).</li>
+ *     <li>`maximo`: tamaño máximo del pool de cada réplica.</li>
+ *     <li>`timeout_conexion_ms`: espera máxima para obtener una conexión de una réplica antes de probar otra.</li>
+ *     <li>`retraso_maximo_s`: retraso de replicación tolerado; las réplicas más retrasadas dejan de usarse.</li>
+ *     <li>`intervalo_comprobacion_ms`: cada cuánto se comprueba el estado y el retraso de las réplicas.</li>
+ * </ul>
+ *
+ * <p>Si ninguna réplica está disponible, {@link #obtenerConexion()} devuelve `null` y las lecturas vuelven al
+ * servidor principal.</p>
+ */
+public final class PoolReplicas {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolReplicas.class);
+
+    private static final String PREFIJO = "todolist.replicas.";
+
+    /**
+     * Réplicas configuradas, o `null` si aún no se han creado los pools.
+     */
+    private static volatile List<Replica> replicas;
+
+    private static ScheduledExecutorService comprobador;
+
+    /**
+     * Reparto de las lecturas entre las réplicas disponibles (round-robin).
+     */
+    private static final AtomicInteger turno = new AtomicInteger();
+
+    private PoolReplicas() {
+    }
+
+    /**
+     * Indica si el enrutado de lecturas a réplicas está habilitado en la configuración.
+     *
+     * @return `true` si `todolist.replicas.habilitado` es `true` y hay al menos una URL configurada.
+     */
+    public static boolean isHabilitado() {
+        return Configuracion.getBooleano(PREFIJO + "habilitado", false)
+                && !Configuracion.getTexto(PREFIJO + "urls", "").isBlank();
+    }
+
+    /**
+     * Obtiene una conexión de una réplica disponible.
+     *
+     * <p>Las réplicas caídas o con un retraso superior al tolerado se saltan. Si una réplica marcada como
+     * disponible no entrega conexión, se marca como caída hasta la siguiente comprobación y se prueba la siguiente.</p>
+     *
+     * @return Conexión de solo lectura que el llamante debe cerrar, o `null` si no hay ninguna réplica disponible.
+     */
+    public static Connection obtenerConexion() {
+        List<Replica> actuales = getReplicas();
+        int inicio = Math.floorMod(turno.getAndIncrement(), actuales.size());
+        for (int i = 0; i < actuales.size(); i++) {
+            Replica replica = actuales.get((inicio + i) % actuales.size());
+            if (!replica.disponible) {
+                continue;
+            }
+            try {
+                Connection conexion = replica.dataSource.getConnection();
+                conexion.setReadOnly(true);
+                return conexion;
+            } catch (SQLException e) {
+                replica.disponible = false;
+                logger.warn("La réplica {} no entrega conexiones, se deja de usar hasta la siguiente comprobación: {}",
+                        replica.url, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve el estado de cada réplica según la última comprobación.
+     *
+     * @return Lista con el estado de las réplicas, vacía si el modo réplica no está habilitado.
+     */
+    public static List<EstadoReplica> getEstado() {
+        if (!isHabilitado()) {
+            return List.of();
+        }
+        List<EstadoReplica> estado = new ArrayList<>();
+        for (Replica replica : getReplicas()) {
+            estado.add(new EstadoReplica(replica.url, replica.disponible, replica.retrasoSegundos));
+        }
+        return estado;
+    }
+
+    /**
+     * Detiene las comprobaciones y cierra los pools de todas las réplicas.
+     */
+    public static void cerrar() {
+        synchronized (PoolReplicas.class) {
+            if (comprobador != null) {
+                comprobador.shutdownNow();
+                comprobador = null;
+            }
+            if (replicas != null) {
+                replicas.forEach(replica -> replica.dataSource.close());
+                replicas = null;
+                logger.info("Pools de réplicas cerrados correctamente.");
+            }
+        }
+    }
+
+    private static List<Replica> getReplicas() {
+        if (replicas == null) {
+            synchronized (PoolReplicas.class) {
+                if (replicas == null) {
+                    List<Replica> creadas = new ArrayList<>();
+                    for (String url : Configuracion.getTexto(PREFIJO + "urls", "").split(",")) {
+                        if (!url.isBlank()) {
+                            creadas.add(new Replica(url.trim(), crearDataSource(url.trim(), creadas.size() + 1)));
+                        }
+                    }
+                    // Primera comprobación síncrona para no enviar lecturas a una réplica retrasada al arrancar
+                    creadas.forEach(PoolReplicas::comprobar);
+
+                    long intervalo = Math.max(1_000, Configuracion.getLargo(PREFIJO + "intervalo_comprobacion_ms", 5_000));
+                    comprobador = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread hilo = new Thread(r, "comprobador-replicas");
+                        hilo.setDaemon(true);
+                        return hilo;
+                    });
+                    comprobador.scheduleWithFixedDelay(() -> creadas.forEach(PoolReplicas::comprobar),
+                            intervalo, intervalo, TimeUnit.MILLISECONDS);
+                    replicas = List.copyOf(creadas);
+                }
+            }
+        }
+        return replicas;
+    }
+
+    /**
+     * Comprueba si la réplica responde y si su retraso de replicación está dentro de la tolerancia.
+     */
+    private static void comprobar(Replica replica) {
+        long retrasoMaximo = Configuracion.getLargo(PREFIJO + "retraso_maximo_s", 5);
+        boolean anterior = replica.disponible;
+        try (Connection conexion = replica.dataSource.getConnection()) {
+            replica.retrasoSegundos = leerRetraso(conexion);
+            replica.disponible = replica.retrasoSegundos >= 0 && replica.retrasoSegundos <= retrasoMaximo;
+        } catch (SQLException e) {
+            replica.disponible = false;
+            replica.retrasoSegundos = -1;
+            if (anterior) {
+                logger.warn("La réplica {} no responde o no se pudo leer su estado: {}", replica.url, e.getMessage());
+            }
+        }
+        if (anterior != replica.disponible) {
+            logger.info("Réplica {} {} (retraso: {} s).", replica.url,
+                    replica.disponible ? "disponible" : "fuera de servicio", replica.retrasoSegundos);
+        }
+    }
+
+    /**
+     * Lee el retraso de replicación con `SHOW REPLICA STATUS` (MySQL 8.0.22+) o `SHOW SLAVE STATUS`.
+     *
+     * @return Segundos de retraso, `0` si el servidor no es una réplica, o `-1` si la replicación está detenida.
+     */
+    private static long leerRetraso(Connection conexion) throws SQLException {
+        try (Statement st = conexion.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SHOW REPLICA STATUS")) {
+                return retraso(rs, "Seconds_Behind_Source");
+            } catch (SQLSyntaxErrorException e) {
+                // Versiones anteriores a MySQL 8.0.22
+                try (ResultSet rs = st.executeQuery("SHOW SLAVE STATUS")) {
+                    return retraso(rs, "Seconds_Behind_Master");
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee la columna de retraso del estado de replicación.
+     */
+    private static long retraso(ResultSet rs, String columna) throws SQLException {
+        if (!rs.next()) {
+            return 0;  // Instancia independiente, sin replicación configurada
+        }
+        long retraso = rs.getLong(columna);
+        return rs.wasNull() ? -1 : retraso;  // NULL: los hilos de replicación no están en marcha
+    }
+
+    private static HikariDataSource crearDataSource(String url, int numero) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("ToDoListReplica" + numero);
+        config.setJdbcUrl(url);
+        config.setUsername(Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_USER, null));
+        config.setPassword(Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_PASSWORD, null));
+        String driver = Configuracion.getTexto(JdbcSettings.JAKARTA_JDBC_DRIVER, null);
+        if (driver != null) {
+            config.setDriverClassName(driver);
+        }
+        config.setMinimumIdle(1);
+        config.setMaximumPoolSize(Configuracion.getEntero(PREFIJO + "maximo", 5));
+        config.setConnectionTimeout(Configuracion.getLargo(PREFIJO + "timeout_conexion_ms", 2_000));
+        config.setReadOnly(true);
+        // Si la réplica está caída al arrancar, el pool se crea igualmente y la comprobación la marca como no disponible
+        config.setInitializationFailTimeout(-1);
+
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+
+        logger.info("Pool de la réplica {} creado (máximo={}).", url, config.getMaximumPoolSize());
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Pool y último estado conocido de una réplica.
+     */
+    private static final class Replica {
+        private final String url;
+        private final HikariDataSource dataSource;
+        private volatile boolean disponible;
+        private volatile long retrasoSegundos = -1;
+
+        private Replica(String url, HikariDataSource dataSource) {
+            this.url = url;
+            this.dataSource = dataSource;
+        }
+    }
+}
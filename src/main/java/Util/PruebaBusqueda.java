@@ -0,0 +1,181 @@
+package Util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Prueba de rendimiento del índice de búsqueda de texto ({@link IndiceInvertido}).
+ *
+ * **Objetivo:**
+ * - Indexar un millón de compras sintéticas, con nombres de un catálogo de productos y descripciones cuyas palabras
+ *   siguen una distribución de Zipf (unas pocas muy frecuentes y muchas raras, como en un texto real).
+ * - Medir la latencia de búsquedas de uno a tres términos, elegidos con la misma distribución, y de las
+ *   actualizaciones y borrados incrementales.
+ * - Fallar si el percentil 99 de las búsquedas llega a 10 ms.
+ *
+ * **Requisitos:**
+ * - No usa la base de datos; conviene dar memoria suficiente a la JVM (por ejemplo `-Xmx2g`).
+ *
+ * Uso: `PruebaBusqueda [compras] [búsquedas]` (por defecto 1000000 y 5000).
+ */
+public class PruebaBusqueda {
+
+    private static final Logger logger = LoggerFactory.getLogger(PruebaBusqueda.class);
+
+    private static final double LIMITE_P99_MS = 10;
+
+    private static final String[] PRODUCTOS = {"leche", "pan", "huevos", "arroz", "aceite", "azúcar", "sal", "café",
+            "té", "yogur", "queso", "jamón", "pollo", "ternera", "cerdo", "merluza", "atún", "sardinas", "tomate",
+            "lechuga", "cebolla", "patatas", "zanahorias", "manzanas", "plátanos", "naranjas", "limones", "fresas",
+            "galletas", "cereales", "pasta", "harina", "mantequilla", "chocolate", "zumo", "agua", "cerveza", "vino",
+            "detergente", "suavizante", "lejía", "lavavajillas", "estropajo", "bayetas", "fregasuelos", "champú",
+            "gel", "dentífrico", "papel", "servilletas", "bolsas", "pilas", "bombillas", "velas", "cinta", "tijeras"};
+
+    private static final String[] MARCAS = {"entera", "desnatada", "integral", "ecológico", "natural", "grande",
+            "pequeño", "familiar", "oferta", "pack", "sin", "lactosa", "gluten", "bio", "premium", "básico"};
+
+    public static void main(String[] args) {
+        int compras = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int busquedas = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        Random aleatorio = new Random(42);
+        Zipf palabras = new Zipf(20_000, 1.0, aleatorio);
+
+        IndiceInvertido indice = new IndiceInvertido();
+        long inicio = System.nanoTime();
+        for (int i = 1; i <= compras; i++) {
+            indice.agregar(i, nombre(aleatorio), descripcion(aleatorio, palabras));
+        }
+        long construccionMs = (System.nanoTime() - inicio) / 1_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        logger.info("Indexadas {} compras ({} términos) en {} ms; memoria usada ~{} MB.", indice.getDocumentos(),
+                indice.getTerminos(), construccionMs, (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+
+        String[] consultas = new String[busquedas];
+        for (int i = 0; i < busquedas; i++) {
+            StringBuilder consulta = new StringBuilder();
+            int terminos = 1 + aleatorio.nextInt(3);
+            for (int t = 0; t < terminos; t++) {
+                consulta.append(aleatorio.nextInt(3) == 0 ? PRODUCTOS[aleatorio.nextInt(PRODUCTOS.length)]
+                        : palabra(palabras.siguiente())).append(' ');
+            }
+            consultas[i] = consulta.toString();
+        }
+
+        // Calentamiento para que el JIT compile el recorrido de las listas
+        for (int i = 0; i < Math.min(busquedas, 2_000); i++) {
+            indice.buscar(consultas[i], 20, null);
+        }
+
+        long[] tiempos = new long[busquedas];
+        long resultados = 0;
+        for (int i = 0; i < busquedas; i++) {
+            long t0 = System.nanoTime();
+            List<IndiceInvertido.Coincidencia> encontradas = indice.buscar(consultas[i], 20, null);
+            tiempos[i] = System.nanoTime() - t0;
+            resultados += encontradas.size();
+        }
+        Arrays.sort(tiempos);
+        double p50 = percentil(tiempos, 0.50);
+        double p99 = percentil(tiempos, 0.99);
+        logger.info("{} búsquedas (top 20, {} resultados de media): p50 {} ms, p90 {} ms, p99 {} ms, máximo {} ms.",
+                busquedas, resultados / busquedas, formato(p50), formato(percentil(tiempos, 0.90)), formato(p99),
+                formato(tiempos[tiempos.length - 1] / 1e6));
+
+        String peor = consultas[0];
+        long peorTiempo = 0;
+        for (String termino : new String[]{palabra(1), palabra(2), palabra(1) + " " + palabra(2) + " " + palabra(3)}) {
+            long[] repeticiones = new long[21];
+            for (int i = 0; i < repeticiones.length; i++) {
+                long t0 = System.nanoTime();
+                indice.buscar(termino, 20, null);
+                repeticiones[i] = System.nanoTime() - t0;
+            }
+            Arrays.sort(repeticiones);
+            long tiempo = repeticiones[repeticiones.length / 2];
+            if (tiempo > peorTiempo) {
+                peorTiempo = tiempo;
+                peor = termino;
+            }
+        }
+        logger.info("Peor caso (términos más frecuentes, '{}', mediana de 21): {} ms.", peor.trim(), formato(peorTiempo / 1e6));
+
+        // Actualizaciones incrementales: sustituye y borra compras ya indexadas
+        int cambios = Math.min(compras, 100_000);
+        inicio = System.nanoTime();
+        for (int i = 0; i < cambios; i++) {
+            long clave = 1 + aleatorio.nextInt(compras);
+            if (i % 4 == 0) {
+                indice.borrar(clave);
+            } else {
+                indice.agregar(clave, nombre(aleatorio), descripcion(aleatorio, palabras));
+            }
+        }
+        double porCambio = (System.nanoTime() - inicio) / 1e3 / cambios;
+        logger.info("{} cambios incrementales: {} µs por cambio; quedan {} compras.", cambios, formato(porCambio),
+                indice.getDocumentos());
+
+        boolean correcto = p99 < LIMITE_P99_MS;
+        logger.info(correcto ? "Prueba superada: p99 por debajo de {} ms." : "Prueba fallida: p99 de {} ms o más.",
+                formato(LIMITE_P99_MS));
+        if (!correcto) {
+            System.exit(1);
+        }
+    }
+
+    private static String nombre(Random aleatorio) {
+        String producto = PRODUCTOS[aleatorio.nextInt(PRODUCTOS.length)];
+        return aleatorio.nextBoolean() ? producto + " " + MARCAS[aleatorio.nextInt(MARCAS.length)] : producto;
+    }
+
+    private static String descripcion(Random aleatorio, Zipf palabras) {
+        StringBuilder descripcion = new StringBuilder();
+        int longitud = 4 + aleatorio.nextInt(8);
+        for (int i = 0; i < longitud; i++) {
+            descripcion.append(palabra(palabras.siguiente())).append(' ');
+        }
+        return descripcion.toString();
+    }
+
+    private static String palabra(int rango) {
+        return "p" + Integer.toString(rango, 36);
+    }
+
+    private static double percentil(long[] ordenados, double p) {
+        return ordenados[Math.min(ordenados.length - 1, (int) (ordenados.length * p))] / 1e6;
+    }
+
+    private static String formato(double valor) {
+        return String.format("%.3f", valor);
+    }
+
+    /**
+     * Generador de rangos 1..n con probabilidad proporcional a 1 / rango^s.
+     */
+    private static final class Zipf {
+        private final double[] acumulada;
+        private final Random aleatorio;
+
+        private Zipf(int n, double s, Random aleatorio) {
+            this.aleatorio = aleatorio;
+            acumulada = new double[n];
+            double suma = 0;
+            for (int i = 0; i < n; i++) {
+                suma += 1 / Math.pow(i + 1, s);
+                acumulada[i] = suma;
+            }
+            for (int i = 0; i < n; i++) {
+                acumulada[i] /= suma;
+            }
+        }
+
+        private int siguiente() {
+            int posicion = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+            return (posicion >= 0 ? posicion : -posicion - 1) + 1;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package Util;
+
+import ch.qos.logback.classic.Level;
+import dao.CompraComidaDAO;
+import dao.CompraComidaDAOImpl;
+import dao.CompraComidaDAOJdbc;
+import dao.FiltroCompras;
+import dao.Pagina;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Prueba de rendimiento que compara las lecturas de {@link CompraComidaDAOImpl} (Hibernate) y
+ * {@link CompraComidaDAOJdbc} (JDBC directo) con las mismas cargas de trabajo.
+ *
+ * **Objetivo:**
+ * - Ejecutar cada operación con los dos DAO, alternando el orden en cada repetición para que ninguno se beneficie
+ *   de la caché de la base de datos calentada por el otro.
+ * - Comprobar que los dos DAO devuelven los mismos resultados.
+ * - Mostrar por operación la mediana y el percentil 99 en µs y cuál de los dos es más rápido, para decidir
+ *   `todolist.dao.acceso`.
+ *
+ * **Requisitos:**
+ * - Archivo `hibernate.cfg.xml` configurado correctamente y tabla `CompraComida` con datos (al menos unas páginas).
+ * - La prueba solo lee; no modifica la base de datos. Los resultados dependen de `todolist.cache.habilitada`:
+ *   con la caché, las consultas repetidas de Hibernate no llegan a la base de datos.
+ * - Durante la prueba solo se registran avisos y errores, para no medir el coste de los logs.
+ *
+ * Uso: `PruebaDAOJdbc [repeticiones] [tamañoPágina]` (por defecto 500 y 100).
+ */
+public class PruebaDAOJdbc {
+
+    private static final Logger logger = LoggerFactory.getLogger(PruebaDAOJdbc.class);
+
+    private static final int CALENTAMIENTO = 200;
+    private static final int PAGINAS_RECORRIDAS = 20;
+
+    /**
+     * Operación de lectura; devuelve un valor comparable entre los dos DAO.
+     */
+    private record Operacion(String nombre, Function<CompraComidaDAO, Object> ejecutar) {
+    }
+
+    public static void main(String[] args) {
+        int repeticiones = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int limite = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        boolean correcto = true;
+
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        ((ch.qos.logback.classic.Logger) logger).setLevel(Level.INFO);
+
+        try {
+            CompraComidaDAO hibernate = new CompraComidaDAOImpl();
+            CompraComidaDAO jdbc = new CompraComidaDAOJdbc(hibernate);
+
+            // Cursores de las primeras páginas, para que las dos implementaciones lean exactamente las mismas
+            List<Integer> cursores = new ArrayList<>();
+            cursores.add(null);
+            Pagina<?> pagina = jdbc.obtenerPaginaFilas(null, limite, null);
+            while (pagina != null && pagina.getSiguienteCursor() != null && cursores.size() < PAGINAS_RECORRIDAS) {
+                cursores.add(pagina.getSiguienteCursor());
+                pagina = jdbc.obtenerPaginaFilas(pagina.getSiguienteCursor(), limite, null);
+            }
+            logger.info("Recorrido de {} páginas de {} compras; {} repeticiones por operación.", cursores.size(),
+                    limite, repeticiones);
+
+            FiltroCompras pendientes = new FiltroCompras(false, null);
+            int[] turno = new int[1];
+            List<Operacion> operaciones = List.of(
+                    new Operacion("obtenerUltimoNumeroFoto", dao -> dao.obtenerUltimoNumeroFoto()),
+                    new Operacion("obtenerPaginaFilas", dao -> ids(dao.obtenerPaginaFilas(
+                            cursores.get(turno[0] % cursores.size()), limite, null))),
+                    new Operacion("obtenerPagina", dao -> ids(dao.obtenerPagina(
+                            cursores.get(turno[0] % cursores.size()), limite, null))),
+                    new Operacion("obtenerPagina (pendientes)", dao -> ids(dao.obtenerPagina(
+                            cursores.get(turno[0] % cursores.size()), limite, pendientes))),
+                    new Operacion("obtenerFilas (pendientes)", dao -> dao.obtenerFilas(pendientes)));
+
+            for (Operacion operacion : operaciones) {
+                long[] tiemposHibernate = new long[repeticiones];
+                long[] tiemposJdbc = new long[repeticiones];
+                for (int i = -CALENTAMIENTO; i < repeticiones; i++) {
+                    turno[0] = Math.max(i, 0);
+                    // Se alterna el orden para repartir el efecto de la caché de la base de datos
+                    boolean hibernatePrimero = (i & 1) == 0;
+                    long t0 = System.nanoTime();
+                    Object primero = operacion.ejecutar().apply(hibernatePrimero ? hibernate : jdbc);
+                    long t1 = System.nanoTime();
+                    Object segundo = operacion.ejecutar().apply(hibernatePrimero ? jdbc : hibernate);
+                    long t2 = System.nanoTime();
+                    if (primero == null || !Objects.equals(primero, segundo)) {
+                        logger.error("{}: los resultados no coinciden o hubo un error ({} / {}).", operacion.nombre(),
+                                primero, segundo);
+                        correcto = false;
+                        break;
+                    }
+                    if (i >= 0) {
+                        tiemposHibernate[i] = hibernatePrimero ? t1 - t0 : t2 - t1;
+                        tiemposJdbc[i] = hibernatePrimero ? t2 - t1 : t1 - t0;
+                    }
+                }
+                Arrays.sort(tiemposHibernate);
+                Arrays.sort(tiemposJdbc);
+                double medianaHibernate = percentil(tiemposHibernate, 0.50);
+                double medianaJdbc = percentil(tiemposJdbc, 0.50);
+                logger.info("{}: Hibernate p50 {} µs, p99 {} µs | JDBC p50 {} µs, p99 {} µs -> más rápido: {} ({}x).",
+                        operacion.nombre(), formato(medianaHibernate), formato(percentil(tiemposHibernate, 0.99)),
+                        formato(medianaJdbc), formato(percentil(tiemposJdbc, 0.99)),
+                        medianaJdbc < medianaHibernate ? "JDBC" : "Hibernate",
+                        formato(Math.max(medianaHibernate, medianaJdbc) / Math.max(Math.min(medianaHibernate, medianaJdbc), 1e-3)));
+            }
+        } catch (Exception e) {
+            logger.error("Error durante la prueba de los DAO: {}", e.getMessage());
+            correcto = false;
+        } finally {
+            HibernateUtil.shutdown();
+        }
+
+        logger.info(correcto ? "Prueba superada: los dos DAO devuelven los mismos resultados." : "Prueba fallida.");
+        if (!correcto) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Resume una página en sus identificadores y el cursor siguiente, que deben coincidir en los dos DAO.
+     */
+    private static Object ids(Pagina<?> pagina) {
+        if (pagina == null) {
+            return null;
+        }
+        List<String> elementos = new ArrayList<>(pagina.getElementos().size() + 1);
+        for (Object elemento : pagina.getElementos()) {
+            elementos.add(elemento.toString());
+        }
+        elementos.add("cursor=" + pagina.getSiguienteCursor());
+        return elementos;
+    }
+
+    private static double percentil(long[] ordenados, double p) {
+        return ordenados[Math.min(ordenados.length - 1, (int) (ordenados.length * p))] / 1e3;
+    }
+
+    private static String formato(double valor) {
+        return String.format("%.1f", valor);
+    }
+}
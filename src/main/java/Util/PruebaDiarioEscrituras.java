@@ -0,0 +1,199 @@
+package Util;
+
+import ch.qos.logback.classic.Level;
+import dao.CompraComidaDAO;
+import dao.CompraComidaDAOImpl;
+import dao.DAOFactory;
+import dao.DiarioEscrituras;
+import dao.FiltroCompras;
+import modelo.CompraComida;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de {@link DiarioEscrituras}: varios hilos anotan altas de compras mientras el hilo aplicador las aplica y
+ * compacta el archivo del diario.
+ *
+ * **Objetivo:**
+ * - Comprobar que ninguna escritura confirmada se pierde cuando una compactación coincide con escrituras nuevas:
+ *   todas las altas llegan a la base de datos y, al cerrar el diario, el primer registro del archivo tiene la
+ *   secuencia de la cabecera y los siguientes son consecutivos.
+ * - Comprobar que una compra con un texto demasiado largo para el diario se rechaza sin bloquear las siguientes.
+ *
+ * **Requisitos:**
+ * - Archivo `hibernate.cfg.xml` configurado correctamente. **La prueba inserta compras en `CompraComida`** (y las
+ *   borra al terminar): usar una base de datos de pruebas.
+ * - El diario se crea en un directorio temporal, con las escrituras diferidas habilitadas solo para la prueba.
+ * - Con las altas por defecto el archivo supera varias veces el tamaño a partir del cual se compacta.
+ *
+ * Uso: `PruebaDiarioEscrituras [hilos] [altasPorHilo]` (por defecto 4 y 10000).
+ */
+public class PruebaDiarioEscrituras {
+
+    private static final Logger logger = LoggerFactory.getLogger(PruebaDiarioEscrituras.class);
+
+    private static final long ESPERA_APLICACION_MS = 300_000;
+
+    public static void main(String[] args) {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int altasPorHilo = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        boolean correcto;
+
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        ((ch.qos.logback.classic.Logger) logger).setLevel(Level.INFO);
+
+        Path directorio = null;
+        String supermercado = "Prueba diario " + System.currentTimeMillis();
+        try {
+            directorio = Files.createTempDirectory("prueba-diario");
+            Path archivo = directorio.resolve("diario-escrituras");
+            // Antes del primer uso de Configuracion, que lee las propiedades del sistema una sola vez
+            System.setProperty("todolist.diferido.habilitado", "true");
+            System.setProperty("todolist.diferido.ruta", archivo.toString());
+            CompraComidaDAO dao = DAOFactory.getCompraComidaDAO();
+
+            long inicio = System.nanoTime();
+            int fallidas = anotarEnParalelo(dao, hilos, altasPorHilo, supermercado);
+            logger.info("{} altas anotadas en {} ms ({} fallidas).", hilos * altasPorHilo,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), fallidas);
+
+            boolean rechazada = false;
+            try {
+                dao.agregarCompra(new CompraComida("Producto largo", "x".repeat(70_000), false, null, 1, false, supermercado));
+            } catch (IllegalArgumentException e) {
+                rechazada = true;
+            }
+            boolean siguiente = dao.agregarCompra(new CompraComida("Producto final", "Tras el rechazo", false, null, 1,
+                    false, supermercado));
+            logger.info("Texto demasiado largo rechazado: {}; alta siguiente anotada: {}.", rechazada, siguiente);
+
+            boolean aplicadas = esperarAplicadas();
+            int esperadas = hilos * altasPorHilo + 1;
+            int enBaseDeDatos = dao.obtenerFilas(new FiltroCompras(null, supermercado)).size();
+            logger.info("Compras en la base de datos: {} de {}.", enBaseDeDatos, esperadas);
+
+            DiarioEscrituras.cerrarSiAbierto();
+            boolean archivoCorrecto = comprobarArchivo(archivo);
+
+            correcto = fallidas == 0 && rechazada && siguiente && aplicadas && enBaseDeDatos == esperadas && archivoCorrecto;
+        } catch (Exception e) {
+            logger.error("Error durante la prueba del diario de escrituras: {}", e.getMessage());
+            correcto = false;
+        } finally {
+            DiarioEscrituras.cerrarSiAbierto();
+            new CompraComidaDAOImpl().eliminarCompras(new FiltroCompras(null, supermercado));
+            borrar(directorio);
+            HibernateUtil.shutdown();
+        }
+
+        logger.info(correcto ? "Prueba superada." : "Prueba fallida.");
+        if (!correcto) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Anota las altas desde varios hilos a la vez.
+     *
+     * @return Número de altas que el diario no aceptó.
+     */
+    private static int anotarEnParalelo(CompraComidaDAO dao, int hilos, int altasPorHilo, String supermercado)
+            throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                resultados.add(ejecutor.submit(() -> {
+                    int fallidas = 0;
+                    for (int i = 0; i < altasPorHilo; i++) {
+                        CompraComida compra = new CompraComida("Producto " + hilo + "-" + i, "Descripción " + i, false,
+                                null, 1 + i % 12, false, supermercado);
+                        if (!dao.agregarCompra(compra)) {
+                            fallidas++;
+                        }
+                    }
+                    return fallidas;
+                }));
+            }
+            int fallidas = 0;
+            for (Future<Integer> resultado : resultados) {
+                fallidas += resultado.get();
+            }
+            return fallidas;
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    private static boolean esperarAplicadas() throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_APLICACION_MS);
+        while (DiarioEscrituras.getInstancia().getPendientes() > 0) {
+            if (System.nanoTime() > limite) {
+                logger.error("Quedan {} escrituras sin aplicar.", DiarioEscrituras.getInstancia().getPendientes());
+                return false;
+            }
+            Thread.sleep(100);
+        }
+        return true;
+    }
+
+    /**
+     * Recorre los registros del archivo (`[cabecera][longitud][crc32][secuencia...]...`) y comprueba que empiezan
+     * en la secuencia de la cabecera y no tienen huecos.
+     */
+    private static boolean comprobarArchivo(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(Long.BYTES);
+            canal.read(cabecera, 0);
+            long esperada = cabecera.flip().getLong();
+            long primera = esperada;
+            long posicion = Long.BYTES;
+            ByteBuffer prefijo = ByteBuffer.allocate(2 * Integer.BYTES + Long.BYTES);
+            while (posicion < canal.size()) {
+                prefijo.clear();
+                canal.read(prefijo, posicion);
+                prefijo.flip();
+                int longitud = prefijo.getInt();
+                prefijo.getInt();
+                long secuencia = prefijo.getLong();
+                if (secuencia != esperada) {
+                    logger.error("El archivo del diario salta de la secuencia {} a la {}.", esperada, secuencia);
+                    return false;
+                }
+                esperada++;
+                posicion += 2 * Integer.BYTES + longitud;
+            }
+            logger.info("Archivo del diario: {} registros desde la secuencia {} ({} bytes).", esperada - primera,
+                    primera, canal.size());
+            return true;
+        }
+    }
+
+    private static void borrar(Path directorio) {
+        if (directorio == null) {
+            return;
+        }
+        try (var archivos = Files.list(directorio)) {
+            for (Path archivo : archivos.toList()) {
+                Files.deleteIfExists(archivo);
+            }
+            Files.deleteIfExists(directorio);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el directorio temporal {}.", directorio);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package Util;
+
+import ch.qos.logback.classic.Level;
+import controlador.ControladorImportacion;
+import controlador.ResultadoImportacion;
+import modelo.CategoriaCompra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Prueba de rendimiento de {@link ControladorImportacion}: genera un archivo CSV de compras, lo importa y muestra
+ * las filas insertadas por segundo.
+ *
+ * **Objetivo:**
+ * - Medir el ritmo de la importación completa (lectura, análisis, validación e inserción) sobre la base de datos
+ *   configurada. El objetivo es de al menos 50.000 filas/s contra un MySQL local.
+ * - Comprobar que todas las filas válidas se guardan y que las inválidas se rechazan.
+ *
+ * **Requisitos:**
+ * - Archivo `hibernate.cfg.xml` configurado correctamente. **La prueba inserta las filas generadas en las tablas
+ *   de compras**: usar una base de datos de pruebas.
+ * - Una de cada mil filas se genera con cantidad 0 para comprobar el rechazo; las demás se reparten entre las tres
+ *   categorías.
+ * - Durante la prueba solo se registran avisos y errores, para no medir el coste de los logs.
+ *
+ * Uso: `PruebaImportacion [filas]` (por defecto 500000).
+ */
+public class PruebaImportacion {
+
+    private static final Logger logger = LoggerFactory.getLogger(PruebaImportacion.class);
+
+    private static final int INVALIDA_CADA = 1000;
+
+    public static void main(String[] args) {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        boolean correcto;
+
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        ((ch.qos.logback.classic.Logger) logger).setLevel(Level.INFO);
+
+        Path archivo = null;
+        ControladorImportacion controlador = null;
+        try {
+            archivo = Files.createTempFile("prueba-importacion", ".csv");
+            int invalidas = generar(archivo, filas);
+            logger.info("Archivo de {} filas generado ({} MB).", filas, Files.size(archivo) / (1024 * 1024));
+
+            controlador = new ControladorImportacion();
+            ResultadoImportacion resultado = controlador.importar(archivo, null, null);
+            logger.info("{} filas insertadas en {} ms: {} filas/s.", resultado.getInsertadas(),
+                    resultado.getDuracionMs(), resultado.getFilasPorSegundo());
+
+            correcto = resultado.getFalloGeneral() == null && resultado.getRechazadas() == invalidas
+                    && resultado.getInsertadas() == filas - invalidas;
+            if (!correcto) {
+                logger.error("Resultado inesperado: {} (se esperaban {} rechazadas).", resultado, invalidas);
+            }
+        } catch (Exception e) {
+            logger.error("Error durante la prueba de importación: {}", e.getMessage());
+            correcto = false;
+        } finally {
+            if (controlador != null) {
+                controlador.cerrar();
+            }
+            if (archivo != null) {
+                try {
+                    Files.deleteIfExists(archivo);
+                } catch (IOException e) {
+                    logger.warn("No se pudo borrar el archivo temporal {}.", archivo);
+                }
+            }
+            HibernateUtil.shutdown();
+        }
+
+        logger.info(correcto ? "Prueba superada." : "Prueba fallida.");
+        if (!correcto) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Escribe el archivo CSV de la prueba.
+     *
+     * @return Número de filas inválidas generadas.
+     */
+    private static int generar(Path archivo, int filas) throws IOException {
+        CategoriaCompra[] categorias = CategoriaCompra.values();
+        int invalidas = 0;
+        try (BufferedWriter salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            salida.write("nombreProducto,descripcion,foto,cantidad,realizado,supermercado,categoria\n");
+            for (int i = 1; i <= filas; i++) {
+                boolean invalida = i % INVALIDA_CADA == 0;
+                if (invalida) {
+                    invalidas++;
+                }
+                salida.write("Producto " + i + ",\"Descripción, número " + i + "\"," + (i % 7 == 0) + ","
+                        + (invalida ? 0 : 1 + i % 12) + "," + (i % 3 == 0) + ",Supermercado " + i % 20 + ","
+                        + categorias[i % categorias.length] + "\n");
+            }
+        }
+        return invalidas;
+    }
+}
@@ -0,0 +1,83 @@
+package Util;
+
+import dao.Pagina;
+import dao.TareaDAO;
+import dao.TareaDAOImpl;
+import modelo.Tarea;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Clase de prueba que comprueba que el listado de tareas no provoca consultas N+1.
+ *
+ * **Objetivo:**
+ * - Recorrer las primeras páginas de tareas accediendo a las tres compras de cada una.
+ * - Contar con las estadísticas de Hibernate las sentencias ejecutadas por página.
+ * - Fallar si alguna página necesita más de una sentencia, sea cual sea su tamaño.
+ *
+ * **Requisitos:**
+ * - Archivo `hibernate.cfg.xml` configurado correctamente y tabla `Tarea` con datos.
+ * - La prueba solo lee; no modifica la base de datos.
+ *
+ * Uso: `PruebaTareas [tamañoPágina] [páginas]` (por defecto 100 y 5).
+ */
+public class PruebaTareas {
+
+    private static final Logger logger = LoggerFactory.getLogger(PruebaTareas.class);
+
+    public static void main(String[] args) {
+        int limite = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int paginas = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        boolean correcto = true;
+
+        try {
+            TareaDAO tareaDAO = new TareaDAOImpl();
+            Statistics estadisticas = HibernateUtil.getSessionFactory().getStatistics();
+            estadisticas.setStatisticsEnabled(true);
+
+            Integer cursor = null;
+            for (int i = 1; i <= paginas; i++) {
+                estadisticas.clear();
+                Pagina<Tarea> pagina = tareaDAO.obtenerPagina(cursor, limite);
+                if (pagina == null) {
+                    logger.error("No se pudo obtener la página {}.", i);
+                    correcto = false;
+                    break;
+                }
+                int compras = 0;
+                for (Tarea tarea : pagina.getElementos()) {
+                    // Fuera de la sesión: si alguna compra no estuviera cargada, lanzaría LazyInitializationException
+                    compras += contar(tarea.getCompraComida() == null ? null : tarea.getCompraComida().getNombreProducto());
+                    compras += contar(tarea.getCompraLimpieza() == null ? null : tarea.getCompraLimpieza().getNombreProducto());
+                    compras += contar(tarea.getCompraVarios() == null ? null : tarea.getCompraVarios().getNombreProducto());
+                }
+                long sentencias = estadisticas.getPrepareStatementCount();
+                logger.info("Página {}: {} tareas, {} compras asociadas, {} sentencias.", i, pagina.getElementos().size(),
+                        compras, sentencias);
+                if (sentencias > 1) {
+                    logger.error("La página {} necesitó {} sentencias; se esperaba 1.", i, sentencias);
+                    correcto = false;
+                }
+                cursor = pagina.getSiguienteCursor();
+                if (cursor == null) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error durante la prueba de tareas: {}", e.getMessage());
+            correcto = false;
+        } finally {
+            HibernateUtil.shutdown();
+        }
+
+        logger.info(correcto ? "Prueba superada: una sentencia por página." : "Prueba fallida.");
+        if (!correcto) {
+            System.exit(1);
+        }
+    }
+
+    private static int contar(String nombreProducto) {
+        return nombreProducto == null ? 0 : 1;
+    }
+}
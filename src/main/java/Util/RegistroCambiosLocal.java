@@ -0,0 +1,123 @@
+package Util;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Disparador de H2 que anota en `CambiosPendientes` cada fila modificada en el almacén local.
+ *
+ * <p>Se ejecuta por cada fila insertada, actualizada o borrada, también con las sentencias masivas y los lotes
+ * JDBC que no pasan por los eventos de Hibernate. {@link Sincronizador} envía después al servidor las filas
+ * anotadas. Por cada fila se guarda una sola entrada:</p>
+ * <ul>
+ *     <li>`Operacion`: `INSERT` si la fila solo existe en local, `UPDATE` o `DELETE` en otro caso. Una fila
+ *     insertada y borrada antes de sincronizarse deja de estar pendiente.</li>
+ *     <li>`VersionBase`: versión que tenía la fila en el servidor antes del primer cambio local; el servidor
+ *     solo acepta el cambio si la fila conserva esa versión.</li>
+ *     <li>`Cambio`: contador que aumenta con cada cambio, para que el sincronizador sepa si la fila cambió otra
+ *     vez mientras la enviaba.</li>
+ * </ul>
+ *
+ * <p>La primera columna de la tabla debe ser el identificador. Las escrituras del propio sincronizador se hacen
+ * dentro de {@link #sinRegistrar} y no se anotan.</p>
+ */
+public class RegistroCambiosLocal implements Trigger {
+
+    /**
+     * Indica si el hilo actual está aplicando cambios del sincronizador. H2 embebido ejecuta los disparadores
+     * en el hilo que lanza la sentencia.
+     */
+    private static final ThreadLocal<Boolean> sincronizando = ThreadLocal.withInitial(() -> false);
+
+    private String tabla;
+    private int columnaVersion = -1;
+
+    /**
+     * Ejecuta una operación del sincronizador sin anotar los cambios que haga en el almacén local.
+     *
+     * @param operacion Operación a ejecutar en el hilo actual.
+     * @throws SQLException Si la operación falla.
+     */
+    static <T> T sinRegistrar(OperacionLocal<T> operacion) throws SQLException {
+        sincronizando.set(true);
+        try {
+            return operacion.ejecutar();
+        } finally {
+            sincronizando.set(false);
+        }
+    }
+
+    @Override
+    public void init(Connection conexion, String esquema, String disparador, String tabla, boolean antes, int tipo)
+            throws SQLException {
+        this.tabla = tabla;
+        try (ResultSet rs = conexion.getMetaData().getColumns(null, esquema, tabla, "Version")) {
+            if (rs.next()) {
+                columnaVersion = rs.getInt("ORDINAL_POSITION") - 1;
+            }
+        }
+    }
+
+    @Override
+    public void fire(Connection conexion, Object[] anterior, Object[] nueva) throws SQLException {
+        if (sincronizando.get()) {
+            return;
+        }
+        int id = ((Number) (nueva != null ? nueva : anterior)[0]).intValue();
+        String existente = null;
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "SELECT Operacion FROM CambiosPendientes WHERE Tabla = ? AND IdUnico = ?")) {
+            ps.setString(1, tabla);
+            ps.setInt(2, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    existente = rs.getString(1);
+                }
+            }
+        }
+
+        if (existente == null) {
+            String operacion = anterior == null ? "INSERT" : nueva == null ? "DELETE" : "UPDATE";
+            try (PreparedStatement ps = conexion.prepareStatement("INSERT INTO CambiosPendientes "
+                    + "(Tabla, IdUnico, Operacion, VersionBase, Cambio) VALUES (?, ?, ?, ?, 1)")) {
+                ps.setString(1, tabla);
+                ps.setInt(2, id);
+                ps.setString(3, operacion);
+                if (anterior != null && columnaVersion >= 0) {
+                    ps.setInt(4, ((Number) anterior[columnaVersion]).intValue());
+                } else {
+                    ps.setNull(4, java.sql.Types.INTEGER);
+                }
+                ps.executeUpdate();
+            }
+        } else if (nueva == null && existente.equals("INSERT")) {
+            // Nunca llegó al servidor: no hay nada que enviar
+            actualizar(conexion, "DELETE FROM CambiosPendientes WHERE Tabla = ? AND IdUnico = ?", id);
+        } else if (nueva == null) {
+            actualizar(conexion, "UPDATE CambiosPendientes SET Operacion = 'DELETE', Cambio = Cambio + 1 "
+                    + "WHERE Tabla = ? AND IdUnico = ?", id);
+        } else {
+            actualizar(conexion, "UPDATE CambiosPendientes SET Cambio = Cambio + 1 WHERE Tabla = ? AND IdUnico = ?", id);
+        }
+    }
+
+    private void actualizar(Connection conexion, String sql, int id) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            ps.setString(1, tabla);
+            ps.setInt(2, id);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Operación sobre el almacén local que puede lanzar `SQLException`.
+     */
+    @FunctionalInterface
+    interface OperacionLocal<T> {
+        T ejecutar() throws SQLException;
+    }
+}
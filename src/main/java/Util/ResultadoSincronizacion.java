@@ -0,0 +1,15 @@
+package Util;
+
+/**
+ * Resultado de un ciclo de sincronización entre el almacén local y el servidor.
+ *
+ * @param completado Si el ciclo terminó; `false` si el servidor no estaba disponible o falló alguna operación.
+ * @param enviados   Filas locales enviadas al servidor (altas, modificaciones y bajas).
+ * @param recibidos  Filas del servidor aplicadas en el almacén local.
+ * @param conflictos Cambios locales descartados porque la fila cambió también en el servidor.
+ * @param pendientes Cambios locales que quedan por enviar al terminar el ciclo.
+ * @param duracionMs Duración del ciclo en milisegundos.
+ */
+public record ResultadoSincronizacion(boolean completado, int enviados, int recibidos, int conflictos,
+                                      int pendientes, long duracionMs) {
+}
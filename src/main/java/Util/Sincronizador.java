@@ -0,0 +1,1037 @@
+package Util;
+
+import dao.BusquedaCompras;
+import dao.EventosCompras;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sincroniza en segundo plano el almacén local ({@link AlmacenLocal}) con el servidor MySQL.
+ *
+ * <p>Cada ciclo tiene dos fases:</p>
+ * <ul>
+ *     <li><strong>Envío:</strong> los cambios anotados en `CambiosPendientes` se envían en lotes JDBC, primero las
+ *     compras y después las tareas. Las altas reciben el identificador del servidor, que sustituye al
+ *     provisional local; el servidor anota en `AltasSincronizadas`, en la misma transacción, qué identificador
+ *     recibió cada alta de este almacén, y la anotación se borra cuando el almacén local confirma el cambio. Si un
+ *     ciclo se interrumpe entre ambas confirmaciones, el siguiente reutiliza ese identificador en vez de insertar la
+ *     fila otra vez. Las modificaciones y bajas solo se aplican si la fila del servidor conserva la versión de la que
+ *     partió el cambio local; si no, hay conflicto y se conserva la fila del servidor.</li>
+ *     <li><strong>Recepción:</strong> solo se leen del servidor las filas cuya columna `Modificado` es posterior a
+ *     la marca de la recepción anterior (menos un margen), que se guarda en `MarcasRecepcion` junto con las filas
+ *     recibidas; de ellas se aplican las que difieren de la copia local. Los borrados se detectan comparando el
+ *     número y la suma de identificadores por tramos de {@value #TAMANO_TRAMO}, y solo se leen los identificadores de
+ *     los tramos que no coinciden. Si la huella de la tabla (número de filas y sumas de identificadores y versiones)
+ *     no ha cambiado desde el último ciclo, la tabla no se compara.</li>
+ * </ul>
+ *
+ * <p>Si el servidor no está disponible, el ciclo termina sin cambios y los pendientes se envían en el siguiente.
+ * Las tareas que apuntan a una compra que aún no tiene identificador del servidor esperan a que la compra se
+ * envíe.</p>
+ *
+ * <p><strong>Propiedades admitidas (prefijo `todolist.offline.`):</strong></p>
+ * <ul>
+ *     <li>`intervalo_ms`: tiempo entre el final de un ciclo y el comienzo del siguiente.</li>
+ *     <li>`tamano_lote`: filas por lote JDBC y por consulta `IN` al servidor.</li>
+ *     <li>`margen_recepcion_ms`: cuánto antes de la marca anterior se empiezan a leer las filas modificadas, para
+ *     no perder las de transacciones que se confirmaron después de la recepción con una hora anterior.</li>
+ * </ul>
+ */
+public final class Sincronizador {
+
+    private static final Logger logger = LoggerFactory.getLogger(Sincronizador.class);
+
+    private static final String PREFIJO = "todolist.offline.";
+
+    /**
+     * Columnas de datos de las compras, sin el identificador ni la versión.
+     */
+    private static final String[] CAMPOS_COMPRA = {"NombreProducto", "Descripcion", "Foto", "NumeroUnicoFoto",
+            "Cantidad", "Realizado", "SuperMercado"};
+
+    private static final String[] CAMPOS_TAREA = {"IDCompraComida", "IDCompraLimpieza", "IDCompraVarios"};
+
+    private static final int MAXIMO_CONFLICTOS = 100;
+
+    /**
+     * Identificadores por tramo al buscar filas borradas en el servidor.
+     */
+    private static final int TAMANO_TRAMO = 1024;
+
+    private static ScheduledExecutorService planificador;
+
+    /**
+     * Serializa los ciclos del planificador y los pedidos con {@link #sincronizarAhora()}.
+     */
+    private static final Object cerrojo = new Object();
+
+    /**
+     * Últimos conflictos detectados, del más antiguo al más reciente.
+     */
+    private static final Deque<ConflictoSincronizacion> conflictos = new ArrayDeque<>();
+
+    /**
+     * Huella de cada tabla del servidor en la última recepción; se accede con {@link #cerrojo} tomado.
+     */
+    private static final Map<String, String> huellas = new HashMap<>();
+
+    /**
+     * Identificador de este almacén local en `AltasSincronizadas`; se lee al comienzo de cada ciclo, con
+     * {@link #cerrojo} tomado.
+     */
+    private static String cliente;
+
+    private static volatile boolean esquemaMigrado;
+
+    private static volatile ResultadoSincronizacion ultimoResultado;
+
+    private Sincronizador() {
+    }
+
+    /**
+     * Arranca los ciclos periódicos si no están en marcha. Lo llama {@link AlmacenLocal} al abrirse.
+     */
+    static synchronized void iniciar() {
+        if (planificador != null) {
+            return;
+        }
+        long intervalo = Math.max(1_000, Configuracion.getLargo(PREFIJO + "intervalo_ms", 10_000));
+        planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "sincronizador-local");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador.scheduleWithFixedDelay(Sincronizador::ciclo, 0, intervalo, TimeUnit.MILLISECONDS);
+        logger.info("Sincronización con el servidor cada {} ms.", intervalo);
+    }
+
+    /**
+     * Detiene los ciclos periódicos, esperando a que termine el que esté en curso.
+     */
+    static synchronized void detener() {
+        if (planificador == null) {
+            return;
+        }
+        planificador.shutdown();
+        try {
+            if (!planificador.awaitTermination(30, TimeUnit.SECONDS)) {
+                planificador.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            planificador.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        planificador = null;
+    }
+
+    /**
+     * Ejecuta un ciclo de sincronización en el hilo actual, esperando si hay otro en curso.
+     *
+     * @return Resultado del ciclo.
+     * @throws IllegalStateException Si el modo sin conexión no está habilitado.
+     */
+    public static ResultadoSincronizacion sincronizarAhora() {
+        if (!AlmacenLocal.isHabilitado()) {
+            throw new IllegalStateException("El modo sin conexión no está habilitado.");
+        }
+        return ciclo();
+    }
+
+    /**
+     * Devuelve el resultado del último ciclo.
+     *
+     * @return Resultado del último ciclo, o `null` si aún no se ha ejecutado ninguno.
+     */
+    public static ResultadoSincronizacion getUltimoResultado() {
+        return ultimoResultado;
+    }
+
+    /**
+     * Devuelve los últimos conflictos detectados (como máximo {@value #MAXIMO_CONFLICTOS}).
+     *
+     * @return Copia de los conflictos, del más antiguo al más reciente.
+     */
+    public static List<ConflictoSincronizacion> getConflictos() {
+        synchronized (conflictos) {
+            return List.copyOf(conflictos);
+        }
+    }
+
+    /**
+     * Cuenta los cambios locales que aún no se han enviado al servidor.
+     *
+     * @return Número de filas pendientes, o `-1` si no se pudo leer el almacén local.
+     */
+    public static int getPendientes() {
+        try (Connection local = AlmacenLocal.abrirConexion()) {
+            return contarPendientes(local);
+        } catch (SQLException e) {
+            logger.error("Error al contar los cambios pendientes: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private static ResultadoSincronizacion ciclo() {
+        synchronized (cerrojo) {
+            long inicio = System.nanoTime();
+            Contadores contadores = new Contadores();
+            boolean completado = false;
+            int pendientes = -1;
+            try (Connection local = AlmacenLocal.abrirConexion()) {
+                try {
+                    if (!esquemaMigrado) {
+                        MigradorEsquema.migrar();
+                        esquemaMigrado = true;
+                    }
+                    cliente = leerCliente(local);
+                    try (Connection servidor = PoolConexiones.abrirConexionServidor()) {
+                        local.setAutoCommit(false);
+                        servidor.setAutoCommit(false);
+                        try {
+                            int lote = Math.max(1, Configuracion.getEntero(PREFIJO + "tamano_lote", 200));
+                            for (String tabla : AlmacenLocal.TABLAS_COMPRAS) {
+                                enviar(local, servidor, tabla, true, lote, contadores);
+                            }
+                            enviar(local, servidor, "Tarea", false, lote, contadores);
+                            for (String tabla : AlmacenLocal.TABLAS_COMPRAS) {
+                                recibir(local, servidor, tabla, true, lote, contadores);
+                            }
+                            recibir(local, servidor, "Tarea", false, lote, contadores);
+                            completado = true;
+                        } catch (SQLException | RuntimeException e) {
+                            deshacer(servidor);
+                            throw e;
+                        }
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    deshacer(local);
+                    logger.warn("Sincronización interrumpida, se reintentará en el siguiente ciclo: {}", e.getMessage());
+                } finally {
+                    local.setAutoCommit(true);
+                }
+                pendientes = contarPendientes(local);
+            } catch (SQLException | RuntimeException e) {
+                logger.error("Error al acceder al almacén local durante la sincronización: {}", e.getMessage());
+            }
+            if (contadores.indiceAfectado) {
+                BusquedaCompras.getInstancia().invalidar();
+                EventosCompras.getInstancia().recargarTodo();
+            }
+            ResultadoSincronizacion resultado = new ResultadoSincronizacion(completado, contadores.enviados,
+                    contadores.recibidos, contadores.conflictos, pendientes, (System.nanoTime() - inicio) / 1_000_000);
+            if (contadores.enviados + contadores.recibidos + contadores.conflictos > 0) {
+                logger.info("Sincronización: {} enviados, {} recibidos, {} conflictos, {} pendientes ({} ms).",
+                        resultado.enviados(), resultado.recibidos(), resultado.conflictos(), resultado.pendientes(),
+                        resultado.duracionMs());
+            }
+            ultimoResultado = resultado;
+            return resultado;
+        }
+    }
+
+    // ======
+    // Envío
+    // ======
+
+    /**
+     * Envía los cambios pendientes de una tabla, en bloques de `lote` entradas recorridos por identificador.
+     */
+    private static void enviar(Connection local, Connection servidor, String tabla, boolean esCompra, int lote,
+                               Contadores contadores) throws SQLException {
+        String[] campos = esCompra ? CAMPOS_COMPRA : CAMPOS_TAREA;
+        String clave = clave(esCompra);
+        Integer ultimoId = null;
+        while (true) {
+            List<Pendiente> bloque = leerPendientes(local, tabla, ultimoId, lote);
+            if (bloque.isEmpty()) {
+                return;
+            }
+            ultimoId = bloque.get(bloque.size() - 1).id();
+            enviarBloque(local, servidor, tabla, clave, campos, esCompra, bloque, contadores);
+            if (bloque.size() < lote) {
+                return;
+            }
+        }
+    }
+
+    private static void enviarBloque(Connection local, Connection servidor, String tabla, String clave, String[] campos,
+                                     boolean esCompra, List<Pendiente> bloque, Contadores contadores) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        bloque.forEach(pendiente -> ids.add(pendiente.id()));
+        Map<Integer, Object[]> filas = leerFilas(local, tabla, clave, campos, esCompra, ids);
+
+        List<Pendiente> altas = new ArrayList<>();
+        List<Pendiente> modificaciones = new ArrayList<>();
+        List<Pendiente> bajas = new ArrayList<>();
+        for (Pendiente pendiente : bloque) {
+            Object[] fila = filas.get(pendiente.id());
+            if (pendiente.operacion().equals("DELETE")) {
+                bajas.add(pendiente);
+            } else if (fila == null) {
+                continue;  // Borrada después de leer los pendientes; el disparador ya actualizó su entrada
+            } else if (!esCompra && apuntaAFilaLocal(fila)) {
+                continue;  // La compra a la que apunta aún no está en el servidor
+            } else if (pendiente.operacion().equals("INSERT")) {
+                altas.add(pendiente);
+            } else {
+                modificaciones.add(pendiente);
+            }
+        }
+
+        List<Integer> enConflicto = new ArrayList<>();
+        // Altas que un ciclo interrumpido ya insertó en el servidor sin llegar a confirmarlas en local
+        Map<Integer, Integer> yaInsertadas = leerAltasInsertadas(servidor, tabla, altas);
+        Map<Integer, Integer> nuevosIds = insertarEnServidor(servidor, tabla, campos, altas, filas, yaInsertadas);
+        int[] modificadas = modificarEnServidor(servidor, tabla, clave, campos, esCompra, modificaciones, filas);
+        int[] borradas = borrarEnServidor(servidor, tabla, clave, esCompra, bajas);
+        comprobarLote(tabla, modificadas);
+        comprobarLote(tabla, borradas);
+        boolean[] aplicadas = comprobarModificaciones(servidor, tabla, clave, campos, esCompra, modificaciones, filas,
+                modificadas);
+        servidor.commit();
+
+        for (Pendiente alta : altas) {
+            confirmarAlta(local, tabla, clave, esCompra, alta, nuevosIds.get(alta.id()),
+                    yaInsertadas.containsKey(alta.id()));
+        }
+        for (int i = 0; i < modificaciones.size(); i++) {
+            Pendiente pendiente = modificaciones.get(i);
+            if (aplicadas[i]) {
+                confirmarModificacion(local, tabla, clave, esCompra, pendiente);
+            } else {
+                enConflicto.add(pendiente.id());
+            }
+        }
+        List<Integer> bajasSinAplicar = new ArrayList<>();
+        for (int i = 0; i < bajas.size(); i++) {
+            if (borradas[i] > 0) {
+                borrarPendiente(local, tabla, bajas.get(i).id(), null);
+            } else {
+                bajasSinAplicar.add(bajas.get(i).id());  // Sin efecto, o SUCCESS_NO_INFO: se comprueba si sigue
+            }
+        }
+        // Una baja sin efecto es un conflicto si la fila sigue en el servidor con otra versión
+        Map<Integer, Object[]> enServidor = leerFilas(servidor, tabla, clave, campos, esCompra, bajasSinAplicar);
+        for (Integer id : bajasSinAplicar) {
+            if (enServidor.containsKey(id)) {
+                enConflicto.add(id);
+            } else {
+                borrarPendiente(local, tabla, id, null);
+            }
+        }
+        resolverConflictos(local, servidor, tabla, clave, campos, esCompra, bloque, enConflicto);
+        local.commit();
+        olvidarAltas(servidor, tabla, altas);
+        servidor.commit();
+
+        contadores.enviados += altas.size() + modificaciones.size() + bajas.size() - enConflicto.size();
+        contadores.conflictos += enConflicto.size();
+        contadores.indiceAfectado |= esCompra && (!altas.isEmpty() || !enConflicto.isEmpty());
+    }
+
+    /**
+     * Inserta en el servidor las altas que aún no están en `yaInsertadas` y anota en `AltasSincronizadas`, en la
+     * misma transacción, el identificador que recibió cada una.
+     *
+     * @return Identificador del servidor de cada alta, por identificador local.
+     */
+    private static Map<Integer, Integer> insertarEnServidor(Connection servidor, String tabla, String[] campos,
+                                                            List<Pendiente> altas, Map<Integer, Object[]> filas,
+                                                            Map<Integer, Integer> yaInsertadas) throws SQLException {
+        Map<Integer, Integer> nuevosIds = new HashMap<>(yaInsertadas);
+        List<Pendiente> porInsertar = new ArrayList<>();
+        for (Pendiente alta : altas) {
+            if (!yaInsertadas.containsKey(alta.id())) {
+                porInsertar.add(alta);
+            }
+        }
+        if (porInsertar.isEmpty()) {
+            return nuevosIds;
+        }
+        boolean esCompra = campos == CAMPOS_COMPRA;
+        String columnas = String.join(", ", campos) + (esCompra ? ", Version" : "");
+        String marcadores = "?, ".repeat(campos.length - 1) + "?" + (esCompra ? ", 0" : "");
+        List<Integer> claves = new ArrayList<>();
+        try (PreparedStatement ps = servidor.prepareStatement("INSERT INTO " + tabla + " (" + columnas + ") VALUES ("
+                + marcadores + ")", Statement.RETURN_GENERATED_KEYS)) {
+            for (Pendiente alta : porInsertar) {
+                asignarCampos(ps, filas.get(alta.id()), campos.length, 1);
+                ps.addBatch();
+            }
+            comprobarLote(tabla, ps.executeBatch());
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                while (rs.next()) {
+                    claves.add(rs.getInt(1));
+                }
+            }
+        }
+        if (claves.size() != porInsertar.size()) {
+            throw new SQLException("El servidor devolvió " + claves.size() + " claves para " + porInsertar.size() + " altas en " + tabla);
+        }
+        try (PreparedStatement ps = servidor.prepareStatement("INSERT INTO AltasSincronizadas (Cliente, Tabla, IdLocal, "
+                + "IdServidor) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < porInsertar.size(); i++) {
+                ps.setString(1, cliente);
+                ps.setString(2, tabla);
+                ps.setInt(3, porInsertar.get(i).id());
+                ps.setInt(4, claves.get(i));
+                ps.addBatch();
+                nuevosIds.put(porInsertar.get(i).id(), claves.get(i));
+            }
+            comprobarLote("AltasSincronizadas", ps.executeBatch());
+        }
+        return nuevosIds;
+    }
+
+    /**
+     * Lee de `AltasSincronizadas` el identificador del servidor de las altas de este almacén que ya se insertaron.
+     */
+    private static Map<Integer, Integer> leerAltasInsertadas(Connection servidor, String tabla,
+                                                             List<Pendiente> altas) throws SQLException {
+        Map<Integer, Integer> insertadas = new HashMap<>();
+        if (altas.isEmpty()) {
+            return insertadas;
+        }
+        try (PreparedStatement ps = servidor.prepareStatement("SELECT IdLocal, IdServidor FROM AltasSincronizadas "
+                + "WHERE Cliente = ? AND Tabla = ? AND IdLocal IN (" + "?, ".repeat(altas.size() - 1) + "?)")) {
+            ps.setString(1, cliente);
+            ps.setString(2, tabla);
+            for (int i = 0; i < altas.size(); i++) {
+                ps.setInt(i + 3, altas.get(i).id());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    insertadas.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return insertadas;
+    }
+
+    /**
+     * Borra las anotaciones de altas ya confirmadas en local. Si el borrado no llega al servidor, las anotaciones
+     * sobrantes no afectan a nada: los identificadores locales no se reutilizan.
+     */
+    private static void olvidarAltas(Connection servidor, String tabla, List<Pendiente> altas) throws SQLException {
+        if (altas.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = servidor.prepareStatement("DELETE FROM AltasSincronizadas WHERE Cliente = ? "
+                + "AND Tabla = ? AND IdLocal = ?")) {
+            for (Pendiente alta : altas) {
+                ps.setString(1, cliente);
+                ps.setString(2, tabla);
+                ps.setInt(3, alta.id());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static int[] modificarEnServidor(Connection servidor, String tabla, String clave, String[] campos,
+                                             boolean esCompra, List<Pendiente> modificaciones,
+                                             Map<Integer, Object[]> filas) throws SQLException {
+        if (modificaciones.isEmpty()) {
+            return new int[0];
+        }
+        String sql = "UPDATE " + tabla + " SET " + String.join(" = ?, ", campos) + " = ?"
+                + (esCompra ? ", Version = Version + 1 WHERE " + clave + " = ? AND Version = ?" : " WHERE " + clave + " = ?");
+        try (PreparedStatement ps = servidor.prepareStatement(sql)) {
+            for (Pendiente modificacion : modificaciones) {
+                asignarCampos(ps, filas.get(modificacion.id()), campos.length, 1);
+                ps.setInt(campos.length + 1, modificacion.id());
+                if (esCompra) {
+                    ps.setInt(campos.length + 2, modificacion.versionBase());
+                }
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        }
+    }
+
+    private static int[] borrarEnServidor(Connection servidor, String tabla, String clave, boolean esCompra,
+                                          List<Pendiente> bajas) throws SQLException {
+        if (bajas.isEmpty()) {
+            return new int[0];
+        }
+        String sql = "DELETE FROM " + tabla + " WHERE " + clave + " = ?" + (esCompra ? " AND Version = ?" : "");
+        try (PreparedStatement ps = servidor.prepareStatement(sql)) {
+            for (Pendiente baja : bajas) {
+                ps.setInt(1, baja.id());
+                if (esCompra) {
+                    ps.setInt(2, baja.versionBase());
+                }
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        }
+    }
+
+    /**
+     * Anula el bloque si alguna sentencia del lote falló ({@link Statement#EXECUTE_FAILED}); el llamador deshace la
+     * transacción del servidor.
+     */
+    private static void comprobarLote(String tabla, int[] resultados) throws SQLException {
+        for (int resultado : resultados) {
+            if (resultado == Statement.EXECUTE_FAILED) {
+                throw new SQLException("Falló una sentencia del lote enviado a " + tabla);
+            }
+        }
+    }
+
+    /**
+     * Decide qué modificaciones se aplicaron en el servidor. Las que devolvieron {@link Statement#SUCCESS_NO_INFO}
+     * (posible con `rewriteBatchedStatements`) se vuelven a leer dentro de la misma transacción: solo cuentan como
+     * aplicadas si la fila tiene los valores enviados y, en las compras, la versión siguiente a la de partida.
+     */
+    private static boolean[] comprobarModificaciones(Connection servidor, String tabla, String clave, String[] campos,
+                                                     boolean esCompra, List<Pendiente> modificaciones,
+                                                     Map<Integer, Object[]> filas, int[] resultados) throws SQLException {
+        boolean[] aplicadas = new boolean[resultados.length];
+        List<Integer> sinInformacion = new ArrayList<>();
+        for (int i = 0; i < resultados.length; i++) {
+            aplicadas[i] = resultados[i] > 0;
+            if (resultados[i] == Statement.SUCCESS_NO_INFO) {
+                sinInformacion.add(modificaciones.get(i).id());
+            }
+        }
+        if (sinInformacion.isEmpty()) {
+            return aplicadas;
+        }
+        Map<Integer, Object[]> enServidor = leerFilas(servidor, tabla, clave, campos, esCompra, sinInformacion);
+        for (int i = 0; i < resultados.length; i++) {
+            if (resultados[i] != Statement.SUCCESS_NO_INFO) {
+                continue;
+            }
+            Pendiente modificacion = modificaciones.get(i);
+            Object[] enviada = filas.get(modificacion.id());
+            Object[] actual = enServidor.get(modificacion.id());
+            boolean igual = actual != null;
+            for (int j = 1; j <= campos.length && igual; j++) {
+                igual = mismoValor(enviada[j], actual[j]);
+            }
+            if (igual && esCompra) {
+                igual = ((Number) actual[campos.length + 1]).intValue() == modificacion.versionBase() + 1;
+            }
+            aplicadas[i] = igual;
+        }
+        return aplicadas;
+    }
+
+    /**
+     * Sustituye el identificador provisional local por el del servidor (las tareas lo siguen por `ON UPDATE CASCADE`).
+     *
+     * <p>Si la fila cambió en local mientras se enviaba, su entrada pasa a ser una modificación del nuevo
+     * identificador; si se borró, se anota la baja en el servidor. Una alta `reutilizada` (insertada por un ciclo
+     * anterior) también pasa a ser una modificación, porque la fila pudo cambiar en local desde entonces.</p>
+     */
+    private static void confirmarAlta(Connection local, String tabla, String clave, boolean esCompra,
+                                      Pendiente alta, int nuevoId, boolean reutilizada) throws SQLException {
+        RegistroCambiosLocal.sinRegistrar(() -> ejecutar(local, "UPDATE " + tabla + " SET " + clave + " = ?"
+                + (esCompra ? ", Version = 0" : "") + " WHERE " + clave + " = ?", nuevoId, alta.id()));
+        if (!reutilizada && borrarPendiente(local, tabla, alta.id(), alta.cambio())) {
+            return;
+        }
+        if (ejecutar(local, "UPDATE CambiosPendientes SET IdUnico = ?, Operacion = 'UPDATE', VersionBase = ? "
+                + "WHERE Tabla = ? AND IdUnico = ?", nuevoId, esCompra ? 0 : null, tabla, alta.id()) == 0) {
+            ejecutar(local, "INSERT INTO CambiosPendientes (Tabla, IdUnico, Operacion, VersionBase, Cambio) "
+                    + "VALUES (?, ?, 'DELETE', ?, 1)", tabla, nuevoId, esCompra ? 0 : null);
+        }
+    }
+
+    /**
+     * Copia a la fila local la versión que asignó el servidor. Si la fila cambió en local mientras se enviaba, su
+     * entrada se conserva con la nueva versión base.
+     */
+    private static void confirmarModificacion(Connection local, String tabla, String clave, boolean esCompra,
+                                              Pendiente modificacion) throws SQLException {
+        if (!esCompra) {
+            borrarPendiente(local, tabla, modificacion.id(), modificacion.cambio());
+            return;
+        }
+        int nuevaVersion = modificacion.versionBase() + 1;
+        RegistroCambiosLocal.sinRegistrar(() -> ejecutar(local, "UPDATE " + tabla + " SET Version = ? WHERE "
+                + clave + " = ?", nuevaVersion, modificacion.id()));
+        if (!borrarPendiente(local, tabla, modificacion.id(), modificacion.cambio())) {
+            ejecutar(local, "UPDATE CambiosPendientes SET VersionBase = ? WHERE Tabla = ? AND IdUnico = ?",
+                    nuevaVersion, tabla, modificacion.id());
+        }
+    }
+
+    /**
+     * Descarta los cambios locales en conflicto y copia en local las filas del servidor.
+     */
+    private static void resolverConflictos(Connection local, Connection servidor, String tabla, String clave,
+                                           String[] campos, boolean esCompra, List<Pendiente> bloque,
+                                           List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Integer, Object[]> enServidor = leerFilas(servidor, tabla, clave, campos, esCompra, ids);
+        aplicarEnLocal(local, tabla, clave, campos, esCompra, enServidor.values());
+        List<Integer> borradas = new ArrayList<>(ids);
+        borradas.removeAll(enServidor.keySet());
+        borrarEnLocal(local, tabla, clave, borradas);
+        for (Pendiente pendiente : bloque) {
+            if (ids.contains(pendiente.id())) {
+                borrarPendiente(local, tabla, pendiente.id(), null);
+                registrarConflicto(new ConflictoSincronizacion(tabla, pendiente.id(), pendiente.operacion(), Instant.now()));
+            }
+        }
+    }
+
+    // =========
+    // Recepción
+    // =========
+
+    /**
+     * Descarga las filas nuevas o modificadas en el servidor y borra en local las que el servidor ya no tiene.
+     * Las filas con cambios locales pendientes no se tocan: su conflicto se resuelve al enviarlas.
+     */
+    private static void recibir(Connection local, Connection servidor, String tabla, boolean esCompra, int lote,
+                                Contadores contadores) throws SQLException {
+        String[] campos = esCompra ? CAMPOS_COMPRA : CAMPOS_TAREA;
+        String clave = clave(esCompra);
+        String huella = leerHuella(servidor, tabla, clave, esCompra);
+        if (huella.equals(huellas.get(tabla))) {
+            servidor.commit();
+            return;
+        }
+
+        // La nueva marca se toma antes de leer, para que la siguiente recepción incluya lo que cambie durante esta
+        Timestamp inicio = leerHoraServidor(servidor);
+        Timestamp marca = leerMarca(local, tabla);
+        List<Integer> cambiadas = marca == null
+                ? leerIds(servidor, "SELECT " + clave + " FROM " + tabla)  // Primera recepción: todas las filas
+                : leerIds(servidor, "SELECT " + clave + " FROM " + tabla + " WHERE Modificado >= ?", new Timestamp(
+                marca.getTime() - Math.max(0, Configuracion.getLargo(PREFIJO + "margen_recepcion_ms", 60_000))));
+        Set<Integer> pendientes = leerIdsPendientes(local, tabla);
+        cambiadas.removeAll(pendientes);
+
+        boolean completa = true;
+        int aplicadas = 0;
+        for (int desde = 0; desde < cambiadas.size(); desde += lote) {
+            List<Integer> ids = cambiadas.subList(desde, Math.min(cambiadas.size(), desde + lote));
+            Map<Integer, Object[]> locales = leerFilas(local, tabla, clave, campos, esCompra, ids);
+            List<Object[]> filas = new ArrayList<>();
+            for (Object[] fila : leerFilas(servidor, tabla, clave, campos, esCompra, ids).values()) {
+                if (!igualQueLocal(fila, locales.get(((Number) fila[0]).intValue()), esCompra)) {
+                    filas.add(fila);
+                }
+            }
+            if (!esCompra) {
+                List<Object[]> aplicables = tareasAplicables(local, filas);
+                completa &= aplicables.size() == filas.size();
+                filas = aplicables;
+            }
+            aplicarEnLocal(local, tabla, clave, campos, esCompra, filas);
+            aplicadas += filas.size();
+        }
+        // Después de aplicar las altas, para que solo difieran los tramos con borrados
+        List<Integer> borradas = leerBorradas(local, servidor, tabla, clave, pendientes);
+        borrarEnLocal(local, tabla, clave, borradas);
+        if (completa) {
+            // Si se omitieron tareas, se conserva la marca anterior para volver a leerlas en el siguiente ciclo
+            guardarMarca(local, tabla, inicio);
+        }
+        local.commit();
+        servidor.commit();
+        if (completa) {
+            huellas.put(tabla, huella);
+        }
+        contadores.recibidos += aplicadas + borradas.size();
+        contadores.indiceAfectado |= esCompra && aplicadas + borradas.size() > 0;
+    }
+
+    /**
+     * Huella barata de la tabla del servidor: número de filas y sumas de identificadores y de versiones (o de
+     * las claves foráneas en las tareas). Cualquier alta, baja o modificación la cambia.
+     */
+    private static String leerHuella(Connection servidor, String tabla, String clave, boolean esCompra) throws SQLException {
+        String suma = esCompra ? "SUM(Version)"
+                : "SUM(COALESCE(IDCompraComida, 0) + COALESCE(IDCompraLimpieza, 0) + COALESCE(IDCompraVarios, 0))";
+        try (Statement st = servidor.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*), COALESCE(SUM(" + clave + "), 0), COALESCE(" + suma + ", 0) FROM " + tabla)) {
+            rs.next();
+            return rs.getLong(1) + ":" + rs.getLong(2) + ":" + rs.getLong(3);
+        }
+    }
+
+    /**
+     * Compara una fila del servidor con su copia local: por versión en las compras y por las claves foráneas en
+     * las tareas.
+     */
+    private static boolean igualQueLocal(Object[] remota, Object[] local, boolean esCompra) {
+        if (local == null) {
+            return false;
+        }
+        if (esCompra) {
+            return mismoValor(remota[remota.length - 1], local[local.length - 1]);
+        }
+        for (int i = 1; i < remota.length; i++) {
+            if (!mismoValor(remota[i], local[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Busca las filas locales recibidas del servidor que el servidor ya no tiene. Primero compara, por tramos de
+     * identificadores, el número de filas y la suma de identificadores de ambos lados; después lee los
+     * identificadores solo de los tramos que no coinciden.
+     */
+    private static List<Integer> leerBorradas(Connection local, Connection servidor, String tabla, String clave,
+                                              Set<Integer> pendientes) throws SQLException {
+        Map<Long, String> remotos = leerTramos(servidor, tabla, clave, "");
+        Map<Long, String> locales = leerTramos(local, tabla, clave, " WHERE " + clave + " < " + AlmacenLocal.ID_LOCAL_MINIMO);
+        List<Integer> borradas = new ArrayList<>();
+        for (Map.Entry<Long, String> tramo : locales.entrySet()) {
+            if (tramo.getValue().equals(remotos.get(tramo.getKey()))) {
+                continue;
+            }
+            String sql = "SELECT " + clave + " FROM " + tabla + " WHERE " + clave + " >= ? AND " + clave + " < ?";
+            long desde = tramo.getKey() * TAMANO_TRAMO;
+            Set<Integer> enServidor = new HashSet<>(leerIds(servidor, sql, desde, desde + TAMANO_TRAMO));
+            for (Integer id : leerIds(local, sql, desde, desde + TAMANO_TRAMO)) {
+                if (!enServidor.contains(id) && !pendientes.contains(id)) {
+                    borradas.add(id);
+                }
+            }
+        }
+        return borradas;
+    }
+
+    /**
+     * Lee, por cada tramo de {@value #TAMANO_TRAMO} identificadores, el número de filas y la suma de sus
+     * identificadores.
+     */
+    private static Map<Long, String> leerTramos(Connection conexion, String tabla, String clave,
+                                                String condicion) throws SQLException {
+        Map<Long, String> tramos = new HashMap<>();
+        String tramo = "FLOOR(" + clave + " / " + TAMANO_TRAMO + ")";
+        try (Statement st = conexion.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + tramo + ", COUNT(*), SUM(" + clave + ") FROM " + tabla
+                     + condicion + " GROUP BY " + tramo)) {
+            while (rs.next()) {
+                tramos.put(rs.getLong(1), rs.getLong(2) + ":" + rs.getLong(3));
+            }
+        }
+        return tramos;
+    }
+
+    private static List<Integer> leerIds(Connection conexion, String sql, Object... parametros) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                ps.setObject(i + 1, parametros[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static Timestamp leerHoraServidor(Connection servidor) throws SQLException {
+        try (Statement st = servidor.createStatement();
+             ResultSet rs = st.executeQuery("SELECT CURRENT_TIMESTAMP(6)")) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /**
+     * Lee la hora del servidor hasta la que se recibió la tabla.
+     *
+     * @return La marca, o `null` si la tabla aún no se ha recibido nunca.
+     */
+    private static Timestamp leerMarca(Connection local, String tabla) throws SQLException {
+        try (PreparedStatement ps = local.prepareStatement("SELECT Modificado FROM MarcasRecepcion WHERE Tabla = ?")) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getTimestamp(1) : null;
+            }
+        }
+    }
+
+    private static void guardarMarca(Connection local, String tabla, Timestamp marca) throws SQLException {
+        ejecutar(local, "MERGE INTO MarcasRecepcion (Tabla, Modificado) KEY (Tabla) VALUES (?, ?)", tabla, marca);
+    }
+
+    /**
+     * Descarta las tareas que apuntan a una compra que no está en local (por ejemplo, porque su baja local aún no
+     * se ha enviado); se reciben cuando la compra se sincroniza.
+     */
+    private static List<Object[]> tareasAplicables(Connection local, Collection<Object[]> tareas) throws SQLException {
+        List<Object[]> aplicables = new ArrayList<>();
+        for (Object[] tarea : tareas) {
+            boolean valida = true;
+            for (int i = 0; i < CAMPOS_TAREA.length && valida; i++) {
+                Object id = tarea[i + 1];
+                if (id != null) {
+                    try (PreparedStatement ps = local.prepareStatement("SELECT 1 FROM "
+                            + AlmacenLocal.TABLAS_COMPRAS[i] + " WHERE IdUnico = ?")) {
+                        ps.setObject(1, id);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            valida = rs.next();
+                        }
+                    }
+                }
+            }
+            if (valida) {
+                aplicables.add(tarea);
+            }
+        }
+        return aplicables;
+    }
+
+    // ===========================
+    // Lectura y escritura de filas
+    // ===========================
+
+    /**
+     * Lee las filas indicadas como `[id, campos..., versión]` (la versión solo en las compras).
+     */
+    private static Map<Integer, Object[]> leerFilas(Connection conexion, String tabla, String clave, String[] campos,
+                                                    boolean esCompra, List<Integer> ids) throws SQLException {
+        Map<Integer, Object[]> filas = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return filas;
+        }
+        int columnas = campos.length + (esCompra ? 2 : 1);
+        String sql = "SELECT " + clave + ", " + String.join(", ", campos) + (esCompra ? ", Version" : "")
+                + " FROM " + tabla + " WHERE " + clave + " IN (" + "?, ".repeat(ids.size() - 1) + "?)";
+        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Object[] fila = new Object[columnas];
+                    for (int i = 0; i < columnas; i++) {
+                        fila[i] = rs.getObject(i + 1);
+                    }
+                    filas.put(rs.getInt(1), fila);
+                }
+            }
+        }
+        return filas;
+    }
+
+    /**
+     * Inserta o sustituye en local filas leídas del servidor, sin anotarlas como cambios pendientes.
+     */
+    private static void aplicarEnLocal(Connection local, String tabla, String clave, String[] campos, boolean esCompra,
+                                       Collection<Object[]> filas) throws SQLException {
+        if (filas.isEmpty()) {
+            return;
+        }
+        int columnas = campos.length + (esCompra ? 2 : 1);
+        String sql = "MERGE INTO " + tabla + " (" + clave + ", " + String.join(", ", campos) + (esCompra ? ", Version" : "")
+                + ") KEY (" + clave + ") VALUES (" + "?, ".repeat(columnas - 1) + "?)";
+        RegistroCambiosLocal.sinRegistrar(() -> {
+            try (PreparedStatement ps = local.prepareStatement(sql)) {
+                for (Object[] fila : filas) {
+                    asignarCampos(ps, fila, columnas, 0);
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            }
+        });
+    }
+
+    private static void borrarEnLocal(Connection local, String tabla, String clave, List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        RegistroCambiosLocal.sinRegistrar(() -> {
+            try (PreparedStatement ps = local.prepareStatement("DELETE FROM " + tabla + " WHERE " + clave + " = ?")) {
+                for (Integer id : ids) {
+                    ps.setInt(1, id);
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Asigna `cantidad` valores de la fila, empezando en la posición `desde`, a los parámetros 1..cantidad.
+     */
+    private static void asignarCampos(PreparedStatement ps, Object[] fila, int cantidad, int desde) throws SQLException {
+        for (int i = 0; i < cantidad; i++) {
+            ps.setObject(i + 1, fila[desde + i]);
+        }
+    }
+
+    /**
+     * Compara dos valores de columna leídos de bases de datos distintas, que pueden devolver tipos numéricos o
+     * booleanos diferentes para la misma columna.
+     */
+    private static boolean mismoValor(Object a, Object b) {
+        if (a instanceof Boolean || b instanceof Boolean) {
+            return a != null && b != null && comoLargo(a) == comoLargo(b);
+        }
+        if (a instanceof Number numeroA && b instanceof Number numeroB) {
+            return numeroA.longValue() == numeroB.longValue();
+        }
+        return Objects.equals(a, b);
+    }
+
+    private static long comoLargo(Object valor) {
+        return valor instanceof Boolean booleano ? (booleano ? 1 : 0) : ((Number) valor).longValue();
+    }
+
+    private static boolean apuntaAFilaLocal(Object[] tarea) {
+        for (int i = 1; i < tarea.length; i++) {
+            if (tarea[i] != null && ((Number) tarea[i]).intValue() >= AlmacenLocal.ID_LOCAL_MINIMO) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String clave(boolean esCompra) {
+        return esCompra ? "IdUnico" : "Id";
+    }
+
+    // ==================
+    // Cambios pendientes
+    // ==================
+
+    private static List<Pendiente> leerPendientes(Connection local, String tabla, Integer desdeId, int limite) throws SQLException {
+        List<Pendiente> pendientes = new ArrayList<>();
+        try (PreparedStatement ps = local.prepareStatement("SELECT IdUnico, Operacion, VersionBase, Cambio "
+                + "FROM CambiosPendientes WHERE Tabla = ?" + (desdeId != null ? " AND IdUnico > ?" : "")
+                + " ORDER BY IdUnico LIMIT ?")) {
+            int i = 1;
+            ps.setString(i++, tabla);
+            if (desdeId != null) {
+                ps.setInt(i++, desdeId);
+            }
+            ps.setInt(i, limite);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Integer versionBase = rs.getObject(3) == null ? null : rs.getInt(3);
+                    pendientes.add(new Pendiente(rs.getInt(1), rs.getString(2), versionBase, rs.getLong(4)));
+                }
+            }
+        }
+        return pendientes;
+    }
+
+    private static Set<Integer> leerIdsPendientes(Connection local, String tabla) throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        try (PreparedStatement ps = local.prepareStatement("SELECT IdUnico FROM CambiosPendientes WHERE Tabla = ?")) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Borra la entrada pendiente de una fila.
+     *
+     * @param cambio Si no es `null`, solo se borra si la fila no ha vuelto a cambiar desde que se leyó.
+     * @return `true` si se borró la entrada.
+     */
+    private static boolean borrarPendiente(Connection local, String tabla, int id, Long cambio) throws SQLException {
+        return cambio == null
+                ? ejecutar(local, "DELETE FROM CambiosPendientes WHERE Tabla = ? AND IdUnico = ?", tabla, id) > 0
+                : ejecutar(local, "DELETE FROM CambiosPendientes WHERE Tabla = ? AND IdUnico = ? AND Cambio = ?", tabla, id, cambio) > 0;
+    }
+
+    /**
+     * Lee el identificador de este almacén local, creándolo la primera vez.
+     */
+    private static String leerCliente(Connection local) throws SQLException {
+        try (Statement st = local.createStatement();
+             ResultSet rs = st.executeQuery("SELECT Id FROM ClienteSincronizacion")) {
+            if (rs.next()) {
+                return rs.getString(1);
+            }
+        }
+        String id = UUID.randomUUID().toString();
+        ejecutar(local, "INSERT INTO ClienteSincronizacion (Id) VALUES (?)", id);
+        return id;
+    }
+
+    private static int contarPendientes(Connection local) throws SQLException {
+        try (Statement st = local.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM CambiosPendientes")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void registrarConflicto(ConflictoSincronizacion conflicto) {
+        logger.warn("Conflicto en {} {}: el cambio local ({}) se descarta y se conserva la fila del servidor.",
+                conflicto.tabla(), conflicto.id(), conflicto.operacion());
+        synchronized (conflictos) {
+            if (conflictos.size() == MAXIMO_CONFLICTOS) {
+                conflictos.removeFirst();
+            }
+            conflictos.addLast(conflicto);
+        }
+    }
+
+    private static int ejecutar(Connection conexion, String sql, Object... parametros) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                ps.setObject(i + 1, parametros[i]);
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void deshacer(Connection conexion) {
+        try {
+            conexion.rollback();
+        } catch (SQLException e) {
+            logger.warn("No se pudo deshacer la transacción: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Entrada de `CambiosPendientes`.
+     */
+    private record Pendiente(int id, String operacion, Integer versionBase, long cambio) {
+    }
+
+    private static final class Contadores {
+        private int enviados;
+        private int recibidos;
+        private int conflictos;
+        // Compras que cambiaron de identificador o se copiaron del servidor, sin pasar por los DAO
+        private boolean indiceAfectado;
+    }
+}
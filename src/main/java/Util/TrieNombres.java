@@ -0,0 +1,255 @@
+package Util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Árbol de prefijos compacto (radix) de nombres con peso, para autocompletar.
+ *
+ * <p>Cada arista guarda un tramo de texto en vez de un solo carácter, así que el número de nodos no pasa del doble
+ * del de nombres. Cada nodo conoce el mayor peso de los nombres que cuelgan de él, y una consulta baja hasta el
+ * nodo del prefijo y recorre su subárbol de mayor a menor peso, deteniéndose en cuanto tiene suficientes
+ * sugerencias: el coste depende de la longitud del prefijo y del número de sugerencias, no del de nombres.</p>
+ *
+ * <ul>
+ *     <li><strong>Comparación:</strong> se ignoran las mayúsculas, las tildes y los espacios repetidos o en los
+ *     extremos, de modo que "Azúcar " y "azucar" son el mismo nombre.</li>
+ *     <li><strong>Pesos:</strong> agregar un nombre que ya existe suma su peso; se sugiere con la forma con la que
+ *     se agregó la primera vez.</li>
+ * </ul>
+ *
+ * <p>Es seguro para varios hilos: las consultas se ejecutan en paralelo y las modificaciones en exclusiva.</p>
+ */
+public final class TrieNombres {
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final Nodo raiz = new Nodo("");
+    private int nombres;
+
+    /**
+     * Sugerencia de autocompletado.
+     *
+     * @param nombre Nombre tal como se agregó por primera vez.
+     * @param peso   Suma de los pesos con los que se ha agregado.
+     */
+    public record Sugerencia(String nombre, int peso) {
+    }
+
+    /**
+     * Agrega un nombre o, si ya existe, le suma el peso.
+     *
+     * @param nombre Nombre a agregar; los nulos o en blanco se ignoran.
+     * @param peso   Peso a sumar (normalmente el número de veces que aparece).
+     * @throws IllegalArgumentException Si el peso no es positivo.
+     */
+    public void agregar(String nombre, int peso) {
+        if (peso <= 0) {
+            throw new IllegalArgumentException("El peso debe ser mayor que cero.");
+        }
+        String clave = normalizar(nombre);
+        if (clave.isEmpty()) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            List<Nodo> camino = new ArrayList<>();
+            Nodo nodo = raiz;
+            int posicion = 0;
+            camino.add(nodo);
+            while (posicion < clave.length()) {
+                int indice = nodo.buscarHijo(clave.charAt(posicion));
+                if (indice < 0) {
+                    Nodo hoja = new Nodo(clave.substring(posicion));
+                    nodo.insertarHijo(-indice - 1, hoja);
+                    nodo = hoja;
+                    camino.add(nodo);
+                    break;
+                }
+                Nodo hijo = nodo.hijos[indice];
+                int comun = prefijoComun(hijo.etiqueta, clave, posicion);
+                if (comun < hijo.etiqueta.length()) {
+                    // El nombre se separa a mitad de la arista: se parte en dos con un nodo intermedio
+                    Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, comun));
+                    hijo.etiqueta = hijo.etiqueta.substring(comun);
+                    intermedio.insertarHijo(0, hijo);
+                    intermedio.mejorPeso = hijo.mejorPeso;
+                    nodo.hijos[indice] = intermedio;
+                    hijo = intermedio;
+                }
+                posicion += comun;
+                nodo = hijo;
+                camino.add(nodo);
+            }
+            if (nodo.nombre == null) {
+                nodo.nombre = nombre.strip();
+                nombres++;
+            }
+            nodo.peso = (int) Math.min(Integer.MAX_VALUE, (long) nodo.peso + peso);
+            for (Nodo anterior : camino) {
+                anterior.mejorPeso = Math.max(anterior.mejorPeso, nodo.peso);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve los nombres de mayor peso que empiezan por el prefijo.
+     *
+     * @param prefijo Comienzo del nombre; vacío para obtener los de mayor peso en general.
+     * @param limite  Número máximo de sugerencias.
+     * @return Sugerencias de mayor a menor peso (vacío si ningún nombre empieza por el prefijo).
+     */
+    public List<Sugerencia> sugerir(String prefijo, int limite) {
+        String clave = normalizar(prefijo);
+        if (limite <= 0) {
+            return List.of();
+        }
+        cerrojo.readLock().lock();
+        try {
+            Nodo nodo = raiz;
+            int posicion = 0;
+            while (posicion < clave.length()) {
+                int indice = nodo.buscarHijo(clave.charAt(posicion));
+                if (indice < 0) {
+                    return List.of();
+                }
+                nodo = nodo.hijos[indice];
+                int comun = prefijoComun(nodo.etiqueta, clave, posicion);
+                if (comun < nodo.etiqueta.length() && posicion + comun < clave.length()) {
+                    return List.of();  // El prefijo se aparta de la arista antes de terminar
+                }
+                posicion += comun;
+            }
+
+            // Primero el de mayor peso; a igual peso, los nombres antes que los subárboles que aún no se han abierto
+            PriorityQueue<Candidato> pendientes = new PriorityQueue<>();
+            pendientes.add(new Candidato(nodo, false, nodo.mejorPeso));
+            List<Sugerencia> resultado = new ArrayList<>(Math.min(limite, 16));
+            while (!pendientes.isEmpty() && resultado.size() < limite) {
+                Candidato candidato = pendientes.poll();
+                Nodo actual = candidato.nodo();
+                if (candidato.terminal()) {
+                    resultado.add(new Sugerencia(actual.nombre, actual.peso));
+                    continue;
+                }
+                if (actual.nombre != null) {
+                    pendientes.add(new Candidato(actual, true, actual.peso));
+                }
+                for (int i = 0; i < actual.tamano; i++) {
+                    pendientes.add(new Candidato(actual.hijos[i], false, actual.hijos[i].mejorPeso));
+                }
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve el número de nombres distintos.
+     *
+     * @return Nombres distintos agregados.
+     */
+    public int getNombres() {
+        cerrojo.readLock().lock();
+        try {
+            return nombres;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forma con la que se comparan los nombres: minúsculas, sin tildes y con los espacios simplificados.
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String normalizado = texto;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 127) {
+                normalizado = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        return ESPACIOS.matcher(normalizado.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static int prefijoComun(String etiqueta, String clave, int desde) {
+        int maximo = Math.min(etiqueta.length(), clave.length() - desde);
+        int i = 0;
+        while (i < maximo && etiqueta.charAt(i) == clave.charAt(desde + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Nodo del árbol. Los hijos se guardan ordenados por el primer carácter de su etiqueta.
+     */
+    private static final class Nodo {
+        private static final Nodo[] SIN_HIJOS = new Nodo[0];
+        private static final char[] SIN_INICIALES = new char[0];
+
+        private String etiqueta;
+        private char[] iniciales = SIN_INICIALES;
+        private Nodo[] hijos = SIN_HIJOS;
+        private int tamano;
+        /**
+         * Nombre que termina en este nodo, o `null` si ninguno.
+         */
+        private String nombre;
+        private int peso;
+        /**
+         * Mayor peso de los nombres de este nodo y sus descendientes.
+         */
+        private int mejorPeso;
+
+        private Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        /**
+         * @return La posición del hijo cuya etiqueta empieza por el carácter o, si no hay, `-(posición de
+         * inserción) - 1`.
+         */
+        private int buscarHijo(char inicial) {
+            return Arrays.binarySearch(iniciales, 0, tamano, inicial);
+        }
+
+        private void insertarHijo(int posicion, Nodo hijo) {
+            if (tamano == hijos.length) {
+                int capacidad = Math.max(2, tamano * 2);
+                hijos = Arrays.copyOf(hijos, capacidad);
+                iniciales = Arrays.copyOf(iniciales, capacidad);
+            }
+            System.arraycopy(hijos, posicion, hijos, posicion + 1, tamano - posicion);
+            System.arraycopy(iniciales, posicion, iniciales, posicion + 1, tamano - posicion);
+            hijos[posicion] = hijo;
+            iniciales[posicion] = hijo.etiqueta.charAt(0);
+            tamano++;
+        }
+    }
+
+    private record Candidato(Nodo nodo, boolean terminal, int prioridad) implements Comparable<Candidato> {
+
+        @Override
+        public int compareTo(Candidato otro) {
+            if (prioridad != otro.prioridad) {
+                return Integer.compare(otro.prioridad, prioridad);
+            }
+            return Boolean.compare(otro.terminal, terminal);
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package controlador;
 
 import dao.CompraComidaDAO;
-import dao.CompraComidaDAOImpl;
+import dao.DAOFactory;
+import dao.FilaCompra;
+import dao.FiltroCompras;
+import dao.Pagina;
+import dao.SecuenciaFoto;
+import dao.ResultadoActualizacion;
 import modelo.CompraComida;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -43,7 +49,7 @@ public class ControladorCompraComida {
      * Asegura que los recursos de DAO estén configurados correctamente.
      */
     public ControladorCompraComida() {
-        this.compraComidaDAO = new CompraComidaDAOImpl();
+        this.compraComidaDAO = DAOFactory.getCompraComidaDAO();
         logger.info("ControladorCompraComida inicializado.");
     }
 
@@ -61,16 +67,13 @@ public class ControladorCompraComida {
     public boolean agregarCompra(String nombreProducto, String descripcion, boolean foto, int cantidad, boolean realizado, String supermercado) {
         try {
             // Validaciones de entrada
-            validarNombreProducto(nombreProducto);
-            validarDescripcion(descripcion);
-            validarCantidad(cantidad);
-            validarSupermercado(supermercado);
+            ValidacionCompra.validar(nombreProducto, descripcion, cantidad, supermercado);
 
 
-            // Obtener el último número de foto si es necesario
+            // Obtener un número único de foto si es necesario
             Integer numeroUnicoFoto = null;
             if (foto) {
-                numeroUnicoFoto = compraComidaDAO.obtenerUltimoNumeroFoto() + 1;
+                numeroUnicoFoto = SecuenciaFoto.getInstancia().siguiente();  // Número único en las tres tablas
                 logger.info("Generado número único para foto: {}", numeroUnicoFoto);
             }
 
@@ -98,7 +101,9 @@ public class ControladorCompraComida {
      * Obtiene todos los registros de CompraComida desde la base de datos.
      *
      * @return Lista de objetos CompraComida, o null si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
      */
+    @Deprecated
     public List<CompraComida> obtenerTodasLasCompras() {
         try {
             List<CompraComida> compras = compraComidaDAO.obtenerTodasLasCompras();
@@ -112,6 +117,76 @@ public class ControladorCompraComida {
         }
     }
 
+    /**
+     * Obtiene una página de registros de CompraComida ordenados por `IdUnico`.
+     *
+     * Para recorrer la tabla completa se pasa el cursor de cada página a la siguiente llamada,
+     * sin cargar nunca la tabla entera en memoria.
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos CompraComida, o null si ocurre un error.
+     */
+    public Pagina<CompraComida> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        try {
+            Pagina<CompraComida> pagina = compraComidaDAO.obtenerPagina(despuesDeIdUnico, limite, filtros);
+            if (pagina != null) {
+                logger.info("Se recuperaron {} compras de CompraComida en la página.", pagina.getElementos().size());
+            }
+            return pagina;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al obtener la página de CompraComida: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de CompraComida.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las filas de listado de CompraComida, sin cargar las entidades completas.
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas ordenadas por `IdUnico`, o null si ocurre un error.
+     */
+    public List<FilaCompra> obtenerFilas(FiltroCompras filtros) {
+        try {
+            List<FilaCompra> filas = compraComidaDAO.obtenerFilas(filtros);
+            if (filas != null) {
+                logger.info("Se recuperaron {} filas de CompraComida.", filas.size());
+            }
+            return filas;
+        } catch (Exception e) {
+            logger.error("Error al obtener las filas de CompraComida.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de filas de listado de CompraComida ordenadas por `IdUnico`.
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas, o null si ocurre un error.
+     */
+    public Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        try {
+            Pagina<FilaCompra> pagina = compraComidaDAO.obtenerPaginaFilas(despuesDeIdUnico, limite, filtros);
+            if (pagina != null) {
+                logger.info("Se recuperaron {} filas de CompraComida en la página.", pagina.getElementos().size());
+            }
+            return pagina;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al obtener la página de filas de CompraComida: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de filas de CompraComida.", e);
+            return null;
+        }
+    }
+
     /**
      * Actualiza un registro existente de CompraComida en la base de datos.
      *
@@ -140,6 +215,29 @@ public class ControladorCompraComida {
         }
     }
 
+    /**
+     * Actualiza una compra comprobando que nadie la haya modificado desde que se leyó.
+     *
+     * @param compra Objeto CompraComida con los datos actualizados y la versión leída.
+     * @return `CONFLICTO` si otro usuario la modificó antes (hay que recargarla y repetir el cambio),
+     * `NO_ENCONTRADA` si ya no existe, `ERROR` si los datos no son válidos o falló la operación.
+     */
+    public ResultadoActualizacion actualizarCompraConVersion(CompraComida compra) {
+        try {
+            if (compra == null || compra.getIdUnico() <= 0) {
+                throw new IllegalArgumentException("El objeto CompraComida es nulo o tiene un identificador inválido.");
+            }
+            return compraComidaDAO.actualizarCompraConVersion(compra);
+
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al actualizar CompraComida: {}", e.getMessage());
+            return ResultadoActualizacion.ERROR;
+        } catch (Exception e) {
+            logger.error("Error al actualizar CompraComida.", e);
+            return ResultadoActualizacion.ERROR;
+        }
+    }
+
     /**
      * Elimina un registro de CompraComida en la base de datos.
      *
@@ -169,64 +267,90 @@ public class ControladorCompraComida {
     }
 
     /**
-     * Cierra los recursos utilizados por el DAO para liberar memoria y evitar fugas de recursos.
+     * Elimina varios registros de CompraComida con una única sentencia.
+     *
+     * @param idsUnicos Identificadores de los registros a eliminar.
+     * @return Número de registros eliminados, o -1 si los datos no son válidos o ocurre un error.
      */
-    public void cerrar() {
+    public int eliminarCompras(Collection<Integer> idsUnicos) {
         try {
-            compraComidaDAO.cerrar();
-            logger.info("Recursos del DAO cerrados correctamente.");
+            return compraComidaDAO.eliminarCompras(idsUnicos);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al eliminar compras de CompraComida: {}", e.getMessage());
+            return -1;
         } catch (Exception e) {
-            logger.error("Error al cerrar los recursos del DAO.", e);
+            logger.error("Error al eliminar compras de CompraComida.", e);
+            return -1;
         }
     }
 
-    // Métodos privados de validación
     /**
-     * Valida el nombre del producto.
+     * Elimina los registros de CompraComida que cumplen el filtro, por ejemplo todas las compras realizadas
+     * de un supermercado (`new FiltroCompras(true, "Mercadona")`).
      *
-     * @param nombreProducto Nombre del producto a validar.
-     * @throws IllegalArgumentException Si el nombre es nulo o vacío.
+     * @param filtro Criterios de los registros a eliminar; debe indicar al menos uno.
+     * @return Número de registros eliminados, o -1 si los datos no son válidos o ocurre un error.
      */
-
-    private void validarNombreProducto(String nombreProducto) {
-        if (nombreProducto == null || nombreProducto.isBlank()) {
-            throw new IllegalArgumentException("El nombre del producto no puede ser nulo o vacío.");
+    public int eliminarCompras(FiltroCompras filtro) {
+        try {
+            return compraComidaDAO.eliminarCompras(filtro);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al eliminar compras de CompraComida: {}", e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraComida.", e);
+            return -1;
         }
     }
+
     /**
-     * Valida la descripción del producto.
+     * Cambia el estado `realizado` de varios registros de CompraComida con una única sentencia.
      *
-     * @param descripcion Descripción a validar.
-     * @throws IllegalArgumentException Si la descripción es nula o vacía.
+     * @param idsUnicos Identificadores de los registros a modificar.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o -1 si los datos no son válidos o ocurre un error.
      */
-
-    private void validarDescripcion(String descripcion) {
-        if (descripcion == null || descripcion.isBlank()) {
-            throw new IllegalArgumentException("La descripción no puede ser nula o vacía.");
+    public int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        try {
+            return compraComidaDAO.marcarRealizadas(idsUnicos, realizado);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al marcar compras de CompraComida: {}", e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraComida.", e);
+            return -1;
         }
     }
+
     /**
-     * Valida la cantidad del producto.
+     * Cambia el estado `realizado` de los registros de CompraComida que cumplen el filtro, por ejemplo
+     * todas las compras de un supermercado al terminar la compra.
      *
-     * @param cantidad Cantidad a validar.
-     * @throws IllegalArgumentException Si la cantidad no es mayor a 0.
+     * @param filtro    Criterios de los registros a modificar; un filtro vacío afecta a toda la tabla.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o -1 si los datos no son válidos o ocurre un error.
      */
-
-    private void validarCantidad(int cantidad) {
-        if (cantidad <= 0) {
-            throw new IllegalArgumentException("La cantidad debe ser mayor que cero.");
+    public int marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        try {
+            return compraComidaDAO.marcarRealizadas(filtro, realizado);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al marcar compras de CompraComida: {}", e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraComida.", e);
+            return -1;
         }
     }
+
     /**
-     * Valida el nombre del supermercado.
-     *
-     * @param supermercado Nombre del supermercado a validar.
-     * @throws IllegalArgumentException Si el supermercado es nulo o vacío.
+     * Cierra los recursos utilizados por el DAO para liberar memoria y evitar fugas de recursos.
      */
-    private void validarSupermercado(String supermercado) {
-        if (supermercado == null || supermercado.isBlank()) {
-            logger.error("El nombre del supermercado no puede ser vacío o nulo.");
-            throw new IllegalArgumentException("El nombre del supermercado no puede ser vacío o nulo.");
+    public void cerrar() {
+        try {
+            compraComidaDAO.cerrar();
+            logger.info("Recursos del DAO cerrados correctamente.");
+        } catch (Exception e) {
+            logger.error("Error al cerrar los recursos del DAO.", e);
         }
     }
 }
@@ -3,10 +3,16 @@ package controlador;
 import modelo.CompraComida;
 import modelo.ComprarVarios;
 import dao.ComprarVariosDAO;
-import dao.ComprarVariosDAOImpl;
+import dao.DAOFactory;
+import dao.FilaCompra;
+import dao.FiltroCompras;
+import dao.Pagina;
+import dao.SecuenciaFoto;
+import dao.ResultadoActualizacion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -56,7 +62,7 @@ public class ControladorCompraVarios {
      * </ul>
      */
     public ControladorCompraVarios() {
-        this.comprarVariosDAO = new ComprarVariosDAOImpl();
+        this.comprarVariosDAO = DAOFactory.getComprarVariosDAO();
         logger.info("ControladorCompraVarios inicializado correctamente.");
     }
 
@@ -84,15 +90,12 @@ public class ControladorCompraVarios {
     public boolean agregarCompra(String nombreProducto, String descripcion, boolean foto, int cantidad, boolean realizado, String supermercado) {
         try {
             // Validaciones de entrada
-            validarNombreProducto(nombreProducto);
-            validarDescripcion(descripcion);
-            validarCantidad(cantidad);
-            validarSupermercado(supermercado);
+            ValidacionCompra.validar(nombreProducto, descripcion, cantidad, supermercado);
 
-            // Obtener el último número de foto si es necesario
+            // Obtener un número único de foto si es necesario
             Integer numeroUnicoFoto = null;
             if (foto) {
-                numeroUnicoFoto = comprarVariosDAO.obtenerUltimoNumeroFoto() + 1;
+                numeroUnicoFoto = SecuenciaFoto.getInstancia().siguiente();  // Número único en las tres tablas
                 logger.info("Generado número único para foto: {}", numeroUnicoFoto);
             }
 
@@ -127,7 +130,9 @@ public class ControladorCompraVarios {
      * </ul>
      *
      * @return Lista de objetos CompraComida, o null si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
      */
+    @Deprecated
     public List<ComprarVarios> obtenerTodasLasCompras() {
         try {
             List<ComprarVarios> compras = comprarVariosDAO.obtenerTodasLasCompras();
@@ -142,6 +147,76 @@ public class ControladorCompraVarios {
         }
     }
 
+    /**
+     * Obtiene una página de registros de CompraVarios ordenados por `IdUnico`.
+     *
+     * Para recorrer la tabla completa se pasa el cursor de cada página a la siguiente llamada,
+     * sin cargar nunca la tabla entera en memoria.
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos ComprarVarios, o null si ocurre un error.
+     */
+    public Pagina<ComprarVarios> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        try {
+            Pagina<ComprarVarios> pagina = comprarVariosDAO.obtenerPagina(despuesDeIdUnico, limite, filtros);
+            if (pagina != null) {
+                logger.info("Se recuperaron {} compras de CompraVarios en la página.", pagina.getElementos().size());
+            }
+            return pagina;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al obtener la página de CompraVarios: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de CompraVarios.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las filas de listado de CompraVarios, sin cargar las entidades completas.
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas ordenadas por `IdUnico`, o null si ocurre un error.
+     */
+    public List<FilaCompra> obtenerFilas(FiltroCompras filtros) {
+        try {
+            List<FilaCompra> filas = comprarVariosDAO.obtenerFilas(filtros);
+            if (filas != null) {
+                logger.info("Se recuperaron {} filas de CompraVarios.", filas.size());
+            }
+            return filas;
+        } catch (Exception e) {
+            logger.error("Error al obtener las filas de CompraVarios.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de filas de listado de CompraVarios ordenadas por `IdUnico`.
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas, o null si ocurre un error.
+     */
+    public Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        try {
+            Pagina<FilaCompra> pagina = comprarVariosDAO.obtenerPaginaFilas(despuesDeIdUnico, limite, filtros);
+            if (pagina != null) {
+                logger.info("Se recuperaron {} filas de CompraVarios en la página.", pagina.getElementos().size());
+            }
+            return pagina;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al obtener la página de filas de CompraVarios: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de filas de CompraVarios.", e);
+            return null;
+        }
+    }
+
     /**
      * Actualiza un registro existente de CompraComida en la base de datos.
      *
@@ -180,6 +255,29 @@ public class ControladorCompraVarios {
         }
     }
 
+    /**
+     * Actualiza una compra comprobando que nadie la haya modificado desde que se leyó.
+     *
+     * @param compra Objeto ComprarVarios con los datos actualizados y la versión leída.
+     * @return `CONFLICTO` si otro usuario la modificó antes (hay que recargarla y repetir el cambio),
+     * `NO_ENCONTRADA` si ya no existe, `ERROR` si los datos no son válidos o falló la operación.
+     */
+    public ResultadoActualizacion actualizarCompraConVersion(ComprarVarios compra) {
+        try {
+            if (compra == null || compra.getIdUnico() <= 0) {
+                throw new IllegalArgumentException("El objeto CompraVarios es nulo o tiene un identificador inválido.");
+            }
+            return comprarVariosDAO.actualizarCompraConVersion(compra);
+
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al actualizar CompraVarios: {}", e.getMessage());
+            return ResultadoActualizacion.ERROR;
+        } catch (Exception e) {
+            logger.error("Error al actualizar CompraVarios.", e);
+            return ResultadoActualizacion.ERROR;
+        }
+    }
+
     /**
      * Elimina un registro de CompraComida en la base de datos.
      *
@@ -220,70 +318,95 @@ public class ControladorCompraVarios {
     }
 
     /**
-     * Cierra los recursos utilizados por el DAO para liberar memoria y evitar fugas de recursos.
+     * Elimina varios registros de CompraVarios con una única sentencia.
      *
-     * <p><strong>Mejoras:</strong></p>
-     * <ul>
-     *     <li>Se garantiza que los recursos se cierren correctamente, evitando fugas de memoria.</li>
-     * </ul>
+     * @param idsUnicos Identificadores de los registros a eliminar.
+     * @return Número de registros eliminados, o -1 si los datos no son válidos o ocurre un error.
      */
-    public void cerrar() {
+    public int eliminarCompras(Collection<Integer> idsUnicos) {
         try {
-            comprarVariosDAO.cerrar();
-            logger.info("Recursos del DAO cerrados correctamente.");
+            return comprarVariosDAO.eliminarCompras(idsUnicos);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al eliminar compras de CompraVarios: {}", e.getMessage());
+            return -1;
         } catch (Exception e) {
-            logger.error("Error al cerrar los recursos del DAO.", e);
+            logger.error("Error al eliminar compras de CompraVarios.", e);
+            return -1;
         }
     }
 
-    // Métodos privados de validación
-
     /**
-     * Valida el nombre del producto.
+     * Elimina los registros de CompraVarios que cumplen el filtro, por ejemplo todas las compras realizadas
+     * de un supermercado (`new FiltroCompras(true, "Mercadona")`).
      *
-     * @param nombreProducto Nombre del producto a validar.
-     * @throws IllegalArgumentException Si el nombre es nulo o vacío.
+     * @param filtro Criterios de los registros a eliminar; debe indicar al menos uno.
+     * @return Número de registros eliminados, o -1 si los datos no son válidos o ocurre un error.
      */
-    private void validarNombreProducto(String nombreProducto) {
-        if (nombreProducto == null || nombreProducto.isBlank()) {
-            throw new IllegalArgumentException("El nombre del producto no puede ser nulo o vacío.");
+    public int eliminarCompras(FiltroCompras filtro) {
+        try {
+            return comprarVariosDAO.eliminarCompras(filtro);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al eliminar compras de CompraVarios: {}", e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraVarios.", e);
+            return -1;
         }
     }
 
     /**
-     * Valida la descripción del producto.
+     * Cambia el estado `realizado` de varios registros de CompraVarios con una única sentencia.
      *
-     * @param descripcion Descripción a validar.
-     * @throws IllegalArgumentException Si la descripción es nula o vacía.
+     * @param idsUnicos Identificadores de los registros a modificar.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o -1 si los datos no son válidos o ocurre un error.
      */
-    private void validarDescripcion(String descripcion) {
-        if (descripcion == null || descripcion.isBlank()) {
-            throw new IllegalArgumentException("La descripción no puede ser nula o vacía.");
+    public int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        try {
+            return comprarVariosDAO.marcarRealizadas(idsUnicos, realizado);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al marcar compras de CompraVarios: {}", e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraVarios.", e);
+            return -1;
         }
     }
 
     /**
-     * Valida la cantidad del producto.
+     * Cambia el estado `realizado` de los registros de CompraVarios que cumplen el filtro, por ejemplo
+     * todas las compras de un supermercado al terminar la compra.
      *
-     * @param cantidad Cantidad a validar.
-     * @throws IllegalArgumentException Si la cantidad no es mayor a 0.
+     * @param filtro    Criterios de los registros a modificar; un filtro vacío afecta a toda la tabla.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o -1 si los datos no son válidos o ocurre un error.
      */
-    private void validarCantidad(int cantidad) {
-        if (cantidad <= 0) {
-            throw new IllegalArgumentException("La cantidad debe ser mayor que cero.");
+    public int marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        try {
+            return comprarVariosDAO.marcarRealizadas(filtro, realizado);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al marcar compras de CompraVarios: {}", e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraVarios.", e);
+            return -1;
         }
     }
 
     /**
-     * Valida el nombre del supermercado.
+     * Cierra los recursos utilizados por el DAO para liberar memoria y evitar fugas de recursos.
      *
-     * @param supermercado Nombre del supermercado a validar.
-     * @throws IllegalArgumentException Si el supermercado es nulo o vacío.
+     * <p><strong>Mejoras:</strong></p>
+     * <ul>
+     *     <li>Se garantiza que los recursos se cierren correctamente, evitando fugas de memoria.</li>
+     * </ul>
      */
-    private void validarSupermercado(String supermercado) {
-        if (supermercado == null || supermercado.isBlank()) {
-            logger.error("El nombre del supermercado no puede ser vacío o nulo.");
-            throw new IllegalArgumentException("El nombre del supermercado no puede ser vacío o nulo.");
+    public void cerrar() {
+        try {
+            comprarVariosDAO.cerrar();
+            logger.info("Recursos del DAO cerrados correctamente.");
+        } catch (Exception e) {
+            logger.error("Error al cerrar los recursos del DAO.", e);
         }
     }
 }
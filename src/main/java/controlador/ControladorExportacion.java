@@ -0,0 +1,367 @@
+package controlador;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import dao.CompraComidaDAO;
+import dao.CompraLimpiezaDAO;
+import dao.ComprarVariosDAO;
+import dao.DAOFactory;
+import dao.FiltroCompras;
+import modelo.CategoriaCompra;
+import modelo.Compra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Controlador que exporta las compras de `CompraComida`, `CompraLimpieza` y `CompraVarios` a un archivo CSV o JSON,
+ * para copias de seguridad e informes.
+ *
+ * **Funcionamiento:**
+ * - Cada tabla se recorre con `streamCompras` de su DAO, que lee con un cursor de solo avance y una sesión sin
+ *   estado, y cada compra se escribe en cuanto llega. La memoria usada no depende del tamaño de las tablas.
+ * - JSON se escribe con el generador en streaming de Jackson y CSV con un `Writer`; los dos sobre un
+ *   `FileChannel` con buffer y, si el nombre del archivo termina en `.gz`, comprimidos con gzip.
+ * - Se escribe en un archivo temporal junto al destino que se renombra al terminar: si la exportación falla, el
+ *   archivo de destino no se modifica.
+ *
+ * **Formato** (según la extensión, antes de `.gz`):
+ * - `.csv`: cabecera y una fila por compra, separador `,` y comillas dobles según RFC 4180.
+ * - `.json`: un array de objetos.
+ * - `.jsonl` o `.ndjson`: un objeto por línea.
+ *
+ * Los campos son `categoria`, `idUnico`, `nombreProducto`, `descripcion`, `foto`, `numeroUnicoFoto`, `cantidad`,
+ * `realizado` y `supermercado`, de modo que el archivo puede volver a cargarse con {@link ControladorImportacion}
+ * (que asigna identificadores y números de foto nuevos).
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class ControladorExportacion {
+
+    private static final Logger logger = LoggerFactory.getLogger(ControladorExportacion.class);
+
+    private static final String[] CAMPOS = {"categoria", "idUnico", "nombreProducto", "descripcion", "foto",
+            "numeroUnicoFoto", "cantidad", "realizado", "supermercado"};
+
+    private static final int TAMANO_BUFFER = 1 << 16;
+
+    /**
+     * Filas escritas entre dos avisos de progreso.
+     */
+    private static final int AVISO_CADA = 10_000;
+
+    private static final JsonFactory FABRICA_JSON = new JsonFactory();
+
+    private final CompraComidaDAO compraComidaDAO;
+    private final CompraLimpiezaDAO compraLimpiezaDAO;
+    private final ComprarVariosDAO comprarVariosDAO;
+
+    /**
+     * Crea el controlador con los DAO de {@link DAOFactory}.
+     */
+    public ControladorExportacion() {
+        this.compraComidaDAO = DAOFactory.getCompraComidaDAO();
+        this.compraLimpiezaDAO = DAOFactory.getCompraLimpiezaDAO();
+        this.comprarVariosDAO = DAOFactory.getComprarVariosDAO();
+        logger.info("ControladorExportacion inicializado correctamente.");
+    }
+
+    /**
+     * Exporta las compras de todas las tablas al archivo indicado.
+     *
+     * @param archivo  Archivo de destino; el formato y la compresión dependen de su extensión.
+     * @param progreso Receptor del total de filas escritas, o `null`.
+     * @return Resultado con las filas escritas por tabla; si la exportación falla, indica el motivo.
+     * @see #exportar(Path, Collection, FiltroCompras, LongConsumer)
+     */
+    public ResultadoExportacion exportar(Path archivo, LongConsumer progreso) {
+        return exportar(archivo, EnumSet.allOf(CategoriaCompra.class), null, progreso);
+    }
+
+    /**
+     * Exporta las compras de las tablas indicadas que cumplen el filtro.
+     *
+     * <p>El método bloquea hasta terminar, así que desde la interfaz debe llamarse en un hilo en segundo plano.
+     * `progreso` se invoca desde ese hilo cada {@value #AVISO_CADA} filas y al terminar; si actualiza la interfaz,
+     * debe hacerlo con `Platform.runLater`.</p>
+     *
+     * @param archivo    Archivo `.csv`, `.json`, `.jsonl` o `.ndjson`, opcionalmente terminado en `.gz`.
+     * @param categorias Tablas a exportar, en el orden de {@link CategoriaCompra}.
+     * @param filtro     Criterios de las compras a exportar, o `null` para exportarlas todas.
+     * @param progreso   Receptor del total de filas escritas, o `null`.
+     * @return Resultado con las filas escritas por tabla; si la exportación falla, indica el motivo.
+     */
+    public ResultadoExportacion exportar(Path archivo, Collection<CategoriaCompra> categorias, FiltroCompras filtro,
+                                         LongConsumer progreso) {
+        long inicio = System.nanoTime();
+        Map<CategoriaCompra, Long> filas = new EnumMap<>(CategoriaCompra.class);
+        Path temporal = null;
+        String fallo = null;
+        long bytes = 0;
+        try {
+            if (archivo == null) {
+                throw new IllegalArgumentException("No se ha indicado el archivo de destino.");
+            }
+            if (categorias == null || categorias.isEmpty()) {
+                throw new IllegalArgumentException("Debe indicarse al menos una tabla a exportar.");
+            }
+            String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+            boolean comprimido = nombre.endsWith(".gz");
+            Formato formato = formato(comprimido ? nombre.substring(0, nombre.length() - 3) : nombre);
+
+            Path directorio = archivo.toAbsolutePath().getParent();
+            temporal = Files.createTempFile(directorio, archivo.getFileName().toString(), ".tmp");
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                // El canal se cierra al salir del bloque; las capas superiores solo se vacían
+                BufferedOutputStream buffer = new BufferedOutputStream(Channels.newOutputStream(canal), TAMANO_BUFFER);
+                GZIPOutputStream gzip = comprimido ? new GZIPOutputStream(buffer, TAMANO_BUFFER) : null;
+                OutputStream salida = gzip != null ? gzip : buffer;
+                Escritura escritura = formato == Formato.CSV ? new EscrituraCsv(salida)
+                        : new EscrituraJson(salida, formato == Formato.JSON_LINEAS);
+                long total = 0;
+                for (CategoriaCompra categoria : EnumSet.copyOf(categorias)) {
+                    try (Stream<? extends Compra> compras = abrirFlujo(categoria, filtro)) {
+                        long escritas = 0;
+                        for (Iterator<? extends Compra> it = compras.iterator(); it.hasNext(); ) {
+                            escritura.escribir(categoria, it.next());
+                            escritas++;
+                            if (++total % AVISO_CADA == 0 && progreso != null) {
+                                progreso.accept(total);
+                            }
+                        }
+                        filas.put(categoria, escritas);
+                    }
+                }
+                escritura.terminar();
+                if (progreso != null) {
+                    progreso.accept(total);
+                }
+                if (gzip != null) {
+                    gzip.finish();
+                }
+                buffer.flush();
+                canal.force(false);
+                bytes = canal.size();
+            }
+            mover(temporal, archivo);
+            temporal = null;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al exportar a {}: {}", archivo, e.getMessage());
+            fallo = e.getMessage();
+        } catch (Exception e) {
+            logger.error("Error al exportar las compras a {}.", archivo, e);
+            fallo = "Error al exportar las compras: " + e.getMessage();
+        } finally {
+            if (temporal != null) {
+                try {
+                    Files.deleteIfExists(temporal);
+                } catch (IOException e) {
+                    logger.warn("No se pudo borrar el archivo temporal {}.", temporal);
+                }
+            }
+        }
+
+        ResultadoExportacion resultado = new ResultadoExportacion(filas, bytes,
+                (System.nanoTime() - inicio) / 1_000_000, fallo);
+        logger.info("Exportación a {} terminada: {} ({} filas/s).", archivo, resultado, resultado.getFilasPorSegundo());
+        return resultado;
+    }
+
+    /**
+     * Cierra los recursos de los DAO utilizados por el controlador.
+     */
+    public void cerrar() {
+        try {
+            compraComidaDAO.cerrar();
+            compraLimpiezaDAO.cerrar();
+            comprarVariosDAO.cerrar();
+            logger.info("Recursos de los DAO cerrados correctamente.");
+        } catch (Exception e) {
+            logger.error("Error al cerrar los recursos de los DAO.", e);
+        }
+    }
+
+    private Stream<? extends Compra> abrirFlujo(CategoriaCompra categoria, FiltroCompras filtro) {
+        return switch (categoria) {
+            case COMIDA -> compraComidaDAO.streamCompras(filtro);
+            case LIMPIEZA -> compraLimpiezaDAO.streamCompras(filtro);
+            case VARIOS -> comprarVariosDAO.streamCompras(filtro);
+        };
+    }
+
+    private static Formato formato(String nombre) {
+        if (nombre.endsWith(".csv")) {
+            return Formato.CSV;
+        }
+        if (nombre.endsWith(".json")) {
+            return Formato.JSON;
+        }
+        if (nombre.endsWith(".jsonl") || nombre.endsWith(".ndjson")) {
+            return Formato.JSON_LINEAS;
+        }
+        throw new IllegalArgumentException("Formato no admitido: solo se puede exportar a CSV o JSON.");
+    }
+
+    /**
+     * Sustituye el destino por el archivo temporal, de forma atómica si el sistema de archivos lo permite.
+     */
+    private static void mover(Path temporal, Path archivo) throws IOException {
+        try {
+            Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private enum Formato {
+        CSV, JSON, JSON_LINEAS
+    }
+
+    /**
+     * Escritura de las compras en un formato sobre una salida que cierra el llamante.
+     */
+    private interface Escritura {
+
+        void escribir(CategoriaCompra categoria, Compra compra) throws IOException;
+
+        /**
+         * Completa el formato y vacía lo pendiente en la salida.
+         */
+        void terminar() throws IOException;
+    }
+
+    private static final class EscrituraJson implements Escritura {
+
+        private final JsonGenerator generador;
+        private final boolean lineas;
+
+        private EscrituraJson(OutputStream salida, boolean lineas) throws IOException {
+            this.generador = FABRICA_JSON.createGenerator(salida, JsonEncoding.UTF8);
+            this.lineas = lineas;
+            if (lineas) {
+                generador.setRootValueSeparator(new SerializedString("\n"));
+            } else {
+                generador.writeStartArray();
+            }
+        }
+
+        @Override
+        public void escribir(CategoriaCompra categoria, Compra compra) throws IOException {
+            generador.writeStartObject();
+            generador.writeStringField(CAMPOS[0], categoria.name());
+            generador.writeNumberField(CAMPOS[1], compra.getIdUnico());
+            generador.writeStringField(CAMPOS[2], compra.getNombreProducto());
+            generador.writeStringField(CAMPOS[3], compra.getDescripcion());
+            generador.writeBooleanField(CAMPOS[4], compra.isFoto());
+            generador.writeFieldName(CAMPOS[5]);
+            if (compra.getNumeroUnicoFoto() != null) {
+                generador.writeNumber(compra.getNumeroUnicoFoto());
+            } else {
+                generador.writeNull();
+            }
+            generador.writeNumberField(CAMPOS[6], compra.getCantidad());
+            generador.writeBooleanField(CAMPOS[7], compra.isRealizado());
+            generador.writeStringField(CAMPOS[8], compra.getSupermercado());
+            generador.writeEndObject();
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            if (lineas) {
+                generador.writeRaw('\n');
+            } else {
+                generador.writeEndArray();
+            }
+            generador.flush();
+        }
+    }
+
+    private static final class EscrituraCsv implements Escritura {
+
+        private final Writer escritor;
+
+        private EscrituraCsv(OutputStream salida) throws IOException {
+            this.escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+            escritor.write(String.join(",", CAMPOS));
+            escritor.write('\n');
+        }
+
+        @Override
+        public void escribir(CategoriaCompra categoria, Compra compra) throws IOException {
+            escritor.write(categoria.name());
+            escritor.write(',');
+            escritor.write(Integer.toString(compra.getIdUnico()));
+            escritor.write(',');
+            campo(compra.getNombreProducto());
+            escritor.write(',');
+            campo(compra.getDescripcion());
+            escritor.write(',');
+            escritor.write(Boolean.toString(compra.isFoto()));
+            escritor.write(',');
+            if (compra.getNumeroUnicoFoto() != null) {
+                escritor.write(Integer.toString(compra.getNumeroUnicoFoto()));
+            }
+            escritor.write(',');
+            escritor.write(Integer.toString(compra.getCantidad()));
+            escritor.write(',');
+            escritor.write(Boolean.toString(compra.isRealizado()));
+            escritor.write(',');
+            campo(compra.getSupermercado());
+            escritor.write('\n');
+        }
+
+        /**
+         * Escribe un texto entre comillas si contiene el separador, comillas o saltos de línea.
+         */
+        private void campo(String texto) throws IOException {
+            if (texto == null) {
+                return;
+            }
+            boolean comillas = false;
+            for (int i = 0; i < texto.length() && !comillas; i++) {
+                char c = texto.charAt(i);
+                comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!comillas) {
+                escritor.write(texto);
+                return;
+            }
+            escritor.write('"');
+            escritor.write(texto.replace("\"", "\"\""));
+            escritor.write('"');
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            escritor.flush();
+        }
+    }
+}
@@ -0,0 +1,870 @@
+package controlador;
+
+import Util.Configuracion;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import dao.CompraComidaDAO;
+import dao.CompraLimpiezaDAO;
+import dao.ComprarVariosDAO;
+import dao.DAOFactory;
+import dao.ResultadoLote;
+import dao.SecuenciaFoto;
+import modelo.CategoriaCompra;
+import modelo.Compra;
+import modelo.CompraComida;
+import modelo.CompraLimpieza;
+import modelo.ComprarVarios;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Controlador que importa en bloque compras desde archivos CSV o JSON.
+ *
+ * **Etapas:**
+ * - Lectura: un único hilo recorre el archivo sin cargarlo entero y lo reparte en bloques de
+ *   `todolist.importacion.tamano_bloque` filas. En CSV cada fila se pasa como texto; en JSON se lee con el analizador
+ *   en flujo de Jackson.
+ * - Análisis y validación: `todolist.importacion.hilos` hilos separan los campos de cada bloque en paralelo, aplican
+ *   las reglas de {@link ValidacionCompra} (las mismas que los controladores de compras) y reservan los números de
+ *   foto con {@link SecuenciaFoto}.
+ * - Escritura: hasta `todolist.importacion.escritores` hilos (como máximo uno por categoría) agrupan las filas válidas
+ *   y las insertan con `agregarComprasEnLote` de cada DAO, en transacciones de `todolist.importacion.tamano_lote`
+ *   filas. Cada categoría la escribe siempre el mismo hilo, así que las tablas se llenan en paralelo sin que dos
+ *   transacciones inserten a la vez en la misma tabla.
+ *
+ * Las etapas se comunican con colas acotadas: si la base de datos va más lenta que la lectura, la lectura espera,
+ * de modo que la memoria usada no depende del tamaño del archivo.
+ *
+ * **Formato:**
+ * - CSV (`.csv`): primera fila de cabecera, separador `,` o `;` (se detecta en la cabecera) y comillas dobles
+ *   según RFC 4180. Columnas `nombreProducto`, `descripcion`, `cantidad` y `supermercado` obligatorias; `foto`,
+ *   `realizado` y `categoria` opcionales. Los nombres de columna no distinguen mayúsculas ni tildes.
+ * - JSON (`.json`, `.jsonl`, `.ndjson`): un array de objetos o una secuencia de objetos (uno por línea) con los
+ *   mismos campos.
+ * - `categoria` admite `COMIDA`, `LIMPIEZA`, `VARIOS` o el nombre de la tabla; si falta, se usa la categoría por
+ *   defecto indicada al importar.
+ * - Los archivos terminados en `.gz` se descomprimen al leerlos, así que las copias de {@link ControladorExportacion}
+ *   pueden importarse directamente. Las columnas que no se reconocen se ignoran.
+ *
+ * Las filas inválidas se rechazan sin detener la importación y se informan con su número en el archivo (línea en
+ * CSV, posición del objeto en JSON).
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class ControladorImportacion {
+
+    private static final Logger logger = LoggerFactory.getLogger(ControladorImportacion.class);
+
+    // Posición de cada campo en los registros que pasan de la lectura al análisis
+    private static final int NOMBRE = 0;
+    private static final int DESCRIPCION = 1;
+    private static final int FOTO = 2;
+    private static final int CANTIDAD = 3;
+    private static final int REALIZADO = 4;
+    private static final int SUPERMERCADO = 5;
+    private static final int CATEGORIA = 6;
+    private static final int CAMPOS = 7;
+
+    private static final String[] NOMBRES_CAMPOS = {"nombreProducto", "descripcion", "foto", "cantidad", "realizado",
+            "supermercado", "categoria"};
+
+    /**
+     * Nombres de columna admitidos, ya normalizados con {@link #normalizarColumna(String)}.
+     */
+    private static final Map<String, Integer> COLUMNAS = Map.ofEntries(
+            Map.entry("nombreproducto", NOMBRE), Map.entry("nombre", NOMBRE), Map.entry("producto", NOMBRE),
+            Map.entry("descripcion", DESCRIPCION),
+            Map.entry("foto", FOTO),
+            Map.entry("cantidad", CANTIDAD),
+            Map.entry("realizado", REALIZADO), Map.entry("realizada", REALIZADO),
+            Map.entry("supermercado", SUPERMERCADO),
+            Map.entry("categoria", CATEGORIA), Map.entry("tabla", CATEGORIA));
+
+    // Longitud de las columnas de las tablas de compras
+    private static final int LONGITUD_NOMBRE = 255;
+    private static final int LONGITUD_DESCRIPCION = 455;
+    private static final int LONGITUD_SUPERMERCADO = 255;
+
+    /**
+     * Espera máxima en cada intento de poner o tomar de una cola, tras la que se comprueba si otra etapa falló.
+     */
+    private static final long ESPERA_COLA_MS = 100;
+
+    private static final JsonFactory FABRICA_JSON = new JsonFactory();
+
+    private static final Bloque FIN_LECTURA = new Bloque(new long[0], List.of());
+    private static final BloqueValidado FIN_ANALISIS = new BloqueValidado(new EnumMap<>(CategoriaCompra.class));
+
+    private final CompraComidaDAO compraComidaDAO;
+    private final CompraLimpiezaDAO compraLimpiezaDAO;
+    private final ComprarVariosDAO comprarVariosDAO;
+    private final int hilos;
+    private final int escritores;
+    private final int tamanoBloque;
+    private final int tamanoLote;
+
+    /**
+     * Crea el controlador con los DAO de {@link DAOFactory} y la configuración de `todolist.importacion.*`.
+     */
+    public ControladorImportacion() {
+        this.compraComidaDAO = DAOFactory.getCompraComidaDAO();
+        this.compraLimpiezaDAO = DAOFactory.getCompraLimpiezaDAO();
+        this.comprarVariosDAO = DAOFactory.getComprarVariosDAO();
+        this.hilos = Math.max(1, Configuracion.getEntero("todolist.importacion.hilos",
+                Runtime.getRuntime().availableProcessors()));
+        this.escritores = Math.max(1, Math.min(CategoriaCompra.values().length,
+                Configuracion.getEntero("todolist.importacion.escritores", CategoriaCompra.values().length)));
+        this.tamanoBloque = Math.max(1, Configuracion.getEntero("todolist.importacion.tamano_bloque", 2000));
+        this.tamanoLote = Math.max(1, Configuracion.getEntero("todolist.importacion.tamano_lote", 5000));
+        logger.info("ControladorImportacion inicializado: {} hilos de análisis, {} de escritura.", hilos, escritores);
+    }
+
+    /**
+     * Importa las compras del archivo indicado.
+     *
+     * <p>El método bloquea hasta terminar, así que desde la interfaz debe llamarse en un hilo en segundo plano.
+     * `progreso` se invoca desde los hilos de escritura cada vez que se confirma un lote, y una última vez al
+     * terminar; si actualiza la interfaz, debe hacerlo con `Platform.runLater`.</p>
+     *
+     * @param archivo            Archivo `.csv`, `.json`, `.jsonl` o `.ndjson`, opcionalmente terminado en `.gz`.
+     * @param categoriaPorDefecto Categoría de las filas que no indican la suya, o `null` para exigirla en cada fila.
+     * @param progreso           Receptor del progreso, o `null`.
+     * @return Resultado con las filas insertadas y rechazadas; si la importación se interrumpe, indica el motivo.
+     */
+    public ResultadoImportacion importar(Path archivo, CategoriaCompra categoriaPorDefecto,
+                                         Consumer<ProgresoImportacion> progreso) {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        long inicio = System.nanoTime();
+        try {
+            if (archivo == null) {
+                throw new IllegalArgumentException("No se ha indicado el archivo a importar.");
+            }
+            new Importacion(archivo, formato(archivo), categoriaPorDefecto, progreso, resultado).ejecutar();
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al importar {}: {}", archivo, e.getMessage());
+            resultado.registrarFalloGeneral(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error al importar el archivo {}.", archivo, e);
+            resultado.registrarFalloGeneral("Error al importar el archivo: " + e.getMessage());
+        }
+        resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+        logger.info("Importación de {} terminada: {} ({} filas/s).", archivo, resultado, resultado.getFilasPorSegundo());
+        return resultado;
+    }
+
+    /**
+     * Cierra los recursos de los DAO utilizados por el controlador.
+     */
+    public void cerrar() {
+        try {
+            compraComidaDAO.cerrar();
+            compraLimpiezaDAO.cerrar();
+            comprarVariosDAO.cerrar();
+            logger.info("Recursos de los DAO cerrados correctamente.");
+        } catch (Exception e) {
+            logger.error("Error al cerrar los recursos de los DAO.", e);
+        }
+    }
+
+    private static Formato formato(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (comprimido(archivo)) {
+            nombre = nombre.substring(0, nombre.length() - 3);
+        }
+        if (nombre.endsWith(".csv")) {
+            return Formato.CSV;
+        }
+        if (nombre.endsWith(".json") || nombre.endsWith(".jsonl") || nombre.endsWith(".ndjson")) {
+            return Formato.JSON;
+        }
+        throw new IllegalArgumentException("Formato no admitido: solo se pueden importar archivos CSV o JSON.");
+    }
+
+    private static boolean comprimido(Path archivo) {
+        return archivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    /**
+     * Una importación en curso: el estado compartido por sus etapas.
+     */
+    private final class Importacion {
+
+        private final Path archivo;
+        private final Formato formato;
+        private final CategoriaCompra categoriaPorDefecto;
+        private final Consumer<ProgresoImportacion> progreso;
+        private final ResultadoImportacion resultado;
+        private final BlockingQueue<Bloque> bloques;
+        private final List<BlockingQueue<BloqueValidado>> validados = new ArrayList<>();
+        private final long bytesTotales;
+        private ContadorBytes contador;
+        private InputStream entrada;
+
+        // Datos de la cabecera CSV; los hilos de análisis los leen después de recibir el primer bloque
+        private char separador;
+        private int[] posiciones;
+
+        // Bloque en preparación del hilo de lectura
+        private List<Object> registros;
+        private long[] filas;
+
+        /**
+         * Primer error de un hilo de análisis o de escritura; detiene todas las etapas.
+         */
+        private volatile Exception fallo;
+
+        private Importacion(Path archivo, Formato formato, CategoriaCompra categoriaPorDefecto,
+                            Consumer<ProgresoImportacion> progreso, ResultadoImportacion resultado) throws IOException {
+            this.archivo = archivo;
+            this.formato = formato;
+            this.categoriaPorDefecto = categoriaPorDefecto;
+            this.progreso = progreso;
+            this.resultado = resultado;
+            this.bloques = new ArrayBlockingQueue<>(hilos * 2);
+            for (int i = 0; i < escritores; i++) {
+                validados.add(new ArrayBlockingQueue<>(hilos * 2));
+            }
+            this.bytesTotales = Files.size(archivo);
+        }
+
+        private void ejecutar() throws Exception {
+            ExecutorService ejecutor = Executors.newFixedThreadPool(hilos + escritores, new FabricaHilos());
+            try (ContadorBytes contador = new ContadorBytes(Files.newInputStream(archivo))) {
+                this.contador = contador;
+                entrada = comprimido(archivo) ? new GZIPInputStream(contador, 1 << 16) : contador;
+                List<Future<?>> analisis = new ArrayList<>();
+                List<Future<?>> escritura = new ArrayList<>();
+                for (int i = 0; i < hilos; i++) {
+                    analisis.add(ejecutor.submit(this::analizar));
+                }
+                for (BlockingQueue<BloqueValidado> cola : validados) {
+                    escritura.add(ejecutor.submit(() -> escribir(cola)));
+                }
+
+                try {
+                    if (formato == Formato.CSV) {
+                        leerCsv();
+                    } else {
+                        leerJson();
+                    }
+                } catch (IllegalArgumentException | IOException e) {
+                    logger.error("Lectura de {} interrumpida: {}", archivo, e.getMessage());
+                    resultado.registrarFalloGeneral(e.getMessage());
+                }
+                enviarBloque();  // Las filas leídas hasta un error de lectura se guardan igualmente
+
+                for (int i = 0; i < hilos; i++) {
+                    poner(bloques, FIN_LECTURA);
+                }
+                esperar(analisis);
+                for (BlockingQueue<BloqueValidado> cola : validados) {
+                    poner(cola, FIN_ANALISIS);
+                }
+                esperar(escritura);
+            } finally {
+                ejecutor.shutdownNow();
+            }
+            notificar();
+        }
+
+        // ========================
+        // Lectura
+        // ========================
+
+        private void leerCsv() throws IOException {
+            BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), 1 << 16);
+            long linea = 0;
+            String cabecera;
+            do {
+                cabecera = lector.readLine();
+                linea++;
+            } while (cabecera != null && cabecera.isBlank());
+            if (cabecera == null) {
+                return;  // Archivo vacío
+            }
+            if (cabecera.startsWith("\uFEFF")) {
+                cabecera = cabecera.substring(1);  // Marca de orden de bytes que añaden algunas hojas de cálculo
+            }
+            separador = contarFuera(cabecera, ';') > contarFuera(cabecera, ',') ? ';' : ',';
+            posiciones = posicionesColumnas(dividirCsv(cabecera, separador));
+
+            String texto;
+            while ((texto = lector.readLine()) != null) {
+                linea++;
+                if (texto.isBlank()) {
+                    continue;
+                }
+                long fila = linea;
+                if (contar(texto, '"') % 2 != 0) {
+                    // Un campo entre comillas contiene saltos de línea: el registro sigue en las líneas siguientes
+                    StringBuilder registro = new StringBuilder(texto);
+                    int comillas = contar(texto, '"');
+                    while (comillas % 2 != 0) {
+                        String siguiente = lector.readLine();
+                        if (siguiente == null) {
+                            throw new IllegalArgumentException("Comillas sin cerrar en la fila " + fila + ".");
+                        }
+                        linea++;
+                        comillas += contar(siguiente, '"');
+                        registro.append('\n').append(siguiente);
+                    }
+                    texto = registro.toString();
+                }
+                anotar(fila, texto);
+            }
+        }
+
+        private int[] posicionesColumnas(List<String> cabecera) {
+            int[] posicion = new int[CAMPOS];
+            Arrays.fill(posicion, -1);
+            for (int i = 0; i < cabecera.size(); i++) {
+                Integer campo = COLUMNAS.get(normalizarColumna(cabecera.get(i)));
+                if (campo != null && posicion[campo] < 0) {
+                    posicion[campo] = i;
+                }
+            }
+            for (int campo : new int[]{NOMBRE, DESCRIPCION, CANTIDAD, SUPERMERCADO}) {
+                if (posicion[campo] < 0) {
+                    throw new IllegalArgumentException("Falta la columna obligatoria '" + NOMBRES_CAMPOS[campo]
+                            + "' en la cabecera del archivo.");
+                }
+            }
+            if (posicion[CATEGORIA] < 0 && categoriaPorDefecto == null) {
+                throw new IllegalArgumentException("El archivo no tiene columna 'categoria' y no se ha elegido una categoría.");
+            }
+            return posicion;
+        }
+
+        private void leerJson() throws IOException {
+            Map<String, Integer> campos = new HashMap<>();  // Nombres de campo ya normalizados
+            try (JsonParser parser = FABRICA_JSON.createParser(entrada)) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    token = parser.nextToken();
+                }
+                long fila = 0;
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    fila++;
+                    if (token != JsonToken.START_OBJECT) {
+                        throw new IllegalArgumentException("Se esperaba un objeto JSON en la fila " + fila + ".");
+                    }
+                    String[] valores = new String[CAMPOS];
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        Integer campo = campos.computeIfAbsent(parser.currentName(),
+                                nombre -> COLUMNAS.getOrDefault(normalizarColumna(nombre), -1));
+                        JsonToken valor = parser.nextToken();
+                        if (campo < 0 || valor.isStructStart()) {
+                            parser.skipChildren();
+                        } else if (valor != JsonToken.VALUE_NULL) {
+                            valores[campo] = parser.getText();
+                        }
+                    }
+                    anotar(fila, valores);
+                    token = parser.nextToken();
+                }
+            }
+        }
+
+        /**
+         * Añade un registro al bloque en preparación y lo envía al análisis cuando está completo.
+         */
+        private void anotar(long fila, Object registro) {
+            if (registros == null) {
+                registros = new ArrayList<>(tamanoBloque);
+                filas = new long[tamanoBloque];
+            }
+            filas[registros.size()] = fila;
+            registros.add(registro);
+            if (registros.size() == tamanoBloque) {
+                enviarBloque();
+            }
+        }
+
+        private void enviarBloque() {
+            if (registros != null && !registros.isEmpty()) {
+                poner(bloques, new Bloque(Arrays.copyOf(filas, registros.size()), registros));
+            }
+            registros = null;
+        }
+
+        // ========================
+        // Análisis y validación
+        // ========================
+
+        private Void analizar() throws InterruptedException {
+            try {
+                while (true) {
+                    Bloque bloque = tomar(bloques);
+                    if (bloque == FIN_LECTURA) {
+                        return null;
+                    }
+                    // Cada categoría va siempre al mismo hilo de escritura
+                    Map<CategoriaCompra, Pendientes> pendientes = validar(bloque);
+                    for (int i = 0; i < escritores; i++) {
+                        Map<CategoriaCompra, Pendientes> suyas = new EnumMap<>(CategoriaCompra.class);
+                        for (Map.Entry<CategoriaCompra, Pendientes> categoria : pendientes.entrySet()) {
+                            if (categoria.getKey().ordinal() % escritores == i) {
+                                suyas.put(categoria.getKey(), categoria.getValue());
+                            }
+                        }
+                        if (!suyas.isEmpty()) {
+                            poner(validados.get(i), new BloqueValidado(suyas));
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                detener(e);
+                throw e;
+            }
+        }
+
+        private Map<CategoriaCompra, Pendientes> validar(Bloque bloque) {
+            Map<CategoriaCompra, Pendientes> validadas = new EnumMap<>(CategoriaCompra.class);
+            for (int i = 0; i < bloque.registros().size(); i++) {
+                Object registro = bloque.registros().get(i);
+                long fila = bloque.filas()[i];
+                try {
+                    String[] valores = registro instanceof String texto ? camposCsv(texto) : (String[]) registro;
+                    CategoriaCompra categoria = categoria(valores[CATEGORIA]);
+                    validadas.computeIfAbsent(categoria, c -> new Pendientes()).agregar(crear(categoria, valores), fila);
+                } catch (IllegalArgumentException e) {
+                    resultado.registrarRechazo(fila, e.getMessage());
+                }
+            }
+            resultado.registrarLeidas(bloque.registros().size());
+            return validadas;
+        }
+
+        private String[] camposCsv(String registro) {
+            List<String> columnas = dividirCsv(registro, separador);
+            String[] valores = new String[CAMPOS];
+            for (int campo = 0; campo < CAMPOS; campo++) {
+                int posicion = posiciones[campo];
+                valores[campo] = posicion >= 0 && posicion < columnas.size() ? columnas.get(posicion) : null;
+            }
+            return valores;
+        }
+
+        private CategoriaCompra categoria(String valor) {
+            if (valor == null || valor.isBlank()) {
+                if (categoriaPorDefecto == null) {
+                    throw new IllegalArgumentException("La fila no indica su categoría.");
+                }
+                return categoriaPorDefecto;
+            }
+            String texto = valor.strip();
+            for (CategoriaCompra categoria : CategoriaCompra.values()) {
+                if (categoria.name().equalsIgnoreCase(texto) || categoria.getTabla().equalsIgnoreCase(texto)) {
+                    return categoria;
+                }
+            }
+            throw new IllegalArgumentException("Categoría desconocida: " + texto);
+        }
+
+        // ========================
+        // Escritura
+        // ========================
+
+        private Void escribir(BlockingQueue<BloqueValidado> cola) throws InterruptedException {
+            try {
+                Map<CategoriaCompra, Pendientes> acumuladas = new EnumMap<>(CategoriaCompra.class);
+                while (true) {
+                    BloqueValidado bloque = tomar(cola);
+                    if (bloque == FIN_ANALISIS) {
+                        break;
+                    }
+                    for (Map.Entry<CategoriaCompra, Pendientes> nuevas : bloque.pendientes.entrySet()) {
+                        Pendientes pendientes = acumuladas.computeIfAbsent(nuevas.getKey(), c -> new Pendientes());
+                        pendientes.agregar(nuevas.getValue());
+                        if (pendientes.compras.size() >= tamanoLote) {
+                            guardar(nuevas.getKey(), pendientes);
+                            acumuladas.remove(nuevas.getKey());
+                        }
+                    }
+                }
+                for (Map.Entry<CategoriaCompra, Pendientes> restantes : acumuladas.entrySet()) {
+                    guardar(restantes.getKey(), restantes.getValue());
+                }
+                return null;
+            } catch (RuntimeException e) {
+                detener(e);
+                throw e;
+            }
+        }
+
+        private void guardar(CategoriaCompra categoria, Pendientes pendientes) {
+            ResultadoLote lote = switch (categoria) {
+                case COMIDA -> compraComidaDAO.agregarComprasEnLote(lista(pendientes.compras));
+                case LIMPIEZA -> compraLimpiezaDAO.agregarComprasEnLote(lista(pendientes.compras));
+                case VARIOS -> comprarVariosDAO.agregarComprasEnLote(lista(pendientes.compras));
+            };
+            resultado.registrarInsertadas(lote.getExitosos());
+            lote.getErrores().forEach((posicion, motivo) -> resultado.registrarRechazo(pendientes.filas[posicion], motivo));
+            notificar();
+        }
+
+        private void notificar() {
+            if (progreso != null) {
+                progreso.accept(resultado.progreso(contador.getLeidos(), bytesTotales));
+            }
+        }
+
+        // ========================
+        // Colas
+        // ========================
+
+        /**
+         * Pone un elemento en la cola, esperando mientras esté llena, salvo que otra etapa haya fallado.
+         */
+        private <T> void poner(BlockingQueue<T> cola, T elemento) {
+            try {
+                while (!cola.offer(elemento, ESPERA_COLA_MS, TimeUnit.MILLISECONDS)) {
+                    comprobarFallo();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importación interrumpida.", e);
+            }
+        }
+
+        /**
+         * Toma un elemento de la cola, esperando mientras esté vacía, salvo que otra etapa haya fallado.
+         */
+        private <T> T tomar(BlockingQueue<T> cola) throws InterruptedException {
+            T elemento;
+            while ((elemento = cola.poll(ESPERA_COLA_MS, TimeUnit.MILLISECONDS)) == null) {
+                comprobarFallo();
+            }
+            return elemento;
+        }
+
+        /**
+         * Registra el primer error de una etapa para que las demás se detengan.
+         */
+        private synchronized void detener(Exception e) {
+            if (fallo == null) {
+                fallo = e;
+            }
+        }
+
+        private void comprobarFallo() {
+            if (fallo != null) {
+                throw new IllegalStateException("Importación detenida por un error: " + fallo.getMessage(), fallo);
+            }
+        }
+
+        private void esperar(List<Future<?>> tareas) throws Exception {
+            for (Future<?> tarea : tareas) {
+                try {
+                    tarea.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception causa ? causa : e;
+                }
+            }
+        }
+    }
+
+    // ========================
+    // Conversión
+    // ========================
+
+    /**
+     * Crea la compra de la categoría indicada a partir de los campos de una fila.
+     *
+     * <p>Se valida con {@link ValidacionCompra} y se usa el constructor vacío de la entidad, que no escribe una
+     * línea de log por compra como el constructor con datos.</p>
+     *
+     * @throws IllegalArgumentException Si algún campo no es válido.
+     */
+    private static Compra crear(CategoriaCompra categoria, String[] valores) {
+        String nombreProducto = texto(valores[NOMBRE]);
+        String descripcion = texto(valores[DESCRIPCION]);
+        String supermercado = texto(valores[SUPERMERCADO]);
+        int cantidad = cantidad(valores[CANTIDAD]);
+        ValidacionCompra.validar(nombreProducto, descripcion, cantidad, supermercado);
+        validarLongitud(nombreProducto, LONGITUD_NOMBRE, "El nombre del producto");
+        validarLongitud(descripcion, LONGITUD_DESCRIPCION, "La descripción");
+        validarLongitud(supermercado, LONGITUD_SUPERMERCADO, "El nombre del supermercado");
+        boolean foto = booleano(valores[FOTO], "foto");
+        boolean realizado = booleano(valores[REALIZADO], "realizado");
+        Integer numeroUnicoFoto = foto ? SecuenciaFoto.getInstancia().siguiente() : null;  // Número único en las tres tablas
+
+        switch (categoria) {
+            case COMIDA -> {
+                CompraComida compra = new CompraComida();
+                compra.setNombreProducto(nombreProducto);
+                compra.setDescripcion(descripcion);
+                compra.setFoto(foto);
+                compra.setNumeroUnicoFoto(numeroUnicoFoto);
+                compra.setCantidad(cantidad);
+                compra.setRealizado(realizado);
+                compra.setSupermercado(supermercado);
+                return compra;
+            }
+            case LIMPIEZA -> {
+                CompraLimpieza compra = new CompraLimpieza();
+                compra.setNombreProducto(nombreProducto);
+                compra.setDescripcion(descripcion);
+                compra.setFoto(foto);
+                compra.setNumeroUnicoFoto(numeroUnicoFoto);
+                compra.setCantidad(cantidad);
+                compra.setRealizado(realizado);
+                compra.setSupermercado(supermercado);
+                return compra;
+            }
+            default -> {
+                ComprarVarios compra = new ComprarVarios();
+                compra.setNombreProducto(nombreProducto);
+                compra.setDescripcion(descripcion);
+                compra.setFoto(foto);
+                compra.setNumeroUnicoFoto(numeroUnicoFoto);
+                compra.setCantidad(cantidad);
+                compra.setRealizado(realizado);
+                compra.setSupermercado(supermercado);
+                return compra;
+            }
+        }
+    }
+
+    private static String texto(String valor) {
+        return valor == null ? null : valor.strip();
+    }
+
+    private static int cantidad(String valor) {
+        try {
+            return Integer.parseInt(valor == null ? "" : valor.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("La cantidad debe ser un número entero.");
+        }
+    }
+
+    private static boolean booleano(String valor, String campo) {
+        if (valor == null || valor.isBlank()) {
+            return false;
+        }
+        return switch (valor.strip().toLowerCase(Locale.ROOT)) {
+            case "true", "1", "si", "sí", "s", "x", "yes" -> true;
+            case "false", "0", "no", "n" -> false;
+            default -> throw new IllegalArgumentException("Valor no válido para " + campo + ": " + valor.strip());
+        };
+    }
+
+    private static void validarLongitud(String valor, int maximo, String campo) {
+        if (valor.length() > maximo) {
+            throw new IllegalArgumentException(campo + " no puede superar " + maximo + " caracteres.");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Compra> List<T> lista(List<Compra> compras) {
+        return (List<T>) (List<?>) compras;  // Cada lista solo contiene compras de su categoría
+    }
+
+    // ========================
+    // CSV
+    // ========================
+
+    /**
+     * Separa un registro CSV en sus campos. Los campos entre comillas pueden contener el separador, saltos de línea
+     * y comillas escritas dos veces (`""`).
+     */
+    private static List<String> dividirCsv(String registro, char separador) {
+        List<String> campos = new ArrayList<>(CAMPOS);
+        if (registro.indexOf('"') < 0) {
+            // Sin comillas, que es lo habitual: basta con cortar en cada separador
+            int desde = 0;
+            for (int hasta; (hasta = registro.indexOf(separador, desde)) >= 0; desde = hasta + 1) {
+                campos.add(registro.substring(desde, hasta));
+            }
+            campos.add(registro.substring(desde, registro.endsWith("\r") ? registro.length() - 1 : registro.length()));
+            return campos;
+        }
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < registro.length(); i++) {
+            char c = registro.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < registro.length() && registro.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c != '\r') {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static int contar(String texto, char caracter) {
+        int veces = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) == caracter) {
+                veces++;
+            }
+        }
+        return veces;
+    }
+
+    /**
+     * Cuenta las apariciones de un carácter fuera de comillas.
+     */
+    private static int contarFuera(String texto, char caracter) {
+        int veces = 0;
+        boolean entreComillas = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                entreComillas = !entreComillas;
+            } else if (c == caracter && !entreComillas) {
+                veces++;
+            }
+        }
+        return veces;
+    }
+
+    /**
+     * Normaliza un nombre de columna: minúsculas, sin tildes y solo letras y dígitos (`Nombre Producto` y
+     * `nombre_producto` equivalen a `nombreproducto`).
+     */
+    private static String normalizarColumna(String nombre) {
+        String sinTildes = Normalizer.normalize(nombre, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    // ========================
+    // Tipos internos
+    // ========================
+
+    private enum Formato {
+        CSV, JSON
+    }
+
+    /**
+     * Filas leídas del archivo: texto de cada registro CSV, o campos ya separados de cada objeto JSON.
+     */
+    private record Bloque(long[] filas, List<Object> registros) {
+    }
+
+    /**
+     * Compras válidas de un bloque, por categoría, para un hilo de escritura.
+     */
+    private record BloqueValidado(Map<CategoriaCompra, Pendientes> pendientes) {
+    }
+
+    /**
+     * Compras de una categoría pendientes de insertar, con el número de fila de cada una en el archivo.
+     */
+    private static final class Pendientes {
+        private final List<Compra> compras = new ArrayList<>();
+        private long[] filas = new long[16];
+
+        private void agregar(Compra compra, long fila) {
+            if (compras.size() == filas.length) {
+                filas = Arrays.copyOf(filas, filas.length * 2);
+            }
+            filas[compras.size()] = fila;
+            compras.add(compra);
+        }
+
+        private void agregar(Pendientes otras) {
+            for (int i = 0; i < otras.compras.size(); i++) {
+                agregar(otras.compras.get(i), otras.filas[i]);
+            }
+        }
+    }
+
+    /**
+     * Flujo de entrada que cuenta los bytes leídos, para informar del progreso.
+     */
+    private static final class ContadorBytes extends FilterInputStream {
+        private volatile long leidos;
+
+        private ContadorBytes(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                leidos++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int desde, int longitud) throws IOException {
+            int n = super.read(b, desde, longitud);
+            if (n > 0) {
+                leidos += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long saltados = super.skip(n);
+            leidos += saltados;
+            return saltados;
+        }
+
+        private long getLeidos() {
+            return leidos;
+        }
+    }
+
+    /**
+     * Crea hilos daemon con nombre reconocible en los volcados de hilos y en los logs.
+     */
+    private static final class FabricaHilos implements ThreadFactory {
+        private final AtomicInteger contador = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread hilo = new Thread(r, "importacion-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    }
+}
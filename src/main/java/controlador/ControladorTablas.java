@@ -2,31 +2,45 @@ package controlador;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.ComboBox;
+import dao.TablaDinamicaDAOImpl;
+import dao.TablasDAO;
 import dao.TablasDAOImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.List;
 
 /**
  * Controlador para manejar la interfaz de usuario relacionada con las tablas.
- * Este controlador obtiene la lista de tablas desde el DAO y la establece en el ComboBox.
+ * Este controlador obtiene la lista de tablas de compras desde el DAO y la establece en el ComboBox; las tablas
+ * internas de la aplicación no se ofrecen.
+ *
+ * La lista se guarda en caché en el DAO, así que crear el controlador o pedir las tablas varias veces no
+ * consulta la base de datos de nuevo.
  */
 public class ControladorTablas {
 
+    private static final Logger logger = LoggerFactory.getLogger(ControladorTablas.class);
+
     @FXML
     private ComboBox<String> comboBoxTablas; // El ComboBox en el FXML
 
-    private TablasDAOImpl tablasDAOImpl;  // DAO para obtener las tablas
+    private final TablasDAO tablasDAO;  // DAO para obtener las tablas
 
-    private List<String> tablas; // Variable para almacenar la lista de tablas
+    /**
+     * Constructor que inicializa el DAO de tablas.
+     */
+    public ControladorTablas() {
+        this.tablasDAO = new TablasDAOImpl();
+    }
 
     /**
      * Inicializa el controlador. Este método se ejecuta cuando se carga el FXML.
      */
     @FXML
     public void initialize() {
-        tablasDAOImpl = new TablasDAOImpl(); // Inicializamos el DAO
-
         // Obtener la lista de tablas desde el DAO
-        tablas = tablasDAOImpl.getTablas();
+        List<String> tablas = getTablas();
 
         // Llenar el ComboBox con los nombres de las tablas
         if (tablas != null && !tablas.isEmpty()) {
@@ -37,11 +51,17 @@ public class ControladorTablas {
     }
 
     /**
-     * Método público para obtener las tablas.
+     * Método público para obtener las tablas de compras (las de las categorías y las creadas por el usuario).
+     * Funciona también cuando el controlador se crea directamente, sin cargar un FXML.
      *
-     * @return La lista de nombres de las tablas.
+     * @return La lista de nombres de las tablas, o null si ocurre un error.
      */
     public List<String> getTablas() {
-        return tablas;
+        try {
+            return TablaDinamicaDAOImpl.filtrarTablasDeCompras(tablasDAO.getTablas());
+        } catch (Exception e) {
+            logger.error("Error al obtener las tablas.", e);
+            return null;
+        }
     }
 }
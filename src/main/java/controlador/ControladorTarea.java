@@ -0,0 +1,105 @@
+package controlador;
+
+import dao.Pagina;
+import dao.TareaDAO;
+import dao.TareaDAOImpl;
+import modelo.Tarea;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controlador para manejar las operaciones de la entidad Tarea.
+ *
+ * **Responsabilidades:**
+ * - Crear tareas asociadas a compras existentes.
+ * - Listar tareas por páginas con sus compras ya cargadas.
+ * - Eliminar tareas.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class ControladorTarea {
+
+    private static final Logger logger = LoggerFactory.getLogger(ControladorTarea.class);
+    private final TareaDAO tareaDAO;
+
+    /**
+     * Constructor que inicializa el DAO de tareas.
+     */
+    public ControladorTarea() {
+        this.tareaDAO = new TareaDAOImpl();
+        logger.info("ControladorTarea inicializado correctamente.");
+    }
+
+    /**
+     * Agrega una nueva tarea asociada a compras existentes.
+     *
+     * @param tarea Tarea a agregar (al menos una compra asociada).
+     * @return true si la operación fue exitosa, false en caso contrario.
+     */
+    public boolean agregarTarea(Tarea tarea) {
+        try {
+            return tareaDAO.agregarTarea(tarea);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al agregar la tarea: {}", e.getMessage());
+            return false;
+        } catch (Exception e) {
+            logger.error("Error al agregar la tarea.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Obtiene una tarea con sus compras asociadas.
+     *
+     * @param id Identificador de la tarea.
+     * @return La tarea, o null si no existe o si ocurre un error.
+     */
+    public Tarea obtenerTarea(int id) {
+        try {
+            return tareaDAO.obtenerTarea(id);
+        } catch (Exception e) {
+            logger.error("Error al obtener la tarea con Id={}.", id, e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de tareas ordenadas por `Id`, con sus compras asociadas.
+     *
+     * @param despuesDeId `Id` de la última tarea de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de tareas de la página (entre 1 y 1000).
+     * @return Página de tareas, o null si ocurre un error.
+     */
+    public Pagina<Tarea> obtenerPagina(Integer despuesDeId, int limite) {
+        try {
+            Pagina<Tarea> pagina = tareaDAO.obtenerPagina(despuesDeId, limite);
+            if (pagina != null) {
+                logger.info("Se recuperaron {} tareas en la página.", pagina.getElementos().size());
+            }
+            return pagina;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al obtener la página de tareas: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de tareas.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Elimina una tarea.
+     *
+     * @param id Identificador de la tarea.
+     * @return true si la tarea existía y se eliminó, false en caso contrario.
+     */
+    public boolean eliminarTarea(int id) {
+        try {
+            return tareaDAO.eliminarTarea(id);
+        } catch (Exception e) {
+            logger.error("Error al eliminar la tarea con Id={}.", id, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package controlador;
+
+import dao.FilaCompraCategoria;
+import dao.FiltroCompras;
+import dao.ResultadoBusqueda;
+import dao.TodasLasComprasDAO;
+import dao.TodasLasComprasDAOImpl;
+import modelo.CategoriaCompra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Controlador para las consultas que muestran juntas las compras de comida, limpieza y varios.
+ *
+ * **Responsabilidades:**
+ * - Obtener en una sola consulta las compras de varias categorías, ordenadas y limitadas en la base de datos.
+ * - Obtener la lista de compras pendientes de todas las categorías.
+ * - Buscar compras de todas las categorías por el texto de su nombre o descripción.
+ * - Sugerir nombres de producto ya usados para autocompletar.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class ControladorTodasLasCompras {
+
+    private static final Logger logger = LoggerFactory.getLogger(ControladorTodasLasCompras.class);
+    private final TodasLasComprasDAO todasLasComprasDAO;
+
+    /**
+     * Constructor que inicializa el DAO de consultas conjuntas.
+     */
+    public ControladorTodasLasCompras() {
+        this.todasLasComprasDAO = new TodasLasComprasDAOImpl();
+        logger.info("ControladorTodasLasCompras inicializado correctamente.");
+    }
+
+    /**
+     * Obtiene las compras de las categorías indicadas que cumplen el filtro.
+     *
+     * @param categorias Categorías a incluir, o `null` para incluir todas.
+     * @param filtro     Criterios de filtrado, o `null` para no filtrar.
+     * @param limite     Número máximo de filas (entre 1 y 1000).
+     * @return Lista de filas ordenadas por supermercado y producto, o null si ocurre un error.
+     */
+    public List<FilaCompraCategoria> obtenerFilas(Set<CategoriaCompra> categorias, FiltroCompras filtro, int limite) {
+        try {
+            List<FilaCompraCategoria> filas = todasLasComprasDAO.obtenerFilas(categorias, filtro, limite);
+            if (filas != null) {
+                logger.info("Se recuperaron {} compras de todas las categorías.", filas.size());
+            }
+            return filas;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al obtener las compras de todas las categorías: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al obtener las compras de todas las categorías.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las compras pendientes de todas las categorías.
+     *
+     * @param limite Número máximo de filas (entre 1 y 1000).
+     * @return Lista de filas pendientes ordenadas por supermercado y producto, o null si ocurre un error.
+     */
+    public List<FilaCompraCategoria> obtenerPendientes(int limite) {
+        try {
+            List<FilaCompraCategoria> filas = todasLasComprasDAO.obtenerPendientes(limite);
+            if (filas != null) {
+                logger.info("Se recuperaron {} compras pendientes.", filas.size());
+            }
+            return filas;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al obtener las compras pendientes: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al obtener las compras pendientes.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Busca compras de las categorías indicadas por el texto de su nombre o descripción.
+     *
+     * @param texto      Texto a buscar.
+     * @param categorias Categorías a incluir, o `null` para incluir todas.
+     * @param limite     Número máximo de resultados (entre 1 y 1000).
+     * @return Resultados ordenados de más a menos relevantes, o null si ocurre un error.
+     */
+    public List<ResultadoBusqueda> buscar(String texto, Set<CategoriaCompra> categorias, int limite) {
+        try {
+            return todasLasComprasDAO.buscar(texto, categorias, limite);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al buscar compras: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error al buscar compras.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Sugiere nombres de producto ya usados que empiezan por el prefijo, para autocompletar.
+     *
+     * @param prefijo Comienzo del nombre.
+     * @param limite  Número máximo de sugerencias (entre 1 y 1000).
+     * @return Nombres de más a menos usado, o una lista vacía si ocurre un error.
+     */
+    public List<String> sugerirNombres(String prefijo, int limite) {
+        try {
+            return todasLasComprasDAO.sugerirNombres(prefijo, limite);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error de validación al sugerir nombres de producto: {}", e.getMessage());
+            return List.of();
+        } catch (Exception e) {
+            logger.error("Error al sugerir nombres de producto.", e);
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package controlador;
+
+import dao.EventoCompra;
+import dao.EventosCompras;
+import dao.FilaCompraCategoria;
+import dao.FiltroCompras;
+import dao.OyenteCompras;
+import modelo.CategoriaCompra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Lista de compras de varias categorías que se mantiene al día con los cambios de {@link EventosCompras}, para
+ * las vistas que muestran compras.
+ *
+ * **Funcionamiento:**
+ * - {@link #abrir()} se suscribe a los cambios y lee las filas una vez con
+ *   {@link ControladorTodasLasCompras#obtenerFilas}.
+ * - Cada alta, modificación, borrado o marcado se aplica sobre la lista en memoria, respetando el filtro, el orden
+ *   (supermercado, producto, categoría e identificador) y el límite de la consulta.
+ * - Solo se vuelve a leer la base de datos cuando los cambios no bastan para saber el resultado: una
+ *   {@link EventoCompra.Tipo#RECARGA}, o una fila que sale de una lista que el límite dejó incompleta. La lectura
+ *   se hace en un hilo propio, compartido por todas las listas, para no retener el reparto de eventos a los demás
+ *   suscriptores.
+ * - Ninguna lectura de la base de datos se hace con el monitor de la lista tomado. Los cambios que llegan mientras
+ *   se lee se guardan y se vuelven a aplicar sobre las filas leídas, lo que no altera el resultado; si entretanto
+ *   se pide otra lectura o se cierra la lista, el resultado de la anterior se descarta (contador de generación).
+ * - Tras cada lote de cambios que afecta a la lista se llama a `alCambiar` con las filas nuevas **desde el hilo de
+ *   eventos o el de recarga**; la vista debe pasar al hilo de JavaFX con `Platform.runLater` para mostrarlas.
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public class ListaCompras implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListaCompras.class);
+
+    /**
+     * Mismo orden que la consulta conjunta; MySQL compara los textos sin distinguir mayúsculas.
+     */
+    private static final Comparator<FilaCompraCategoria> ORDEN = Comparator
+            .comparing(FilaCompraCategoria::supermercado, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(FilaCompraCategoria::nombreProducto, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(fila -> fila.categoria().name())
+            .thenComparingInt(FilaCompraCategoria::idUnico);
+
+    /**
+     * Hilo en el que se vuelven a leer las listas, fuera del hilo de reparto de eventos.
+     */
+    private static final ExecutorService recargas = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "recarga-listas-compras");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private final ControladorTodasLasCompras controlador;
+    private final Set<CategoriaCompra> categorias;
+    private final Boolean realizado;
+    private final String supermercado;
+    private final int limite;
+    private final Consumer<List<FilaCompraCategoria>> alCambiar;
+    private final OyenteCompras oyente = this::aplicar;
+
+    // Protegidos por el monitor de la instancia
+    private final ArrayList<FilaCompraCategoria> filas = new ArrayList<>();
+    private boolean completa;
+    private boolean cargando;
+    private long generacion;
+    private final ArrayList<EventoCompra> retenidos = new ArrayList<>();
+
+    /**
+     * Crea la lista sin leer nada todavía.
+     *
+     * @param controlador Controlador con el que leer las filas.
+     * @param categorias  Categorías a incluir, o `null` para incluir todas.
+     * @param filtro      Criterios de filtrado, o `null` para no filtrar. Se copian; cambiarlos después no afecta a
+     *                    la lista.
+     * @param limite      Número máximo de filas (entre 1 y 1000).
+     * @param alCambiar   Recibe las filas cada vez que cambian, desde el hilo de eventos o el de recarga.
+     * @throws IllegalArgumentException Si el controlador o `alCambiar` son nulos.
+     */
+    public ListaCompras(ControladorTodasLasCompras controlador, Set<CategoriaCompra> categorias, FiltroCompras filtro,
+                        int limite, Consumer<List<FilaCompraCategoria>> alCambiar) {
+        if (controlador == null || alCambiar == null) {
+            throw new IllegalArgumentException("El controlador y el receptor de cambios no pueden ser nulos.");
+        }
+        this.controlador = controlador;
+        this.categorias = categorias == null || categorias.isEmpty() ? EnumSet.allOf(CategoriaCompra.class)
+                : EnumSet.copyOf(categorias);
+        this.realizado = filtro == null ? null : filtro.getRealizado();
+        this.supermercado = filtro == null ? null : filtro.getSupermercado();
+        this.limite = limite;
+        this.alCambiar = alCambiar;
+    }
+
+    /**
+     * Lee las filas y empieza a seguir los cambios. Llamar fuera del hilo de JavaFX, porque consulta la base de
+     * datos.
+     *
+     * @return Filas iniciales, o null si ocurre un error (la lista queda cerrada).
+     */
+    public List<FilaCompraCategoria> abrir() {
+        long lectura;
+        synchronized (this) {
+            lectura = empezarCarga();
+        }
+        // Se suscribe antes de leer para no perder lo que se confirme durante la lectura; esos cambios se retienen
+        // y se vuelven a aplicar sobre las filas leídas
+        EventosCompras.getInstancia().suscribir(oyente);
+        List<FilaCompraCategoria> leidas = leer();
+        synchronized (this) {
+            if (leidas != null && lectura == generacion) {
+                terminarCarga(leidas);
+                return List.copyOf(filas);
+            }
+            if (lectura == generacion) {
+                cargando = false;
+                retenidos.clear();
+            }
+        }
+        EventosCompras.getInstancia().cancelar(oyente);
+        return null;
+    }
+
+    /**
+     * Devuelve las filas actuales.
+     *
+     * @return Copia inmutable de las filas, en el orden de la consulta.
+     */
+    public synchronized List<FilaCompraCategoria> getFilas() {
+        return List.copyOf(filas);
+    }
+
+    /**
+     * Deja de seguir los cambios.
+     */
+    @Override
+    public void close() {
+        EventosCompras.getInstancia().cancelar(oyente);
+        synchronized (this) {
+            generacion++;  // Descarta la lectura en curso, si la hay
+            cargando = false;
+            retenidos.clear();
+        }
+    }
+
+    private List<FilaCompraCategoria> leer() {
+        return controlador.obtenerFilas(categorias, new FiltroCompras(realizado, supermercado), limite);
+    }
+
+    /**
+     * Marca el comienzo de una lectura; hasta que termine, los cambios que lleguen se retienen.
+     *
+     * @return Generación de la lectura, para descartarla si entretanto empieza otra o se cierra la lista.
+     */
+    private long empezarCarga() {
+        cargando = true;
+        retenidos.clear();  // La nueva lectura ya incluirá los cambios retenidos hasta ahora
+        return ++generacion;
+    }
+
+    /**
+     * Sustituye las filas por las leídas y vuelve a aplicar los cambios retenidos durante la lectura.
+     */
+    private void terminarCarga(List<FilaCompraCategoria> leidas) {
+        filas.clear();
+        filas.addAll(leidas);
+        completa = leidas.size() < limite;
+        cargando = false;
+        if (!retenidos.isEmpty()) {
+            List<EventoCompra> pendientes = List.copyOf(retenidos);
+            retenidos.clear();
+            aplicarEnMemoria(pendientes);
+        }
+    }
+
+    private void programarRecarga() {
+        long lectura = empezarCarga();
+        recargas.execute(() -> recargar(lectura));
+    }
+
+    /**
+     * Tarea del hilo de recarga: lee las filas sin el monitor tomado y las instala si nadie pidió otra lectura
+     * entretanto.
+     */
+    private void recargar(long lectura) {
+        List<FilaCompraCategoria> leidas = leer();
+        synchronized (this) {
+            if (lectura != generacion) {
+                return;
+            }
+            boolean cambiada;
+            if (leidas != null) {
+                terminarCarga(leidas);
+                cambiada = !cargando;
+            } else {
+                logger.warn("No se pudo volver a leer la lista de compras; se mantienen las filas conocidas.");
+                cargando = false;
+                List<EventoCompra> pendientes = List.copyOf(retenidos);
+                retenidos.clear();
+                cambiada = aplicarEnMemoria(pendientes);
+            }
+            if (cambiada) {
+                alCambiar.accept(List.copyOf(filas));
+            }
+        }
+    }
+
+    private synchronized void aplicar(List<EventoCompra> eventos) {
+        if (cargando) {
+            retenidos.addAll(eventos);
+            return;
+        }
+        if (aplicarEnMemoria(eventos)) {
+            alCambiar.accept(List.copyOf(filas));
+        }
+    }
+
+    /**
+     * Aplica los cambios a las filas en memoria y, si no bastan para saber el resultado, programa una lectura.
+     *
+     * @return `true` si las filas cambiaron y no queda ninguna lectura pendiente.
+     */
+    private boolean aplicarEnMemoria(List<EventoCompra> eventos) {
+        boolean cambiada = false;
+        boolean recargar = false;
+        for (EventoCompra evento : eventos) {
+            if (recargar) {
+                break;
+            }
+            if (!categorias.contains(evento.categoria())) {
+                continue;
+            }
+            int posicion = posicion(evento.categoria(), evento.idUnico());
+            switch (evento.tipo()) {
+                case RECARGA -> recargar = true;
+                case CREADA, ACTUALIZADA -> {
+                    cambiada |= posicion >= 0 || cumple(evento.fila());
+                    recargar = !sustituir(posicion, evento.fila());
+                }
+                case ELIMINADA -> {
+                    if (posicion >= 0) {
+                        recargar = !sustituir(posicion, null);
+                        cambiada = true;
+                    }
+                }
+                case REALIZADA, PENDIENTE -> {
+                    boolean nuevo = evento.tipo() == EventoCompra.Tipo.REALIZADA;
+                    if (posicion >= 0) {
+                        FilaCompraCategoria fila = filas.get(posicion);
+                        recargar = !sustituir(posicion, new FilaCompraCategoria(fila.categoria(), fila.idUnico(),
+                                fila.nombreProducto(), fila.cantidad(), nuevo, fila.supermercado()));
+                        cambiada = true;
+                    } else {
+                        // Una compra que no se mostraba entra en la lista y no se conocen sus datos
+                        recargar = realizado != null && realizado == nuevo;
+                    }
+                }
+            }
+        }
+        if (recargar) {
+            programarRecarga();  // Avisa al terminar, con las filas leídas
+            return false;
+        }
+        return cambiada;
+    }
+
+    private int posicion(CategoriaCompra categoria, int idUnico) {
+        for (int i = 0; i < filas.size(); i++) {
+            FilaCompraCategoria fila = filas.get(i);
+            if (fila.idUnico() == idUnico && fila.categoria() == categoria) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Quita la fila de la posición indicada, si la hay, y coloca la nueva en su sitio si cumple el filtro.
+     *
+     * @return `false` si el resultado ya no se puede saber sin volver a leer la base de datos.
+     */
+    private boolean sustituir(int posicion, FilaCompraCategoria nueva) {
+        if (posicion >= 0) {
+            filas.remove(posicion);
+        }
+        if (nueva == null || !cumple(nueva)) {
+            return posicion < 0 || completa;  // Sin más filas conocidas, no se sabe cuál ocupa el hueco
+        }
+        int destino = Collections.binarySearch(filas, nueva, ORDEN);
+        destino = destino < 0 ? -destino - 1 : destino;
+        if (destino == filas.size() && !completa) {
+            return posicion < 0;  // Queda detrás de la última fila leída; entre ambas puede haber otras
+        }
+        filas.add(destino, nueva);
+        if (filas.size() > limite) {
+            filas.remove(filas.size() - 1);
+            completa = false;
+        }
+        return true;
+    }
+
+    private boolean cumple(FilaCompraCategoria fila) {
+        return (realizado == null || fila.realizado() == realizado)
+                && (supermercado == null || supermercado.equalsIgnoreCase(fila.supermercado()));
+    }
+}
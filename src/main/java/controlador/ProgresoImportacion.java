@@ -0,0 +1,23 @@
+package controlador;
+
+/**
+ * Estado de una importación en curso, que {@link ControladorImportacion} notifica cada vez que confirma un lote.
+ *
+ * @param filasLeidas     Filas leídas del archivo hasta el momento.
+ * @param filasInsertadas Filas guardadas en la base de datos.
+ * @param filasRechazadas Filas descartadas por no superar la validación o por un error al guardarlas.
+ * @param bytesLeidos     Bytes del archivo leídos.
+ * @param bytesTotales    Tamaño del archivo en bytes.
+ */
+public record ProgresoImportacion(long filasLeidas, long filasInsertadas, long filasRechazadas, long bytesLeidos,
+                                  long bytesTotales) {
+
+    /**
+     * Devuelve la fracción del archivo leída, entre 0 y 1, para una barra de progreso.
+     *
+     * @return Fracción leída, o 1 si el archivo está vacío.
+     */
+    public double getFraccion() {
+        return bytesTotales <= 0 ? 1.0 : Math.min(1.0, (double) bytesLeidos / bytesTotales);
+    }
+}
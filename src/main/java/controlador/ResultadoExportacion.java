@@ -0,0 +1,53 @@
+package controlador;
+
+import modelo.CategoriaCompra;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Resultado de la exportación de las compras a un archivo con {@link ControladorExportacion}.
+ *
+ * @param filasPorCategoria Filas escritas de cada tabla exportada.
+ * @param bytes             Tamaño del archivo generado (comprimido, si se pidió gzip).
+ * @param duracionMs        Duración de la exportación en milisegundos.
+ * @param fallo             Motivo por el que la exportación no terminó, o `null` si terminó. Si falla, el archivo
+ *                          de destino no se modifica.
+ */
+public record ResultadoExportacion(Map<CategoriaCompra, Long> filasPorCategoria, long bytes, long duracionMs,
+                                   String fallo) {
+
+    public ResultadoExportacion {
+        Map<CategoriaCompra, Long> copia = new EnumMap<>(CategoriaCompra.class);
+        copia.putAll(filasPorCategoria);
+        filasPorCategoria = Collections.unmodifiableMap(copia);
+    }
+
+    /**
+     * Devuelve el total de filas escritas.
+     *
+     * @return Suma de las filas de todas las tablas.
+     */
+    public long getFilas() {
+        return filasPorCategoria.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Indica si el archivo se generó completo.
+     *
+     * @return `true` si no hubo ningún fallo.
+     */
+    public boolean isCompleto() {
+        return fallo == null;
+    }
+
+    /**
+     * Devuelve el ritmo medio de escritura.
+     *
+     * @return Filas escritas por segundo.
+     */
+    public long getFilasPorSegundo() {
+        return duracionMs == 0 ? getFilas() : getFilas() * 1000 / duracionMs;
+    }
+}
@@ -0,0 +1,144 @@
+package controlador;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de la importación de un archivo de compras con {@link ControladorImportacion}.
+ *
+ * Registra cuántas filas se leyeron, insertaron y rechazaron y, para las filas rechazadas, su número en el
+ * archivo junto con el motivo. Para no agotar la memoria con archivos muy defectuosos solo se guardan los
+ * primeros {@link #MAXIMO_ERRORES} motivos; el contador de rechazadas incluye todas.
+ *
+ * Si la importación se interrumpe (archivo ilegible, columnas que faltan, base de datos no disponible),
+ * {@link #getFalloGeneral()} indica el motivo. Las filas de los lotes ya confirmados siguen guardadas.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class ResultadoImportacion {
+
+    /**
+     * Número máximo de motivos de rechazo que se guardan.
+     */
+    public static final int MAXIMO_ERRORES = 1000;
+
+    private long leidas;
+    private long insertadas;
+    private long rechazadas;
+    private long duracionMs;
+    private String falloGeneral;
+    private final Map<Long, String> errores = new TreeMap<>();
+
+    /**
+     * Suma las filas leídas de un bloque.
+     */
+    synchronized void registrarLeidas(int filas) {
+        leidas += filas;
+    }
+
+    /**
+     * Suma las filas insertadas de un lote.
+     */
+    synchronized void registrarInsertadas(int filas) {
+        insertadas += filas;
+    }
+
+    /**
+     * Registra el rechazo de una fila.
+     *
+     * @param fila   Número de la fila en el archivo.
+     * @param motivo Descripción del error.
+     */
+    synchronized void registrarRechazo(long fila, String motivo) {
+        rechazadas++;
+        if (errores.size() < MAXIMO_ERRORES) {
+            errores.put(fila, motivo);
+        }
+    }
+
+    /**
+     * Registra el motivo por el que se interrumpió la importación; solo se guarda el primero.
+     */
+    synchronized void registrarFalloGeneral(String motivo) {
+        if (falloGeneral == null) {
+            falloGeneral = motivo;
+        }
+    }
+
+    synchronized void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    /**
+     * Devuelve una instantánea del progreso.
+     */
+    synchronized ProgresoImportacion progreso(long bytesLeidos, long bytesTotales) {
+        return new ProgresoImportacion(leidas, insertadas, rechazadas, bytesLeidos, bytesTotales);
+    }
+
+    public synchronized long getLeidas() {
+        return leidas;
+    }
+
+    public synchronized long getInsertadas() {
+        return insertadas;
+    }
+
+    public synchronized long getRechazadas() {
+        return rechazadas;
+    }
+
+    public synchronized long getDuracionMs() {
+        return duracionMs;
+    }
+
+    /**
+     * Devuelve el motivo por el que se interrumpió la importación.
+     *
+     * @return Motivo, o `null` si el archivo se procesó completo.
+     */
+    public synchronized String getFalloGeneral() {
+        return falloGeneral;
+    }
+
+    /**
+     * Devuelve los motivos de rechazo guardados.
+     *
+     * @return Copia ordenada número de fila → motivo.
+     */
+    public synchronized Map<Long, String> getErrores() {
+        return Collections.unmodifiableMap(new TreeMap<>(errores));
+    }
+
+    /**
+     * Indica si el archivo se importó completo y sin filas rechazadas.
+     *
+     * @return `true` si no hubo ningún fallo.
+     */
+    public synchronized boolean isCompleto() {
+        return falloGeneral == null && rechazadas == 0;
+    }
+
+    /**
+     * Devuelve el ritmo medio de inserción.
+     *
+     * @return Filas insertadas por segundo.
+     */
+    public synchronized long getFilasPorSegundo() {
+        return duracionMs == 0 ? insertadas : insertadas * 1000 / duracionMs;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResultadoImportacion{" +
+                "leidas=" + leidas +
+                ", insertadas=" + insertadas +
+                ", rechazadas=" + rechazadas +
+                ", duracionMs=" + duracionMs +
+                (falloGeneral != null ? ", falloGeneral='" + falloGeneral + '\'' : "") +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package controlador;
+
+/**
+ * Reglas de validación de los datos de una compra, comunes a los controladores de compras y a la importación
+ * de archivos ({@link ControladorImportacion}).
+ *
+ * Cada método lanza una `IllegalArgumentException` con un mensaje para el usuario si el dato no es válido.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public final class ValidacionCompra {
+
+    private ValidacionCompra() {
+    }
+
+    /**
+     * Valida todos los datos de una compra nueva.
+     *
+     * @param nombreProducto Nombre del producto.
+     * @param descripcion    Descripción del producto.
+     * @param cantidad       Cantidad a comprar.
+     * @param supermercado   Nombre del supermercado.
+     * @throws IllegalArgumentException Si alguno de los datos no es válido.
+     */
+    public static void validar(String nombreProducto, String descripcion, int cantidad, String supermercado) {
+        validarNombreProducto(nombreProducto);
+        validarDescripcion(descripcion);
+        validarCantidad(cantidad);
+        validarSupermercado(supermercado);
+    }
+
+    /**
+     * Valida el nombre del producto.
+     *
+     * @param nombreProducto Nombre del producto a validar.
+     * @throws IllegalArgumentException Si el nombre es nulo o vacío.
+     */
+    public static void validarNombreProducto(String nombreProducto) {
+        if (nombreProducto == null || nombreProducto.isBlank()) {
+            throw new IllegalArgumentException("El nombre del producto no puede ser nulo o vacío.");
+        }
+    }
+
+    /**
+     * Valida la descripción del producto.
+     *
+     * @param descripcion Descripción a validar.
+     * @throws IllegalArgumentException Si la descripción es nula o vacía.
+     */
+    public static void validarDescripcion(String descripcion) {
+        if (descripcion == null || descripcion.isBlank()) {
+            throw new IllegalArgumentException("La descripción no puede ser nula o vacía.");
+        }
+    }
+
+    /**
+     * Valida la cantidad del producto.
+     *
+     * @param cantidad Cantidad a validar.
+     * @throws IllegalArgumentException Si la cantidad no es mayor a 0.
+     */
+    public static void validarCantidad(int cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor que cero.");
+        }
+    }
+
+    /**
+     * Valida el nombre del supermercado.
+     *
+     * @param supermercado Nombre del supermercado a validar.
+     * @throws IllegalArgumentException Si el supermercado es nulo o vacío.
+     */
+    public static void validarSupermercado(String supermercado) {
+        if (supermercado == null || supermercado.isBlank()) {
+            throw new IllegalArgumentException("El nombre del supermercado no puede ser vacío o nulo.");
+        }
+    }
+}
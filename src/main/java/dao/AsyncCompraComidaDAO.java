@@ -0,0 +1,180 @@
+package dao;
+
+import Util.EjecutorBD;
+import modelo.CompraComida;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Fachada asíncrona de {@link CompraComidaDAO}.
+ *
+ * <p>Cada método ejecuta la operación equivalente del DAO en el ejecutor acotado {@link EjecutorBD} y devuelve
+ * un `CompletableFuture`, de modo que el hilo que llama (por ejemplo, el hilo de JavaFX) no se bloquea y pueden
+ * solaparse operaciones independientes.</p>
+ *
+ * <p><strong>Gestión de Excepciones:</strong></p>
+ * <ul>
+ *     <li>Los errores de validación del DAO (`IllegalArgumentException`) completan el futuro de forma excepcional.</li>
+ *     <li>Si la cola del ejecutor está llena, el futuro termina con `RejectedExecutionException`.</li>
+ *     <li>Si se supera el tiempo máximo, el futuro termina con `TimeoutException` y la operación se cancela.</li>
+ *     <li>Cancelar el futuro retira la operación de la cola o interrumpe su hilo.</li>
+ * </ul>
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class AsyncCompraComidaDAO {
+
+    private final CompraComidaDAO dao;
+    private final Duration timeout;
+
+    /**
+     * Crea la fachada sobre el DAO de {@link DAOFactory}, con el tiempo máximo por defecto.
+     */
+    public AsyncCompraComidaDAO() {
+        this(DAOFactory.getCompraComidaDAO(), EjecutorBD.getTimeoutPorDefecto());
+    }
+
+    /**
+     * Crea la fachada sobre el DAO indicado.
+     *
+     * @param dao     DAO síncrono al que se delegan las operaciones.
+     * @param timeout Tiempo máximo de cada operación, contando la espera en cola.
+     * @throws IllegalArgumentException Si el DAO es nulo o el tiempo máximo no es positivo.
+     */
+    public AsyncCompraComidaDAO(CompraComidaDAO dao, Duration timeout) {
+        if (dao == null) {
+            throw new IllegalArgumentException("El DAO no puede ser nulo.");
+        }
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("El tiempo máximo debe ser positivo.");
+        }
+        this.dao = dao;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Devuelve una fachada sobre el mismo DAO con otro tiempo máximo por operación.
+     *
+     * @param timeout Nuevo tiempo máximo.
+     * @return Nueva fachada; esta no se modifica.
+     */
+    public AsyncCompraComidaDAO conTimeout(Duration timeout) {
+        return new AsyncCompraComidaDAO(dao, timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#agregarCompra(CompraComida)}.
+     */
+    public CompletableFuture<Boolean> agregarCompra(CompraComida compra) {
+        return EjecutorBD.ejecutar("agregarCompra CompraComida", () -> dao.agregarCompra(compra), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#obtenerPagina(Integer, int, FiltroCompras)}.
+     */
+    public CompletableFuture<Pagina<CompraComida>> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        return EjecutorBD.ejecutar("obtenerPagina CompraComida", () -> dao.obtenerPagina(despuesDeIdUnico, limite, filtros), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#obtenerFilas(FiltroCompras)}.
+     */
+    public CompletableFuture<List<FilaCompra>> obtenerFilas(FiltroCompras filtros) {
+        return EjecutorBD.ejecutar("obtenerFilas CompraComida", () -> dao.obtenerFilas(filtros), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#obtenerPaginaFilas(Integer, int, FiltroCompras)}.
+     */
+    public CompletableFuture<Pagina<FilaCompra>> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        return EjecutorBD.ejecutar("obtenerPaginaFilas CompraComida", () -> dao.obtenerPaginaFilas(despuesDeIdUnico, limite, filtros), timeout);
+    }
+
+    /**
+     * Recorre las compras con {@link CompraComidaDAO#streamCompras(FiltroCompras)} en el hilo del ejecutor.
+     *
+     * <p>El flujo se abre, se pasa a la operación y se cierra dentro de la misma tarea, por lo que la operación
+     * debe consumirlo por completo y devolver un resultado que no dependa del flujo (una suma, un recuento, etc.).</p>
+     *
+     * @param filtro    Criterios de filtrado, o `null` para recorrer toda la tabla.
+     * @param operacion Función que consume el flujo y calcula el resultado.
+     * @return Futuro con el resultado de la operación.
+     */
+    public <R> CompletableFuture<R> recorrerCompras(FiltroCompras filtro, Function<Stream<CompraComida>, R> operacion) {
+        return EjecutorBD.ejecutar("recorrerCompras CompraComida", () -> {
+            try (Stream<CompraComida> compras = dao.streamCompras(filtro)) {
+                return operacion.apply(compras);
+            }
+        }, timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#actualizarCompra(CompraComida)}.
+     */
+    public CompletableFuture<Boolean> actualizarCompra(CompraComida compra) {
+        return EjecutorBD.ejecutar("actualizarCompra CompraComida", () -> dao.actualizarCompra(compra), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#actualizarCompraConVersion(CompraComida)}.
+     */
+    public CompletableFuture<ResultadoActualizacion> actualizarCompraConVersion(CompraComida compra) {
+        return EjecutorBD.ejecutar("actualizarCompraConVersion CompraComida", () -> dao.actualizarCompraConVersion(compra), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#eliminarCompra(int)}.
+     */
+    public CompletableFuture<Boolean> eliminarCompra(int idUnico) {
+        return EjecutorBD.ejecutar("eliminarCompra CompraComida", () -> dao.eliminarCompra(idUnico), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#eliminarCompras(Collection)}.
+     */
+    public CompletableFuture<Integer> eliminarCompras(Collection<Integer> idsUnicos) {
+        return EjecutorBD.ejecutar("eliminarCompras CompraComida", () -> dao.eliminarCompras(idsUnicos), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#eliminarCompras(FiltroCompras)}.
+     */
+    public CompletableFuture<Integer> eliminarCompras(FiltroCompras filtro) {
+        return EjecutorBD.ejecutar("eliminarCompras CompraComida", () -> dao.eliminarCompras(filtro), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#marcarRealizadas(Collection, boolean)}.
+     */
+    public CompletableFuture<Integer> marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        return EjecutorBD.ejecutar("marcarRealizadas CompraComida", () -> dao.marcarRealizadas(idsUnicos, realizado), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#marcarRealizadas(FiltroCompras, boolean)}.
+     */
+    public CompletableFuture<Integer> marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        return EjecutorBD.ejecutar("marcarRealizadas CompraComida", () -> dao.marcarRealizadas(filtro, realizado), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#agregarComprasEnLote(List)}.
+     */
+    public CompletableFuture<ResultadoLote> agregarComprasEnLote(List<CompraComida> compras) {
+        return EjecutorBD.ejecutar("agregarComprasEnLote CompraComida", () -> dao.agregarComprasEnLote(compras), timeout);
+    }
+
+    /**
+     * Versión asíncrona de {@link CompraComidaDAO#actualizarComprasEnLote(List)}.
+     */
+    public CompletableFuture<ResultadoLote> actualizarComprasEnLote(List<CompraComida> compras) {
+        return EjecutorBD.ejecutar("actualizarComprasEnLote CompraComida", () -> dao.actualizarComprasEnLote(compras), timeout);
+    }
+}
@@ -0,0 +1,171 @@
+package dao;
+
+import Util.HibernateUtil;
+import Util.TrieNombres;
+import modelo.CategoriaCompra;
+import modelo.Compra;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Autocompletado de `NombreProducto` a partir de los nombres ya usados en las compras de todas las categorías.
+ *
+ * <p>Mantiene en memoria un {@link TrieNombres} con cada nombre distinto y el número de compras que lo usan, que se
+ * construye una vez al arrancar con una consulta agrupada por nombre. A partir de ahí, las altas de compras
+ * (individuales, en lote y las del aplicador de {@link DiarioEscrituras}) lo actualizan al confirmarse, y las
+ * sugerencias se responden sin consultar la base de datos. Mientras se construye, las sugerencias salen vacías.</p>
+ *
+ * <p>Los nombres que difieren solo en mayúsculas, tildes o espacios cuentan como uno, y se sugiere su forma más
+ * usada al arrancar, para que el usuario reutilice el nombre existente en vez de crear uno casi igual.</p>
+ */
+public final class AutocompletadoProductos {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompletadoProductos.class);
+
+    private static final AutocompletadoProductos instancia = new AutocompletadoProductos();
+
+    // Protegidos por el monitor de la instancia
+    private TrieNombres trie;
+    private boolean iniciado;
+    private List<String> durante;
+
+    private AutocompletadoProductos() {
+    }
+
+    /**
+     * Devuelve el servicio de autocompletado del proceso.
+     *
+     * @return La instancia única.
+     */
+    public static AutocompletadoProductos getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Lanza en segundo plano la carga de los nombres, si no se ha lanzado ya.
+     */
+    public void iniciar() {
+        synchronized (this) {
+            if (iniciado) {
+                return;
+            }
+            iniciado = true;
+            durante = new ArrayList<>();
+        }
+        Thread hilo = new Thread(this::construir, "autocompletado-productos");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Devuelve los nombres de producto más usados que empiezan por el prefijo.
+     *
+     * @param prefijo Comienzo del nombre; no cuentan las mayúsculas, las tildes ni los espacios repetidos.
+     * @param limite  Número máximo de sugerencias (entre 1 y 1000).
+     * @return Nombres de más a menos usado; vacío si ninguno empieza por el prefijo o aún no se han cargado.
+     * @throws IllegalArgumentException Si el prefijo es nulo o el límite no es válido.
+     */
+    public List<String> sugerir(String prefijo, int limite) {
+        if (prefijo == null) {
+            throw new IllegalArgumentException("El prefijo no puede ser nulo.");
+        }
+        ConsultasCompra.validarLimite(limite);
+        TrieNombres actual;
+        synchronized (this) {
+            actual = trie;
+        }
+        if (actual == null) {
+            iniciar();
+            return List.of();
+        }
+        List<TrieNombres.Sugerencia> sugerencias = actual.sugerir(prefijo, limite);
+        List<String> nombres = new ArrayList<>(sugerencias.size());
+        for (TrieNombres.Sugerencia sugerencia : sugerencias) {
+            nombres.add(sugerencia.nombre());
+        }
+        return nombres;
+    }
+
+    /**
+     * Cuenta una compra nueva, ya confirmada en la base de datos, con el nombre indicado.
+     */
+    void registrar(String nombreProducto) {
+        TrieNombres actual;
+        synchronized (this) {
+            if (durante != null) {
+                durante.add(nombreProducto);
+                return;
+            }
+            actual = trie;
+        }
+        if (actual != null) {
+            actual.agregar(nombreProducto, 1);
+        }
+    }
+
+    /**
+     * Cuenta las compras de un lote que se guardaron correctamente.
+     */
+    void registrar(List<? extends Compra> compras, ResultadoLote resultado) {
+        for (int i = 0; i < compras.size(); i++) {
+            if (!resultado.getErrores().containsKey(i)) {
+                registrar(compras.get(i).getNombreProducto());
+            }
+        }
+    }
+
+    private void construir() {
+        long inicio = System.nanoTime();
+        try {
+            TrieNombres nuevo = new TrieNombres();
+            for (Map.Entry<String, Integer> nombre : leerNombres()) {
+                nuevo.agregar(nombre.getKey(), nombre.getValue());
+            }
+            synchronized (this) {
+                // Un alta confirmada mientras se leía puede contarse dos veces; para ordenar sugerencias no importa
+                durante.forEach(nombre -> nuevo.agregar(nombre, 1));
+                durante = null;
+                trie = nuevo;
+            }
+            logger.info("Autocompletado de productos cargado: {} nombres en {} ms.", nuevo.getNombres(),
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (Exception e) {
+            synchronized (this) {
+                durante = null;
+                iniciado = false;  // La siguiente sugerencia lo vuelve a intentar
+            }
+            logger.error("Error al cargar el autocompletado de productos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lee cada nombre distinto con su número de compras, de más a menos usado para que la forma más habitual de
+     * cada nombre sea la que se sugiera.
+     */
+    private List<Map.Entry<String, Integer>> leerNombres() {
+        List<Map.Entry<String, Integer>> nombres = new ArrayList<>();
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.doWork(conexion -> {
+                for (CategoriaCompra categoria : CategoriaCompra.values()) {
+                    try (Statement st = conexion.createStatement();
+                         ResultSet rs = st.executeQuery("SELECT NombreProducto, COUNT(*) FROM " + categoria.getTabla()
+                                 + " WHERE NombreProducto IS NOT NULL GROUP BY NombreProducto")) {
+                        while (rs.next()) {
+                            nombres.add(Map.entry(rs.getString(1), rs.getInt(2)));
+                        }
+                    }
+                }
+            });
+        }
+        nombres.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()));
+        return nombres;
+    }
+}
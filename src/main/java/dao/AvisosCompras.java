@@ -0,0 +1,104 @@
+package dao;
+
+import modelo.CategoriaCompra;
+import modelo.Compra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Avisos que los DAO de compras dan después de confirmar una escritura: al índice de {@link BusquedaCompras}, a
+ * {@link EventosCompras} y a {@link AutocompletadoProductos}.
+ *
+ * <p>Se llaman fuera del bloque de la transacción. Un aviso que falla se registra y no impide los demás ni cambia
+ * el resultado de la escritura, que ya está confirmada; en ese caso se invalida el índice de búsqueda para que se
+ * reconstruya desde la base de datos.</p>
+ */
+final class AvisosCompras {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvisosCompras.class);
+
+    private AvisosCompras() {
+    }
+
+    /**
+     * Alta de una compra.
+     */
+    static void creada(CategoriaCompra categoria, Compra compra) {
+        avisar(() -> BusquedaCompras.getInstancia().registrar(categoria, compra));
+        avisar(() -> EventosCompras.getInstancia().creada(categoria, compra));
+        avisar(() -> AutocompletadoProductos.getInstancia().registrar(compra.getNombreProducto()));
+    }
+
+    /**
+     * Modificación de una compra.
+     */
+    static void actualizada(CategoriaCompra categoria, Compra compra) {
+        avisar(() -> BusquedaCompras.getInstancia().registrar(categoria, compra));
+        avisar(() -> EventosCompras.getInstancia().actualizada(categoria, compra));
+    }
+
+    /**
+     * Borrado de una compra.
+     */
+    static void eliminada(CategoriaCompra categoria, int idUnico) {
+        avisar(() -> BusquedaCompras.getInstancia().eliminar(categoria, idUnico));
+        avisar(() -> EventosCompras.getInstancia().eliminada(categoria, idUnico));
+    }
+
+    /**
+     * Borrado de varias compras conocidas.
+     */
+    static void eliminadas(CategoriaCompra categoria, Collection<Integer> idsUnicos) {
+        avisar(() -> BusquedaCompras.getInstancia().eliminar(categoria, idsUnicos));
+        avisar(() -> EventosCompras.getInstancia().eliminadas(categoria, idsUnicos));
+    }
+
+    /**
+     * Borrado por filtro, sin saber qué compras se borraron.
+     */
+    static void eliminadasPorFiltro(CategoriaCompra categoria) {
+        avisar(() -> BusquedaCompras.getInstancia().invalidar());
+        avisar(() -> EventosCompras.getInstancia().recargar(categoria));
+    }
+
+    /**
+     * Cambio de estado de varias compras conocidas.
+     */
+    static void marcadas(CategoriaCompra categoria, Collection<Integer> idsUnicos, boolean realizado) {
+        avisar(() -> EventosCompras.getInstancia().marcadas(categoria, idsUnicos, realizado));
+    }
+
+    /**
+     * Cambio de estado por filtro, sin saber qué compras cambiaron.
+     */
+    static void marcadasPorFiltro(CategoriaCompra categoria) {
+        avisar(() -> EventosCompras.getInstancia().recargar(categoria));
+    }
+
+    /**
+     * Alta o modificación de las compras de un lote que se guardaron correctamente.
+     */
+    static void guardadas(CategoriaCompra categoria, List<? extends Compra> compras, ResultadoLote resultado,
+                          boolean alta) {
+        avisar(() -> BusquedaCompras.getInstancia().registrar(categoria, compras, resultado));
+        avisar(() -> EventosCompras.getInstancia().guardadas(categoria, compras, resultado, alta));
+        if (alta) {
+            avisar(() -> AutocompletadoProductos.getInstancia().registrar(compras, resultado));
+        }
+    }
+
+    /**
+     * Ejecuta un aviso; si falla, lo registra e invalida el índice de búsqueda, que puede haber quedado desfasado.
+     */
+    static void avisar(Runnable aviso) {
+        try {
+            aviso.run();
+        } catch (RuntimeException e) {
+            logger.error("Error al avisar de un cambio ya confirmado en las compras.", e);
+            BusquedaCompras.getInstancia().invalidar();
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package dao;
+
+import Util.Configuracion;
+import Util.HibernateUtil;
+import Util.IndiceInvertido;
+import modelo.CategoriaCompra;
+import modelo.Compra;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Búsqueda de texto sobre `NombreProducto` y `Descripcion` de las compras de todas las categorías.
+ *
+ * <p>Mantiene en memoria un {@link IndiceInvertido} con las tres tablas. La primera búsqueda lo construye
+ * leyendo las tablas; a partir de ahí, los DAO de compras (incluidos los lotes JDBC y el aplicador de
+ * {@link DiarioEscrituras}) lo actualizan al confirmar cada escritura, sin volver a leer la base de datos.
+ * Mientras no se ha buscado nada, las escrituras no hacen ningún trabajo adicional.</p>
+ *
+ * <p>Los cambios que no se pueden trasladar fila a fila (borrados por filtro, sincronización del modo sin
+ * conexión) y los de otros clientes, pasado `todolist.busqueda.antiguedad_maxima_s`, dejan el índice obsoleto.
+ * Entonces se reconstruye en segundo plano mientras las búsquedas siguen usando el anterior, y las escrituras que
+ * llegan durante la reconstrucción se aplican también al nuevo.</p>
+ *
+ * <p><strong>Propiedades admitidas:</strong></p>
+ * <ul>
+ *     <li>`todolist.busqueda.antiguedad_maxima_s`: segundos tras los que se reconstruye el índice para recoger
+ *     los cambios de otros clientes (0 para no reconstruirlo nunca por antigüedad).</li>
+ * </ul>
+ */
+public final class BusquedaCompras {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaCompras.class);
+
+    private static final BusquedaCompras instancia = new BusquedaCompras();
+
+    private static final CategoriaCompra[] CATEGORIAS = CategoriaCompra.values();
+
+    /**
+     * Serializa las construcciones del índice.
+     */
+    private final Object construccion = new Object();
+
+    // Protegidos por el monitor de la instancia
+    private IndiceInvertido indice;
+    private long construidoEn;
+    private boolean obsoleto;
+    private List<Cambio> durante;
+
+    private BusquedaCompras() {
+    }
+
+    /**
+     * Devuelve el servicio de búsqueda del proceso.
+     *
+     * @return La instancia única.
+     */
+    public static BusquedaCompras getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Busca las compras cuyo nombre o descripción contienen los términos del texto, de más a menos relevantes.
+     *
+     * <p>La primera llamada espera a que se construya el índice; las siguientes solo consultan la memoria.</p>
+     *
+     * @param texto      Texto a buscar; las mayúsculas, las tildes y las palabras vacías no cuentan.
+     * @param categorias Categorías a incluir, o `null` para incluir todas.
+     * @param limite     Número máximo de resultados (entre 1 y 1000).
+     * @return Resultados ordenados por relevancia (vacío si ningún término aparece), o `null` si no se pudo
+     * construir el índice.
+     * @throws IllegalArgumentException Si el texto es nulo, el límite no es válido o no se indica ninguna categoría.
+     */
+    public List<ResultadoBusqueda> buscar(String texto, Set<CategoriaCompra> categorias, int limite) {
+        if (texto == null) {
+            throw new IllegalArgumentException("El texto de búsqueda no puede ser nulo.");
+        }
+        ConsultasCompra.validarLimite(limite);
+        if (categorias != null && categorias.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicarse al menos una categoría.");
+        }
+        IndiceInvertido actual = indiceVigente();
+        if (actual == null) {
+            return null;
+        }
+        LongPredicate filtro = null;
+        if (categorias != null && categorias.size() < CATEGORIAS.length) {
+            Set<CategoriaCompra> incluidas = EnumSet.copyOf(categorias);
+            filtro = clave -> incluidas.contains(categoria(clave));
+        }
+        List<IndiceInvertido.Coincidencia> coincidencias = actual.buscar(texto, limite, filtro);
+        List<ResultadoBusqueda> resultados = new ArrayList<>(coincidencias.size());
+        for (IndiceInvertido.Coincidencia coincidencia : coincidencias) {
+            resultados.add(new ResultadoBusqueda(categoria(coincidencia.clave()), (int) coincidencia.clave(),
+                    coincidencia.puntuacion()));
+        }
+        return resultados;
+    }
+
+    /**
+     * Marca el índice como obsoleto para que se reconstruya en la siguiente búsqueda, por ejemplo tras modificar
+     * compras sin saber cuáles.
+     */
+    public synchronized void invalidar() {
+        if (indice != null || durante != null) {
+            obsoleto = true;
+        }
+    }
+
+    /**
+     * Añade o sustituye en el índice una compra ya confirmada en la base de datos.
+     */
+    void registrar(CategoriaCompra categoria, Compra compra) {
+        registrar(categoria, compra.getIdUnico(), compra.getNombreProducto(), compra.getDescripcion());
+    }
+
+    /**
+     * Añade o sustituye en el índice una compra ya confirmada en la base de datos.
+     */
+    void registrar(CategoriaCompra categoria, int idUnico, String nombreProducto, String descripcion) {
+        aplicar(new Cambio(clave(categoria, idUnico), nombreProducto, descripcion));
+    }
+
+    /**
+     * Añade o sustituye en el índice las compras de un lote que se guardaron correctamente. Si alguna alta
+     * confirmada no tiene identificador (no se pudieron leer las claves generadas), el índice se reconstruye.
+     */
+    void registrar(CategoriaCompra categoria, List<? extends Compra> compras, ResultadoLote resultado) {
+        boolean sinIdentificador = false;
+        for (int i = 0; i < compras.size(); i++) {
+            if (resultado.getErrores().containsKey(i)) {
+                continue;
+            }
+            if (compras.get(i).getIdUnico() <= 0) {
+                sinIdentificador = true;
+            } else {
+                registrar(categoria, compras.get(i));
+            }
+        }
+        if (sinIdentificador) {
+            invalidar();
+        }
+    }
+
+    /**
+     * Quita del índice una compra borrada de la base de datos.
+     */
+    void eliminar(CategoriaCompra categoria, int idUnico) {
+        aplicar(new Cambio(clave(categoria, idUnico), null, null));
+    }
+
+    /**
+     * Quita del índice varias compras borradas de la base de datos.
+     */
+    void eliminar(CategoriaCompra categoria, Collection<Integer> idsUnicos) {
+        for (Integer idUnico : idsUnicos) {
+            eliminar(categoria, idUnico);
+        }
+    }
+
+    private synchronized void aplicar(Cambio cambio) {
+        if (durante != null) {
+            durante.add(cambio);
+        }
+        if (indice != null) {
+            cambio.aplicar(indice);
+        }
+    }
+
+    /**
+     * Devuelve el índice con el que buscar: lo construye si aún no existe y, si está obsoleto, lanza su
+     * reconstrucción en segundo plano y devuelve el actual.
+     */
+    private IndiceInvertido indiceVigente() {
+        IndiceInvertido actual;
+        boolean reconstruir;
+        synchronized (this) {
+            actual = indice;
+            reconstruir = actual != null && durante == null && (obsoleto || caducado());
+        }
+        if (actual == null) {
+            return construir();
+        }
+        if (reconstruir) {
+            Thread hilo = new Thread(this::construir, "busqueda-indice");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+        return actual;
+    }
+
+    /**
+     * Lee las tres tablas en un índice nuevo y lo pone en uso.
+     *
+     * @return El índice vigente, o `null` si no se pudo construir.
+     */
+    private IndiceInvertido construir() {
+        synchronized (construccion) {
+            synchronized (this) {
+                if (indice != null && !obsoleto && !caducado()) {
+                    return indice;  // Lo acaba de construir otro hilo
+                }
+                durante = new ArrayList<>();
+                obsoleto = false;
+            }
+            long inicio = System.nanoTime();
+            try {
+                IndiceInvertido nuevo = leerTablas();
+                synchronized (this) {
+                    durante.forEach(cambio -> cambio.aplicar(nuevo));
+                    durante = null;
+                    indice = nuevo;
+                    construidoEn = System.nanoTime();
+                }
+                logger.info("Índice de búsqueda construido: {} compras y {} términos en {} ms.", nuevo.getDocumentos(),
+                        nuevo.getTerminos(), (System.nanoTime() - inicio) / 1_000_000);
+                return nuevo;
+            } catch (Exception e) {
+                synchronized (this) {
+                    durante = null;
+                    obsoleto = true;
+                }
+                logger.error("Error al construir el índice de búsqueda: {}", e.getMessage());
+                synchronized (this) {
+                    return indice;
+                }
+            }
+        }
+    }
+
+    private IndiceInvertido leerTablas() {
+        IndiceInvertido nuevo = new IndiceInvertido();
+        // Siempre del servidor principal: una réplica retrasada perdería escrituras ya aplicadas al índice anterior
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.doWork(conexion -> {
+                for (CategoriaCompra categoria : CATEGORIAS) {
+                    try (Statement st = conexion.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                        st.setFetchSize(Configuracion.getEntero("todolist.flujo.tamano_bloque", 500));
+                        try (ResultSet rs = st.executeQuery("SELECT IdUnico, NombreProducto, Descripcion FROM "
+                                + categoria.getTabla())) {
+                            while (rs.next()) {
+                                nuevo.agregar(clave(categoria, rs.getInt(1)), rs.getString(2), rs.getString(3));
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        return nuevo;
+    }
+
+    private boolean caducado() {
+        long maximo = Configuracion.getLargo("todolist.busqueda.antiguedad_maxima_s", 300);
+        return maximo > 0 && System.nanoTime() - construidoEn > maximo * 1_000_000_000L;
+    }
+
+    private static long clave(CategoriaCompra categoria, int idUnico) {
+        return ((long) categoria.ordinal() << 32) | (idUnico & 0xFFFFFFFFL);
+    }
+
+    private static CategoriaCompra categoria(long clave) {
+        return CATEGORIAS[(int) (clave >>> 32)];
+    }
+
+    /**
+     * Alta, modificación (con nombre) o baja (sin nombre) de una compra en el índice.
+     */
+    private record Cambio(long clave, String nombreProducto, String descripcion) {
+
+        void aplicar(IndiceInvertido indice) {
+            if (nombreProducto == null) {
+                indice.borrar(clave);
+            } else {
+                indice.agregar(clave, nombreProducto, descripcion);
+            }
+        }
+    }
+}
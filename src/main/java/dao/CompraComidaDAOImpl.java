@@ -8,8 +8,13 @@ import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.StaleStateException;
+import jakarta.persistence.OptimisticLockException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Implementación de la interfaz CompraComidaDAO utilizando Hibernate.
@@ -88,31 +93,40 @@ public class CompraComidaDAOImpl implements CompraComidaDAO {
             session.save(compraComida);
             transaction.commit();
             logger.info("CompraComida agregada exitosamente: {}", compraComida);
-            return true;
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Error al agregar CompraComida: {}", e.getMessage());
             return false;
         }
+        AvisosCompras.creada(CategoriaCompra.COMIDA, compraComida);
+        return true;
     }
 
     /**
      * Obtiene todos los registros de CompraComida desde la base de datos.
      *
+     * <p>Con la caché habilitada, el resultado se guarda en la caché de consultas y las entidades en la
+     * caché de segundo nivel, por lo que las lecturas repetidas no llegan a la base de datos.</p>
+     *
      * <p><strong>Gestión de Excepciones:</strong></p>
      * <ul>
      *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
      * </ul>
      *
      * @return Lista de objetos `CompraComida`, o `null` si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
      */
     @Override
+    @Deprecated
     @SuppressWarnings("unchecked")
     public List<CompraComida> obtenerTodasLasCompras() {
-        try (Session session = sessionFactory.openSession()) {
-            List<CompraComida> compras = session.createQuery("from CompraComida", CompraComida.class).list();
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            List<CompraComida> compras = session.createQuery("from CompraComida", CompraComida.class)
+                    .setCacheable(true)
+                    .setCacheRegion(ConsultasCompra.REGION_CONSULTAS)
+                    .list();
             logger.info("Se recuperaron {} compras de CompraComida.", compras.size());
             return compras;
         } catch (Exception e) {
@@ -121,6 +135,110 @@ public class CompraComidaDAOImpl implements CompraComidaDAO {
         }
     }
 
+    /**
+     * Obtiene una página de registros de CompraComida ordenados por `IdUnico`.
+     *
+     * <p>La consulta usa paginación por clave (`IdUnico > cursor`), por lo que cada llamada lee como máximo
+     * `limite` filas del índice primario con independencia del tamaño de la tabla.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos `CompraComida`, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<CompraComida> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Pagina<CompraComida> pagina = ConsultasCompra.paginar(session, "from CompraComida c", CompraComida.class, CompraComida::getIdUnico,
+                    despuesDeIdUnico, limite, filtros);
+            logger.info("Página de CompraComida obtenida: {}", pagina);
+            return pagina;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de CompraComida: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las filas de listado de CompraComida (sin descripción ni entidades gestionadas).
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas ordenadas por `IdUnico`, o `null` si ocurre un error.
+     */
+    @Override
+    public List<FilaCompra> obtenerFilas(FiltroCompras filtros) {
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            List<FilaCompra> filas = ConsultasCompra.listarFilas(session, "CompraComida", filtros);
+            logger.info("Se recuperaron {} filas de CompraComida.", filas.size());
+            return filas;
+        } catch (Exception e) {
+            logger.error("Error al obtener las filas de CompraComida: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de filas de listado de CompraComida ordenadas por `IdUnico`.
+     *
+     * <p>Igual que {@link #obtenerPagina(Integer, int, FiltroCompras)}, pero proyectando solo las columnas de
+     * {@link FilaCompra}.</p>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Pagina<FilaCompra> pagina = ConsultasCompra.paginar(session, ConsultasCompra.seleccionFilas("CompraComida"), FilaCompra.class,
+                    FilaCompra::idUnico, despuesDeIdUnico, limite, filtros);
+            logger.info("Página de filas de CompraComida obtenida: {}", pagina);
+            return pagina;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de filas de CompraComida: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Recorre los registros de CompraComida ordenados por `IdUnico` sin cargarlos todos en memoria.
+     *
+     * <p>Usa una `StatelessSession` con un cursor de solo avance: las filas llegan en bloques de tamaño fijo
+     * y no se guardan en ningún contexto de persistencia. Al cerrar el flujo se cierran el cursor y la sesión.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si no se puede abrir el cursor, se registra el error y se lanza una `IllegalStateException`.</li>
+     * </ul>
+     *
+     * @param filtro Criterios de filtrado, o `null` para recorrer toda la tabla.
+     * @return Flujo de objetos `CompraComida` que debe cerrarse tras su uso.
+     */
+    @Override
+    public Stream<CompraComida> streamCompras(FiltroCompras filtro) {
+        try {
+            return ConsultasCompra.abrirFlujo(sessionFactory, "from CompraComida c", CompraComida.class, filtro);
+        } catch (Exception e) {
+            logger.error("Error al abrir el flujo de CompraComida: {}", e.getMessage());
+            throw new IllegalStateException("Error al abrir el flujo de CompraComida", e);
+        }
+    }
+
     /**
      * Actualiza un registro existente de CompraComida en la base de datos.
      *
@@ -139,21 +257,63 @@ public class CompraComidaDAOImpl implements CompraComidaDAO {
      */
     @Override
     public boolean actualizarCompra(CompraComida compraComida) {
-        validarCompraComida(compraComida);  // Validación previa
+        return actualizarCompraConVersion(compraComida) == ResultadoActualizacion.ACTUALIZADA;
+    }
+
+    /**
+     * Actualiza un registro existente de CompraComida comprobando que nadie lo haya modificado desde que se leyó.
+     *
+     * <p>La versión de `compra` debe ser la que se leyó de la base de datos. El UPDATE solo incluye las columnas
+     * que han cambiado e incrementa la versión; si termina bien, `compra` recibe la nueva versión.</p>
+     *
+     * @param compra Objeto CompraComida con los datos actualizados y la versión leída.
+     * @return `ACTUALIZADA` si se guardaron los cambios, `CONFLICTO` si otro usuario modificó el registro antes,
+     * `NO_ENCONTRADA` si ya no existe, o `ERROR` si falló la operación.
+     * @throws IllegalArgumentException Si la compra es nula o no tiene un identificador válido.
+     */
+    @Override
+    public ResultadoActualizacion actualizarCompraConVersion(CompraComida compra) {
+        validarCompraComida(compra);  // Validación previa
+        if (compra.getIdUnico() <= 0) {
+            throw new IllegalArgumentException("El identificador de CompraComida no es válido.");
+        }
         Transaction transaction = null;
         try (Session session = sessionFactory.openSession()) {
+            // Se compara con la fila de la base de datos, no con la copia de la caché de segundo nivel
+            session.setCacheMode(CacheMode.REFRESH);
             transaction = session.beginTransaction();
-            session.update(compraComida);
+            CompraComida actual = session.get(CompraComida.class, compra.getIdUnico());
+            if (actual == null) {
+                transaction.rollback();
+                logger.warn("No se encontró CompraComida con ID {} para actualizar.", compra.getIdUnico());
+                return ResultadoActualizacion.NO_ENCONTRADA;
+            }
+            if (actual.getVersion() != compra.getVersion()) {
+                transaction.rollback();
+                logger.warn("Conflicto al actualizar CompraComida con ID {}: versión {} leída, versión {} actual.",
+                        compra.getIdUnico(), compra.getVersion(), actual.getVersion());
+                return ResultadoActualizacion.CONFLICTO;
+            }
+            CompraComida gestionada = session.merge(compra);
             transaction.commit();
-            logger.info("CompraComida actualizada exitosamente: {}", compraComida);
-            return true;
+            compra.setVersion(gestionada.getVersion());
+            logger.info("CompraComida actualizada exitosamente: {}", compra);
+        } catch (OptimisticLockException | StaleStateException e) {
+            // Otro usuario actualizó el registro entre la lectura y el UPDATE
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.warn("Conflicto al actualizar CompraComida con ID {}: {}", compra.getIdUnico(), e.getMessage());
+            return ResultadoActualizacion.CONFLICTO;
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Error al actualizar CompraComida: {}", e.getMessage());
-            return false;
+            return ResultadoActualizacion.ERROR;
         }
+        AvisosCompras.actualizada(CategoriaCompra.COMIDA, compra);
+        return ResultadoActualizacion.ACTUALIZADA;
     }
 
     /**
@@ -188,17 +348,136 @@ public class CompraComidaDAOImpl implements CompraComidaDAO {
             session.delete(compra);
             transaction.commit();
             logger.info("CompraComida con IdUnico={} eliminada exitosamente.", idUnico);
-            return true;
         } catch (CompraComidaNotFoundException e) {
             logger.error("Error: {}", e.getMessage());
             return false;
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Error al eliminar CompraComida: {}", e.getMessage());
             return false;
         }
+        AvisosCompras.eliminada(CategoriaCompra.COMIDA, idUnico);
+        return true;
+    }
+
+    /**
+     * Elimina varios registros de CompraComida con una única sentencia `DELETE ... WHERE IdUnico IN (...)`.
+     *
+     * <p>A diferencia de {@link #eliminarCompra(int)}, no carga las entidades antes de borrarlas.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param idsUnicos Identificadores de los registros a eliminar.
+     * @return Número de registros eliminados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    @Override
+    public int eliminarCompras(Collection<Integer> idsUnicos) {
+        ConsultasCompra.validarIds(idsUnicos);
+        int filas;
+        try {
+            filas = ConsultasCompra.eliminarPorIds(sessionFactory, "CompraComida", idsUnicos);
+            logger.info("Eliminados {} registros de CompraComida.", filas);
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraComida: {}", e.getMessage());
+            return -1;
+        }
+        AvisosCompras.eliminadas(CategoriaCompra.COMIDA, idsUnicos);
+        return filas;
+    }
+
+    /**
+     * Elimina con una única sentencia `DELETE` los registros de CompraComida que cumplen el filtro.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param filtro Criterios de los registros a eliminar; debe indicar al menos uno.
+     * @return Número de registros eliminados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo o está vacío.
+     */
+    @Override
+    public int eliminarCompras(FiltroCompras filtro) {
+        ConsultasCompra.validarFiltro(filtro, true);
+        int filas;
+        try {
+            filas = ConsultasCompra.eliminarPorFiltro(sessionFactory, "CompraComida", filtro);
+            logger.info("Eliminados {} registros de CompraComida con el filtro {}.", filas, filtro);
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraComida: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.eliminadasPorFiltro(CategoriaCompra.COMIDA);  // No se sabe qué compras se borraron
+        }
+        return filas;
+    }
+
+    /**
+     * Cambia el estado `realizado` de varios registros de CompraComida con una única sentencia `UPDATE`.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param idsUnicos Identificadores de los registros a modificar.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    @Override
+    public int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        ConsultasCompra.validarIds(idsUnicos);
+        int filas;
+        try {
+            filas = ConsultasCompra.marcarPorIds(sessionFactory, "CompraComida", idsUnicos, realizado);
+            logger.info("Marcados {} registros de CompraComida con realizado={}.", filas, realizado);
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraComida: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.marcadas(CategoriaCompra.COMIDA, idsUnicos, realizado);
+        }
+        return filas;
+    }
+
+    /**
+     * Cambia con una única sentencia `UPDATE` el estado `realizado` de los registros de CompraComida que cumplen el filtro.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param filtro    Criterios de los registros a modificar; un filtro vacío afecta a toda la tabla.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo.
+     */
+    @Override
+    public int marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        ConsultasCompra.validarFiltro(filtro, false);
+        int filas;
+        try {
+            filas = ConsultasCompra.marcarPorFiltro(sessionFactory, "CompraComida", filtro, realizado);
+            logger.info("Marcados {} registros de CompraComida con realizado={} y el filtro {}.", filas, realizado, filtro);
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraComida: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.marcadasPorFiltro(CategoriaCompra.COMIDA);  // No se sabe qué compras cambiaron
+        }
+        return filas;
     }
 
     /**
@@ -214,7 +493,7 @@ public class CompraComidaDAOImpl implements CompraComidaDAO {
     @Override
     public int obtenerUltimoNumeroFoto() {
         int ultimoNumero = 0;
-        try (Session session = sessionFactory.openSession()) {
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
             Integer maxNumero = (Integer) session.createQuery("SELECT MAX(c.numeroUnicoFoto) FROM CompraComida c")
                     .uniqueResult();
             ultimoNumero = maxNumero != null ? maxNumero : 0;
@@ -225,6 +504,42 @@ public class CompraComidaDAOImpl implements CompraComidaDAO {
         return ultimoNumero;
     }
 
+    /**
+     * Inserta varios registros de CompraComida en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; las que no superan la
+     * validación o fallan en la base de datos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de objetos `CompraComida` a insertar.
+     * @return Resultado con el número de filas insertadas y los errores por fila.
+     */
+    @Override
+    public ResultadoLote agregarComprasEnLote(List<CompraComida> compras) {
+        ResultadoLote resultado = OperacionesLote.insertar(sessionFactory, "CompraComida", compras);
+        HibernateUtil.invalidarCache(CompraComida.class);  // Los lotes JDBC no pasan por la caché de Hibernate
+        AvisosCompras.guardadas(CategoriaCompra.COMIDA, compras, resultado, true);
+        logger.info("Lote de CompraComida insertado: {}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Actualiza varios registros de CompraComida en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; los registros inexistentes
+     * o inválidos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de objetos `CompraComida` con los datos actualizados.
+     * @return Resultado con el número de filas actualizadas y los errores por fila.
+     */
+    @Override
+    public ResultadoLote actualizarComprasEnLote(List<CompraComida> compras) {
+        ResultadoLote resultado = OperacionesLote.actualizar(sessionFactory, "CompraComida", compras);
+        HibernateUtil.invalidarCache(CompraComida.class);  // Los lotes JDBC no pasan por la caché de Hibernate
+        AvisosCompras.guardadas(CategoriaCompra.COMIDA, compras, resultado, false);
+        logger.info("Lote de CompraComida actualizado: {}", resultado);
+        return resultado;
+    }
+
     /**
      * Cierra el `SessionFactory` para liberar recursos.
      *
@@ -0,0 +1,276 @@
+package dao;
+
+import Util.HibernateUtil;
+import modelo.CompraComida;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de {@link CompraComidaDAO} que hace las lecturas más frecuentes con JDBC directo.
+ *
+ * <p>`obtenerPagina`, `obtenerPaginaFilas`, `obtenerFilas`, `obtenerTodasLasCompras` y `obtenerUltimoNumeroFoto`
+ * ejecutan SQL fijo de {@link SentenciasCompra} y convierten cada fila a mano, sin sesión, sin contexto de
+ * persistencia y sin traducir HQL. Las conexiones se obtienen con {@link HibernateUtil#abrirConexionLectura()},
+ * así que usan la réplica o el almacén local igual que las sesiones de lectura, y la preparación de cada sentencia
+ * la reutiliza la caché de sentencias del driver.</p>
+ *
+ * <p>El resto de operaciones se delegan en el DAO con Hibernate, que mantiene la caché de segundo nivel, el índice
+ * de búsqueda y el autocompletado. Las lecturas de esta clase no pasan por la caché de segundo nivel: con la caché
+ * habilitada, el DAO con Hibernate puede ser más rápido en consultas repetidas (ver `Util.PruebaDAOJdbc`).</p>
+ *
+ * <p>Se selecciona con `todolist.dao.acceso=jdbc` (ver {@link DAOFactory}).</p>
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class CompraComidaDAOJdbc implements CompraComidaDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompraComidaDAOJdbc.class);
+
+    private static final SentenciasCompra sentencias = SentenciasCompra.de("CompraComida");
+
+    private final CompraComidaDAO dao;
+
+    /**
+     * Crea el DAO sobre el DAO con Hibernate indicado.
+     *
+     * @param dao DAO al que se delegan las escrituras y el resto de operaciones.
+     * @throws IllegalArgumentException Si el DAO es nulo.
+     */
+    public CompraComidaDAOJdbc(CompraComidaDAO dao) {
+        if (dao == null) {
+            throw new IllegalArgumentException("El DAO no puede ser nulo.");
+        }
+        this.dao = dao;
+    }
+
+    @Override
+    public boolean agregarCompra(CompraComida compraComida) {
+        return dao.agregarCompra(compraComida);
+    }
+
+    /**
+     * Obtiene una página de registros de CompraComida ordenados por `IdUnico`.
+     *
+     * <p>Se pide una fila más que el límite para saber si existe una página siguiente sin una consulta COUNT.</p>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite           Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros          Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos `CompraComida`, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<CompraComida> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Connection conexion = HibernateUtil.abrirConexionLectura();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.pagina(filtros))) {
+            SentenciasCompra.asignarPagina(ps, despuesDeIdUnico, filtros, limite);
+            List<CompraComida> compras = new ArrayList<>(limite + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    compras.add(leer(rs));
+                }
+            }
+            Pagina<CompraComida> pagina = cortar(compras, limite, CompraComida::getIdUnico);
+            logger.debug("Página de CompraComida obtenida con JDBC: {}", pagina);
+            return pagina;
+        } catch (SQLException e) {
+            logger.error("Error al obtener la página de CompraComida: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las filas de listado de CompraComida ordenadas por `IdUnico`.
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas, o `null` si ocurre un error.
+     */
+    @Override
+    public List<FilaCompra> obtenerFilas(FiltroCompras filtros) {
+        try (Connection conexion = HibernateUtil.abrirConexionLectura();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.filas(filtros))) {
+            SentenciasCompra.asignarFiltro(ps, 1, filtros);
+            List<FilaCompra> filas = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    filas.add(SentenciasCompra.leerFila(rs));
+                }
+            }
+            logger.debug("Se recuperaron {} filas de CompraComida con JDBC.", filas.size());
+            return filas;
+        } catch (SQLException e) {
+            logger.error("Error al obtener las filas de CompraComida: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de filas de listado de CompraComida ordenadas por `IdUnico`.
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite           Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros          Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Connection conexion = HibernateUtil.abrirConexionLectura();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.paginaFilas(filtros))) {
+            SentenciasCompra.asignarPagina(ps, despuesDeIdUnico, filtros, limite);
+            List<FilaCompra> filas = new ArrayList<>(limite + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    filas.add(SentenciasCompra.leerFila(rs));
+                }
+            }
+            Pagina<FilaCompra> pagina = cortar(filas, limite, FilaCompra::idUnico);
+            logger.debug("Página de filas de CompraComida obtenida con JDBC: {}", pagina);
+            return pagina;
+        } catch (SQLException e) {
+            logger.error("Error al obtener la página de filas de CompraComida: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Stream<CompraComida> streamCompras(FiltroCompras filtro) {
+        return dao.streamCompras(filtro);
+    }
+
+    /**
+     * Obtiene todos los registros de CompraComida ordenados por `IdUnico`.
+     *
+     * @return Lista de objetos `CompraComida`, o `null` si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
+     */
+    @Override
+    @Deprecated
+    public List<CompraComida> obtenerTodasLasCompras() {
+        try (Connection conexion = HibernateUtil.abrirConexionLectura();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.todas);
+             ResultSet rs = ps.executeQuery()) {
+            List<CompraComida> compras = new ArrayList<>();
+            while (rs.next()) {
+                compras.add(leer(rs));
+            }
+            logger.info("Se recuperaron {} compras de CompraComida.", compras.size());
+            return compras;
+        } catch (SQLException e) {
+            logger.error("Error al obtener todas las compras: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean actualizarCompra(CompraComida compraComida) {
+        return dao.actualizarCompra(compraComida);
+    }
+
+    @Override
+    public ResultadoActualizacion actualizarCompraConVersion(CompraComida compra) {
+        return dao.actualizarCompraConVersion(compra);
+    }
+
+    @Override
+    public boolean eliminarCompra(int idUnico) {
+        return dao.eliminarCompra(idUnico);
+    }
+
+    @Override
+    public int eliminarCompras(Collection<Integer> idsUnicos) {
+        return dao.eliminarCompras(idsUnicos);
+    }
+
+    @Override
+    public int eliminarCompras(FiltroCompras filtro) {
+        return dao.eliminarCompras(filtro);
+    }
+
+    @Override
+    public int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        return dao.marcarRealizadas(idsUnicos, realizado);
+    }
+
+    @Override
+    public int marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        return dao.marcarRealizadas(filtro, realizado);
+    }
+
+    /**
+     * Obtiene el último número único de foto registrado en CompraComida.
+     *
+     * @return El valor máximo de `NumeroUnicoFoto`, o `0` si no hay registros o si ocurre un error.
+     */
+    @Override
+    public int obtenerUltimoNumeroFoto() {
+        try (Connection conexion = HibernateUtil.abrirConexionLectura();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.ultimoNumeroFoto);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;  // getInt devuelve 0 para MAX de una tabla vacía
+        } catch (SQLException e) {
+            logger.error("Error al obtener el último número único de foto: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public ResultadoLote agregarComprasEnLote(List<CompraComida> compras) {
+        return dao.agregarComprasEnLote(compras);
+    }
+
+    @Override
+    public ResultadoLote actualizarComprasEnLote(List<CompraComida> compras) {
+        return dao.actualizarComprasEnLote(compras);
+    }
+
+    @Override
+    public void cerrar() {
+        dao.cerrar();
+    }
+
+    /**
+     * Convierte a página una lista leída con una fila de más: si la fila sobrante existe, se quita y el último
+     * elemento restante es el cursor de la página siguiente.
+     */
+    private static <T> Pagina<T> cortar(List<T> elementos, int limite, ToIntFunction<T> id) {
+        if (elementos.size() <= limite) {
+            return new Pagina<>(elementos, null);
+        }
+        elementos.remove(limite);
+        return new Pagina<>(elementos, id.applyAsInt(elementos.get(limite - 1)));
+    }
+
+    /**
+     * Lee las columnas {@link SentenciasCompra#COLUMNAS} de la fila actual. La foto se asigna antes que su número
+     * porque `setFoto(false)` borra el número.
+     */
+    private static CompraComida leer(ResultSet rs) throws SQLException {
+        CompraComida compra = new CompraComida();
+        compra.setIdUnico(rs.getInt(1));
+        compra.setNombreProducto(rs.getString(2));
+        compra.setDescripcion(rs.getString(3));
+        compra.setFoto(rs.getBoolean(4));
+        int numeroUnicoFoto = rs.getInt(5);
+        compra.setNumeroUnicoFoto(rs.wasNull() ? null : numeroUnicoFoto);
+        compra.setCantidad(rs.getInt(6));
+        compra.setRealizado(rs.getBoolean(7));
+        compra.setSupermercado(rs.getString(8));
+        compra.setVersion(rs.getInt(9));
+        return compra;
+    }
+}
@@ -2,7 +2,9 @@ package dao;
 
 import modelo.CompraLimpieza;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones CRUD para la entidad CompraLimpieza utilizando Hibernate.
@@ -26,11 +28,52 @@ public interface CompraLimpiezaDAO {
      */
     boolean agregarCompra(CompraLimpieza compra);
 
+    /**
+     * Obtiene una página de registros de CompraLimpieza ordenados por `IdUnico` (paginación por clave).
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos CompraLimpieza con el cursor de la página siguiente, o null si ocurre un error.
+     */
+    Pagina<CompraLimpieza> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros);
+
+    /**
+     * Obtiene las filas de listado de CompraLimpieza, con solo las columnas que muestran las vistas.
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas ordenadas por `IdUnico`, o null si ocurre un error.
+     */
+    List<FilaCompra> obtenerFilas(FiltroCompras filtros);
+
+    /**
+     * Obtiene una página de filas de listado de CompraLimpieza ordenadas por `IdUnico`.
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas con el cursor de la página siguiente, o null si ocurre un error.
+     */
+    Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros);
+
+    /**
+     * Recorre los registros de CompraLimpieza ordenados por `IdUnico` sin cargarlos todos en memoria.
+     *
+     * El flujo mantiene abierta una sesión y un cursor de base de datos, por lo que debe cerrarse tras su uso
+     * (por ejemplo, con try-with-resources).
+     *
+     * @param filtro Criterios de filtrado, o `null` para recorrer toda la tabla.
+     * @return Flujo de objetos CompraLimpieza.
+     */
+    Stream<CompraLimpieza> streamCompras(FiltroCompras filtro);
+
     /**
      * Obtiene todos los registros de CompraLimpieza desde la base de datos.
      *
      * @return Lista de objetos CompraLimpieza, o `null` si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
      */
+    @Deprecated
     List<CompraLimpieza> obtenerTodasLasCompras();
 
     /**
@@ -41,6 +84,14 @@ public interface CompraLimpiezaDAO {
      */
     boolean actualizarCompra(CompraLimpieza compra);
 
+    /**
+     * Actualiza un registro existente de CompraLimpieza solo si no ha cambiado desde que se leyó (bloqueo optimista).
+     *
+     * @param compra Objeto CompraLimpieza con los datos actualizados y la versión leída.
+     * @return Resultado de la actualización; `CONFLICTO` si otro usuario modificó el registro antes.
+     */
+    ResultadoActualizacion actualizarCompraConVersion(CompraLimpieza compra);
+
     /**
      * Elimina un registro de CompraLimpieza en la base de datos.
      *
@@ -49,13 +100,71 @@ public interface CompraLimpiezaDAO {
      */
     boolean eliminarCompra(int idUnico);
 
+    /**
+     * Elimina con una única sentencia las compras con los identificadores indicados.
+     *
+     * @param idsUnicos Identificadores de las compras a eliminar.
+     * @return Número de registros eliminados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    int eliminarCompras(Collection<Integer> idsUnicos);
+
+    /**
+     * Elimina con una única sentencia las compras que cumplen el filtro
+     * (por ejemplo, todas las realizadas de un supermercado).
+     *
+     * @param filtro Criterios de las compras a eliminar; debe indicar al menos uno.
+     * @return Número de registros eliminados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo o está vacío.
+     */
+    int eliminarCompras(FiltroCompras filtro);
+
+    /**
+     * Cambia con una única sentencia el estado `realizado` de las compras con los identificadores indicados.
+     *
+     * @param idsUnicos Identificadores de las compras a modificar.
+     * @param realizado Nuevo estado de las compras.
+     * @return Número de registros modificados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado);
+
+    /**
+     * Cambia con una única sentencia el estado `realizado` de las compras que cumplen el filtro.
+     *
+     * @param filtro    Criterios de las compras a modificar; un filtro vacío afecta a toda la tabla.
+     * @param realizado Nuevo estado de las compras.
+     * @return Número de registros modificados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo.
+     */
+    int marcarRealizadas(FiltroCompras filtro, boolean realizado);
+
     /**
      * Obtiene el último número único de foto registrado en la base de datos.
+     * No debe usarse para generar números nuevos: dos clientes obtendrían el mismo valor y no tiene en cuenta
+     * las otras tablas. Para eso está {@link SecuenciaFoto}.
      *
      * @return El último número único de foto, o `0` si no existen registros.
      */
     int obtenerUltimoNumeroFoto();
 
+    /**
+     * Inserta varios registros de CompraLimpieza en una única transacción usando lotes JDBC.
+     * A los registros insertados se les asigna el identificador generado.
+     *
+     * @param compras Lista de objetos CompraLimpieza a insertar.
+     * @return Resultado con el número de filas insertadas y los errores por fila.
+     */
+    ResultadoLote agregarComprasEnLote(List<CompraLimpieza> compras);
+
+    /**
+     * Actualiza varios registros de CompraLimpieza en una única transacción usando lotes JDBC.
+     *
+     * @param compras Lista de objetos CompraLimpieza con los datos actualizados.
+     * @return Resultado con el número de filas actualizadas y los errores por fila.
+     */
+    ResultadoLote actualizarComprasEnLote(List<CompraLimpieza> compras);
+
     /**
      * Cierra los recursos utilizados por el DAO para evitar fugas de memoria.
      */
@@ -0,0 +1,191 @@
+package dao;
+
+import modelo.CategoriaCompra;
+import modelo.CompraLimpieza;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Decorador de {@link CompraLimpiezaDAO} que difiere las escrituras individuales con {@link DiarioEscrituras}.
+ *
+ * <p>`agregarCompra`, `actualizarCompra`, `actualizarCompraConVersion` y `eliminarCompra` terminan en cuanto la
+ * escritura está guardada en el diario local; el diario la aplica después en la base de datos. Por eso:</p>
+ * <ul>
+ *     <li>La compra agregada no recibe su `idUnico` hasta que se aplica; se obtiene releyéndola.</li>
+ *     <li>La compra actualizada recibe la versión que tendrá al aplicarse. Si otro usuario la modificó antes, la
+ *     escritura se descarta al aplicarse y queda registrada en el log, en lugar de devolver `CONFLICTO`.</li>
+ * </ul>
+ *
+ * <p>Las lecturas y las operaciones masivas esperan antes a que se apliquen las escrituras diferidas pendientes
+ * (hasta `todolist.diferido.espera_maxima_ms`), de modo que ven las escrituras propias y respetan su orden.</p>
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class CompraLimpiezaDAODiferido implements CompraLimpiezaDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompraLimpiezaDAODiferido.class);
+
+    private final CompraLimpiezaDAO dao;
+    private final DiarioEscrituras diario;
+
+    /**
+     * Crea el decorador sobre el DAO indicado.
+     *
+     * @param dao    DAO al que se delegan las lecturas y las operaciones masivas.
+     * @param diario Diario en el que se anotan las escrituras individuales.
+     * @throws IllegalArgumentException Si el DAO o el diario son nulos.
+     */
+    public CompraLimpiezaDAODiferido(CompraLimpiezaDAO dao, DiarioEscrituras diario) {
+        if (dao == null || diario == null) {
+            throw new IllegalArgumentException("El DAO y el diario no pueden ser nulos.");
+        }
+        this.dao = dao;
+        this.diario = diario;
+    }
+
+    /**
+     * Anota el alta de la compra en el diario.
+     *
+     * @return `true` si la escritura quedó guardada en el diario, `false` si el diario está lleno o falló.
+     * @throws IllegalArgumentException Si la compra no es válida.
+     */
+    @Override
+    public boolean agregarCompra(CompraLimpieza compra) {
+        OperacionesLote.validar(compra, false);
+        try {
+            diario.registrarAlta(CategoriaCompra.LIMPIEZA, compra);
+            return true;
+        } catch (IllegalStateException e) {
+            logger.error("Error al anotar el alta de CompraLimpieza en el diario: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Pagina<CompraLimpieza> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        diario.esperarAplicadas();
+        return dao.obtenerPagina(despuesDeIdUnico, limite, filtros);
+    }
+
+    @Override
+    public List<FilaCompra> obtenerFilas(FiltroCompras filtros) {
+        diario.esperarAplicadas();
+        return dao.obtenerFilas(filtros);
+    }
+
+    @Override
+    public Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        diario.esperarAplicadas();
+        return dao.obtenerPaginaFilas(despuesDeIdUnico, limite, filtros);
+    }
+
+    @Override
+    public Stream<CompraLimpieza> streamCompras(FiltroCompras filtro) {
+        diario.esperarAplicadas();
+        return dao.streamCompras(filtro);
+    }
+
+    @Override
+    @Deprecated
+    public List<CompraLimpieza> obtenerTodasLasCompras() {
+        diario.esperarAplicadas();
+        return dao.obtenerTodasLasCompras();
+    }
+
+    @Override
+    public boolean actualizarCompra(CompraLimpieza compra) {
+        return actualizarCompraConVersion(compra) == ResultadoActualizacion.ACTUALIZADA;
+    }
+
+    /**
+     * Anota la modificación de la compra en el diario y le asigna la versión que tendrá al aplicarse.
+     *
+     * @return `ACTUALIZADA` si la escritura quedó guardada en el diario, `ERROR` si el diario está lleno o falló.
+     * @throws IllegalArgumentException Si la compra no es válida o no tiene un identificador válido.
+     */
+    @Override
+    public ResultadoActualizacion actualizarCompraConVersion(CompraLimpieza compra) {
+        OperacionesLote.validar(compra, true);
+        try {
+            diario.registrarModificacion(CategoriaCompra.LIMPIEZA, compra);
+            compra.setVersion(compra.getVersion() + 1);
+            return ResultadoActualizacion.ACTUALIZADA;
+        } catch (IllegalStateException e) {
+            logger.error("Error al anotar la modificación de CompraLimpieza en el diario: {}", e.getMessage());
+            return ResultadoActualizacion.ERROR;
+        }
+    }
+
+    /**
+     * Anota la baja de la compra en el diario. Si la compra no existe, la baja se descarta al aplicarse.
+     *
+     * @return `true` si la escritura quedó guardada en el diario, `false` si el diario está lleno o falló.
+     * @throws IllegalArgumentException Si el identificador no es mayor que cero.
+     */
+    @Override
+    public boolean eliminarCompra(int idUnico) {
+        if (idUnico <= 0) {
+            throw new IllegalArgumentException("El identificador único debe ser mayor que cero.");
+        }
+        try {
+            diario.registrarBaja(CategoriaCompra.LIMPIEZA, idUnico);
+            return true;
+        } catch (IllegalStateException e) {
+            logger.error("Error al anotar la baja de CompraLimpieza en el diario: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int eliminarCompras(Collection<Integer> idsUnicos) {
+        diario.esperarAplicadas();
+        return dao.eliminarCompras(idsUnicos);
+    }
+
+    @Override
+    public int eliminarCompras(FiltroCompras filtro) {
+        diario.esperarAplicadas();
+        return dao.eliminarCompras(filtro);
+    }
+
+    @Override
+    public int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        diario.esperarAplicadas();
+        return dao.marcarRealizadas(idsUnicos, realizado);
+    }
+
+    @Override
+    public int marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        diario.esperarAplicadas();
+        return dao.marcarRealizadas(filtro, realizado);
+    }
+
+    @Override
+    public int obtenerUltimoNumeroFoto() {
+        diario.esperarAplicadas();
+        return dao.obtenerUltimoNumeroFoto();
+    }
+
+    @Override
+    public ResultadoLote agregarComprasEnLote(List<CompraLimpieza> compras) {
+        diario.esperarAplicadas();
+        return dao.agregarComprasEnLote(compras);
+    }
+
+    @Override
+    public ResultadoLote actualizarComprasEnLote(List<CompraLimpieza> compras) {
+        diario.esperarAplicadas();
+        return dao.actualizarComprasEnLote(compras);
+    }
+
+    @Override
+    public void cerrar() {
+        dao.cerrar();
+    }
+}
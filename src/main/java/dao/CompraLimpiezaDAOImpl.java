@@ -1,14 +1,20 @@
 package dao;
 
+import Util.HibernateUtil;
+import modelo.CategoriaCompra;
 import modelo.CompraLimpieza;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.StaleStateException;
+import jakarta.persistence.OptimisticLockException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Implementación de la interfaz `CompraLimpiezaDAO` utilizando Hibernate.
@@ -26,10 +32,11 @@ public class CompraLimpiezaDAOImpl implements CompraLimpiezaDAO {
     private final SessionFactory sessionFactory;
 
     /**
-     * Constructor que inicializa el `SessionFactory` para manejar sesiones de Hibernate.
+     * Constructor que obtiene el `SessionFactory` compartido de `HibernateUtil`, de modo que
+     * este DAO usa el mismo pool de conexiones que el resto de la aplicación.
      */
     public CompraLimpiezaDAOImpl() {
-        this.sessionFactory = new Configuration().configure("hibernate.cfg.xml").addAnnotatedClass(CompraLimpieza.class).buildSessionFactory();
+        this.sessionFactory = HibernateUtil.getSessionFactory();
         logger.info("CompraLimpiezaDAOImpl inicializado.");
     }
 
@@ -47,24 +54,33 @@ public class CompraLimpiezaDAOImpl implements CompraLimpiezaDAO {
             session.save(compra);
             transaction.commit();
             logger.info("CompraLimpieza agregada exitosamente: {}", compra);
-            return true;
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
+            if (transaction != null && transaction.isActive()) transaction.rollback();
             logger.error("Error al agregar CompraLimpieza: {}", e.getMessage());
             return false;
         }
+        AvisosCompras.creada(CategoriaCompra.LIMPIEZA, compra);
+        return true;
     }
 
     /**
      * Obtiene todos los registros de CompraLimpieza desde la base de datos.
      *
+     * <p>Con la caché habilitada, el resultado se guarda en la caché de consultas y las entidades en la
+     * caché de segundo nivel, por lo que las lecturas repetidas no llegan a la base de datos.</p>
+     *
      * @return Lista de objetos CompraLimpieza, o `null` si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
      */
     @Override
+    @Deprecated
     @SuppressWarnings("unchecked")
     public List<CompraLimpieza> obtenerTodasLasCompras() {
-        try (Session session = sessionFactory.openSession()) {
-            List<CompraLimpieza> compras = session.createQuery("FROM CompraLimpieza").list();
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            List<CompraLimpieza> compras = session.createQuery("FROM CompraLimpieza", CompraLimpieza.class)
+                    .setCacheable(true)
+                    .setCacheRegion(ConsultasCompra.REGION_CONSULTAS)
+                    .list();
             logger.info("Se recuperaron {} compras de CompraLimpieza.", compras.size());
             return compras;
         } catch (Exception e) {
@@ -73,6 +89,110 @@ public class CompraLimpiezaDAOImpl implements CompraLimpiezaDAO {
         }
     }
 
+    /**
+     * Obtiene una página de registros de CompraLimpieza ordenados por `IdUnico`.
+     *
+     * <p>La consulta usa paginación por clave (`IdUnico > cursor`), por lo que cada llamada lee como máximo
+     * `limite` filas del índice primario con independencia del tamaño de la tabla.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos `CompraLimpieza`, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<CompraLimpieza> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Pagina<CompraLimpieza> pagina = ConsultasCompra.paginar(session, "from CompraLimpieza c", CompraLimpieza.class, CompraLimpieza::getIdUnico,
+                    despuesDeIdUnico, limite, filtros);
+            logger.info("Página de CompraLimpieza obtenida: {}", pagina);
+            return pagina;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de CompraLimpieza: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las filas de listado de CompraLimpieza (sin descripción ni entidades gestionadas).
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas ordenadas por `IdUnico`, o `null` si ocurre un error.
+     */
+    @Override
+    public List<FilaCompra> obtenerFilas(FiltroCompras filtros) {
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            List<FilaCompra> filas = ConsultasCompra.listarFilas(session, "CompraLimpieza", filtros);
+            logger.info("Se recuperaron {} filas de CompraLimpieza.", filas.size());
+            return filas;
+        } catch (Exception e) {
+            logger.error("Error al obtener las filas de CompraLimpieza: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de filas de listado de CompraLimpieza ordenadas por `IdUnico`.
+     *
+     * <p>Igual que {@link #obtenerPagina(Integer, int, FiltroCompras)}, pero proyectando solo las columnas de
+     * {@link FilaCompra}.</p>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Pagina<FilaCompra> pagina = ConsultasCompra.paginar(session, ConsultasCompra.seleccionFilas("CompraLimpieza"), FilaCompra.class,
+                    FilaCompra::idUnico, despuesDeIdUnico, limite, filtros);
+            logger.info("Página de filas de CompraLimpieza obtenida: {}", pagina);
+            return pagina;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de filas de CompraLimpieza: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Recorre los registros de CompraLimpieza ordenados por `IdUnico` sin cargarlos todos en memoria.
+     *
+     * <p>Usa una `StatelessSession` con un cursor de solo avance: las filas llegan en bloques de tamaño fijo
+     * y no se guardan en ningún contexto de persistencia. Al cerrar el flujo se cierran el cursor y la sesión.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si no se puede abrir el cursor, se registra el error y se lanza una `IllegalStateException`.</li>
+     * </ul>
+     *
+     * @param filtro Criterios de filtrado, o `null` para recorrer toda la tabla.
+     * @return Flujo de objetos `CompraLimpieza` que debe cerrarse tras su uso.
+     */
+    @Override
+    public Stream<CompraLimpieza> streamCompras(FiltroCompras filtro) {
+        try {
+            return ConsultasCompra.abrirFlujo(sessionFactory, "from CompraLimpieza c", CompraLimpieza.class, filtro);
+        } catch (Exception e) {
+            logger.error("Error al abrir el flujo de CompraLimpieza: {}", e.getMessage());
+            throw new IllegalStateException("Error al abrir el flujo de CompraLimpieza", e);
+        }
+    }
+
     /**
      * Actualiza un registro existente de CompraLimpieza en la base de datos.
      *
@@ -81,18 +201,62 @@ public class CompraLimpiezaDAOImpl implements CompraLimpiezaDAO {
      */
     @Override
     public boolean actualizarCompra(CompraLimpieza compra) {
+        return actualizarCompraConVersion(compra) == ResultadoActualizacion.ACTUALIZADA;
+    }
+
+    /**
+     * Actualiza un registro existente de CompraLimpieza comprobando que nadie lo haya modificado desde que se leyó.
+     *
+     * <p>La versión de `compra` debe ser la que se leyó de la base de datos. El UPDATE solo incluye las columnas
+     * que han cambiado e incrementa la versión; si termina bien, `compra` recibe la nueva versión.</p>
+     *
+     * @param compra Objeto CompraLimpieza con los datos actualizados y la versión leída.
+     * @return `ACTUALIZADA` si se guardaron los cambios, `CONFLICTO` si otro usuario modificó el registro antes,
+     * `NO_ENCONTRADA` si ya no existe, o `ERROR` si falló la operación.
+     * @throws IllegalArgumentException Si la compra es nula o no tiene un identificador válido.
+     */
+    @Override
+    public ResultadoActualizacion actualizarCompraConVersion(CompraLimpieza compra) {
+        if (compra == null || compra.getIdUnico() <= 0) {
+            throw new IllegalArgumentException("El objeto CompraLimpieza es nulo o tiene un identificador inválido.");
+        }
         Transaction transaction = null;
         try (Session session = sessionFactory.openSession()) {
+            // Se compara con la fila de la base de datos, no con la copia de la caché de segundo nivel
+            session.setCacheMode(CacheMode.REFRESH);
             transaction = session.beginTransaction();
-            session.update(compra);
+            CompraLimpieza actual = session.get(CompraLimpieza.class, compra.getIdUnico());
+            if (actual == null) {
+                transaction.rollback();
+                logger.warn("No se encontró CompraLimpieza con ID {} para actualizar.", compra.getIdUnico());
+                return ResultadoActualizacion.NO_ENCONTRADA;
+            }
+            if (actual.getVersion() != compra.getVersion()) {
+                transaction.rollback();
+                logger.warn("Conflicto al actualizar CompraLimpieza con ID {}: versión {} leída, versión {} actual.",
+                        compra.getIdUnico(), compra.getVersion(), actual.getVersion());
+                return ResultadoActualizacion.CONFLICTO;
+            }
+            CompraLimpieza gestionada = session.merge(compra);
             transaction.commit();
+            compra.setVersion(gestionada.getVersion());
             logger.info("CompraLimpieza actualizada exitosamente: {}", compra);
-            return true;
+        } catch (OptimisticLockException | StaleStateException e) {
+            // Otro usuario actualizó el registro entre la lectura y el UPDATE
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.warn("Conflicto al actualizar CompraLimpieza con ID {}: {}", compra.getIdUnico(), e.getMessage());
+            return ResultadoActualizacion.CONFLICTO;
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
             logger.error("Error al actualizar CompraLimpieza: {}", e.getMessage());
-            return false;
+            return ResultadoActualizacion.ERROR;
         }
+        AvisosCompras.actualizada(CategoriaCompra.LIMPIEZA, compra);
+        return ResultadoActualizacion.ACTUALIZADA;
     }
 
     /**
@@ -107,20 +271,138 @@ public class CompraLimpiezaDAOImpl implements CompraLimpiezaDAO {
         try (Session session = sessionFactory.openSession()) {
             transaction = session.beginTransaction();
             CompraLimpieza compra = session.get(CompraLimpieza.class, idUnico);
-            if (compra != null) {
-                session.delete(compra);
-                transaction.commit();
-                logger.info("CompraLimpieza con IdUnico={} eliminada exitosamente.", idUnico);
-                return true;
-            } else {
+            if (compra == null) {
                 logger.error("CompraLimpieza con IdUnico={} no encontrada.", idUnico);
                 return false;
             }
+            session.delete(compra);
+            transaction.commit();
+            logger.info("CompraLimpieza con IdUnico={} eliminada exitosamente.", idUnico);
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
+            if (transaction != null && transaction.isActive()) transaction.rollback();
             logger.error("Error al eliminar CompraLimpieza con IdUnico={}: {}", idUnico, e.getMessage());
             return false;
         }
+        AvisosCompras.eliminada(CategoriaCompra.LIMPIEZA, idUnico);
+        return true;
+    }
+
+    /**
+     * Elimina varios registros de CompraLimpieza con una única sentencia `DELETE ... WHERE IdUnico IN (...)`.
+     *
+     * <p>A diferencia de {@link #eliminarCompra(int)}, no carga las entidades antes de borrarlas.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param idsUnicos Identificadores de los registros a eliminar.
+     * @return Número de registros eliminados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    @Override
+    public int eliminarCompras(Collection<Integer> idsUnicos) {
+        ConsultasCompra.validarIds(idsUnicos);
+        int filas;
+        try {
+            filas = ConsultasCompra.eliminarPorIds(sessionFactory, "CompraLimpieza", idsUnicos);
+            logger.info("Eliminados {} registros de CompraLimpieza.", filas);
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraLimpieza: {}", e.getMessage());
+            return -1;
+        }
+        AvisosCompras.eliminadas(CategoriaCompra.LIMPIEZA, idsUnicos);
+        return filas;
+    }
+
+    /**
+     * Elimina con una única sentencia `DELETE` los registros de CompraLimpieza que cumplen el filtro.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param filtro Criterios de los registros a eliminar; debe indicar al menos uno.
+     * @return Número de registros eliminados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo o está vacío.
+     */
+    @Override
+    public int eliminarCompras(FiltroCompras filtro) {
+        ConsultasCompra.validarFiltro(filtro, true);
+        int filas;
+        try {
+            filas = ConsultasCompra.eliminarPorFiltro(sessionFactory, "CompraLimpieza", filtro);
+            logger.info("Eliminados {} registros de CompraLimpieza con el filtro {}.", filas, filtro);
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraLimpieza: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.eliminadasPorFiltro(CategoriaCompra.LIMPIEZA);  // No se sabe qué compras se borraron
+        }
+        return filas;
+    }
+
+    /**
+     * Cambia el estado `realizado` de varios registros de CompraLimpieza con una única sentencia `UPDATE`.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param idsUnicos Identificadores de los registros a modificar.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    @Override
+    public int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        ConsultasCompra.validarIds(idsUnicos);
+        int filas;
+        try {
+            filas = ConsultasCompra.marcarPorIds(sessionFactory, "CompraLimpieza", idsUnicos, realizado);
+            logger.info("Marcados {} registros de CompraLimpieza con realizado={}.", filas, realizado);
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraLimpieza: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.marcadas(CategoriaCompra.LIMPIEZA, idsUnicos, realizado);
+        }
+        return filas;
+    }
+
+    /**
+     * Cambia con una única sentencia `UPDATE` el estado `realizado` de los registros de CompraLimpieza que cumplen el filtro.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param filtro    Criterios de los registros a modificar; un filtro vacío afecta a toda la tabla.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo.
+     */
+    @Override
+    public int marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        ConsultasCompra.validarFiltro(filtro, false);
+        int filas;
+        try {
+            filas = ConsultasCompra.marcarPorFiltro(sessionFactory, "CompraLimpieza", filtro, realizado);
+            logger.info("Marcados {} registros de CompraLimpieza con realizado={} y el filtro {}.", filas, realizado, filtro);
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraLimpieza: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.marcadasPorFiltro(CategoriaCompra.LIMPIEZA);  // No se sabe qué compras cambiaron
+        }
+        return filas;
     }
 
     /**
@@ -131,7 +413,7 @@ public class CompraLimpiezaDAOImpl implements CompraLimpiezaDAO {
     @Override
     public int obtenerUltimoNumeroFoto() {
         int ultimoNumero = 0;
-        try (Session session = sessionFactory.openSession()) {
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
             Integer maxNumero = (Integer) session.createQuery("SELECT MAX(c.numeroUnicoFoto) FROM CompraLimpieza c").uniqueResult();
             ultimoNumero = maxNumero != null ? maxNumero : 0;
             logger.info("Último número único de foto obtenido: {}", ultimoNumero);
@@ -141,6 +423,42 @@ public class CompraLimpiezaDAOImpl implements CompraLimpiezaDAO {
         return ultimoNumero;
     }
 
+    /**
+     * Inserta varios registros de CompraLimpieza en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; las que no superan la
+     * validación o fallan en la base de datos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de objetos `CompraLimpieza` a insertar.
+     * @return Resultado con el número de filas insertadas y los errores por fila.
+     */
+    @Override
+    public ResultadoLote agregarComprasEnLote(List<CompraLimpieza> compras) {
+        ResultadoLote resultado = OperacionesLote.insertar(sessionFactory, "CompraLimpieza", compras);
+        HibernateUtil.invalidarCache(CompraLimpieza.class);  // Los lotes JDBC no pasan por la caché de Hibernate
+        AvisosCompras.guardadas(CategoriaCompra.LIMPIEZA, compras, resultado, true);
+        logger.info("Lote de CompraLimpieza insertado: {}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Actualiza varios registros de CompraLimpieza en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; los registros inexistentes
+     * o inválidos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de objetos `CompraLimpieza` con los datos actualizados.
+     * @return Resultado con el número de filas actualizadas y los errores por fila.
+     */
+    @Override
+    public ResultadoLote actualizarComprasEnLote(List<CompraLimpieza> compras) {
+        ResultadoLote resultado = OperacionesLote.actualizar(sessionFactory, "CompraLimpieza", compras);
+        HibernateUtil.invalidarCache(CompraLimpieza.class);  // Los lotes JDBC no pasan por la caché de Hibernate
+        AvisosCompras.guardadas(CategoriaCompra.LIMPIEZA, compras, resultado, false);
+        logger.info("Lote de CompraLimpieza actualizado: {}", resultado);
+        return resultado;
+    }
+
     /**
      * Cierra el `SessionFactory` para liberar recursos y evitar fugas de memoria.
      */
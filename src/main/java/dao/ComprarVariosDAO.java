@@ -1,7 +1,9 @@
 package dao;
 
 import modelo.ComprarVarios;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interfaz para la implementación de operaciones CRUD de la entidad ComprarVarios.
@@ -23,11 +25,52 @@ public interface ComprarVariosDAO {
      */
     boolean agregarCompra(ComprarVarios compra);
 
+    /**
+     * Obtiene una página de registros de CompraVarios ordenados por `IdUnico` (paginación por clave).
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos ComprarVarios con el cursor de la página siguiente, o null si ocurre un error.
+     */
+    Pagina<ComprarVarios> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros);
+
+    /**
+     * Obtiene las filas de listado de CompraVarios, con solo las columnas que muestran las vistas.
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas ordenadas por `IdUnico`, o null si ocurre un error.
+     */
+    List<FilaCompra> obtenerFilas(FiltroCompras filtros);
+
+    /**
+     * Obtiene una página de filas de listado de CompraVarios ordenadas por `IdUnico`.
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas con el cursor de la página siguiente, o null si ocurre un error.
+     */
+    Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros);
+
+    /**
+     * Recorre los registros de CompraVarios ordenados por `IdUnico` sin cargarlos todos en memoria.
+     *
+     * El flujo mantiene abierta una sesión y un cursor de base de datos, por lo que debe cerrarse tras su uso
+     * (por ejemplo, con try-with-resources).
+     *
+     * @param filtro Criterios de filtrado, o `null` para recorrer toda la tabla.
+     * @return Flujo de objetos ComprarVarios.
+     */
+    Stream<ComprarVarios> streamCompras(FiltroCompras filtro);
+
     /**
      * Obtiene todos los registros de CompraVarios desde la base de datos.
      *
      * @return Lista de objetos CompraVarios, o null si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
      */
+    @Deprecated
     List<ComprarVarios> obtenerTodasLasCompras();
 
     /**
@@ -38,6 +81,14 @@ public interface ComprarVariosDAO {
      */
     boolean actualizarCompra(ComprarVarios compra);
 
+    /**
+     * Actualiza un registro existente de CompraVarios solo si no ha cambiado desde que se leyó (bloqueo optimista).
+     *
+     * @param compra Objeto ComprarVarios con los datos actualizados y la versión leída.
+     * @return Resultado de la actualización; `CONFLICTO` si otro usuario modificó el registro antes.
+     */
+    ResultadoActualizacion actualizarCompraConVersion(ComprarVarios compra);
+
     /**
      * Elimina un registro de CompraVarios de la base de datos.
      *
@@ -46,13 +97,71 @@ public interface ComprarVariosDAO {
      */
     boolean eliminarCompra(int idUnico);
 
+    /**
+     * Elimina con una única sentencia las compras con los identificadores indicados.
+     *
+     * @param idsUnicos Identificadores de las compras a eliminar.
+     * @return Número de registros eliminados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    int eliminarCompras(Collection<Integer> idsUnicos);
+
+    /**
+     * Elimina con una única sentencia las compras que cumplen el filtro
+     * (por ejemplo, todas las realizadas de un supermercado).
+     *
+     * @param filtro Criterios de las compras a eliminar; debe indicar al menos uno.
+     * @return Número de registros eliminados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo o está vacío.
+     */
+    int eliminarCompras(FiltroCompras filtro);
+
+    /**
+     * Cambia con una única sentencia el estado `realizado` de las compras con los identificadores indicados.
+     *
+     * @param idsUnicos Identificadores de las compras a modificar.
+     * @param realizado Nuevo estado de las compras.
+     * @return Número de registros modificados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado);
+
+    /**
+     * Cambia con una única sentencia el estado `realizado` de las compras que cumplen el filtro.
+     *
+     * @param filtro    Criterios de las compras a modificar; un filtro vacío afecta a toda la tabla.
+     * @param realizado Nuevo estado de las compras.
+     * @return Número de registros modificados, o -1 si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo.
+     */
+    int marcarRealizadas(FiltroCompras filtro, boolean realizado);
+
     /**
      * Obtiene el último número único de foto registrado en la base de datos.
+     * No debe usarse para generar números nuevos: dos clientes obtendrían el mismo valor y no tiene en cuenta
+     * las otras tablas. Para eso está {@link SecuenciaFoto}.
      *
      * @return El valor máximo de numeroUnicoFoto, o 0 si no hay registros.
      */
     int obtenerUltimoNumeroFoto();
 
+    /**
+     * Inserta varios registros de CompraVarios en una única transacción usando lotes JDBC.
+     * A los registros insertados se les asigna el identificador generado.
+     *
+     * @param compras Lista de objetos ComprarVarios a insertar.
+     * @return Resultado con el número de filas insertadas y los errores por fila.
+     */
+    ResultadoLote agregarComprasEnLote(List<ComprarVarios> compras);
+
+    /**
+     * Actualiza varios registros de CompraVarios en una única transacción usando lotes JDBC.
+     *
+     * @param compras Lista de objetos ComprarVarios con los datos actualizados.
+     * @return Resultado con el número de filas actualizadas y los errores por fila.
+     */
+    ResultadoLote actualizarComprasEnLote(List<ComprarVarios> compras);
+
     /**
      * Cierra los recursos utilizados por el DAO para liberar memoria y evitar fugas de recursos.
      */
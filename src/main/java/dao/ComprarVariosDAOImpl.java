@@ -8,8 +8,13 @@ import org.hibernate.query.Query;
 import Util.HibernateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.StaleStateException;
+import jakarta.persistence.OptimisticLockException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Implementación de la interfaz CompraVariosDAO utilizando Hibernate.
@@ -49,24 +54,32 @@ public class ComprarVariosDAOImpl implements ComprarVariosDAO {
             session.save(compra);
             transaction.commit();
             logger.info("CompraVarios agregada exitosamente: {}", compra);
-            return true;
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
+            if (transaction != null && transaction.isActive()) transaction.rollback();
             logger.error("Error al agregar CompraVarios: {}", e.getMessage());
             return false;
         }
+        AvisosCompras.creada(CategoriaCompra.VARIOS, compra);
+        return true;
     }
 
     /**
      * Obtiene todos los registros de CompraVarios desde la base de datos.
      *
+     * <p>Con la caché habilitada, el resultado se guarda en la caché de consultas y las entidades en la
+     * caché de segundo nivel, por lo que las lecturas repetidas no llegan a la base de datos.</p>
+     *
      * @return Lista de objetos CompraVarios, o null si ocurre un error.
+     * @deprecated Carga la tabla completa en memoria; usar {@link #obtenerPagina(Integer, int, FiltroCompras)}.
      */
     @Override
+    @Deprecated
     @SuppressWarnings("unchecked")
     public List<ComprarVarios> obtenerTodasLasCompras() {
-        try (Session session = sessionFactory.openSession()) {
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
             Query<ComprarVarios> query = session.createQuery("from ComprarVarios", ComprarVarios.class);
+            query.setCacheable(true);
+            query.setCacheRegion(ConsultasCompra.REGION_CONSULTAS);
             List<ComprarVarios> compras = query.list();
             logger.info("Se recuperaron {} registros de CompraVarios.", compras.size());
             return compras;
@@ -76,6 +89,110 @@ public class ComprarVariosDAOImpl implements ComprarVariosDAO {
         }
     }
 
+    /**
+     * Obtiene una página de registros de CompraVarios ordenados por `IdUnico`.
+     *
+     * <p>La consulta usa paginación por clave (`IdUnico > cursor`), por lo que cada llamada lee como máximo
+     * `limite` filas del índice primario con independencia del tamaño de la tabla.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de objetos `ComprarVarios`, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<ComprarVarios> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Pagina<ComprarVarios> pagina = ConsultasCompra.paginar(session, "from ComprarVarios c", ComprarVarios.class, ComprarVarios::getIdUnico,
+                    despuesDeIdUnico, limite, filtros);
+            logger.info("Página de CompraVarios obtenida: {}", pagina);
+            return pagina;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de CompraVarios: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las filas de listado de CompraVarios (sin descripción ni entidades gestionadas).
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * @param filtros Criterios de filtrado, o `null` para obtener todas las filas.
+     * @return Lista de filas ordenadas por `IdUnico`, o `null` si ocurre un error.
+     */
+    @Override
+    public List<FilaCompra> obtenerFilas(FiltroCompras filtros) {
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            List<FilaCompra> filas = ConsultasCompra.listarFilas(session, "ComprarVarios", filtros);
+            logger.info("Se recuperaron {} filas de CompraVarios.", filas.size());
+            return filas;
+        } catch (Exception e) {
+            logger.error("Error al obtener las filas de CompraVarios: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de filas de listado de CompraVarios ordenadas por `IdUnico`.
+     *
+     * <p>Igual que {@link #obtenerPagina(Integer, int, FiltroCompras)}, pero proyectando solo las columnas de
+     * {@link FilaCompra}.</p>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de filas, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<FilaCompra> obtenerPaginaFilas(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Pagina<FilaCompra> pagina = ConsultasCompra.paginar(session, ConsultasCompra.seleccionFilas("ComprarVarios"), FilaCompra.class,
+                    FilaCompra::idUnico, despuesDeIdUnico, limite, filtros);
+            logger.info("Página de filas de CompraVarios obtenida: {}", pagina);
+            return pagina;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de filas de CompraVarios: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Recorre los registros de CompraVarios ordenados por `IdUnico` sin cargarlos todos en memoria.
+     *
+     * <p>Usa una `StatelessSession` con un cursor de solo avance: las filas llegan en bloques de tamaño fijo
+     * y no se guardan en ningún contexto de persistencia. Al cerrar el flujo se cierran el cursor y la sesión.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si no se puede abrir el cursor, se registra el error y se lanza una `IllegalStateException`.</li>
+     * </ul>
+     *
+     * @param filtro Criterios de filtrado, o `null` para recorrer toda la tabla.
+     * @return Flujo de objetos `ComprarVarios` que debe cerrarse tras su uso.
+     */
+    @Override
+    public Stream<ComprarVarios> streamCompras(FiltroCompras filtro) {
+        try {
+            return ConsultasCompra.abrirFlujo(sessionFactory, "from ComprarVarios c", ComprarVarios.class, filtro);
+        } catch (Exception e) {
+            logger.error("Error al abrir el flujo de CompraVarios: {}", e.getMessage());
+            throw new IllegalStateException("Error al abrir el flujo de CompraVarios", e);
+        }
+    }
+
     /**
      * Actualiza un registro existente de CompraVarios en la base de datos.
      *
@@ -84,18 +201,62 @@ public class ComprarVariosDAOImpl implements ComprarVariosDAO {
      */
     @Override
     public boolean actualizarCompra(ComprarVarios compra) {
+        return actualizarCompraConVersion(compra) == ResultadoActualizacion.ACTUALIZADA;
+    }
+
+    /**
+     * Actualiza un registro existente de CompraVarios comprobando que nadie lo haya modificado desde que se leyó.
+     *
+     * <p>La versión de `compra` debe ser la que se leyó de la base de datos. El UPDATE solo incluye las columnas
+     * que han cambiado e incrementa la versión; si termina bien, `compra` recibe la nueva versión.</p>
+     *
+     * @param compra Objeto ComprarVarios con los datos actualizados y la versión leída.
+     * @return `ACTUALIZADA` si se guardaron los cambios, `CONFLICTO` si otro usuario modificó el registro antes,
+     * `NO_ENCONTRADA` si ya no existe, o `ERROR` si falló la operación.
+     * @throws IllegalArgumentException Si la compra es nula o no tiene un identificador válido.
+     */
+    @Override
+    public ResultadoActualizacion actualizarCompraConVersion(ComprarVarios compra) {
+        if (compra == null || compra.getIdUnico() <= 0) {
+            throw new IllegalArgumentException("El objeto CompraVarios es nulo o tiene un identificador inválido.");
+        }
         Transaction transaction = null;
         try (Session session = sessionFactory.openSession()) {
+            // Se compara con la fila de la base de datos, no con la copia de la caché de segundo nivel
+            session.setCacheMode(CacheMode.REFRESH);
             transaction = session.beginTransaction();
-            session.update(compra);
+            ComprarVarios actual = session.get(ComprarVarios.class, compra.getIdUnico());
+            if (actual == null) {
+                transaction.rollback();
+                logger.warn("No se encontró CompraVarios con ID {} para actualizar.", compra.getIdUnico());
+                return ResultadoActualizacion.NO_ENCONTRADA;
+            }
+            if (actual.getVersion() != compra.getVersion()) {
+                transaction.rollback();
+                logger.warn("Conflicto al actualizar CompraVarios con ID {}: versión {} leída, versión {} actual.",
+                        compra.getIdUnico(), compra.getVersion(), actual.getVersion());
+                return ResultadoActualizacion.CONFLICTO;
+            }
+            ComprarVarios gestionada = session.merge(compra);
             transaction.commit();
+            compra.setVersion(gestionada.getVersion());
             logger.info("CompraVarios actualizada exitosamente: {}", compra);
-            return true;
+        } catch (OptimisticLockException | StaleStateException e) {
+            // Otro usuario actualizó el registro entre la lectura y el UPDATE
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.warn("Conflicto al actualizar CompraVarios con ID {}: {}", compra.getIdUnico(), e.getMessage());
+            return ResultadoActualizacion.CONFLICTO;
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
             logger.error("Error al actualizar CompraVarios: {}", e.getMessage());
-            return false;
+            return ResultadoActualizacion.ERROR;
         }
+        AvisosCompras.actualizada(CategoriaCompra.VARIOS, compra);
+        return ResultadoActualizacion.ACTUALIZADA;
     }
 
     /**
@@ -110,20 +271,138 @@ public class ComprarVariosDAOImpl implements ComprarVariosDAO {
         try (Session session = sessionFactory.openSession()) {
             transaction = session.beginTransaction();
             ComprarVarios compra = session.get(ComprarVarios.class, idUnico);
-            if (compra != null) {
-                session.delete(compra);
-                transaction.commit();
-                logger.info("CompraVarios con IdUnico={} eliminada exitosamente.", idUnico);
-                return true;
-            } else {
+            if (compra == null) {
                 logger.error("No se encontró CompraVarios con IdUnico={}.", idUnico);
                 return false;
             }
+            session.delete(compra);
+            transaction.commit();
+            logger.info("CompraVarios con IdUnico={} eliminada exitosamente.", idUnico);
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
+            if (transaction != null && transaction.isActive()) transaction.rollback();
             logger.error("Error al eliminar CompraVarios con IdUnico={}: {}", idUnico, e.getMessage());
             return false;
         }
+        AvisosCompras.eliminada(CategoriaCompra.VARIOS, idUnico);
+        return true;
+    }
+
+    /**
+     * Elimina varios registros de CompraVarios con una única sentencia `DELETE ... WHERE IdUnico IN (...)`.
+     *
+     * <p>A diferencia de {@link #eliminarCompra(int)}, no carga las entidades antes de borrarlas.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param idsUnicos Identificadores de los registros a eliminar.
+     * @return Número de registros eliminados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    @Override
+    public int eliminarCompras(Collection<Integer> idsUnicos) {
+        ConsultasCompra.validarIds(idsUnicos);
+        int filas;
+        try {
+            filas = ConsultasCompra.eliminarPorIds(sessionFactory, "ComprarVarios", idsUnicos);
+            logger.info("Eliminados {} registros de CompraVarios.", filas);
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraVarios: {}", e.getMessage());
+            return -1;
+        }
+        AvisosCompras.eliminadas(CategoriaCompra.VARIOS, idsUnicos);
+        return filas;
+    }
+
+    /**
+     * Elimina con una única sentencia `DELETE` los registros de CompraVarios que cumplen el filtro.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param filtro Criterios de los registros a eliminar; debe indicar al menos uno.
+     * @return Número de registros eliminados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo o está vacío.
+     */
+    @Override
+    public int eliminarCompras(FiltroCompras filtro) {
+        ConsultasCompra.validarFiltro(filtro, true);
+        int filas;
+        try {
+            filas = ConsultasCompra.eliminarPorFiltro(sessionFactory, "ComprarVarios", filtro);
+            logger.info("Eliminados {} registros de CompraVarios con el filtro {}.", filas, filtro);
+        } catch (Exception e) {
+            logger.error("Error al eliminar compras de CompraVarios: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.eliminadasPorFiltro(CategoriaCompra.VARIOS);  // No se sabe qué compras se borraron
+        }
+        return filas;
+    }
+
+    /**
+     * Cambia el estado `realizado` de varios registros de CompraVarios con una única sentencia `UPDATE`.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param idsUnicos Identificadores de los registros a modificar.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores no válidos.
+     */
+    @Override
+    public int marcarRealizadas(Collection<Integer> idsUnicos, boolean realizado) {
+        ConsultasCompra.validarIds(idsUnicos);
+        int filas;
+        try {
+            filas = ConsultasCompra.marcarPorIds(sessionFactory, "ComprarVarios", idsUnicos, realizado);
+            logger.info("Marcados {} registros de CompraVarios con realizado={}.", filas, realizado);
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraVarios: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.marcadas(CategoriaCompra.VARIOS, idsUnicos, realizado);
+        }
+        return filas;
+    }
+
+    /**
+     * Cambia con una única sentencia `UPDATE` el estado `realizado` de los registros de CompraVarios que cumplen el filtro.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se revierte la transacción, se registra el error y se retorna `-1`.</li>
+     * </ul>
+     *
+     * @param filtro    Criterios de los registros a modificar; un filtro vacío afecta a toda la tabla.
+     * @param realizado Nuevo estado.
+     * @return Número de registros modificados, o `-1` si ocurre un error.
+     * @throws IllegalArgumentException Si el filtro es nulo.
+     */
+    @Override
+    public int marcarRealizadas(FiltroCompras filtro, boolean realizado) {
+        ConsultasCompra.validarFiltro(filtro, false);
+        int filas;
+        try {
+            filas = ConsultasCompra.marcarPorFiltro(sessionFactory, "ComprarVarios", filtro, realizado);
+            logger.info("Marcados {} registros de CompraVarios con realizado={} y el filtro {}.", filas, realizado, filtro);
+        } catch (Exception e) {
+            logger.error("Error al marcar compras de CompraVarios: {}", e.getMessage());
+            return -1;
+        }
+        if (filas > 0) {
+            AvisosCompras.marcadasPorFiltro(CategoriaCompra.VARIOS);  // No se sabe qué compras cambiaron
+        }
+        return filas;
     }
 
     /**
@@ -139,8 +418,8 @@ public class ComprarVariosDAOImpl implements ComprarVariosDAO {
     @Override
     public int obtenerUltimoNumeroFoto() {
         int ultimoNumero = 0;
-        try (Session session = sessionFactory.openSession()) {
-            Integer maxNumero = (Integer) session.createQuery("SELECT MAX(c.numeroUnicoFoto) FROM CompraComida c")
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Integer maxNumero = (Integer) session.createQuery("SELECT MAX(c.numeroUnicoFoto) FROM ComprarVarios c")
                     .uniqueResult();
             ultimoNumero = maxNumero != null ? maxNumero : 0;
             logger.info("Último número único de foto obtenido: {}", ultimoNumero);
@@ -150,6 +429,42 @@ public class ComprarVariosDAOImpl implements ComprarVariosDAO {
         return ultimoNumero;
     }
 
+    /**
+     * Inserta varios registros de CompraVarios en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; las que no superan la
+     * validación o fallan en la base de datos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de objetos `ComprarVarios` a insertar.
+     * @return Resultado con el número de filas insertadas y los errores por fila.
+     */
+    @Override
+    public ResultadoLote agregarComprasEnLote(List<ComprarVarios> compras) {
+        ResultadoLote resultado = OperacionesLote.insertar(sessionFactory, "CompraVarios", compras);
+        HibernateUtil.invalidarCache(ComprarVarios.class);  // Los lotes JDBC no pasan por la caché de Hibernate
+        AvisosCompras.guardadas(CategoriaCompra.VARIOS, compras, resultado, true);
+        logger.info("Lote de CompraVarios insertado: {}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Actualiza varios registros de CompraVarios en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; los registros inexistentes
+     * o inválidos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de objetos `ComprarVarios` con los datos actualizados.
+     * @return Resultado con el número de filas actualizadas y los errores por fila.
+     */
+    @Override
+    public ResultadoLote actualizarComprasEnLote(List<ComprarVarios> compras) {
+        ResultadoLote resultado = OperacionesLote.actualizar(sessionFactory, "CompraVarios", compras);
+        HibernateUtil.invalidarCache(ComprarVarios.class);  // Los lotes JDBC no pasan por la caché de Hibernate
+        AvisosCompras.guardadas(CategoriaCompra.VARIOS, compras, resultado, false);
+        logger.info("Lote de CompraVarios actualizado: {}", resultado);
+        return resultado;
+    }
+
     /**
      * Cierra los recursos utilizados por el DAO para liberar memoria y evitar fugas de recursos.
      *
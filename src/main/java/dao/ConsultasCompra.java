@@ -0,0 +1,329 @@
+package dao;
+
+import Util.Configuracion;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.CommonQueryContract;
+import org.hibernate.query.MutationQuery;
+import org.hibernate.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Construcción de las consultas HQL compartidas por los DAO de compras.
+ *
+ * <p>Las tres entidades de compra tienen los mismos atributos, por lo que los criterios de
+ * {@link FiltroCompras} y la paginación por clave (`IdUnico > cursor ORDER BY IdUnico`) se generan aquí
+ * una sola vez para todas ellas, al igual que las sentencias de modificación masiva (`delete`/`update` HQL).</p>
+ */
+final class ConsultasCompra {
+
+    /**
+     * Número máximo de elementos que puede pedirse en una página.
+     */
+    static final int LIMITE_MAXIMO = 1000;
+
+    /**
+     * Región de la caché de consultas (definida en `ehcache.xml`) para los listados y páginas de compras.
+     * Solo se usa si la caché de segundo nivel está habilitada.
+     */
+    static final String REGION_CONSULTAS = "consultas.compras";
+
+    private ConsultasCompra() {
+    }
+
+    /**
+     * Genera la cláusula WHERE para el cursor y los criterios del filtro.
+     *
+     * @param alias            Alias de la entidad en la consulta.
+     * @param despuesDeIdUnico Cursor de paginación, o `null` para no aplicarlo.
+     * @param filtro           Criterios de filtrado, o `null`.
+     * @return La cláusula WHERE (con espacio inicial), o una cadena vacía si no hay condiciones.
+     */
+    static String condiciones(String alias, Integer despuesDeIdUnico, FiltroCompras filtro) {
+        StringBuilder where = new StringBuilder();
+        if (despuesDeIdUnico != null) {
+            agregar(where, alias + ".idUnico > :despuesDeIdUnico");
+        }
+        if (filtro != null && filtro.getRealizado() != null) {
+            agregar(where, alias + ".realizado = :realizado");
+        }
+        if (filtro != null && filtro.getSupermercado() != null) {
+            agregar(where, alias + ".supermercado = :supermercado");
+        }
+        return where.toString();
+    }
+
+    /**
+     * Asigna a la consulta los parámetros generados por {@link #condiciones}.
+     */
+    static void asignarParametros(CommonQueryContract query, Integer despuesDeIdUnico, FiltroCompras filtro) {
+        if (despuesDeIdUnico != null) {
+            query.setParameter("despuesDeIdUnico", despuesDeIdUnico);
+        }
+        if (filtro != null && filtro.getRealizado() != null) {
+            query.setParameter("realizado", filtro.getRealizado());
+        }
+        if (filtro != null && filtro.getSupermercado() != null) {
+            query.setParameter("supermercado", filtro.getSupermercado());
+        }
+    }
+
+    /**
+     * Valida el tamaño de página solicitado.
+     *
+     * @throws IllegalArgumentException Si el límite no está entre 1 y {@link #LIMITE_MAXIMO}.
+     */
+    static void validarLimite(int limite) {
+        if (limite <= 0 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite de la página debe estar entre 1 y " + LIMITE_MAXIMO + ".");
+        }
+    }
+
+    /**
+     * Ejecuta una consulta paginada por clave sobre la entidad indicada.
+     *
+     * <p>Se pide un elemento más que el límite para saber si existe una página siguiente sin
+     * necesidad de una consulta COUNT. Con la caché habilitada, el resultado se guarda en la región
+     * {@link #REGION_CONSULTAS} y Hibernate lo descarta en cuanto se modifica la tabla.</p>
+     *
+     * @param session          Sesión abierta sobre la que ejecutar la consulta.
+     * @param hqlSeleccion     Inicio de la consulta (`from Entidad c` o `select ... from Entidad c`) con alias `c`.
+     * @param tipo             Tipo de los resultados.
+     * @param idUnico          Función que obtiene el `IdUnico` de cada resultado para construir el cursor.
+     * @param despuesDeIdUnico Cursor de la página anterior, o `null` para la primera página.
+     * @param limite           Número máximo de elementos de la página.
+     * @param filtro           Criterios de filtrado, o `null`.
+     * @return La página de resultados.
+     */
+    static <T> Pagina<T> paginar(Session session, String hqlSeleccion, Class<T> tipo, ToIntFunction<T> idUnico,
+                                 Integer despuesDeIdUnico, int limite, FiltroCompras filtro) {
+        validarLimite(limite);
+        String hql = hqlSeleccion + condiciones("c", despuesDeIdUnico, filtro) + " order by c.idUnico";
+        Query<T> query = session.createQuery(hql, tipo);
+        asignarParametros(query, despuesDeIdUnico, filtro);
+        query.setMaxResults(limite + 1);
+        query.setCacheable(true);
+        query.setCacheRegion(REGION_CONSULTAS);
+
+        List<T> resultados = query.list();
+        if (resultados.size() <= limite) {
+            return new Pagina<>(resultados, null);
+        }
+        resultados.remove(limite);
+        return new Pagina<>(resultados, idUnico.applyAsInt(resultados.get(limite - 1)));
+    }
+
+    /**
+     * Devuelve el inicio de una consulta HQL, con alias `c`, que proyecta la entidad en {@link FilaCompra}.
+     * Se puede pasar como `hqlSeleccion` a {@link #paginar}.
+     *
+     * @param entidad Nombre de la entidad en HQL.
+     * @return Cláusulas `select` y `from` de la proyección.
+     */
+    static String seleccionFilas(String entidad) {
+        return "select new " + FilaCompra.class.getName()
+                + "(c.idUnico, c.nombreProducto, c.cantidad, c.realizado, c.supermercado) from " + entidad + " c";
+    }
+
+    /**
+     * Obtiene las filas de listado de las compras que cumplen el filtro, ordenadas por `IdUnico`.
+     * El resultado se guarda en la caché de consultas igual que las páginas.
+     *
+     * @param session Sesión abierta (normalmente de solo lectura).
+     * @param entidad Nombre de la entidad en HQL.
+     * @param filtro  Criterios de filtrado, o `null`.
+     * @return Filas encontradas.
+     */
+    static List<FilaCompra> listarFilas(Session session, String entidad, FiltroCompras filtro) {
+        Query<FilaCompra> query = session.createQuery(seleccionFilas(entidad) + condiciones("c", null, filtro)
+                + " order by c.idUnico", FilaCompra.class);
+        asignarParametros(query, null, filtro);
+        query.setCacheable(true);
+        query.setCacheRegion(REGION_CONSULTAS);
+        return query.list();
+    }
+
+    /**
+     * Abre un flujo de resultados respaldado por una `StatelessSession` y un cursor de solo avance.
+     *
+     * <p>Las filas se leen del servidor en bloques de `todolist.flujo.tamano_bloque` filas (con
+     * `useCursorFetch=true` en la URL de MySQL el servidor mantiene un cursor), y al no haber contexto de
+     * persistencia las entidades ya recorridas pueden liberarse, por lo que la memoria usada no depende del
+     * tamaño de la tabla. Al cerrar el flujo se cierran el cursor y la sesión.</p>
+     *
+     * @param sessionFactory Fábrica de sesiones de la que abrir la sesión sin estado.
+     * @param hqlSeleccion   Inicio de la consulta con alias `c`.
+     * @param tipo           Tipo de los resultados.
+     * @param filtro         Criterios de filtrado, o `null`.
+     * @return Flujo ordenado por `IdUnico` que debe cerrarse tras su uso.
+     */
+    static <T> Stream<T> abrirFlujo(SessionFactory sessionFactory, String hqlSeleccion, Class<T> tipo, FiltroCompras filtro) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            String hql = hqlSeleccion + condiciones("c", null, filtro) + " order by c.idUnico";
+            Query<T> query = session.createQuery(hql, tipo);
+            asignarParametros(query, null, filtro);
+            query.setFetchSize(Configuracion.getEntero("todolist.flujo.tamano_bloque", 500));
+            query.setReadOnly(true);
+
+            ScrollableResults<T> resultados = query.scroll(ScrollMode.FORWARD_ONLY);
+            Spliterator<T> recorrido = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> accion) {
+                    if (!resultados.next()) {
+                        return false;
+                    }
+                    accion.accept(resultados.get());
+                    return true;
+                }
+            };
+            return StreamSupport.stream(recorrido, false).onClose(() -> {
+                try {
+                    resultados.close();
+                } finally {
+                    session.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Valida una colección de identificadores para una operación masiva.
+     *
+     * @throws IllegalArgumentException Si la colección es nula o contiene identificadores nulos o no positivos.
+     */
+    static void validarIds(Collection<Integer> idsUnicos) {
+        if (idsUnicos == null) {
+            throw new IllegalArgumentException("La colección de identificadores no puede ser nula.");
+        }
+        for (Integer idUnico : idsUnicos) {
+            if (idUnico == null || idUnico <= 0) {
+                throw new IllegalArgumentException("Todos los identificadores únicos deben ser mayores que cero.");
+            }
+        }
+    }
+
+    /**
+     * Valida el filtro de una operación masiva.
+     *
+     * @param obligatorio Si es `true`, el filtro debe tener al menos un criterio (evita afectar a toda la tabla por error).
+     * @throws IllegalArgumentException Si el filtro es nulo, o está vacío siendo obligatorio.
+     */
+    static void validarFiltro(FiltroCompras filtro, boolean obligatorio) {
+        if (filtro == null) {
+            throw new IllegalArgumentException("El filtro no puede ser nulo.");
+        }
+        if (obligatorio && filtro.isVacio()) {
+            throw new IllegalArgumentException("El filtro debe indicar al menos un criterio.");
+        }
+    }
+
+    /**
+     * Elimina con una única sentencia `DELETE` las compras con los identificadores indicados.
+     *
+     * @param entidad   Nombre de la entidad en HQL.
+     * @param idsUnicos Identificadores a eliminar (ya validados).
+     * @return Número de filas eliminadas.
+     */
+    static int eliminarPorIds(SessionFactory sessionFactory, String entidad, Collection<Integer> idsUnicos) {
+        if (idsUnicos.isEmpty()) {
+            return 0;
+        }
+        return ejecutarMasiva(sessionFactory, "delete from " + entidad + " c where c.idUnico in (:idsUnicos)",
+                query -> query.setParameterList("idsUnicos", idsUnicos));
+    }
+
+    /**
+     * Elimina con una única sentencia `DELETE` las compras que cumplen el filtro.
+     *
+     * @param entidad Nombre de la entidad en HQL.
+     * @param filtro  Criterios de las compras a eliminar (ya validados).
+     * @return Número de filas eliminadas.
+     */
+    static int eliminarPorFiltro(SessionFactory sessionFactory, String entidad, FiltroCompras filtro) {
+        return ejecutarMasiva(sessionFactory, "delete from " + entidad + " c" + condiciones("c", null, filtro),
+                query -> asignarParametros(query, null, filtro));
+    }
+
+    /**
+     * Cambia con una única sentencia `UPDATE` el estado `realizado` de las compras con los identificadores indicados.
+     * Solo se escriben las filas cuyo estado cambia, y a estas se les incrementa la versión.
+     *
+     * @param entidad   Nombre de la entidad en HQL.
+     * @param idsUnicos Identificadores a modificar (ya validados).
+     * @param realizado Nuevo estado.
+     * @return Número de filas modificadas (las que ya tenían ese estado no se cuentan).
+     */
+    static int marcarPorIds(SessionFactory sessionFactory, String entidad, Collection<Integer> idsUnicos, boolean realizado) {
+        if (idsUnicos.isEmpty()) {
+            return 0;
+        }
+        return ejecutarMasiva(sessionFactory, "update versioned " + entidad + " c set c.realizado = :nuevoEstado "
+                        + "where c.idUnico in (:idsUnicos) and c.realizado <> :nuevoEstado",
+                query -> query.setParameter("nuevoEstado", realizado).setParameterList("idsUnicos", idsUnicos));
+    }
+
+    /**
+     * Cambia con una única sentencia `UPDATE` el estado `realizado` de las compras que cumplen el filtro.
+     * Solo se escriben las filas cuyo estado cambia, y a estas se les incrementa la versión.
+     *
+     * @param entidad   Nombre de la entidad en HQL.
+     * @param filtro    Criterios de las compras a modificar (ya validados).
+     * @param realizado Nuevo estado.
+     * @return Número de filas modificadas (las que ya tenían ese estado no se cuentan).
+     */
+    static int marcarPorFiltro(SessionFactory sessionFactory, String entidad, FiltroCompras filtro, boolean realizado) {
+        StringBuilder where = new StringBuilder(condiciones("c", null, filtro));
+        agregar(where, "c.realizado <> :nuevoEstado");
+        return ejecutarMasiva(sessionFactory, "update versioned " + entidad + " c set c.realizado = :nuevoEstado" + where,
+                query -> {
+                    query.setParameter("nuevoEstado", realizado);
+                    asignarParametros(query, null, filtro);
+                });
+    }
+
+    /**
+     * Ejecuta una sentencia HQL de modificación masiva en su propia transacción.
+     *
+     * <p>Hibernate invalida por sí mismo las regiones de caché de la entidad afectada y los resultados de
+     * consultas sobre su tabla.</p>
+     *
+     * @throws RuntimeException Si la sentencia falla; la transacción se revierte antes de propagar el error.
+     */
+    private static int ejecutarMasiva(SessionFactory sessionFactory, String hql, Consumer<MutationQuery> parametros) {
+        Transaction transaction = null;
+        try (Session session = sessionFactory.openSession()) {
+            transaction = session.beginTransaction();
+            MutationQuery query = session.createMutationQuery(hql);
+            parametros.accept(query);
+            int filas = query.executeUpdate();
+            transaction.commit();
+            return filas;
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+    }
+
+    private static void agregar(StringBuilder where, String condicion) {
+        where.append(where.length() == 0 ? " where " : " and ").append(condicion);
+    }
+}
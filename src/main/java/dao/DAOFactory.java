@@ -1,7 +1,57 @@
 package dao;
 
+import Util.Configuracion;
+
+/**
+ * Punto único de creación de los DAO de compras.
+ *
+ * <p>Con `todolist.diferido.habilitado=true`, los DAO se envuelven en sus decoradores diferidos, que anotan las
+ * escrituras individuales en {@link DiarioEscrituras} y las aplican en segundo plano; en otro caso se devuelve
+ * directamente la implementación con Hibernate.</p>
+ *
+ * <p>Con `todolist.dao.acceso=jdbc`, las lecturas del DAO de {@link modelo.CompraComida} se hacen con JDBC directo
+ * ({@link CompraComidaDAOJdbc}); el resto de operaciones siguen pasando por Hibernate.</p>
+ */
 public class DAOFactory {
+
+    /**
+     * Crea el DAO de {@link modelo.CompraComida}.
+     *
+     * @return DAO diferido, con lecturas JDBC o con Hibernate, según la configuración.
+     */
+    public static CompraComidaDAO getCompraComidaDAO() {
+        CompraComidaDAO dao = new CompraComidaDAOImpl();
+        if ("jdbc".equalsIgnoreCase(Configuracion.getTexto("todolist.dao.acceso", "hibernate"))) {
+            dao = new CompraComidaDAOJdbc(dao);
+        }
+        return DiarioEscrituras.isHabilitado() ? new CompraComidaDAODiferido(dao, DiarioEscrituras.getInstancia()) : dao;
+    }
+
+    /**
+     * Crea el DAO de {@link modelo.CompraLimpieza}.
+     *
+     * @return DAO diferido o la implementación con Hibernate, según la configuración.
+     */
+    public static CompraLimpiezaDAO getCompraLimpiezaDAO() {
+        CompraLimpiezaDAO dao = new CompraLimpiezaDAOImpl();
+        return DiarioEscrituras.isHabilitado() ? new CompraLimpiezaDAODiferido(dao, DiarioEscrituras.getInstancia()) : dao;
+    }
+
+    /**
+     * Crea el DAO de {@link modelo.ComprarVarios}.
+     *
+     * @return DAO diferido o la implementación con Hibernate, según la configuración.
+     */
+    public static ComprarVariosDAO getComprarVariosDAO() {
+        ComprarVariosDAO dao = new ComprarVariosDAOImpl();
+        return DiarioEscrituras.isHabilitado() ? new ComprarVariosDAODiferido(dao, DiarioEscrituras.getInstancia()) : dao;
+    }
+
+    /**
+     * @deprecated Usar {@link #getCompraComidaDAO()}.
+     */
+    @Deprecated
     public static CompraComidaDAO getExcursionDAO() {
-        return new CompraComidaDAOImpl();
+        return getCompraComidaDAO();
     }
 }
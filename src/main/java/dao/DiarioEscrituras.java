@@ -0,0 +1,891 @@
+package dao;
+
+import Util.Configuracion;
+import Util.HibernateUtil;
+import modelo.CategoriaCompra;
+import modelo.Compra;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Diario local de escrituras diferidas (write-behind) de las compras.
+ *
+ * <p>Con `todolist.diferido.habilitado=true`, {@link DAOFactory} envuelve los DAO de compras para que
+ * `agregarCompra`, `actualizarCompra` y `eliminarCompra` se anoten en este diario en lugar de esperar a la base de
+ * datos. La operación se confirma en cuanto su registro está guardado en disco, y un hilo en segundo plano la aplica
+ * después en MySQL junto con las siguientes, en lotes JDBC dentro de una sola transacción.</p>
+ *
+ * <p><strong>Funcionamiento:</strong></p>
+ * <ul>
+ *     <li>Un único hilo escribe en el archivo los registros que se acumulan mientras se guarda el anterior y hace
+ *     un solo `fsync` por grupo, de modo que varias escrituras concurrentes comparten la espera del disco.</li>
+ *     <li>Cada registro lleva un número de secuencia y un CRC32. La última secuencia aplicada se guarda en la tabla
+ *     `DiarioAplicado` en la misma transacción que los cambios, por lo que cada registro se aplica una sola vez
+ *     aunque la aplicación se cierre a mitad de un lote.</li>
+ *     <li>Al arrancar se vuelven a leer los registros del archivo y se aplican los que no constan en
+ *     `DiarioAplicado`. Un registro incompleto al final del archivo (escritura interrumpida) se descarta.</li>
+ *     <li>Si hay más de `maximo_pendientes` registros sin aplicar, las nuevas escrituras esperan hasta
+ *     `espera_maxima_ms` y, si el diario sigue lleno, fallan. También fallan, sin llegar al archivo, si el hilo
+ *     escritor no las toma en ese tiempo o si el diario se cierra antes.</li>
+ *     <li>Si el servidor no está disponible, los lotes se reintentan cada `reintento_ms`. Una escritura que el
+ *     servidor rechaza (restricción, conflicto de versión o fila inexistente) se descarta y se registra en el log.</li>
+ * </ul>
+ *
+ * <p>Cuando todos los registros están aplicados y el archivo supera {@value #TAMANO_COMPACTACION} bytes, se vacía.
+ * Los textos de cada registro están limitados a {@value #MAXIMO_BYTES_TEXTO} bytes en UTF-8 modificado.</p>
+ */
+public final class DiarioEscrituras {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioEscrituras.class);
+
+    private static final String PREFIJO = "todolist.diferido.";
+
+    private static final long TAMANO_COMPACTACION = 1L << 20;
+
+    /**
+     * Bytes de la cabecera del archivo: la secuencia del primer registro que puede contener.
+     */
+    private static final int CABECERA = Long.BYTES;
+
+    /**
+     * Longitud máxima de cada texto de un registro, impuesta por `DataOutputStream.writeUTF`.
+     */
+    private static final int MAXIMO_BYTES_TEXTO = 65_535;
+
+    /**
+     * Espera mínima a que el hilo escritor tome una escritura, aunque `espera_maxima_ms` sea menor.
+     */
+    private static final long ESPERA_MINIMA_GUARDADO_MS = 1_000;
+
+    private static volatile DiarioEscrituras instancia;
+
+    private final FileChannel canal;
+    private final String cliente;
+    private final int tamanoLote;
+    private final long esperaMaxima;
+    private final long reintento;
+
+    /**
+     * Registros codificados que esperan a guardarse en el archivo.
+     */
+    private final BlockingQueue<Pendiente> porGuardar = new LinkedBlockingQueue<>();
+
+    /**
+     * Registros guardados que esperan a aplicarse en la base de datos, en orden de secuencia.
+     */
+    private final BlockingQueue<Escritura> porAplicar = new LinkedBlockingQueue<>();
+
+    private final Semaphore capacidad;
+    private final Object avance = new Object();
+    private final Thread escritor;
+    private final Thread aplicador;
+
+    private long siguienteSecuencia;       // Solo la usa el hilo escritor
+    private volatile long ultimaGuardada;
+    private volatile long ultimaAplicada;
+    private volatile boolean cerrando;
+
+    private DiarioEscrituras(Path archivo) throws IOException {
+        this.tamanoLote = Math.max(1, Configuracion.getEntero(PREFIJO + "tamano_lote", 200));
+        this.esperaMaxima = Math.max(0, Configuracion.getLargo(PREFIJO + "espera_maxima_ms", 5_000));
+        this.reintento = Math.max(100, Configuracion.getLargo(PREFIJO + "reintento_ms", 2_000));
+        Files.createDirectories(archivo.toAbsolutePath().getParent());
+        this.cliente = leerCliente(Path.of(archivo + ".cliente"));
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        List<Escritura> recuperadas = recuperar();
+        recuperadas.forEach(porAplicar::add);
+        ultimaGuardada = siguienteSecuencia - 1;
+        ultimaAplicada = recuperadas.isEmpty() ? ultimaGuardada : recuperadas.get(0).secuencia() - 1;
+        // Puede empezar en negativo si al arrancar ya hay más pendientes que el máximo
+        capacidad = new Semaphore(Math.max(1, Configuracion.getEntero(PREFIJO + "maximo_pendientes", 10_000)) - recuperadas.size());
+        if (!recuperadas.isEmpty()) {
+            logger.info("Diario de escrituras: {} escrituras pendientes de una ejecución anterior.", recuperadas.size());
+        }
+
+        escritor = new Thread(this::bucleEscritor, "diario-escritor");
+        aplicador = new Thread(this::bucleAplicador, "diario-aplicador");
+        escritor.setDaemon(true);
+        aplicador.setDaemon(true);
+        escritor.start();
+        aplicador.start();
+    }
+
+    /**
+     * Indica si las escrituras diferidas están habilitadas en la configuración.
+     *
+     * @return `true` si `todolist.diferido.habilitado` es `true`.
+     */
+    public static boolean isHabilitado() {
+        return Configuracion.getBooleano(PREFIJO + "habilitado", false);
+    }
+
+    /**
+     * Devuelve el diario compartido por toda la aplicación, abriéndolo y recuperando sus registros la primera vez.
+     *
+     * @return La instancia única del diario.
+     * @throws IllegalStateException Si no se puede abrir el archivo del diario.
+     */
+    public static DiarioEscrituras getInstancia() {
+        if (instancia == null) {
+            synchronized (DiarioEscrituras.class) {
+                if (instancia == null) {
+                    String ruta = Configuracion.getTexto(PREFIJO + "ruta", System.getProperty("user.home")
+                            + File.separator + ".todolist" + File.separator + "diario-escrituras");
+                    try {
+                        instancia = new DiarioEscrituras(Path.of(ruta));
+                    } catch (IOException e) {
+                        logger.error("No se pudo abrir el diario de escrituras {}: {}", ruta, e.getMessage());
+                        throw new IllegalStateException("No se pudo abrir el diario de escrituras", e);
+                    }
+                }
+            }
+        }
+        return instancia;
+    }
+
+    /**
+     * Cierra el diario si está abierto, dando a los registros pendientes hasta `espera_maxima_ms` para aplicarse.
+     * Los que no se apliquen se recuperan en el siguiente arranque.
+     */
+    public static void cerrarSiAbierto() {
+        synchronized (DiarioEscrituras.class) {
+            if (instancia != null) {
+                instancia.cerrar();
+                instancia = null;
+            }
+        }
+    }
+
+    // ==========
+    // Escrituras
+    // ==========
+
+    /**
+     * Anota el alta de una compra. La compra no recibe su identificador hasta que se aplica en la base de datos.
+     *
+     * @return Secuencia del registro, ya guardado en disco.
+     * @throws IllegalStateException Si el diario está lleno, cerrado o no se pudo guardar el registro.
+     */
+    long registrarAlta(CategoriaCompra categoria, Compra compra) {
+        return registrar(Escritura.de(Tipo.ALTA, categoria, compra));
+    }
+
+    /**
+     * Anota la modificación de una compra, que solo se aplicará si la fila conserva la versión de `compra`.
+     */
+    long registrarModificacion(CategoriaCompra categoria, Compra compra) {
+        return registrar(Escritura.de(Tipo.MODIFICACION, categoria, compra));
+    }
+
+    /**
+     * Anota la baja de una compra.
+     */
+    long registrarBaja(CategoriaCompra categoria, int idUnico) {
+        return registrar(new Escritura(0, Tipo.BAJA, categoria, idUnico, 0, null, null, false, null, 0, false, null));
+    }
+
+    private long registrar(Escritura escritura) {
+        validar(escritura);
+        if (cerrando) {
+            throw new IllegalStateException("El diario de escrituras está cerrado.");
+        }
+        try {
+            if (!capacidad.tryAcquire(esperaMaxima, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("El diario de escrituras está lleno: la base de datos no aplica las "
+                        + "escrituras al ritmo al que llegan.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Escritura interrumpida mientras esperaba espacio en el diario.", e);
+        }
+        Pendiente pendiente = new Pendiente(escritura, new CompletableFuture<>(), new AtomicBoolean());
+        porGuardar.add(pendiente);
+        try {
+            try {
+                return pendiente.guardada().get(Math.max(esperaMaxima, ESPERA_MINIMA_GUARDADO_MS), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pendiente.tomar()) {
+                    capacidad.release();
+                    throw new IllegalStateException("El diario de escrituras no guardó la escritura a tiempo.", e);
+                }
+                return pendiente.guardada().get();  // El hilo escritor ya la tomó y siempre la completa
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pendiente.tomar()) {
+                capacidad.release();
+            }
+            throw new IllegalStateException("Escritura interrumpida mientras se guardaba en el diario.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No se pudo guardar la escritura en el diario: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Rechaza los registros que {@link #codificar(Escritura)} no podría escribir.
+     *
+     * @throws IllegalArgumentException Si algún texto supera {@value #MAXIMO_BYTES_TEXTO} bytes en UTF-8 modificado.
+     */
+    private static void validar(Escritura escritura) {
+        if (escritura.tipo() != Tipo.ALTA && escritura.tipo() != Tipo.MODIFICACION) {
+            return;
+        }
+        for (String texto : new String[]{escritura.nombreProducto(), escritura.descripcion(), escritura.supermercado()}) {
+            if (texto != null && longitudUtf(texto) > MAXIMO_BYTES_TEXTO) {
+                throw new IllegalArgumentException("Un texto de la compra supera los " + MAXIMO_BYTES_TEXTO
+                        + " bytes que admite el diario de escrituras.");
+            }
+        }
+    }
+
+    /**
+     * Bytes que ocupa el texto con `writeUTF` (UTF-8 modificado: el carácter nulo ocupa dos bytes).
+     */
+    private static int longitudUtf(String texto) {
+        int bytes = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            bytes += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return bytes;
+    }
+
+    /**
+     * Espera a que se apliquen en la base de datos todas las escrituras anotadas hasta ahora. Los DAO diferidos lo
+     * llaman antes de cada lectura para que se vean las escrituras propias.
+     *
+     * @return `true` si se aplicaron a tiempo; `false` si se agotó `espera_maxima_ms` (la lectura puede no verlas).
+     */
+    boolean esperarAplicadas() {
+        long objetivo = ultimaGuardada;
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaxima);
+        synchronized (avance) {
+            while (ultimaAplicada < objetivo) {
+                long restante = TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+                if (restante <= 0) {
+                    logger.warn("Lectura sin esperar a {} escrituras diferidas aún no aplicadas.", objetivo - ultimaAplicada);
+                    return false;
+                }
+                try {
+                    avance.wait(restante);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve el número de escrituras guardadas en el diario que aún no se han aplicado.
+     *
+     * @return Escrituras pendientes.
+     */
+    public long getPendientes() {
+        return ultimaGuardada - ultimaAplicada;
+    }
+
+    // ===========
+    // Hilo escritor
+    // ===========
+
+    private void bucleEscritor() {
+        List<Pendiente> grupo = new ArrayList<>();
+        while (!cerrando || !porGuardar.isEmpty()) {
+            try {
+                Pendiente primera = porGuardar.poll(100, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                grupo.add(primera);
+                porGuardar.drainTo(grupo);
+                grupo.removeIf(pendiente -> !pendiente.tomar());  // Abandonadas por quien las registró
+                if (!grupo.isEmpty()) {
+                    guardar(grupo);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    /**
+     * Escribe un grupo de registros y hace un único `fsync` para todos. Completa siempre las escrituras del grupo:
+     * si falla, las completa con el error y quita del archivo lo que llegó a escribir.
+     *
+     * <p>Los registros pasan a `porAplicar` y a {@link #ultimaGuardada} sin soltar el cerrojo del canal, para que
+     * {@link #compactarSiProcede()} no vacíe el archivo entre el `fsync` y ese momento creyendo que no queda nada
+     * por aplicar.</p>
+     */
+    private void guardar(List<Pendiente> grupo) {
+        List<Escritura> guardadas = new ArrayList<>(grupo.size());
+        long inicio = -1;
+        try {
+            synchronized (canal) {
+                inicio = canal.size();
+                long posicion = inicio;
+                for (Pendiente pendiente : grupo) {
+                    Escritura escritura = pendiente.escritura().conSecuencia(siguienteSecuencia);
+                    ByteBuffer registro = codificar(escritura);
+                    while (registro.hasRemaining()) {
+                        posicion += canal.write(registro, posicion);
+                    }
+                    guardadas.add(escritura);
+                    siguienteSecuencia++;
+                }
+                canal.force(false);
+                porAplicar.addAll(guardadas);
+                ultimaGuardada = siguienteSecuencia - 1;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error al guardar {} escrituras en el diario: {}", grupo.size(), e.getMessage());
+            siguienteSecuencia -= guardadas.size();
+            recortar(inicio);
+            grupo.forEach(pendiente -> {
+                capacidad.release();
+                pendiente.guardada().completeExceptionally(e);
+            });
+            return;
+        }
+        for (int i = 0; i < grupo.size(); i++) {
+            grupo.get(i).guardada().complete(guardadas.get(i).secuencia());
+        }
+    }
+
+    /**
+     * Quita un grupo que no se pudo guardar completo, para que los siguientes no queden detrás de un registro roto.
+     */
+    private void recortar(long tamano) {
+        if (tamano < 0) {
+            return;
+        }
+        try {
+            synchronized (canal) {
+                canal.truncate(tamano);
+            }
+        } catch (IOException e) {
+            logger.error("No se pudo recortar el diario tras un error de escritura: {}", e.getMessage());
+        }
+    }
+
+    // ============
+    // Hilo aplicador
+    // ============
+
+    private void bucleAplicador() {
+        long aplicadaEnServidor = -1;
+        List<Escritura> lote = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (aplicadaEnServidor < 0) {
+                    aplicadaEnServidor = leerAplicadaEnServidor();
+                    descartarYaAplicadas(aplicadaEnServidor);
+                }
+                if (lote.isEmpty()) {
+                    Escritura primera = porAplicar.poll(100, TimeUnit.MILLISECONDS);
+                    if (primera == null) {
+                        if (cerrando && porGuardar.isEmpty() && !escritor.isAlive()) {
+                            return;
+                        }
+                        compactarSiProcede();
+                        continue;
+                    }
+                    lote.add(primera);
+                    porAplicar.drainTo(lote, tamanoLote - 1);
+                }
+                // Tras un fallo a mitad de un lote aplicado de uno en uno, no se repiten las que ya se aplicaron
+                lote.removeIf(escritura -> escritura.secuencia() <= ultimaAplicada);
+                if (!lote.isEmpty()) {
+                    aplicarLote(lote);
+                }
+                lote.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (SQLException | RuntimeException e) {
+                // Servidor no disponible: se reintenta el mismo lote
+                logger.warn("No se pudieron aplicar {} escrituras diferidas, se reintentará en {} ms: {}",
+                        lote.size(), reintento, e.getMessage());
+                try {
+                    Thread.sleep(reintento);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica el lote en una transacción. Si el servidor rechaza alguna escritura (y no por falta de conexión),
+     * se aplican una a una para descartar solo las rechazadas.
+     *
+     * @throws SQLException Si no hay conexión con el servidor.
+     */
+    private void aplicarLote(List<Escritura> lote) throws SQLException {
+        try {
+            aplicarEnTransaccion(lote);
+        } catch (SQLException e) {
+            if (esFalloDeConexion(e)) {
+                throw e;
+            }
+            if (lote.size() > 1) {
+                for (Escritura escritura : lote) {
+                    aplicarLote(List.of(escritura));
+                }
+                return;
+            }
+            logger.error("Escritura diferida descartada ({} {} IdUnico={}): {}", lote.get(0).tipo(),
+                    lote.get(0).categoria().getTabla(), lote.get(0).idUnico(), e.getMessage());
+            aplicarEnTransaccion(List.of(lote.get(0).descartada()));
+        }
+        Set<CategoriaCompra> afectadas = EnumSet.noneOf(CategoriaCompra.class);
+        lote.forEach(escritura -> afectadas.add(escritura.categoria()));
+        afectadas.forEach(categoria -> HibernateUtil.invalidarCache(categoria.getEntidad()));  // JDBC no pasa por la caché
+        capacidad.release(lote.size());
+        synchronized (avance) {
+            ultimaAplicada = lote.get(lote.size() - 1).secuencia();
+            avance.notifyAll();
+        }
+    }
+
+    /**
+     * Ejecuta las escrituras agrupando en un lote JDBC cada tramo de escrituras consecutivas de la misma tabla y
+     * tipo, y guarda la última secuencia aplicada en la misma transacción. Tras confirmar, pasa al índice de
+     * búsqueda y a {@link EventosCompras} las escrituras que tuvieron efecto.
+     */
+    private void aplicarEnTransaccion(List<Escritura> lote) throws SQLException {
+        List<Escritura> conEfecto = new ArrayList<>();
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            session.doWork(conexion -> {
+                int desde = 0;
+                while (desde < lote.size()) {
+                    int hasta = desde + 1;
+                    while (hasta < lote.size() && lote.get(hasta).mismoTramo(lote.get(desde))) {
+                        hasta++;
+                    }
+                    ejecutarTramo(conexion, lote.subList(desde, hasta), conEfecto);
+                    desde = hasta;
+                }
+                guardarAplicada(conexion, lote.get(lote.size() - 1).secuencia());
+            });
+            transaction.commit();
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                try {
+                    transaction.rollback();
+                } catch (RuntimeException ignorada) {
+                    // La conexión puede estar cerrada; el servidor revierte la transacción igualmente
+                }
+            }
+            SQLException causa = causaSql(e);
+            if (causa != null) {
+                throw causa;
+            }
+            throw e;
+        }
+        // Fuera de la transacción: un aviso que falla no debe hacer que se vuelva a aplicar un lote ya confirmado
+        for (Escritura escritura : conEfecto) {
+            if (escritura.tipo() == Tipo.BAJA) {
+                AvisosCompras.eliminada(escritura.categoria(), escritura.idUnico());
+            } else {
+                AvisosCompras.avisar(() -> BusquedaCompras.getInstancia().registrar(escritura.categoria(),
+                        escritura.idUnico(), escritura.nombreProducto(), escritura.descripcion()));
+                AvisosCompras.avisar(() -> EventosCompras.getInstancia().guardada(escritura.tipo() == Tipo.ALTA,
+                        escritura.categoria(), escritura.idUnico(), escritura.nombreProducto(), escritura.cantidad(),
+                        escritura.realizado(), escritura.supermercado()));
+                if (escritura.tipo() == Tipo.ALTA) {
+                    AvisosCompras.avisar(() -> AutocompletadoProductos.getInstancia().registrar(
+                            escritura.nombreProducto()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Ejecuta un tramo como lote JDBC y añade a `conEfecto` las escrituras que cambiaron alguna fila (las altas,
+     * con el identificador que les asignó el servidor).
+     */
+    private void ejecutarTramo(Connection conexion, List<Escritura> tramo, List<Escritura> conEfecto) throws SQLException {
+        Escritura primera = tramo.get(0);
+        if (primera.tipo() == Tipo.DESCARTADA) {
+            return;
+        }
+        String tabla = primera.categoria().getTabla();
+        String sql = switch (primera.tipo()) {
+            case ALTA -> "INSERT INTO " + tabla + " (NombreProducto, Descripcion, Foto, NumeroUnicoFoto, Cantidad, "
+                    + "Realizado, SuperMercado, Version) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+            case MODIFICACION -> "UPDATE " + tabla + " SET NombreProducto = ?, Descripcion = ?, Foto = ?, "
+                    + "NumeroUnicoFoto = ?, Cantidad = ?, Realizado = ?, SuperMercado = ?, Version = Version + 1 "
+                    + "WHERE IdUnico = ? AND Version = ?";
+            default -> "DELETE FROM " + tabla + " WHERE IdUnico = ?";
+        };
+        boolean alta = primera.tipo() == Tipo.ALTA;
+        int generarClaves = alta ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+        try (PreparedStatement ps = conexion.prepareStatement(sql, generarClaves)) {
+            for (Escritura escritura : tramo) {
+                escritura.asignarParametros(ps);
+                ps.addBatch();
+            }
+            int[] contadores = ps.executeBatch();
+            for (int i = 0; i < contadores.length; i++) {
+                if (contadores[i] == 0) {
+                    logger.warn("Escritura diferida sin efecto ({} {} IdUnico={}): el registro no existe o fue "
+                            + "modificado por otro usuario.", primera.tipo(), tabla, tramo.get(i).idUnico());
+                } else if (!alta) {
+                    conEfecto.add(tramo.get(i));
+                }
+            }
+            if (alta) {
+                try (ResultSet claves = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (claves.next() && i < tramo.size()) {
+                        conEfecto.add(tramo.get(i++).conIdUnico(claves.getInt(1)));
+                    }
+                }
+            }
+        }
+    }
+
+    private void guardarAplicada(Connection conexion, long secuencia) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement("INSERT INTO DiarioAplicado (Cliente, Secuencia) "
+                + "VALUES (?, ?) ON DUPLICATE KEY UPDATE Secuencia = VALUES(Secuencia)")) {
+            ps.setString(1, cliente);
+            ps.setLong(2, secuencia);
+            ps.executeUpdate();
+        }
+    }
+
+    private long leerAplicadaEnServidor() throws SQLException {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Long secuencia = session.createNativeQuery("SELECT Secuencia FROM DiarioAplicado WHERE Cliente = :cliente", Long.class)
+                    .setParameter("cliente", cliente)
+                    .uniqueResult();
+            return secuencia == null ? 0 : secuencia;
+        } catch (RuntimeException e) {
+            SQLException causa = causaSql(e);
+            if (causa != null) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Quita de la cola los registros recuperados que ya se aplicaron antes de cerrarse la aplicación.
+     */
+    private void descartarYaAplicadas(long aplicadaEnServidor) {
+        int descartadas = 0;
+        while (!porAplicar.isEmpty() && porAplicar.peek().secuencia() <= aplicadaEnServidor) {
+            porAplicar.poll();
+            descartadas++;
+        }
+        if (descartadas > 0) {
+            capacidad.release(descartadas);
+            logger.info("Diario de escrituras: {} escrituras recuperadas ya estaban aplicadas.", descartadas);
+        }
+        synchronized (avance) {
+            ultimaAplicada = Math.max(ultimaAplicada, Math.min(aplicadaEnServidor, ultimaGuardada));
+            avance.notifyAll();
+        }
+    }
+
+    /**
+     * Vacía el archivo si todo está aplicado y ha crecido lo suficiente. La cabecera conserva la secuencia siguiente.
+     */
+    private void compactarSiProcede() {
+        try {
+            synchronized (canal) {
+                if (ultimaAplicada < ultimaGuardada || !porGuardar.isEmpty() || canal.size() < TAMANO_COMPACTACION) {
+                    return;
+                }
+                canal.truncate(0);
+                escribirCabecera(ultimaGuardada + 1);
+                canal.force(false);
+            }
+            logger.info("Diario de escrituras compactado.");
+        } catch (IOException e) {
+            logger.warn("No se pudo compactar el diario de escrituras: {}", e.getMessage());
+        }
+    }
+
+    private void cerrar() {
+        cerrando = true;
+        try {
+            escritor.join();
+            // Registradas después de la última vuelta del hilo escritor
+            for (Pendiente pendiente = porGuardar.poll(); pendiente != null; pendiente = porGuardar.poll()) {
+                if (pendiente.tomar()) {
+                    capacidad.release();
+                    pendiente.guardada().completeExceptionally(new IllegalStateException("El diario de escrituras se cerró."));
+                }
+            }
+            aplicador.join(esperaMaxima);
+            if (aplicador.isAlive()) {
+                aplicador.interrupt();
+                aplicador.join(1_000);
+                logger.warn("Diario cerrado con {} escrituras sin aplicar; se aplicarán en el siguiente arranque.", getPendientes());
+            }
+            canal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Error al cerrar el diario de escrituras: {}", e.getMessage());
+        }
+    }
+
+    // ===========================
+    // Formato del archivo
+    // ===========================
+
+    /**
+     * Lee los registros completos del archivo y recorta el registro incompleto del final, si lo hay.
+     */
+    private List<Escritura> recuperar() throws IOException {
+        List<Escritura> escrituras = new ArrayList<>();
+        if (canal.size() < CABECERA) {
+            canal.truncate(0);
+            escribirCabecera(1);
+            canal.force(false);
+            siguienteSecuencia = 1;
+            return escrituras;
+        }
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+        canal.read(cabecera, 0);
+        siguienteSecuencia = cabecera.flip().getLong();
+
+        long posicion = CABECERA;
+        ByteBuffer prefijo = ByteBuffer.allocate(2 * Integer.BYTES);
+        while (true) {
+            prefijo.clear();
+            if (canal.read(prefijo, posicion) < prefijo.capacity()) {
+                break;
+            }
+            prefijo.flip();
+            int longitud = prefijo.getInt();
+            int crc = prefijo.getInt();
+            if (longitud <= 0 || posicion + prefijo.capacity() + longitud > canal.size()) {
+                break;
+            }
+            ByteBuffer datos = ByteBuffer.allocate(longitud);
+            canal.read(datos, posicion + prefijo.capacity());
+            CRC32 calculado = new CRC32();
+            calculado.update(datos.array());
+            if ((int) calculado.getValue() != crc) {
+                break;
+            }
+            Escritura escritura = decodificar(datos.array());
+            escrituras.add(escritura);
+            siguienteSecuencia = escritura.secuencia() + 1;
+            posicion += prefijo.capacity() + longitud;
+        }
+        if (posicion < canal.size()) {
+            logger.warn("Diario de escrituras: se descartan {} bytes de un registro incompleto.", canal.size() - posicion);
+            canal.truncate(posicion);
+            canal.force(false);
+        }
+        return escrituras;
+    }
+
+    private void escribirCabecera(long secuencia) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA).putLong(secuencia).flip();
+        canal.write(cabecera, 0);
+    }
+
+    /**
+     * Codifica el registro como `[longitud][crc32][datos]`.
+     */
+    private static ByteBuffer codificar(Escritura escritura) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream salida = new DataOutputStream(bytes);
+            salida.writeLong(escritura.secuencia());
+            salida.writeByte(escritura.tipo().ordinal());
+            salida.writeByte(escritura.categoria().ordinal());
+            salida.writeInt(escritura.idUnico());
+            salida.writeInt(escritura.version());
+            if (escritura.tipo() == Tipo.ALTA || escritura.tipo() == Tipo.MODIFICACION) {
+                salida.writeUTF(escritura.nombreProducto());
+                salida.writeUTF(escritura.descripcion());
+                salida.writeBoolean(escritura.foto());
+                salida.writeInt(escritura.numeroUnicoFoto() != null ? escritura.numeroUnicoFoto() : -1);
+                salida.writeInt(escritura.cantidad());
+                salida.writeBoolean(escritura.realizado());
+                salida.writeUTF(escritura.supermercado());
+            }
+            byte[] datos = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(datos);
+            return ByteBuffer.allocate(2 * Integer.BYTES + datos.length)
+                    .putInt(datos.length)
+                    .putInt((int) crc.getValue())
+                    .put(datos)
+                    .flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // No ocurre al escribir en memoria
+        }
+    }
+
+    private static Escritura decodificar(byte[] datos) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(datos));
+        long secuencia = entrada.readLong();
+        Tipo tipo = Tipo.values()[entrada.readByte()];
+        CategoriaCompra categoria = CategoriaCompra.values()[entrada.readByte()];
+        int idUnico = entrada.readInt();
+        int version = entrada.readInt();
+        if (tipo != Tipo.ALTA && tipo != Tipo.MODIFICACION) {
+            return new Escritura(secuencia, tipo, categoria, idUnico, version, null, null, false, null, 0, false, null);
+        }
+        String nombre = entrada.readUTF();
+        String descripcion = entrada.readUTF();
+        boolean foto = entrada.readBoolean();
+        int numeroFoto = entrada.readInt();
+        int cantidad = entrada.readInt();
+        boolean realizado = entrada.readBoolean();
+        String supermercado = entrada.readUTF();
+        return new Escritura(secuencia, tipo, categoria, idUnico, version, nombre, descripcion, foto,
+                numeroFoto >= 0 ? numeroFoto : null, cantidad, realizado, supermercado);
+    }
+
+    /**
+     * Lee el identificador de este cliente en `DiarioAplicado`, creándolo la primera vez.
+     */
+    private static String leerCliente(Path ruta) throws IOException {
+        if (Files.exists(ruta)) {
+            return Files.readString(ruta, StandardCharsets.UTF_8).trim();
+        }
+        String cliente = UUID.randomUUID().toString();
+        Files.writeString(ruta, cliente, StandardCharsets.UTF_8);
+        return cliente;
+    }
+
+    private static boolean esFalloDeConexion(SQLException e) {
+        return e instanceof SQLTransientConnectionException || e instanceof SQLRecoverableException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+    }
+
+    private static SQLException causaSql(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException sql) {
+                return sql;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tipo de escritura. `DESCARTADA` sustituye a una escritura rechazada por el servidor para avanzar la
+     * secuencia aplicada sin ejecutarla.
+     */
+    private enum Tipo {
+        ALTA, MODIFICACION, BAJA, DESCARTADA
+    }
+
+    /**
+     * Escritura que espera al hilo escritor. La toma una sola vez quien primero llama a {@link #tomar()}: el hilo
+     * escritor para guardarla, o quien la registró para abandonarla si se cansa de esperar.
+     */
+    private record Pendiente(Escritura escritura, CompletableFuture<Long> guardada, AtomicBoolean tomada) {
+
+        boolean tomar() {
+            return tomada.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Registro del diario: una escritura con los datos de la compra en el momento en que se anotó.
+     */
+    private record Escritura(long secuencia, Tipo tipo, CategoriaCompra categoria, int idUnico, int version,
+                             String nombreProducto, String descripcion, boolean foto, Integer numeroUnicoFoto,
+                             int cantidad, boolean realizado, String supermercado) {
+
+        static Escritura de(Tipo tipo, CategoriaCompra categoria, Compra compra) {
+            return new Escritura(0, tipo, categoria, compra.getIdUnico(), compra.getVersion(),
+                    compra.getNombreProducto(), compra.getDescripcion(), compra.isFoto(), compra.getNumeroUnicoFoto(),
+                    compra.getCantidad(), compra.isRealizado(), compra.getSupermercado());
+        }
+
+        Escritura conSecuencia(long nueva) {
+            return new Escritura(nueva, tipo, categoria, idUnico, version, nombreProducto, descripcion, foto,
+                    numeroUnicoFoto, cantidad, realizado, supermercado);
+        }
+
+        Escritura conIdUnico(int nuevo) {
+            return new Escritura(secuencia, tipo, categoria, nuevo, version, nombreProducto, descripcion, foto,
+                    numeroUnicoFoto, cantidad, realizado, supermercado);
+        }
+
+        Escritura descartada() {
+            return new Escritura(secuencia, Tipo.DESCARTADA, categoria, idUnico, version, null, null, false, null, 0, false, null);
+        }
+
+        boolean mismoTramo(Escritura otra) {
+            return tipo == otra.tipo && categoria == otra.categoria;
+        }
+
+        void asignarParametros(PreparedStatement ps) throws SQLException {
+            if (tipo == Tipo.BAJA) {
+                ps.setInt(1, idUnico);
+                return;
+            }
+            ps.setString(1, nombreProducto);
+            ps.setString(2, descripcion);
+            ps.setBoolean(3, foto);
+            if (numeroUnicoFoto != null) {
+                ps.setInt(4, numeroUnicoFoto);
+            } else {
+                ps.setNull(4, Types.INTEGER);
+            }
+            ps.setInt(5, cantidad);
+            ps.setBoolean(6, realizado);
+            ps.setString(7, supermercado);
+            if (tipo == Tipo.MODIFICACION) {
+                ps.setInt(8, idUnico);
+                ps.setInt(9, version);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package dao;
+
+import modelo.CategoriaCompra;
+
+/**
+ * Cambio confirmado en una compra, publicado por {@link EventosCompras}.
+ *
+ * @param tipo      Qué le ocurrió a la compra.
+ * @param categoria Categoría (tabla) de la compra.
+ * @param idUnico   Identificador único de la compra dentro de su tabla (0 en {@link Tipo#RECARGA}).
+ * @param fila      Datos de listado de la compra tras el cambio en {@link Tipo#CREADA} y {@link Tipo#ACTUALIZADA},
+ *                  o `null` en los demás tipos.
+ */
+public record EventoCompra(Tipo tipo, CategoriaCompra categoria, int idUnico, FilaCompraCategoria fila) {
+
+    /**
+     * Tipos de cambio.
+     */
+    public enum Tipo {
+        /**
+         * Compra nueva.
+         */
+        CREADA,
+        /**
+         * Compra modificada; la fila trae todos sus datos de listado.
+         */
+        ACTUALIZADA,
+        /**
+         * Compra borrada.
+         */
+        ELIMINADA,
+        /**
+         * Compra marcada como realizada sin cambiar nada más.
+         */
+        REALIZADA,
+        /**
+         * Compra marcada como pendiente sin cambiar nada más.
+         */
+        PENDIENTE,
+        /**
+         * La tabla cambió sin saber qué filas (borrados o marcados por filtro, sincronización, lotes muy
+         * grandes): quien muestre compras de esta categoría debe volver a leerlas.
+         */
+        RECARGA
+    }
+}
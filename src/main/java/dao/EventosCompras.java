@@ -0,0 +1,338 @@
+package dao;
+
+import Util.Configuracion;
+import modelo.CategoriaCompra;
+import modelo.Compra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Avisos dentro del proceso de los cambios confirmados en las compras de todas las categorías.
+ *
+ * <p>Los DAO de compras (incluidos los lotes JDBC y el aplicador de {@link DiarioEscrituras}) publican un
+ * {@link EventoCompra} por cada alta, modificación o borrado después de confirmar la transacción, y las vistas
+ * suscritas aplican esos cambios a lo que muestran en vez de volver a leer las tablas. Mientras no hay
+ * suscriptores, publicar no hace ningún trabajo.</p>
+ *
+ * <p>Publicar solo añade el evento a una lista; un hilo propio los reparte. Tras el primer evento espera
+ * `todolist.eventos.ventana_ms` para juntar los que llegan seguidos, agrupa los de la misma compra en uno (un alta
+ * seguida de un borrado desaparece) y entrega el lote entero a cada suscriptor. Si en un lote hay más de
+ * `todolist.eventos.maximo_detalle` cambios de una categoría, por ejemplo al importar un archivo, se entrega en su
+ * lugar un único {@link EventoCompra.Tipo#RECARGA}.</p>
+ *
+ * <p><strong>Propiedades admitidas:</strong></p>
+ * <ul>
+ *     <li>`todolist.eventos.ventana_ms`: milisegundos que se esperan para agrupar eventos (0 para repartirlos en
+ *     cuanto llegan).</li>
+ *     <li>`todolist.eventos.maximo_detalle`: cambios de una categoría por lote a partir de los cuales se pide
+ *     recargarla.</li>
+ * </ul>
+ */
+public final class EventosCompras {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventosCompras.class);
+
+    private static final EventosCompras instancia = new EventosCompras();
+
+    private static final String PREFIJO = "todolist.eventos.";
+
+    private final List<OyenteCompras> oyentes = new CopyOnWriteArrayList<>();
+
+    // Protegidos por el monitor de la instancia
+    private ArrayList<EventoCompra> entrantes = new ArrayList<>();
+    private Thread repartidor;
+
+    // Solo los usa el hilo de reparto
+    private ArrayList<EventoCompra> enReparto = new ArrayList<>();
+    private final Map<Long, Integer> posiciones = new HashMap<>();
+
+    private EventosCompras() {
+    }
+
+    /**
+     * Devuelve el servicio de eventos del proceso.
+     *
+     * @return La instancia única.
+     */
+    public static EventosCompras getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Suscribe un oyente a los cambios que se confirmen a partir de ahora.
+     *
+     * @param oyente Oyente a suscribir.
+     * @throws IllegalArgumentException Si el oyente es nulo.
+     */
+    public void suscribir(OyenteCompras oyente) {
+        if (oyente == null) {
+            throw new IllegalArgumentException("El oyente no puede ser nulo.");
+        }
+        oyentes.add(oyente);
+        synchronized (this) {
+            if (repartidor == null) {
+                repartidor = new Thread(this::bucleRepartidor, "eventos-compras");
+                repartidor.setDaemon(true);
+                repartidor.start();
+            }
+        }
+    }
+
+    /**
+     * Anula la suscripción de un oyente. Puede recibir todavía el lote que se esté repartiendo.
+     *
+     * @param oyente Oyente suscrito con {@link #suscribir(OyenteCompras)}.
+     */
+    public void cancelar(OyenteCompras oyente) {
+        oyentes.remove(oyente);
+    }
+
+    /**
+     * Avisa de que una categoría cambió sin saber qué compras, para que los suscriptores la vuelvan a leer.
+     *
+     * @param categoria Categoría modificada.
+     */
+    public void recargar(CategoriaCompra categoria) {
+        publicar(new EventoCompra(EventoCompra.Tipo.RECARGA, categoria, 0, null));
+    }
+
+    /**
+     * Avisa de que todas las categorías cambiaron sin saber qué compras, por ejemplo tras una sincronización.
+     */
+    public void recargarTodo() {
+        for (CategoriaCompra categoria : CategoriaCompra.values()) {
+            recargar(categoria);
+        }
+    }
+
+    /**
+     * Publica el alta de una compra ya confirmada en la base de datos.
+     */
+    void creada(CategoriaCompra categoria, Compra compra) {
+        if (!oyentes.isEmpty()) {
+            publicar(new EventoCompra(EventoCompra.Tipo.CREADA, categoria, compra.getIdUnico(), fila(categoria, compra)));
+        }
+    }
+
+    /**
+     * Publica la modificación de una compra ya confirmada en la base de datos.
+     */
+    void actualizada(CategoriaCompra categoria, Compra compra) {
+        if (!oyentes.isEmpty()) {
+            publicar(new EventoCompra(EventoCompra.Tipo.ACTUALIZADA, categoria, compra.getIdUnico(),
+                    fila(categoria, compra)));
+        }
+    }
+
+    /**
+     * Publica el alta o la modificación de una compra confirmada por el aplicador de {@link DiarioEscrituras}.
+     */
+    void guardada(boolean alta, CategoriaCompra categoria, int idUnico, String nombreProducto, int cantidad,
+                  boolean realizado, String supermercado) {
+        if (!oyentes.isEmpty()) {
+            publicar(new EventoCompra(alta ? EventoCompra.Tipo.CREADA : EventoCompra.Tipo.ACTUALIZADA, categoria,
+                    idUnico, new FilaCompraCategoria(categoria, idUnico, nombreProducto, cantidad, realizado,
+                    supermercado)));
+        }
+    }
+
+    /**
+     * Publica el alta o la modificación de las compras de un lote que se guardaron correctamente. Si alguna alta
+     * confirmada no tiene identificador (no se pudieron leer las claves generadas), pide recargar la categoría.
+     */
+    void guardadas(CategoriaCompra categoria, List<? extends Compra> compras, ResultadoLote resultado, boolean alta) {
+        if (oyentes.isEmpty()) {
+            return;
+        }
+        if (alta) {
+            for (int i = 0; i < compras.size(); i++) {
+                if (!resultado.getErrores().containsKey(i) && compras.get(i).getIdUnico() <= 0) {
+                    recargar(categoria);
+                    return;
+                }
+            }
+        }
+        for (int i = 0; i < compras.size(); i++) {
+            if (!resultado.getErrores().containsKey(i)) {
+                if (alta) {
+                    creada(categoria, compras.get(i));
+                } else {
+                    actualizada(categoria, compras.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Publica el borrado de una compra ya confirmado en la base de datos.
+     */
+    void eliminada(CategoriaCompra categoria, int idUnico) {
+        publicar(new EventoCompra(EventoCompra.Tipo.ELIMINADA, categoria, idUnico, null));
+    }
+
+    /**
+     * Publica el borrado de varias compras ya confirmado en la base de datos.
+     */
+    void eliminadas(CategoriaCompra categoria, Collection<Integer> idsUnicos) {
+        if (oyentes.isEmpty()) {
+            return;
+        }
+        for (Integer idUnico : idsUnicos) {
+            eliminada(categoria, idUnico);
+        }
+    }
+
+    /**
+     * Publica el cambio de estado de varias compras ya confirmado en la base de datos.
+     */
+    void marcadas(CategoriaCompra categoria, Collection<Integer> idsUnicos, boolean realizado) {
+        if (oyentes.isEmpty()) {
+            return;
+        }
+        EventoCompra.Tipo tipo = realizado ? EventoCompra.Tipo.REALIZADA : EventoCompra.Tipo.PENDIENTE;
+        for (Integer idUnico : idsUnicos) {
+            publicar(new EventoCompra(tipo, categoria, idUnico, null));
+        }
+    }
+
+    private void publicar(EventoCompra evento) {
+        if (oyentes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            entrantes.add(evento);
+            if (entrantes.size() == 1) {
+                notifyAll();
+            }
+        }
+    }
+
+    private static FilaCompraCategoria fila(CategoriaCompra categoria, Compra compra) {
+        return new FilaCompraCategoria(categoria, compra.getIdUnico(), compra.getNombreProducto(),
+                compra.getCantidad(), compra.isRealizado(), compra.getSupermercado());
+    }
+
+    private void bucleRepartidor() {
+        long ventana = Math.max(0, Configuracion.getLargo(PREFIJO + "ventana_ms", 50));
+        int maximoDetalle = Math.max(1, Configuracion.getEntero(PREFIJO + "maximo_detalle", 1_000));
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (entrantes.isEmpty()) {
+                        wait();
+                    }
+                }
+                if (ventana > 0) {
+                    Thread.sleep(ventana);
+                }
+                synchronized (this) {
+                    ArrayList<EventoCompra> llenos = entrantes;
+                    entrantes = enReparto;
+                    enReparto = llenos;
+                }
+                List<EventoCompra> lote = agrupar(enReparto, maximoDetalle);
+                if (enReparto.size() > 10 * maximoDetalle) {
+                    enReparto = new ArrayList<>();  // No retener la capacidad de una ráfaga excepcional
+                } else {
+                    enReparto.clear();
+                }
+                if (!lote.isEmpty()) {
+                    entregar(lote);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void entregar(List<EventoCompra> lote) {
+        for (OyenteCompras oyente : oyentes) {
+            try {
+                oyente.alCambiar(lote);
+            } catch (RuntimeException e) {
+                logger.error("Error en un oyente de cambios de compras.", e);
+            }
+        }
+    }
+
+    /**
+     * Reduce los eventos a uno por compra, conservando el orden de la primera aparición de cada una, y sustituye
+     * por una recarga las categorías con demasiados cambios o con alguna recarga pedida.
+     */
+    private List<EventoCompra> agrupar(List<EventoCompra> eventos, int maximoDetalle) {
+        CategoriaCompra[] categorias = CategoriaCompra.values();
+        int[] porCategoria = new int[categorias.length];
+        Set<CategoriaCompra> recargas = EnumSet.noneOf(CategoriaCompra.class);
+        for (EventoCompra evento : eventos) {
+            if (evento.tipo() == EventoCompra.Tipo.RECARGA
+                    || ++porCategoria[evento.categoria().ordinal()] > maximoDetalle) {
+                recargas.add(evento.categoria());
+            }
+        }
+
+        ArrayList<EventoCompra> agrupados = new ArrayList<>(Math.min(eventos.size(), 16));
+        int nulos = 0;
+        for (EventoCompra evento : eventos) {
+            if (recargas.contains(evento.categoria())) {
+                continue;
+            }
+            Long clave = ((long) evento.categoria().ordinal() << 32) | (evento.idUnico() & 0xFFFFFFFFL);
+            Integer posicion = posiciones.get(clave);
+            if (posicion == null) {
+                posiciones.put(clave, agrupados.size());
+                agrupados.add(evento);
+                continue;
+            }
+            EventoCompra combinado = combinar(agrupados.get(posicion), evento);
+            agrupados.set(posicion, combinado);
+            if (combinado == null) {
+                posiciones.remove(clave);
+                nulos++;
+            }
+        }
+        posiciones.clear();
+        if (nulos > 0) {
+            agrupados.removeIf(evento -> evento == null);
+        }
+        for (CategoriaCompra categoria : recargas) {
+            agrupados.add(new EventoCompra(EventoCompra.Tipo.RECARGA, categoria, 0, null));
+        }
+        return Collections.unmodifiableList(agrupados);
+    }
+
+    /**
+     * Combina dos eventos consecutivos de la misma compra.
+     *
+     * @return El evento equivalente a ambos, o `null` si se anulan.
+     */
+    private static EventoCompra combinar(EventoCompra anterior, EventoCompra siguiente) {
+        return switch (siguiente.tipo()) {
+            case ACTUALIZADA -> anterior.tipo() == EventoCompra.Tipo.CREADA
+                    ? new EventoCompra(EventoCompra.Tipo.CREADA, siguiente.categoria(), siguiente.idUnico(),
+                    siguiente.fila())
+                    : siguiente;
+            case ELIMINADA -> anterior.tipo() == EventoCompra.Tipo.CREADA ? null : siguiente;
+            case REALIZADA, PENDIENTE -> {
+                if (anterior.fila() == null) {
+                    yield anterior.tipo() == EventoCompra.Tipo.ELIMINADA ? anterior : siguiente;
+                }
+                FilaCompraCategoria fila = anterior.fila();
+                yield new EventoCompra(anterior.tipo(), anterior.categoria(), anterior.idUnico(),
+                        new FilaCompraCategoria(fila.categoria(), fila.idUnico(), fila.nombreProducto(),
+                                fila.cantidad(), siguiente.tipo() == EventoCompra.Tipo.REALIZADA,
+                                fila.supermercado()));
+            }
+            default -> siguiente;
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package dao;
+
+/**
+ * Fila de compra con los campos que muestran los listados.
+ *
+ * <p>Se obtiene con una proyección HQL (`select new`) que solo lee estas columnas: no carga la descripción, no
+ * crea entidades gestionadas y no guarda copias para la comprobación de cambios. Para modificar una compra hay que
+ * leer la entidad completa por su `idUnico`.</p>
+ *
+ * @param idUnico        Identificador único de la compra.
+ * @param nombreProducto Nombre del producto.
+ * @param cantidad       Cantidad a comprar.
+ * @param realizado      Si la compra ya se realizó.
+ * @param supermercado   Supermercado donde se compra.
+ */
+public record FilaCompra(int idUnico, String nombreProducto, int cantidad, boolean realizado, String supermercado) {
+}
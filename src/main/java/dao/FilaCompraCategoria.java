@@ -0,0 +1,17 @@
+package dao;
+
+import modelo.CategoriaCompra;
+
+/**
+ * Fila de listado de una compra de cualquier categoría, obtenida de la consulta conjunta de las tres tablas.
+ *
+ * @param categoria      Categoría (tabla) de la que procede la compra.
+ * @param idUnico        Identificador único de la compra dentro de su tabla.
+ * @param nombreProducto Nombre del producto.
+ * @param cantidad       Cantidad a comprar.
+ * @param realizado      Si la compra ya se realizó.
+ * @param supermercado   Supermercado donde se compra.
+ */
+public record FilaCompraCategoria(CategoriaCompra categoria, int idUnico, String nombreProducto, int cantidad,
+                                  boolean realizado, String supermercado) {
+}
@@ -0,0 +1,66 @@
+package dao;
+
+/**
+ * Criterios opcionales para filtrar las consultas de compras.
+ *
+ * Los criterios que se dejan a `null` no se aplican. Un filtro sin criterios devuelve todos los registros.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class FiltroCompras {
+
+    private Boolean realizado;
+    private String supermercado;
+
+    /**
+     * Crea un filtro sin criterios.
+     */
+    public FiltroCompras() {
+    }
+
+    /**
+     * Crea un filtro con los criterios indicados.
+     *
+     * @param realizado    Estado de la compra a filtrar, o `null` para no filtrar por estado.
+     * @param supermercado Supermercado a filtrar, o `null` para no filtrar por supermercado.
+     */
+    public FiltroCompras(Boolean realizado, String supermercado) {
+        this.realizado = realizado;
+        setSupermercado(supermercado);
+    }
+
+    public Boolean getRealizado() {
+        return realizado;
+    }
+
+    public void setRealizado(Boolean realizado) {
+        this.realizado = realizado;
+    }
+
+    public String getSupermercado() {
+        return supermercado;
+    }
+
+    public void setSupermercado(String supermercado) {
+        this.supermercado = supermercado == null || supermercado.isBlank() ? null : supermercado.trim();
+    }
+
+    /**
+     * Indica si el filtro no tiene ningún criterio.
+     *
+     * @return `true` si todos los criterios son `null`.
+     */
+    public boolean isVacio() {
+        return realizado == null && supermercado == null;
+    }
+
+    @Override
+    public String toString() {
+        return "FiltroCompras{" +
+                "realizado=" + realizado +
+                ", supermercado='" + supermercado + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,500 @@
+package dao;
+
+import Util.Configuracion;
+import Util.HibernateUtil;
+import modelo.CategoriaCompra;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Instantánea binaria local de las filas de listado de todas las compras, para mostrar las listas al arrancar sin
+ * esperar a la base de datos.
+ *
+ * <p>Al iniciarse, el archivo de la instantánea se proyecta en memoria (`FileChannel.map`) en segundo plano y se
+ * comprueban su cabecera y su CRC32; si no son válidos, se descarta. Las consultas que llegan durante la carga la
+ * esperan, como mucho {@value #ESPERA_CARGA_MS} ms. Mientras Hibernate arranca y no se ha llegado a la base de
+ * datos, {@link TodasLasComprasDAOImpl} responde con las filas de la instantánea, que se leen directamente de la
+ * proyección sin copiar el archivo. En segundo plano se arranca Hibernate; en cuanto está disponible, las
+ * consultas vuelven a la base de datos y se avisa a quien lo haya pedido con {@link #alActualizar(Runnable)}.</p>
+ *
+ * <p>La instantánea se reescribe desde la base de datos al arrancar y, después, cada `intervalo_s` segundos y al
+ * cerrar la aplicación ({@link HibernateUtil#shutdown()}), pero solo si {@link EventosCompras} avisó de algún
+ * cambio desde la anterior o el archivo ya no existe. Los cambios de otros clientes no generan avisos en este
+ * proceso: llegan a la instantánea con la siguiente escritura, como muy tarde en el próximo arranque. Se lee
+ * siempre del servidor principal (o del almacén local en modo sin conexión), nunca de una réplica que pueda ir
+ * retrasada. Se escribe en un archivo temporal que se renombra al terminar, así que un cierre a medias nunca deja
+ * una instantánea truncada.</p>
+ *
+ * <p><strong>Formato</strong> (enteros en big-endian):</p>
+ * <ul>
+ *     <li>Cabecera de {@value #CABECERA} bytes: marca `TDLI`, versión del formato (`short`), reservado
+ *     (`short`), fecha de creación en ms (`long`), número de filas (`int`), longitud de los datos (`long`) y CRC32
+ *     de los datos (`int`).</li>
+ *     <li>Una entrada por fila, en el orden de {@link TodasLasComprasDAO#obtenerFilas}: categoría (`byte`),
+ *     realizado (`byte`), `IdUnico` (`int`), cantidad (`int`), supermercado y nombre del producto (longitud en
+ *     bytes como `short` sin signo, `0xFFFF` para nulo, seguida del texto en UTF-8).</li>
+ * </ul>
+ *
+ * <p><strong>Propiedades admitidas (prefijo `todolist.instantanea.`):</strong></p>
+ * <ul>
+ *     <li>`habilitada`: si se usa la instantánea (por defecto `true`).</li>
+ *     <li>`ruta`: archivo de la instantánea (por defecto `~/.todolist/instantanea`).</li>
+ *     <li>`intervalo_s`: segundos entre dos escrituras periódicas (por defecto 300).</li>
+ * </ul>
+ */
+public final class InstantaneaCompras {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstantaneaCompras.class);
+
+    private static final String PREFIJO = "todolist.instantanea.";
+
+    private static final int MAGIA = 0x54444C49;  // "TDLI"
+    private static final short VERSION = 1;
+    private static final int CABECERA = 32;
+
+    private static final int NULO = 0xFFFF;
+    private static final long ESPERA_CARGA_MS = 5_000;
+    private static final CategoriaCompra[] CATEGORIAS = CategoriaCompra.values();
+
+    private static final InstantaneaCompras instancia = new InstantaneaCompras();
+
+    private final List<Runnable> oyentes = new CopyOnWriteArrayList<>();
+    private final CountDownLatch cargada = new CountDownLatch(1);
+
+    /**
+     * Datos de la instantánea cargada, sin la cabecera; `null` si no hay o ya no se usa.
+     */
+    private volatile ByteBuffer datos;
+    private volatile boolean actualizada;
+
+    /**
+     * Si hubo cambios en las compras desde que se empezó a leer la última instantánea guardada.
+     */
+    private final AtomicBoolean cambiada = new AtomicBoolean(true);
+    private final OyenteCompras oyenteCambios = eventos -> cambiada.set(true);
+
+    private volatile boolean iniciada;  // Se escribe con el monitor de la instancia tomado
+
+    // Protegido por el monitor de la instancia
+    private ScheduledExecutorService planificador;
+
+    private InstantaneaCompras() {
+    }
+
+    /**
+     * Devuelve la instantánea del proceso.
+     *
+     * @return La instancia única.
+     */
+    public static InstantaneaCompras getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Lanza en segundo plano la carga de la instantánea del disco, la conexión con la base de datos y las
+     * escrituras periódicas, si no se ha lanzado ya. No hace nada más si `todolist.instantanea.habilitada` es
+     * `false`.
+     *
+     * <p>Vuelve enseguida, así que puede llamarse desde el hilo de la interfaz antes de mostrar la primera vista.</p>
+     */
+    public synchronized void iniciar() {
+        if (iniciada) {
+            return;
+        }
+        iniciada = true;
+        ScheduledExecutorService nuevo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "instantanea-compras");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador = nuevo;
+        nuevo.execute(() -> preparar(nuevo));
+    }
+
+    /**
+     * Detiene las escrituras periódicas y, si se llegó a la base de datos, guarda una última instantánea.
+     * Lo llama {@link HibernateUtil#shutdown()} antes de cerrar las conexiones.
+     */
+    public static void cerrarSiIniciada() {
+        instancia.cerrar();
+    }
+
+    /**
+     * Indica si la base de datos ya está disponible y las consultas ya no usan la instantánea.
+     *
+     * @return `true` si los datos vienen de la base de datos.
+     */
+    public boolean isActualizada() {
+        return actualizada;
+    }
+
+    /**
+     * Registra una acción que se ejecuta una vez, en un hilo en segundo plano, cuando la base de datos está
+     * disponible; por ejemplo, para volver a cargar una lista mostrada desde la instantánea. Si ya lo está, se
+     * ejecuta en el hilo actual.
+     *
+     * @param accion Acción a ejecutar; si actualiza la interfaz, debe hacerlo con `Platform.runLater`.
+     */
+    public void alActualizar(Runnable accion) {
+        oyentes.add(accion);
+        if (actualizada && oyentes.remove(accion)) {
+            accion.run();
+        }
+    }
+
+    /**
+     * Obtiene de la instantánea las filas de listado de las categorías indicadas que cumplen el filtro.
+     *
+     * <p>Las filas se recorren en el orden de la instantánea, que es el de la consulta conjunta, y solo se
+     * convierten a texto las que cumplen la categoría y el estado.</p>
+     *
+     * @param categorias Categorías a incluir (ya validadas).
+     * @param filtro     Criterios de filtrado, o `null`.
+     * @param limite     Número máximo de filas (ya validado).
+     * @return Filas de la instantánea, o `null` si no hay instantánea o la base de datos ya está disponible.
+     */
+    List<FilaCompraCategoria> obtenerFilas(Set<CategoriaCompra> categorias, FiltroCompras filtro, int limite) {
+        if (!iniciada || actualizada) {
+            return null;
+        }
+        try {
+            if (!cargada.await(ESPERA_CARGA_MS, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        ByteBuffer actual = datos;
+        if (actual == null) {
+            return null;
+        }
+        Boolean realizado = filtro != null ? filtro.getRealizado() : null;
+        String supermercadoBuscado = filtro != null ? filtro.getSupermercado() : null;
+
+        ByteBuffer buffer = actual.duplicate();  // Posición propia para cada lectura
+        List<FilaCompraCategoria> filas = new ArrayList<>(Math.min(limite, 100));
+        while (buffer.hasRemaining() && filas.size() < limite) {
+            CategoriaCompra categoria = CATEGORIAS[buffer.get()];
+            boolean filaRealizada = buffer.get() != 0;
+            int idUnico = buffer.getInt();
+            int cantidad = buffer.getInt();
+            if (!categorias.contains(categoria) || (realizado != null && realizado != filaRealizada)) {
+                saltarTexto(buffer);
+                saltarTexto(buffer);
+                continue;
+            }
+            String supermercado = leerTexto(buffer);
+            // Sin distinguir mayúsculas, como la intercalación por defecto de MySQL
+            if (supermercadoBuscado != null && !supermercadoBuscado.equalsIgnoreCase(supermercado)) {
+                saltarTexto(buffer);
+                continue;
+            }
+            filas.add(new FilaCompraCategoria(categoria, idUnico, leerTexto(buffer), cantidad, filaRealizada,
+                    supermercado));
+        }
+        return filas;
+    }
+
+    /**
+     * Escribe ahora una instantánea con las compras del servidor principal, o del almacén local en modo sin
+     * conexión.
+     *
+     * @return `true` si se guardó; `false` si ocurrió un error (la instantánea anterior se conserva).
+     */
+    public boolean guardar() {
+        Path ruta = ruta();
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        long inicio = System.nanoTime();
+        synchronized (InstantaneaCompras.class) {  // Una sola escritura a la vez sobre el archivo temporal
+            try {
+                if (ruta.getParent() != null) {
+                    Files.createDirectories(ruta.getParent());
+                }
+                int[] filas = new int[1];
+                // Una réplica retrasada dejaría en la instantánea datos más antiguos que los ya mostrados
+                try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                    session.setDefaultReadOnly(true);
+                    session.doWork(conexion -> {
+                        try (Statement st = conexion.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                                ResultSet.CONCUR_READ_ONLY)) {
+                            st.setFetchSize(Configuracion.getEntero("todolist.flujo.tamano_bloque", 500));
+                            try (ResultSet rs = st.executeQuery(TodasLasComprasDAOImpl.construirConsulta(
+                                    EnumSet.allOf(CategoriaCompra.class), null))) {
+                                filas[0] = escribir(rs, temporal);
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e.getMessage(), e);
+                            }
+                        }
+                    });
+                }
+                mover(temporal, ruta);
+                logger.info("Instantánea de {} compras guardada en {} ({} ms).", filas[0], ruta,
+                        (System.nanoTime() - inicio) / 1_000_000);
+                return true;
+            } catch (Exception e) {
+                logger.error("Error al guardar la instantánea de compras: {}", e.getMessage());
+                try {
+                    Files.deleteIfExists(temporal);
+                } catch (IOException ex) {
+                    logger.warn("No se pudo borrar la instantánea temporal {}.", temporal);
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Primera tarea del planificador: carga la instantánea y programa los ciclos.
+     */
+    private void preparar(ScheduledExecutorService ejecutor) {
+        boolean habilitada = false;
+        try {
+            habilitada = Configuracion.getBooleano(PREFIJO + "habilitada", true);
+            if (habilitada) {
+                cargar(ruta());
+            }
+        } finally {
+            cargada.countDown();
+        }
+        if (!habilitada) {
+            ejecutor.shutdown();
+            return;
+        }
+        long intervalo = Math.max(10, Configuracion.getLargo(PREFIJO + "intervalo_s", 300));
+        EventosCompras.getInstancia().suscribir(oyenteCambios);
+        ejecutor.scheduleWithFixedDelay(this::ciclo, 0, intervalo, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Ciclo del planificador: arranca Hibernate si aún no se ha hecho y reescribe la instantánea si hubo cambios.
+     */
+    private void ciclo() {
+        if (!actualizada) {
+            try {
+                HibernateUtil.getSessionFactory();
+            } catch (Exception e) {
+                logger.warn("Base de datos no disponible; se sigue usando la instantánea: {}", e.getMessage());
+                return;
+            }
+            actualizada = true;
+            datos = null;  // La proyección se libera cuando el recolector de basura la descarte
+            logger.info("Base de datos disponible; las listas dejan de usar la instantánea.");
+            for (Runnable oyente : oyentes) {
+                if (oyentes.remove(oyente)) {
+                    try {
+                        oyente.run();
+                    } catch (Exception e) {
+                        logger.error("Error al avisar de la carga de los datos: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+        guardarSiCambiada();
+    }
+
+    private void cerrar() {
+        ScheduledExecutorService actual;
+        synchronized (this) {
+            actual = planificador;
+            planificador = null;
+        }
+        if (actual == null) {
+            return;
+        }
+        actual.shutdownNow();
+        try {
+            actual.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (actualizada) {
+            guardarSiCambiada();
+        }
+        EventosCompras.getInstancia().cancelar(oyenteCambios);
+    }
+
+    /**
+     * Reescribe la instantánea si hubo cambios desde la anterior o si el archivo no existe.
+     */
+    private void guardarSiCambiada() {
+        // Se desmarca antes de leer: un cambio confirmado durante la escritura fuerza la siguiente
+        if (!cambiada.getAndSet(false) && Files.isRegularFile(ruta())) {
+            logger.debug("Sin cambios en las compras desde la última instantánea; no se reescribe.");
+            return;
+        }
+        if (!guardar()) {
+            cambiada.set(true);
+        }
+    }
+
+    /**
+     * Proyecta la instantánea y comprueba su cabecera y su CRC. Si no es válida, la descarta.
+     */
+    private void cargar(Path ruta) {
+        if (!Files.isRegularFile(ruta)) {
+            logger.info("No hay instantánea de compras en {}.", ruta);
+            return;
+        }
+        long inicio = System.nanoTime();
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano < CABECERA || tamano > Integer.MAX_VALUE) {
+                throw new IOException("tamaño de archivo no válido (" + tamano + " bytes)");
+            }
+            // La proyección sigue siendo válida después de cerrar el canal
+            ByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+            if (mapa.getInt(0) != MAGIA) {
+                throw new IOException("no es un archivo de instantánea");
+            }
+            if (mapa.getShort(4) != VERSION) {
+                throw new IOException("versión de formato " + mapa.getShort(4) + " no admitida");
+            }
+            long creada = mapa.getLong(8);
+            int filas = mapa.getInt(16);
+            if (mapa.getLong(20) != tamano - CABECERA) {
+                throw new IOException("archivo incompleto");
+            }
+            ByteBuffer contenido = mapa.slice(CABECERA, (int) (tamano - CABECERA));
+            CRC32 crc = new CRC32();
+            crc.update(contenido.duplicate());
+            if ((int) crc.getValue() != mapa.getInt(28)) {
+                throw new IOException("el CRC no coincide");
+            }
+            datos = contenido;
+            logger.info("Instantánea de {} compras del {} cargada en {} ms.", filas, new Date(creada),
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (IOException e) {
+            logger.warn("Instantánea de compras {} descartada: {}.", ruta, e.getMessage());
+            try {
+                Files.deleteIfExists(ruta);
+            } catch (IOException ex) {
+                logger.warn("No se pudo borrar la instantánea descartada {}.", ruta);
+            }
+        }
+    }
+
+    /**
+     * Escribe las filas del resultado en el archivo indicado: primero los datos, calculando su CRC, y al final la
+     * cabecera.
+     *
+     * @return Número de filas escritas.
+     */
+    private static int escribir(ResultSet rs, Path archivo) throws IOException, SQLException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            canal.position(CABECERA);
+            CRC32 crc = new CRC32();
+            // No se cierra: cerrar la salida cerraría el canal antes de escribir la cabecera
+            DataOutputStream salida = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16), crc));
+            int filas = 0;
+            while (rs.next()) {
+                salida.writeByte(CategoriaCompra.valueOf(rs.getString(1)).ordinal());
+                salida.writeBoolean(rs.getBoolean(5));
+                salida.writeInt(rs.getInt(2));
+                salida.writeInt(rs.getInt(4));
+                escribirTexto(salida, rs.getString(6));
+                escribirTexto(salida, rs.getString(3));
+                filas++;
+            }
+            salida.flush();
+
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA)
+                    .putInt(MAGIA)
+                    .putShort(VERSION)
+                    .putShort((short) 0)
+                    .putLong(System.currentTimeMillis())
+                    .putInt(filas)
+                    .putLong(canal.size() - CABECERA)
+                    .putInt((int) crc.getValue())
+                    .flip();
+            while (cabecera.hasRemaining()) {
+                canal.write(cabecera, cabecera.position());
+            }
+            canal.force(true);
+            return filas;
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeShort(NULO);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULO) {
+            throw new IOException("texto demasiado largo para la instantánea (" + bytes.length + " bytes)");
+        }
+        salida.writeShort(bytes.length);
+        salida.write(bytes);
+    }
+
+    private static String leerTexto(ByteBuffer buffer) {
+        int longitud = buffer.getShort() & 0xFFFF;
+        if (longitud == NULO) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void saltarTexto(ByteBuffer buffer) {
+        int longitud = buffer.getShort() & 0xFFFF;
+        if (longitud != NULO) {
+            buffer.position(buffer.position() + longitud);
+        }
+    }
+
+    /**
+     * Sustituye la instantánea por la recién escrita, de forma atómica si el sistema de archivos lo permite.
+     *
+     * <p>En Windows no se puede sustituir un archivo proyectado en memoria; si la proyección de la instantánea
+     * anterior aún no se ha liberado, falla y se vuelve a intentar en la siguiente escritura.</p>
+     */
+    private static void mover(Path temporal, Path ruta) throws IOException {
+        try {
+            Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path ruta() {
+        return Paths.get(Configuracion.getTexto(PREFIJO + "ruta",
+                System.getProperty("user.home") + File.separator + ".todolist" + File.separator + "instantanea"));
+    }
+}
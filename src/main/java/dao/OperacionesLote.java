@@ -0,0 +1,346 @@
+package dao;
+
+import Util.Configuracion;
+import modelo.Compra;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operaciones en lote compartidas por los DAO de compras.
+ *
+ * <p>Las tablas de compras usan `AUTO_INCREMENT` como identificador, lo que impide a Hibernate agrupar los
+ * INSERT en lotes JDBC. Por eso estas operaciones escriben directamente con sentencias preparadas sobre la
+ * conexión de la sesión (`Session.doWork`), o sobre una conexión JDBC para las tablas que Hibernate no conoce,
+ * dentro de una única transacción, y envían los lotes al servidor cada `hibernate.jdbc.batch_size` filas.</p>
+ *
+ * <p><strong>Gestión de errores:</strong></p>
+ * <ul>
+ *     <li>Las filas que no superan la validación se registran como fallidas y no se envían a la base de datos.</li>
+ *     <li>Los fallos de una fila dentro de un lote se obtienen de los contadores de `BatchUpdateException`.</li>
+ *     <li>Si la transacción no puede confirmarse, todas las filas se marcan como fallidas.</li>
+ * </ul>
+ *
+ * <p>Las actualizaciones respetan el bloqueo optimista de las entidades: solo se aplican si la columna `Version`
+ * coincide con la versión de la compra, y la incrementan.</p>
+ */
+final class OperacionesLote {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperacionesLote.class);
+
+    private static final String COLUMNAS = "NombreProducto, Descripcion, Foto, NumeroUnicoFoto, Cantidad, Realizado, SuperMercado, Version";
+
+    private OperacionesLote() {
+    }
+
+    /**
+     * Devuelve el número de filas que se envían al servidor en cada lote JDBC.
+     *
+     * @return Valor de `hibernate.jdbc.batch_size`, o 50 si no está configurado.
+     */
+    static int getTamanoLote() {
+        return Math.max(1, Configuracion.getEntero("hibernate.jdbc.batch_size", 50));
+    }
+
+    /**
+     * Inserta las compras indicadas en la tabla usando lotes JDBC en una única transacción.
+     * A las compras insertadas se les asigna el identificador generado por la base de datos.
+     *
+     * @param sessionFactory Fábrica de sesiones de la que se obtiene la conexión.
+     * @param tabla          Nombre de la tabla destino.
+     * @param compras        Compras a insertar.
+     * @return Resultado con el número de filas correctas y los errores por fila.
+     * @throws IllegalArgumentException Si la lista es nula.
+     */
+    static ResultadoLote insertar(SessionFactory sessionFactory, String tabla, List<? extends Compra> compras) {
+        return ejecutar(enSesion(sessionFactory), sqlInsertar(tabla), compras, false);
+    }
+
+    /**
+     * Igual que {@link #insertar(SessionFactory, String, List)}, pero sobre una conexión JDBC ya abierta, para
+     * tablas que Hibernate no conoce. La transacción se confirma o revierte en la propia conexión.
+     *
+     * @param conexion Conexión sobre la que escribir; al terminar conserva su modo de autocommit.
+     * @param tabla    Nombre de la tabla destino.
+     * @param compras  Compras a insertar.
+     * @return Resultado con el número de filas correctas y los errores por fila.
+     * @throws IllegalArgumentException Si la lista es nula.
+     */
+    static ResultadoLote insertar(Connection conexion, String tabla, List<? extends Compra> compras) {
+        return ejecutar(enConexion(conexion), sqlInsertar(tabla), compras, false);
+    }
+
+    /**
+     * Actualiza las compras indicadas usando lotes JDBC en una única transacción.
+     * Las filas cuyo identificador no existe en la tabla, o cuya versión no coincide con la de la base de datos,
+     * se registran como fallidas. A las compras actualizadas se les asigna la nueva versión.
+     *
+     * @param sessionFactory Fábrica de sesiones de la que se obtiene la conexión.
+     * @param tabla          Nombre de la tabla destino.
+     * @param compras        Compras con los datos actualizados.
+     * @return Resultado con el número de filas correctas y los errores por fila.
+     * @throws IllegalArgumentException Si la lista es nula.
+     */
+    static ResultadoLote actualizar(SessionFactory sessionFactory, String tabla, List<? extends Compra> compras) {
+        return ejecutar(enSesion(sessionFactory), sqlActualizar(tabla), compras, true);
+    }
+
+    /**
+     * Igual que {@link #actualizar(SessionFactory, String, List)}, pero sobre una conexión JDBC ya abierta, para
+     * tablas que Hibernate no conoce. La transacción se confirma o revierte en la propia conexión.
+     *
+     * @param conexion Conexión sobre la que escribir; al terminar conserva su modo de autocommit.
+     * @param tabla    Nombre de la tabla destino.
+     * @param compras  Compras con los datos actualizados.
+     * @return Resultado con el número de filas correctas y los errores por fila.
+     * @throws IllegalArgumentException Si la lista es nula.
+     */
+    static ResultadoLote actualizar(Connection conexion, String tabla, List<? extends Compra> compras) {
+        return ejecutar(enConexion(conexion), sqlActualizar(tabla), compras, true);
+    }
+
+    /**
+     * Sentencia de inserción de una compra; los parámetros se asignan con {@link #asignarParametros}.
+     */
+    static String sqlInsertar(String tabla) {
+        return "INSERT INTO " + tabla + " (" + COLUMNAS + ") VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+    }
+
+    /**
+     * Sentencia de actualización de una compra con comprobación de versión; los parámetros se asignan con
+     * {@link #asignarParametros}.
+     */
+    static String sqlActualizar(String tabla) {
+        return "UPDATE " + tabla + " SET NombreProducto = ?, Descripcion = ?, Foto = ?, NumeroUnicoFoto = ?, "
+                + "Cantidad = ?, Realizado = ?, SuperMercado = ?, Version = Version + 1 WHERE IdUnico = ? AND Version = ?";
+    }
+
+    /**
+     * Ejecuta el trabajo en una transacción de una sesión nueva de Hibernate.
+     */
+    private static Transaccion enSesion(SessionFactory sessionFactory) {
+        return trabajo -> {
+            Transaction transaction = null;
+            try (Session session = sessionFactory.openSession()) {
+                transaction = session.beginTransaction();
+                session.doWork(trabajo);
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction != null && transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Ejecuta el trabajo en una transacción de la conexión indicada.
+     */
+    private static Transaccion enConexion(Connection conexion) {
+        return trabajo -> {
+            boolean autocommit = conexion.getAutoCommit();
+            conexion.setAutoCommit(false);
+            try {
+                trabajo.execute(conexion);
+                conexion.commit();
+            } catch (SQLException | RuntimeException e) {
+                conexion.rollback();
+                throw e;
+            } finally {
+                conexion.setAutoCommit(autocommit);
+            }
+        };
+    }
+
+    private static ResultadoLote ejecutar(Transaccion transaccion, String sql, List<? extends Compra> compras, boolean actualizacion) {
+        if (compras == null) {
+            throw new IllegalArgumentException("La lista de compras no puede ser nula.");
+        }
+        ResultadoLote resultado = new ResultadoLote(compras.size());
+
+        // Validar antes de abrir la transacción; solo las filas válidas se envían
+        List<Integer> validas = new ArrayList<>(compras.size());
+        for (int i = 0; i < compras.size(); i++) {
+            try {
+                validar(compras.get(i), actualizacion);
+                validas.add(i);
+            } catch (IllegalArgumentException e) {
+                resultado.registrarFallo(i, e.getMessage());
+            }
+        }
+        if (validas.isEmpty()) {
+            return resultado;
+        }
+
+        int tamanoLote = getTamanoLote();
+        List<Integer> correctas = new ArrayList<>(validas.size());
+        try {
+            transaccion.ejecutar(conexion -> {
+                int generarClaves = actualizacion ? Statement.NO_GENERATED_KEYS : Statement.RETURN_GENERATED_KEYS;
+                try (PreparedStatement ps = conexion.prepareStatement(sql, generarClaves)) {
+                    for (int desde = 0; desde < validas.size(); desde += tamanoLote) {
+                        List<Integer> tramo = validas.subList(desde, Math.min(desde + tamanoLote, validas.size()));
+                        for (int posicion : tramo) {
+                            asignarParametros(ps, compras.get(posicion), actualizacion);
+                            ps.addBatch();
+                        }
+                        ejecutarTramo(ps, tramo, compras, resultado, correctas, actualizacion);
+                    }
+                }
+            });
+            if (actualizacion) {
+                // Solo tras confirmar, para no dejar versiones adelantadas si la transacción se revierte
+                correctas.forEach(posicion -> compras.get(posicion).setVersion(compras.get(posicion).getVersion() + 1));
+            }
+        } catch (Exception e) {
+            if (!actualizacion) {
+                validas.forEach(posicion -> compras.get(posicion).setIdUnico(0));
+            }
+            logger.error("Error al ejecutar el lote, se revierte la transacción: {}", e.getMessage());
+            resultado.registrarFalloGeneral("Transacción revertida: " + e.getMessage());
+        }
+        return resultado;
+    }
+
+    /**
+     * Envía al servidor las filas acumuladas y registra el resultado de cada una.
+     */
+    private static void ejecutarTramo(PreparedStatement ps, List<Integer> tramo, List<? extends Compra> compras,
+                                      ResultadoLote resultado, List<Integer> correctas, boolean actualizacion) throws SQLException {
+        int[] contadores;
+        String motivo = null;
+        try {
+            contadores = ps.executeBatch();
+        } catch (BatchUpdateException e) {
+            contadores = e.getUpdateCounts();
+            motivo = e.getMessage();
+            logger.warn("Fallo parcial en un lote de {} filas: {}", tramo.size(), motivo);
+        }
+        ps.clearBatch();
+
+        List<Integer> insertadas = new ArrayList<>(tramo.size());
+        for (int i = 0; i < tramo.size(); i++) {
+            int contador = i < contadores.length ? contadores[i] : Statement.EXECUTE_FAILED;
+            if (contador == Statement.EXECUTE_FAILED) {
+                resultado.registrarFallo(tramo.get(i), motivo != null ? motivo : "Error al ejecutar la sentencia.");
+            } else if (actualizacion && contador == 0) {
+                resultado.registrarFallo(tramo.get(i), "No existe ningún registro con IdUnico="
+                        + compras.get(tramo.get(i)).getIdUnico() + " o fue modificado por otro usuario.");
+            } else {
+                resultado.registrarExito();
+                correctas.add(tramo.get(i));
+                insertadas.add(tramo.get(i));
+            }
+        }
+        if (!actualizacion) {
+            asignarClaves(ps, insertadas, compras, motivo != null);
+        }
+    }
+
+    /**
+     * Asigna a las filas insertadas del tramo las claves generadas, en el orden en que se enviaron.
+     *
+     * <p>Tras un fallo parcial, el controlador solo devuelve las claves de las sentencias que se ejecutaron; se
+     * asignan si hay exactamente una por fila insertada. Si no, esas filas quedan con `IdUnico` 0, aunque estén
+     * guardadas, y quien las use debe tratarlas como desconocidas.</p>
+     */
+    private static void asignarClaves(PreparedStatement ps, List<Integer> insertadas, List<? extends Compra> compras,
+                                      boolean parcial) throws SQLException {
+        List<Integer> claves = new ArrayList<>(insertadas.size());
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next()) {
+                claves.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            if (!parcial) {
+                throw e;
+            }
+            logger.warn("No se pudieron leer las claves generadas tras el fallo parcial: {}", e.getMessage());
+            return;
+        }
+        if (parcial && claves.size() != insertadas.size()) {
+            logger.warn("Se obtuvieron {} claves generadas para {} filas insertadas; quedan sin identificador.",
+                    claves.size(), insertadas.size());
+            return;
+        }
+        for (int i = 0; i < insertadas.size() && i < claves.size(); i++) {
+            compras.get(insertadas.get(i)).setIdUnico(claves.get(i));
+        }
+    }
+
+    /**
+     * Asigna los datos de la compra a una sentencia de {@link #sqlInsertar} o, si es una actualización, de
+     * {@link #sqlActualizar}.
+     */
+    static void asignarParametros(PreparedStatement ps, Compra compra, boolean actualizacion) throws SQLException {
+        ps.setString(1, compra.getNombreProducto());
+        ps.setString(2, compra.getDescripcion());
+        ps.setBoolean(3, compra.isFoto());
+        if (compra.getNumeroUnicoFoto() != null) {
+            ps.setInt(4, compra.getNumeroUnicoFoto());
+        } else {
+            ps.setNull(4, Types.INTEGER);
+        }
+        ps.setInt(5, compra.getCantidad());
+        ps.setBoolean(6, compra.isRealizado());
+        ps.setString(7, compra.getSupermercado());
+        if (actualizacion) {
+            ps.setInt(8, compra.getIdUnico());
+            ps.setInt(9, compra.getVersion());
+        }
+    }
+
+    /**
+     * Aplica a cada fila las mismas reglas que validan las entidades de compra.
+     *
+     * @throws IllegalArgumentException Si la fila no cumple alguna restricción.
+     */
+    static void validar(Compra compra, boolean actualizacion) {
+        if (compra == null) {
+            throw new IllegalArgumentException("La compra no puede ser nula.");
+        }
+        if (actualizacion && compra.getIdUnico() <= 0) {
+            throw new IllegalArgumentException("El identificador único debe ser mayor que cero.");
+        }
+        if (compra.getNombreProducto() == null || compra.getNombreProducto().isBlank()) {
+            throw new IllegalArgumentException("El nombre del producto no puede ser nulo o vacío.");
+        }
+        if (compra.getDescripcion() == null || compra.getDescripcion().isBlank()) {
+            throw new IllegalArgumentException("La descripción no puede ser nula o vacía.");
+        }
+        if (compra.getCantidad() <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor que cero.");
+        }
+        if (compra.getSupermercado() == null || compra.getSupermercado().isBlank()) {
+            throw new IllegalArgumentException("El nombre del supermercado no puede ser vacío o nulo.");
+        }
+        if (compra.isFoto() && (compra.getNumeroUnicoFoto() == null || compra.getNumeroUnicoFoto() <= 0)) {
+            throw new IllegalArgumentException("Una compra con foto necesita un número único de foto positivo.");
+        }
+    }
+
+    /**
+     * Forma de abrir, confirmar y revertir la transacción en la que se ejecuta un lote.
+     */
+    @FunctionalInterface
+    private interface Transaccion {
+        /**
+         * Ejecuta el trabajo y confirma la transacción; si falla, la revierte y propaga la excepción.
+         */
+        void ejecutar(Work trabajo) throws Exception;
+    }
+}
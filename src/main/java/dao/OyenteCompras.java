@@ -0,0 +1,21 @@
+package dao;
+
+import java.util.List;
+
+/**
+ * Suscriptor de {@link EventosCompras}.
+ */
+@FunctionalInterface
+public interface OyenteCompras {
+
+    /**
+     * Recibe los cambios confirmados desde la entrega anterior, ya agrupados.
+     *
+     * <p>Se llama desde el hilo de reparto de eventos, nunca desde el de JavaFX: quien actualice controles debe
+     * pasar a ese hilo con `Platform.runLater`. Debe volver pronto, porque hasta entonces no se entregan los
+     * cambios a los demás suscriptores.</p>
+     *
+     * @param eventos Cambios en el orden en que se confirmaron; la lista no se puede modificar.
+     */
+    void alCambiar(List<EventoCompra> eventos);
+}
@@ -0,0 +1,62 @@
+package dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta paginada por clave (keyset).
+ *
+ * Para obtener la página siguiente se pasa {@link #getSiguienteCursor()} como `despuesDeIdUnico`
+ * en la siguiente llamada a `obtenerPagina`.
+ *
+ * @param <T> Tipo de los elementos de la página.
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public final class Pagina<T> {
+
+    private final List<T> elementos;
+    private final Integer siguienteCursor;
+
+    /**
+     * Crea una página.
+     *
+     * @param elementos       Elementos de la página, en orden de `IdUnico`.
+     * @param siguienteCursor `IdUnico` del último elemento si hay más resultados, o `null` si es la última página.
+     */
+    public Pagina(List<T> elementos, Integer siguienteCursor) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Devuelve el cursor para pedir la página siguiente.
+     *
+     * @return `IdUnico` a partir del cual continuar, o `null` si no hay más páginas.
+     */
+    public Integer getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    /**
+     * Indica si existen más resultados después de esta página.
+     *
+     * @return `true` si hay una página siguiente.
+     */
+    public boolean hayMas() {
+        return siguienteCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Pagina{" +
+                "elementos=" + elementos.size() +
+                ", siguienteCursor=" + siguienteCursor +
+                '}';
+    }
+}
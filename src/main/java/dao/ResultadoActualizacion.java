@@ -0,0 +1,32 @@
+package dao;
+
+/**
+ * Resultado de actualizar una compra con control de versión (bloqueo optimista).
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public enum ResultadoActualizacion {
+
+    /**
+     * La compra se actualizó y su versión se incrementó.
+     */
+    ACTUALIZADA,
+
+    /**
+     * Otro usuario modificó la compra desde que se leyó; no se ha guardado nada.
+     * Hay que volver a leerla y repetir el cambio sobre los datos actuales.
+     */
+    CONFLICTO,
+
+    /**
+     * No existe ninguna compra con ese identificador (por ejemplo, porque otro usuario la eliminó).
+     */
+    NO_ENCONTRADA,
+
+    /**
+     * Los datos no son válidos o la base de datos devolvió un error.
+     */
+    ERROR
+}
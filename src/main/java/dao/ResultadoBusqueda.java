@@ -0,0 +1,14 @@
+package dao;
+
+import modelo.CategoriaCompra;
+
+/**
+ * Compra encontrada por una búsqueda de texto.
+ *
+ * @param categoria  Categoría (tabla) de la compra.
+ * @param idUnico    Identificador único de la compra dentro de su tabla.
+ * @param puntuacion Relevancia de la compra para la búsqueda; solo es comparable entre resultados de la misma
+ *                   búsqueda.
+ */
+public record ResultadoBusqueda(CategoriaCompra categoria, int idUnico, double puntuacion) {
+}
@@ -0,0 +1,99 @@
+package dao;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de una operación en lote (inserción o actualización de varias compras).
+ *
+ * Registra cuántas filas se procesaron correctamente y, para cada fila fallida, su posición en la lista
+ * de entrada junto con el motivo del fallo.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class ResultadoLote {
+
+    private final int total;
+    private int exitosos;
+    private final Map<Integer, String> errores = new TreeMap<>();
+
+    /**
+     * Crea un resultado vacío para un lote del tamaño indicado.
+     *
+     * @param total Número de filas recibidas en el lote.
+     */
+    public ResultadoLote(int total) {
+        this.total = total;
+    }
+
+    /**
+     * Registra que una fila se procesó correctamente.
+     */
+    void registrarExito() {
+        exitosos++;
+    }
+
+    /**
+     * Registra el fallo de la fila en la posición indicada.
+     *
+     * @param posicion Posición de la fila en la lista de entrada.
+     * @param motivo   Descripción del error.
+     */
+    void registrarFallo(int posicion, String motivo) {
+        errores.put(posicion, motivo);
+    }
+
+    /**
+     * Marca como fallidas todas las filas que aún no tenían error, por ejemplo tras revertir la transacción.
+     *
+     * @param motivo Descripción del error.
+     */
+    void registrarFalloGeneral(String motivo) {
+        exitosos = 0;
+        for (int i = 0; i < total; i++) {
+            errores.putIfAbsent(i, motivo);
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getExitosos() {
+        return exitosos;
+    }
+
+    public int getFallidos() {
+        return errores.size();
+    }
+
+    /**
+     * Devuelve los errores por fila.
+     *
+     * @return Mapa ordenado posición → motivo del fallo.
+     */
+    public Map<Integer, String> getErrores() {
+        return Collections.unmodifiableMap(errores);
+    }
+
+    /**
+     * Indica si todas las filas del lote se procesaron correctamente.
+     *
+     * @return `true` si no hubo ningún fallo.
+     */
+    public boolean isCompleto() {
+        return errores.isEmpty() && exitosos == total;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoLote{" +
+                "total=" + total +
+                ", exitosos=" + exitosos +
+                ", fallidos=" + errores.size() +
+                '}';
+    }
+}
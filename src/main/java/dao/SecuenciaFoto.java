@@ -0,0 +1,209 @@
+package dao;
+
+import Util.Configuracion;
+import Util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generador de números únicos de foto (`NumeroUnicoFoto`) compartido por las tres tablas de compras.
+ *
+ * <p>Sustituye al cálculo `MAX(NumeroUnicoFoto) + 1`, que lanzaba una consulta de agregación por cada inserción,
+ * entregaba el mismo número a dos clientes concurrentes y numeraba cada tabla por separado aunque todas
+ * comparten la carpeta `Fotos/`.</p>
+ *
+ * <p><strong>Funcionamiento (hi/lo):</strong></p>
+ * <ul>
+ *     <li>La tabla `SecuenciaFoto` guarda el siguiente número libre. Cada reserva lo incrementa en
+ *     `todolist.foto.tamano_bloque` dentro de una transacción, por lo que cada JVM obtiene un bloque exclusivo.</li>
+ *     <li>Los números del bloque se entregan desde memoria sin bloqueos (`AtomicInteger`); solo el hilo que
+ *     agota el bloque accede a la base de datos para reservar el siguiente.</li>
+ *     <li>Si la fila de la secuencia no existe, se crea a partir del mayor número usado en las tres tablas.</li>
+ * </ul>
+ *
+ * <p>Los bloques se reservan siempre en el servidor principal, también en modo sin conexión, para que los
+ * números sean únicos entre todos los clientes; sin conexión con el servidor no se pueden reservar.</p>
+ *
+ * <p>Los números de un bloque que no llegan a usarse (por ejemplo, al cerrar la aplicación) se pierden; la
+ * numeración es única pero puede tener huecos.</p>
+ */
+public final class SecuenciaFoto {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecuenciaFoto.class);
+
+    /**
+     * Nombre de la fila de la tabla `SecuenciaFoto` que usa este generador.
+     */
+    static final String NOMBRE_SECUENCIA = "NumeroUnicoFoto";
+
+    private static volatile SecuenciaFoto instancia;
+
+    private final SessionFactory sessionFactory;
+    private final int tamanoBloque;
+    private final AtomicReference<Bloque> bloqueActual = new AtomicReference<>();
+
+    /**
+     * Crea un generador que reserva bloques del tamaño indicado.
+     *
+     * @param sessionFactory Fábrica de sesiones de la que obtener las conexiones.
+     * @param tamanoBloque   Números reservados en cada acceso a la base de datos.
+     * @throws IllegalArgumentException Si el tamaño del bloque no es positivo.
+     */
+    SecuenciaFoto(SessionFactory sessionFactory, int tamanoBloque) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño del bloque debe ser mayor que cero.");
+        }
+        this.sessionFactory = sessionFactory;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    /**
+     * Devuelve el generador compartido por toda la aplicación.
+     *
+     * @return La instancia única de `SecuenciaFoto`.
+     */
+    public static SecuenciaFoto getInstancia() {
+        if (instancia == null) {
+            synchronized (SecuenciaFoto.class) {
+                if (instancia == null) {
+                    instancia = new SecuenciaFoto(HibernateUtil.getSessionFactoryServidor(),
+                            Configuracion.getEntero("todolist.foto.tamano_bloque", 50));
+                }
+            }
+        }
+        return instancia;
+    }
+
+    /**
+     * Devuelve el siguiente número único de foto.
+     *
+     * @return Número positivo que no se ha entregado antes en ninguna de las tres tablas.
+     * @throws IllegalStateException Si no se puede reservar un nuevo bloque en la base de datos.
+     */
+    public int siguiente() {
+        while (true) {
+            Bloque bloque = bloqueActual.get();
+            if (bloque != null) {
+                int numero = bloque.siguiente.getAndIncrement();
+                if (numero < bloque.fin) {
+                    return numero;
+                }
+            }
+            // Bloque agotado: solo un hilo lo renueva, los demás reintentan con el nuevo bloque
+            synchronized (this) {
+                if (bloqueActual.get() == bloque) {
+                    bloqueActual.set(reservarBloque());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserva en la base de datos el siguiente bloque de números.
+     * Si dos clientes crean la secuencia a la vez, el que pierde reintenta la reserva una vez.
+     */
+    private Bloque reservarBloque() {
+        try {
+            return intentarReserva();
+        } catch (ConstraintViolationException e) {
+            logger.warn("La secuencia {} se creó de forma concurrente, se reintenta la reserva.", NOMBRE_SECUENCIA);
+            return intentarReserva();
+        }
+    }
+
+    private Bloque intentarReserva() {
+        Transaction transaction = null;
+        try (Session session = sessionFactory.openSession()) {
+            transaction = session.beginTransaction();
+            // Se usa JDBC directamente: la tabla no es una entidad y así la escritura no invalida la caché de Hibernate
+            int fin = session.doReturningWork(this::incrementar);
+            transaction.commit();
+
+            Bloque bloque = new Bloque(fin - tamanoBloque, fin);
+            logger.info("Reservado bloque de números de foto [{}, {}).", bloque.siguiente.get(), fin);
+            return bloque;
+        } catch (ConstraintViolationException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Error al reservar un bloque de números de foto: {}", e.getMessage());
+            throw new IllegalStateException("No se pudo reservar un bloque de números de foto", e);
+        }
+    }
+
+    /**
+     * Incrementa la secuencia en un bloque y devuelve el nuevo valor, que es el final (exclusivo) del bloque reservado.
+     * El UPDATE bloquea la fila hasta el commit, por lo que dos clientes nunca obtienen el mismo bloque.
+     */
+    private int incrementar(Connection conexion) throws SQLException {
+        try (PreparedStatement update = conexion.prepareStatement("UPDATE SecuenciaFoto SET Siguiente = Siguiente + ? WHERE Nombre = ?")) {
+            update.setInt(1, tamanoBloque);
+            update.setString(2, NOMBRE_SECUENCIA);
+            if (update.executeUpdate() == 0) {
+                crearSecuencia(conexion);
+                update.executeUpdate();
+            }
+        }
+        try (PreparedStatement select = conexion.prepareStatement("SELECT Siguiente FROM SecuenciaFoto WHERE Nombre = ?")) {
+            select.setString(1, NOMBRE_SECUENCIA);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No existe la secuencia " + NOMBRE_SECUENCIA + ".");
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Crea la fila de la secuencia continuando la numeración existente en las tres tablas.
+     * Si otro cliente la crea a la vez, la clave primaria rechaza la segunda inserción.
+     */
+    private void crearSecuencia(Connection conexion) throws SQLException {
+        int siguiente = 1;
+        try (Statement st = conexion.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(n) FROM (SELECT MAX(NumeroUnicoFoto) AS n FROM CompraComida "
+                     + "UNION ALL SELECT MAX(NumeroUnicoFoto) FROM CompraLimpieza "
+                     + "UNION ALL SELECT MAX(NumeroUnicoFoto) FROM CompraVarios) maximos")) {
+            if (rs.next()) {
+                siguiente = rs.getInt(1) + 1;  // getInt devuelve 0 si no hay ningún número
+            }
+        }
+        try (PreparedStatement insert = conexion.prepareStatement("INSERT INTO SecuenciaFoto (Nombre, Siguiente) VALUES (?, ?)")) {
+            insert.setString(1, NOMBRE_SECUENCIA);
+            insert.setInt(2, siguiente);
+            insert.executeUpdate();
+        }
+        logger.info("Secuencia {} creada a partir del número {}.", NOMBRE_SECUENCIA, siguiente);
+    }
+
+    /**
+     * Rango de números `[siguiente, fin)` reservado en memoria.
+     */
+    private static final class Bloque {
+        private final AtomicInteger siguiente;
+        private final int fin;
+
+        private Bloque(int inicio, int fin) {
+            this.siguiente = new AtomicInteger(inicio);
+            this.fin = fin;
+        }
+    }
+}
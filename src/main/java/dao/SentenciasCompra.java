@@ -0,0 +1,151 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sentencias SQL de los DAO que acceden a las tablas de compras con JDBC directo
+ * ({@link CompraComidaDAOJdbc} y {@link TablaDinamicaDAOImpl}).
+ *
+ * <p>El texto de las sentencias de cada tabla se construye una sola vez y se comparte. Como siempre es el mismo,
+ * la caché de sentencias preparadas del driver (`cachePrepStmts` y `useServerPrepStmts`, configuradas en el pool)
+ * reutiliza su preparación en cada conexión, sin que los DAO tengan que retener conexiones entre llamadas.</p>
+ *
+ * <p>Las consultas filtradas tienen una variante por combinación de criterios de {@link FiltroCompras}, con los
+ * parámetros en este orden: cursor (`IdUnico > ?`, si la consulta es paginada), `Realizado`, `SuperMercado` y,
+ * al final, el límite.</p>
+ */
+final class SentenciasCompra {
+
+    /**
+     * Columnas de la compra completa; cada DAO las lee en este orden en su propia clase de compra.
+     */
+    static final String COLUMNAS = "IdUnico, NombreProducto, Descripcion, Foto, NumeroUnicoFoto, Cantidad, "
+            + "Realizado, SuperMercado, Version";
+
+    /**
+     * Columnas de {@link FilaCompra}, en el orden que espera {@link #leerFila}.
+     */
+    static final String COLUMNAS_FILA = "IdUnico, NombreProducto, Cantidad, Realizado, SuperMercado";
+
+    private static final Map<String, SentenciasCompra> porTabla = new ConcurrentHashMap<>();
+
+    final String insertar;
+    final String actualizar;
+    final String porId;
+    final String eliminar;
+    final String todas;
+    final String ultimoNumeroFoto;
+    private final String[] paginas;
+    private final String[] paginasFilas;
+    private final String[] filas;
+
+    private SentenciasCompra(String tabla) {
+        insertar = OperacionesLote.sqlInsertar(tabla);
+        actualizar = OperacionesLote.sqlActualizar(tabla);
+        porId = "SELECT " + COLUMNAS + " FROM " + tabla + " WHERE IdUnico = ?";
+        eliminar = "DELETE FROM " + tabla + " WHERE IdUnico = ?";
+        todas = "SELECT " + COLUMNAS + " FROM " + tabla + " ORDER BY IdUnico";
+        ultimoNumeroFoto = "SELECT MAX(NumeroUnicoFoto) FROM " + tabla;
+        paginas = new String[4];
+        paginasFilas = new String[4];
+        filas = new String[4];
+        for (int variante = 0; variante < 4; variante++) {
+            boolean porRealizado = (variante & 1) != 0;
+            boolean porSupermercado = (variante & 2) != 0;
+            paginas[variante] = "SELECT " + COLUMNAS + " FROM " + tabla
+                    + condiciones(true, porRealizado, porSupermercado) + " ORDER BY IdUnico LIMIT ?";
+            paginasFilas[variante] = "SELECT " + COLUMNAS_FILA + " FROM " + tabla
+                    + condiciones(true, porRealizado, porSupermercado) + " ORDER BY IdUnico LIMIT ?";
+            filas[variante] = "SELECT " + COLUMNAS_FILA + " FROM " + tabla
+                    + condiciones(false, porRealizado, porSupermercado) + " ORDER BY IdUnico";
+        }
+    }
+
+    /**
+     * Devuelve las sentencias de la tabla indicada, construyéndolas la primera vez.
+     *
+     * @param tabla Nombre de la tabla, ya validado por el llamante.
+     * @return Sentencias de la tabla.
+     */
+    static SentenciasCompra de(String tabla) {
+        return porTabla.computeIfAbsent(tabla, SentenciasCompra::new);
+    }
+
+    /**
+     * Consulta de una página de compras completas para los criterios del filtro.
+     */
+    String pagina(FiltroCompras filtro) {
+        return paginas[variante(filtro)];
+    }
+
+    /**
+     * Consulta de una página de filas de listado para los criterios del filtro.
+     */
+    String paginaFilas(FiltroCompras filtro) {
+        return paginasFilas[variante(filtro)];
+    }
+
+    /**
+     * Consulta de todas las filas de listado que cumplen el filtro.
+     */
+    String filas(FiltroCompras filtro) {
+        return filas[variante(filtro)];
+    }
+
+    /**
+     * Asigna los parámetros de una consulta paginada.
+     *
+     * @param despuesDeIdUnico Cursor de la página anterior, o `null` para la primera página.
+     */
+    static void asignarPagina(PreparedStatement ps, Integer despuesDeIdUnico, FiltroCompras filtro, int limite)
+            throws SQLException {
+        ps.setInt(1, despuesDeIdUnico != null ? despuesDeIdUnico : 0);
+        int parametro = asignarFiltro(ps, 2, filtro);
+        ps.setInt(parametro, limite + 1);  // Una fila más para saber si hay página siguiente
+    }
+
+    /**
+     * Asigna los parámetros del filtro a partir de la posición indicada.
+     *
+     * @return Posición del siguiente parámetro.
+     */
+    static int asignarFiltro(PreparedStatement ps, int parametro, FiltroCompras filtro) throws SQLException {
+        if (filtro != null && filtro.getRealizado() != null) {
+            ps.setBoolean(parametro++, filtro.getRealizado());
+        }
+        if (filtro != null && filtro.getSupermercado() != null) {
+            ps.setString(parametro++, filtro.getSupermercado());
+        }
+        return parametro;
+    }
+
+    /**
+     * Lee las columnas {@link #COLUMNAS_FILA} de la fila actual.
+     */
+    static FilaCompra leerFila(ResultSet rs) throws SQLException {
+        return new FilaCompra(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getBoolean(4), rs.getString(5));
+    }
+
+    private static String condiciones(boolean conCursor, boolean porRealizado, boolean porSupermercado) {
+        StringBuilder where = new StringBuilder();
+        if (conCursor) {
+            where.append(" WHERE IdUnico > ?");
+        }
+        if (porRealizado) {
+            where.append(where.length() == 0 ? " WHERE " : " AND ").append("Realizado = ?");
+        }
+        if (porSupermercado) {
+            where.append(where.length() == 0 ? " WHERE " : " AND ").append("SuperMercado = ?");
+        }
+        return where.toString();
+    }
+
+    private static int variante(FiltroCompras filtro) {
+        return (filtro != null && filtro.getRealizado() != null ? 1 : 0)
+                | (filtro != null && filtro.getSupermercado() != null ? 2 : 0);
+    }
+}
@@ -0,0 +1,88 @@
+package dao;
+
+import modelo.CompraDinamica;
+
+import java.util.List;
+
+/**
+ * Interfaz DAO para las tablas de compras creadas con {@link modelo.DynamicTableCreator}.
+ *
+ * Cada instancia trabaja sobre una única tabla, indicada al crearla. Las tablas tienen las mismas columnas que
+ * las de compras, pero no están mapeadas en Hibernate.
+ *
+ * **Responsabilidades:**
+ * - Crear, leer, actualizar y eliminar compras de la tabla.
+ * - Leer la tabla por páginas ordenadas por `IdUnico` (paginación por clave).
+ * - Insertar y actualizar compras en lotes JDBC.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public interface TablaDinamicaDAO {
+
+    /**
+     * Devuelve el nombre de la tabla sobre la que trabaja el DAO.
+     *
+     * @return Nombre de la tabla tal como aparece en la base de datos.
+     */
+    String getTabla();
+
+    /**
+     * Agrega una compra a la tabla y le asigna el `IdUnico` generado.
+     *
+     * @param compra Compra con los datos a insertar.
+     * @return true si la operación fue exitosa, false en caso contrario.
+     */
+    boolean agregarCompra(CompraDinamica compra);
+
+    /**
+     * Obtiene una compra por su identificador.
+     *
+     * @param idUnico Identificador de la compra.
+     * @return La compra, o null si no existe o si ocurre un error.
+     */
+    CompraDinamica obtenerCompraPorId(int idUnico);
+
+    /**
+     * Obtiene una página de compras ordenadas por `IdUnico` (paginación por clave).
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de compras con el cursor de la página siguiente, o null si ocurre un error.
+     */
+    Pagina<CompraDinamica> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros);
+
+    /**
+     * Actualiza una compra si nadie la ha modificado desde que se leyó, e incrementa su versión.
+     *
+     * @param compra Compra con los datos actualizados.
+     * @return true si se actualizó, false si no existe, cambió su versión u ocurre un error.
+     */
+    boolean actualizarCompra(CompraDinamica compra);
+
+    /**
+     * Elimina una compra por su identificador.
+     *
+     * @param idUnico Identificador de la compra a eliminar.
+     * @return true si se eliminó, false si no existe u ocurre un error.
+     */
+    boolean eliminarCompra(int idUnico);
+
+    /**
+     * Inserta varias compras en una única transacción usando lotes JDBC.
+     *
+     * @param compras Lista de compras a insertar.
+     * @return Resultado con el número de filas insertadas y los errores por fila.
+     */
+    ResultadoLote agregarComprasEnLote(List<CompraDinamica> compras);
+
+    /**
+     * Actualiza varias compras en una única transacción usando lotes JDBC.
+     *
+     * @param compras Lista de compras con los datos actualizados.
+     * @return Resultado con el número de filas actualizadas y los errores por fila.
+     */
+    ResultadoLote actualizarComprasEnLote(List<CompraDinamica> compras);
+}
@@ -0,0 +1,363 @@
+package dao;
+
+import Util.HibernateUtil;
+import Util.PoolConexiones;
+import modelo.CategoriaCompra;
+import modelo.CompraDinamica;
+import modelo.DynamicTableCreator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementación JDBC de {@link TablaDinamicaDAO}.
+ *
+ * **Funcionamiento:**
+ * - Cada operación toma una conexión de {@link PoolConexiones} y la devuelve al terminar; no pasa por Hibernate,
+ *   que no conoce estas tablas.
+ * - Las sentencias SQL de cada tabla se construyen una sola vez en {@link SentenciasCompra} y se comparten entre
+ *   todas las instancias.
+ * - Los lotes se envían con {@link OperacionesLote}, con las mismas validaciones y el mismo tamaño de lote que
+ *   los DAO de compras.
+ * - Las actualizaciones comprueban la columna `Version`, igual que el bloqueo optimista de las entidades.
+ *
+ * Las tablas de `CompraComida`, `CompraLimpieza` y `CompraVarios` no se admiten: tienen sus propios DAO, que
+ * además mantienen la caché de Hibernate y el índice de búsqueda. Tampoco las demás tablas propias de la
+ * aplicación ({@link #TABLAS_RESERVADAS}) ni las que no tienen todas las columnas de una compra.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class TablaDinamicaDAOImpl implements TablaDinamicaDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(TablaDinamicaDAOImpl.class);
+
+    /**
+     * Tablas de la aplicación que no son de compras, aunque su nombre sea válido.
+     */
+    private static final List<String> TABLAS_RESERVADAS = List.of("Tarea", "SecuenciaFoto", "HistorialEsquema",
+            "DiarioAplicado", "AltasSincronizadas");
+
+    /**
+     * Columnas que debe tener la tabla, las mismas que crea {@link DynamicTableCreator}.
+     */
+    private static final List<String> COLUMNAS = List.of("IdUnico", "NombreProducto", "Descripcion", "Foto",
+            "NumeroUnicoFoto", "Cantidad", "Realizado", "SuperMercado", "Version");
+
+    private final String tabla;
+    private final SentenciasCompra sentencias;
+
+    /**
+     * Crea el DAO para la tabla indicada.
+     *
+     * @param tabla Nombre de una tabla creada con {@link DynamicTableCreator} (no distingue mayúsculas).
+     * @throws IllegalArgumentException Si el nombre no es válido, la tabla no existe, es una de las tablas de
+     *                                  compras gestionadas por Hibernate o una tabla reservada de la aplicación, o
+     *                                  le falta alguna columna de las compras.
+     * @throws IllegalStateException    Si no se pueden leer las columnas de la tabla.
+     */
+    public TablaDinamicaDAOImpl(String tabla) {
+        if (!DynamicTableCreator.isValidTableName(tabla)) {
+            throw new IllegalArgumentException("Nombre de tabla no válido: " + tabla);
+        }
+        for (CategoriaCompra categoria : CategoriaCompra.values()) {
+            if (categoria.getTabla().equalsIgnoreCase(tabla)) {
+                throw new IllegalArgumentException("La tabla " + categoria.getTabla() + " se gestiona con su propio DAO.");
+            }
+        }
+        if (esReservada(tabla)) {
+            throw new IllegalArgumentException("La tabla " + tabla + " no es una tabla de compras.");
+        }
+        // La lista de tablas está en caché, así que comprobar que existe no consulta la base de datos cada vez
+        this.tabla = new TablasDAOImpl().getTablas().stream()
+                .filter(existente -> existente.equalsIgnoreCase(tabla))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No existe la tabla " + tabla + "."));
+        comprobarColumnas(this.tabla);
+        this.sentencias = SentenciasCompra.de(this.tabla);
+    }
+
+    /**
+     * Filtra una lista de tablas, como la de {@link TablasDAO#getTablas()}, y deja solo las de compras: las de las
+     * categorías y las creadas con {@link DynamicTableCreator}. Descarta las tablas reservadas de la aplicación y
+     * las que no tienen todas las columnas de una compra, por ejemplo las internas del almacén local.
+     *
+     * <p>Las columnas de todas las tablas se leen con una sola consulta a los metadatos, sobre la misma base de
+     * datos de la que {@link TablasDAOImpl} obtiene la lista.</p>
+     *
+     * @param tablas Nombres de tablas.
+     * @return Las tablas de compras, en el mismo orden.
+     * @throws IllegalStateException Si no se pueden leer las columnas.
+     */
+    public static List<String> filtrarTablasDeCompras(List<String> tablas) {
+        Map<String, Set<String>> columnas = new HashMap<>();
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.doWork(conexion -> {
+                DatabaseMetaData metaDatos = conexion.getMetaData();
+                try (ResultSet rs = metaDatos.getColumns(conexion.getCatalog(), conexion.getSchema(), "%", "%")) {
+                    while (rs.next()) {
+                        columnas.computeIfAbsent(rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT),
+                                clave -> new HashSet<>()).add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                    }
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Error al leer las columnas de las tablas: {}", e.getMessage());
+            throw new IllegalStateException("No se pudieron leer las columnas de las tablas", e);
+        }
+        List<String> deCompras = new ArrayList<>(tablas.size());
+        for (String tabla : tablas) {
+            Set<String> deTabla = columnas.getOrDefault(tabla.toLowerCase(Locale.ROOT), Set.of());
+            if (!esReservada(tabla) && COLUMNAS.stream().allMatch(
+                    columna -> deTabla.contains(columna.toLowerCase(Locale.ROOT)))) {
+                deCompras.add(tabla);
+            }
+        }
+        return deCompras;
+    }
+
+    private static boolean esReservada(String tabla) {
+        return TABLAS_RESERVADAS.stream().anyMatch(reservada -> reservada.equalsIgnoreCase(tabla));
+    }
+
+    /**
+     * Comprueba en los metadatos de la base de datos que la tabla tiene todas las columnas de una compra.
+     */
+    private static void comprobarColumnas(String tabla) {
+        List<String> faltan = new ArrayList<>(COLUMNAS);
+        try (Connection conexion = PoolConexiones.abrirConexionServidor()) {
+            DatabaseMetaData metaDatos = conexion.getMetaData();
+            try (ResultSet rs = metaDatos.getColumns(conexion.getCatalog(), conexion.getSchema(), tabla, "%")) {
+                while (rs.next()) {
+                    String columna = rs.getString("COLUMN_NAME");
+                    faltan.removeIf(esperada -> esperada.equalsIgnoreCase(columna));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error al leer las columnas de {}: {}", tabla, e.getMessage());
+            throw new IllegalStateException("No se pudieron leer las columnas de la tabla " + tabla, e);
+        }
+        if (!faltan.isEmpty()) {
+            throw new IllegalArgumentException("La tabla " + tabla + " no es una tabla de compras: le faltan las columnas "
+                    + String.join(", ", faltan) + ".");
+        }
+    }
+
+    @Override
+    public String getTabla() {
+        return tabla;
+    }
+
+    /**
+     * Agrega una compra a la tabla.
+     *
+     * @param compra Compra con los datos a insertar; recibe el `IdUnico` generado y la versión 0.
+     * @return `true` si la operación fue exitosa, `false` en caso contrario.
+     * @throws IllegalArgumentException Si la compra no cumple las restricciones de las compras.
+     */
+    @Override
+    public boolean agregarCompra(CompraDinamica compra) {
+        OperacionesLote.validar(compra, false);
+        try (Connection conexion = PoolConexiones.abrirConexionServidor();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.insertar, Statement.RETURN_GENERATED_KEYS)) {
+            OperacionesLote.asignarParametros(ps, compra, false);
+            ps.executeUpdate();
+            try (ResultSet claves = ps.getGeneratedKeys()) {
+                if (claves.next()) {
+                    compra.setIdUnico(claves.getInt(1));
+                }
+            }
+            compra.setVersion(0);
+            logger.info("Compra agregada a {}: {}", tabla, compra);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Error al agregar una compra a {}: {}", tabla, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Obtiene una compra por su identificador.
+     *
+     * @param idUnico Identificador de la compra.
+     * @return La compra, o `null` si no existe o si ocurre un error.
+     */
+    @Override
+    public CompraDinamica obtenerCompraPorId(int idUnico) {
+        try (Connection conexion = PoolConexiones.abrirConexionServidor();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.porId)) {
+            ps.setInt(1, idUnico);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? leer(rs) : null;
+            }
+        } catch (SQLException e) {
+            logger.error("Error al obtener la compra {} de {}: {}", idUnico, tabla, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de compras ordenadas por `IdUnico`.
+     *
+     * <p>Se pide una fila más que el límite para saber si existe una página siguiente sin una consulta COUNT,
+     * y el cursor se aplica con `IdUnico > ?`, de modo que cada página cuesta lo mismo sea cual sea su posición.</p>
+     *
+     * @param despuesDeIdUnico `IdUnico` del último elemento de la página anterior, o `null` para la primera página.
+     * @param limite           Número máximo de elementos de la página (entre 1 y 1000).
+     * @param filtros          Criterios de filtrado, o `null` para no filtrar.
+     * @return Página de compras, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<CompraDinamica> obtenerPagina(Integer despuesDeIdUnico, int limite, FiltroCompras filtros) {
+        ConsultasCompra.validarLimite(limite);
+        try (Connection conexion = PoolConexiones.abrirConexionServidor();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.pagina(filtros))) {
+            SentenciasCompra.asignarPagina(ps, despuesDeIdUnico, filtros, limite);
+
+            List<CompraDinamica> compras = new ArrayList<>(limite + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    compras.add(leer(rs));
+                }
+            }
+            if (compras.size() <= limite) {
+                return new Pagina<>(compras, null);
+            }
+            compras.remove(limite);
+            return new Pagina<>(compras, compras.get(limite - 1).getIdUnico());
+        } catch (SQLException e) {
+            logger.error("Error al obtener una página de {}: {}", tabla, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Actualiza una compra comprobando su versión.
+     *
+     * @param compra Compra con los datos actualizados; si se actualiza, recibe la nueva versión.
+     * @return `true` si se actualizó, `false` si no existe, la modificó otro usuario u ocurre un error.
+     * @throws IllegalArgumentException Si la compra no cumple las restricciones de las compras.
+     */
+    @Override
+    public boolean actualizarCompra(CompraDinamica compra) {
+        OperacionesLote.validar(compra, true);
+        try (Connection conexion = PoolConexiones.abrirConexionServidor();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.actualizar)) {
+            OperacionesLote.asignarParametros(ps, compra, true);
+            if (ps.executeUpdate() == 0) {
+                logger.warn("No se actualizó la compra {} de {}: no existe o fue modificada por otro usuario.",
+                        compra.getIdUnico(), tabla);
+                return false;
+            }
+            compra.setVersion(compra.getVersion() + 1);
+            logger.info("Compra actualizada en {}: {}", tabla, compra);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Error al actualizar la compra {} de {}: {}", compra.getIdUnico(), tabla, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Elimina una compra por su identificador.
+     *
+     * @param idUnico Identificador de la compra a eliminar.
+     * @return `true` si se eliminó, `false` si no existe u ocurre un error.
+     */
+    @Override
+    public boolean eliminarCompra(int idUnico) {
+        try (Connection conexion = PoolConexiones.abrirConexionServidor();
+             PreparedStatement ps = conexion.prepareStatement(sentencias.eliminar)) {
+            ps.setInt(1, idUnico);
+            boolean eliminada = ps.executeUpdate() > 0;
+            if (eliminada) {
+                logger.info("Compra {} eliminada de {}.", idUnico, tabla);
+            } else {
+                logger.warn("No existe la compra {} en {}.", idUnico, tabla);
+            }
+            return eliminada;
+        } catch (SQLException e) {
+            logger.error("Error al eliminar la compra {} de {}: {}", idUnico, tabla, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Inserta varias compras en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; las que no superan la
+     * validación o fallan en la base de datos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de compras a insertar.
+     * @return Resultado con el número de filas insertadas y los errores por fila.
+     * @throws IllegalArgumentException Si la lista es nula.
+     */
+    @Override
+    public ResultadoLote agregarComprasEnLote(List<CompraDinamica> compras) {
+        return ejecutarLote(compras, false);
+    }
+
+    /**
+     * Actualiza varias compras en una única transacción.
+     *
+     * <p>Las filas se envían en lotes JDBC de `hibernate.jdbc.batch_size` filas; los registros inexistentes,
+     * modificados por otro usuario o inválidos se informan en el resultado sin detener el resto.</p>
+     *
+     * @param compras Lista de compras con los datos actualizados.
+     * @return Resultado con el número de filas actualizadas y los errores por fila.
+     * @throws IllegalArgumentException Si la lista es nula.
+     */
+    @Override
+    public ResultadoLote actualizarComprasEnLote(List<CompraDinamica> compras) {
+        return ejecutarLote(compras, true);
+    }
+
+    private ResultadoLote ejecutarLote(List<CompraDinamica> compras, boolean actualizacion) {
+        if (compras == null) {
+            throw new IllegalArgumentException("La lista de compras no puede ser nula.");
+        }
+        ResultadoLote resultado;
+        try (Connection conexion = PoolConexiones.abrirConexionServidor()) {
+            resultado = actualizacion
+                    ? OperacionesLote.actualizar(conexion, tabla, compras)
+                    : OperacionesLote.insertar(conexion, tabla, compras);
+        } catch (SQLException e) {
+            logger.error("No se pudo obtener una conexión para el lote de {}: {}", tabla, e.getMessage());
+            resultado = new ResultadoLote(compras.size());
+            resultado.registrarFalloGeneral("Sin conexión con la base de datos: " + e.getMessage());
+        }
+        logger.info("Lote de {} {}: {}", tabla, actualizacion ? "actualizado" : "insertado", resultado);
+        return resultado;
+    }
+
+    private static CompraDinamica leer(ResultSet rs) throws SQLException {
+        CompraDinamica compra = new CompraDinamica();
+        compra.setIdUnico(rs.getInt(1));
+        compra.setNombreProducto(rs.getString(2));
+        compra.setDescripcion(rs.getString(3));
+        compra.setFoto(rs.getBoolean(4));
+        int numeroUnicoFoto = rs.getInt(5);
+        compra.setNumeroUnicoFoto(rs.wasNull() ? null : numeroUnicoFoto);
+        compra.setCantidad(rs.getInt(6));
+        compra.setRealizado(rs.getBoolean(7));
+        compra.setSupermercado(rs.getString(8));
+        compra.setVersion(rs.getInt(9));
+        return compra;
+    }
+}
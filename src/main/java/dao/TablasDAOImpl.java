@@ -1,38 +1,47 @@
 package dao;
 
+import Util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.query.Query;
-import org.hibernate.cfg.Configuration;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Clase DAO que proporciona métodos para interactuar con la base de datos y obtener los nombres de las tablas.
- * Esta clase utiliza Hibernate para establecer una conexión con la base de datos y ejecutar consultas SQL nativas.
+ * Esta clase lee los metadatos JDBC (`DatabaseMetaData`) del catálogo de la conexión, sin depender del nombre del
+ * esquema ni de la base de datos concreta.
  *
  * **Responsabilidades:**
- * - Configurar y gestionar la sesión de Hibernate.
- * - Ejecutar consultas SQL para obtener los nombres de las tablas.
- * - Gestionar el ciclo de vida de la sesión para evitar fugas de recursos.
+ * - Reutilizar la fábrica de sesiones compartida de {@link HibernateUtil}.
+ * - Obtener los nombres de las tablas del catálogo actual.
+ * - Guardar en caché la lista, común a todas las instancias, hasta que {@link #invalidarCache()} indique que
+ *   ha cambiado (por ejemplo, al crear una tabla con {@link modelo.DynamicTableCreator}).
  */
 public class TablasDAOImpl implements TablasDAO {
 
     private static final Logger logger = LoggerFactory.getLogger(TablasDAOImpl.class);  // Logger para la clase
+
+    // Caché común a todas las instancias; la generación evita guardar una lectura que empezó antes de invalidarla
+    private static final Object cerrojoCache = new Object();
+    private static List<String> tablasEnCache;
+    private static long generacion;
+
     private SessionFactory sessionFactory;
 
     /**
-     * Constructor que inicializa la sesión de Hibernate.
-     * Configura la fábrica de sesiones para interactuar con la base de datos utilizando Hibernate.
-     *
-     * Este constructor utiliza un archivo de configuración de Hibernate (hibernate.cfg.xml) para
-     * establecer los parámetros necesarios para la conexión a la base de datos.
+     * Constructor que obtiene la fábrica de sesiones compartida.
+     * No arranca Hibernate de nuevo ni abre conexiones: solo se consulta la base de datos cuando la lista de
+     * tablas no está en caché.
      */
     public TablasDAOImpl() {
         try {
-            // Configuración de Hibernate, cargando la configuración desde hibernate.cfg.xml
-            this.sessionFactory = new Configuration().configure().buildSessionFactory();
+            // Se usa el SessionFactory compartido, configurado desde hibernate.cfg.xml
+            this.sessionFactory = HibernateUtil.getSessionFactory();
         } catch (Exception e) {
             // Mejor manejo de excepciones
             logger.error("Error al configurar la sesión de Hibernate: {}", e.getMessage(), e);
@@ -43,28 +52,57 @@ public class TablasDAOImpl implements TablasDAO {
     /**
      * Método que obtiene los nombres de todas las tablas en la base de datos.
      *
-     * Este método ejecuta una consulta SQL nativa a la base de datos para recuperar los nombres
-     * de las tablas en el esquema público. La consulta está adaptada para MySQL.
+     * La primera llamada lee los metadatos JDBC del catálogo actual; las siguientes devuelven la lista en caché
+     * hasta que se invalide.
      *
-     * @return Lista de nombres de las tablas en la base de datos.
-     * @throws IllegalStateException Si ocurre un error durante la ejecución de la consulta o si la sesión es nula.
+     * @return Lista inmutable de nombres de las tablas, ordenada alfabéticamente.
+     * @throws RuntimeException Si ocurre un error al leer los metadatos.
      */
     @Override
     public List<String> getTablas() {
-        // Usamos 'try-with-resources' para asegurar que la sesión se cierre automáticamente
-        try (Session session = sessionFactory.openSession()) {
-            if (session == null) {
-                throw new IllegalStateException("La sesión de Hibernate no se pudo abrir.");
+        long leida;
+        synchronized (cerrojoCache) {
+            if (tablasEnCache != null) {
+                return tablasEnCache;
             }
+            leida = generacion;
+        }
+        List<String> tablas = leerTablas();
+        synchronized (cerrojoCache) {
+            if (generacion == leida) {
+                tablasEnCache = tablas;
+            }
+        }
+        logger.info("Se leyeron {} tablas de los metadatos de la base de datos.", tablas.size());
+        return tablas;
+    }
 
-            // Consulta SQL nativa para obtener los nombres de las tablas en MySQL
-            String sql = "SELECT table_name FROM information_schema.tables WHERE table_schema = 'your_database_name'"; // MySQL
-
-            // Crear la consulta nativa
-            Query<String> query = session.createNativeQuery(sql, String.class);
+    /**
+     * Descarta la lista de tablas en caché para que la siguiente llamada a {@link #getTablas()} la vuelva a leer.
+     * Debe llamarse después de crear o borrar tablas.
+     */
+    public static void invalidarCache() {
+        synchronized (cerrojoCache) {
+            tablasEnCache = null;
+            generacion++;
+        }
+    }
 
-            // Ejecutar la consulta y obtener los resultados
-            return query.getResultList();
+    private List<String> leerTablas() {
+        // Siempre del servidor principal: una réplica retrasada no tendría aún una tabla recién creada
+        try (Session session = sessionFactory.openSession()) {
+            List<String> tablas = new ArrayList<>();
+            session.doWork(conexion -> {
+                DatabaseMetaData metaDatos = conexion.getMetaData();
+                try (ResultSet rs = metaDatos.getTables(conexion.getCatalog(), conexion.getSchema(), "%",
+                        new String[]{"TABLE"})) {
+                    while (rs.next()) {
+                        tablas.add(rs.getString("TABLE_NAME"));
+                    }
+                }
+            });
+            tablas.sort(String.CASE_INSENSITIVE_ORDER);
+            return List.copyOf(tablas);
         } catch (Exception e) {
             // Registrar la excepción con más detalles
             logger.error("Error al obtener los nombres de las tablas: {}", e.getMessage(), e);
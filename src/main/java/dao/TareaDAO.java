@@ -0,0 +1,53 @@
+package dao;
+
+import modelo.Tarea;
+
+/**
+ * Interfaz que define las operaciones para la entidad Tarea utilizando Hibernate.
+ *
+ * **Responsabilidades:**
+ * - Definir los métodos necesarios para agregar, obtener y eliminar registros de `Tarea`.
+ * - Obtener las tareas junto con sus compras asociadas en un número fijo de consultas.
+ *
+ * **Requisitos:**
+ * - Implementación de los métodos por la clase `TareaDAOImpl`.
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public interface TareaDAO {
+
+    /**
+     * Agrega una nueva tarea asociada a compras ya existentes.
+     *
+     * @param tarea Tarea a agregar; de sus compras asociadas solo se usa el identificador.
+     * @return true si la operación fue exitosa, false en caso contrario.
+     */
+    boolean agregarTarea(Tarea tarea);
+
+    /**
+     * Obtiene una tarea con sus compras asociadas ya cargadas.
+     *
+     * @param id Identificador de la tarea.
+     * @return La tarea, o null si no existe o si ocurre un error.
+     */
+    Tarea obtenerTarea(int id);
+
+    /**
+     * Obtiene una página de tareas ordenadas por `Id`, con sus compras asociadas ya cargadas.
+     * Cada página se obtiene con una sola consulta, sea cual sea su tamaño.
+     *
+     * @param despuesDeId `Id` de la última tarea de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de tareas de la página (entre 1 y 1000).
+     * @return Página de tareas con el cursor de la página siguiente, o null si ocurre un error.
+     */
+    Pagina<Tarea> obtenerPagina(Integer despuesDeId, int limite);
+
+    /**
+     * Elimina una tarea. Las compras asociadas no se modifican.
+     *
+     * @param id Identificador de la tarea.
+     * @return true si la tarea existía y se eliminó, false en caso contrario.
+     */
+    boolean eliminarTarea(int id);
+}
@@ -0,0 +1,180 @@
+package dao;
+
+import Util.HibernateUtil;
+import modelo.CompraComida;
+import modelo.CompraLimpieza;
+import modelo.ComprarVarios;
+import modelo.Tarea;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Implementación de la interfaz `TareaDAO` utilizando Hibernate.
+ *
+ * <p>Las relaciones de `Tarea` con las tres compras son perezosas, por lo que recorrer una lista de tareas y
+ * acceder a sus compras lanzaría una consulta por cada compra (N+1). Las lecturas de este DAO aplican el grafo
+ * {@link Tarea#GRAFO_COMPRAS} como plan de carga (`fetchgraph`): Hibernate añade a la consulta de tareas los
+ * `LEFT JOIN` de las tres tablas y cada página se obtiene con una sola sentencia.</p>
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public class TareaDAOImpl implements TareaDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(TareaDAOImpl.class);
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Constructor que obtiene el `SessionFactory` compartido de `HibernateUtil`.
+     */
+    public TareaDAOImpl() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+        logger.info("TareaDAOImpl inicializado.");
+    }
+
+    /**
+     * Agrega una nueva tarea a la base de datos.
+     *
+     * <p>Las compras asociadas se sustituyen por referencias a las compras existentes con el mismo identificador,
+     * de modo que no se insertan ni se leen.</p>
+     *
+     * @param tarea Tarea a agregar.
+     * @return `true` si la operación fue exitosa, `false` en caso contrario.
+     * @throws IllegalArgumentException Si la tarea es nula o no está asociada a ninguna compra.
+     */
+    @Override
+    public boolean agregarTarea(Tarea tarea) {
+        if (tarea == null) {
+            throw new IllegalArgumentException("La tarea no puede ser nula.");
+        }
+        if (tarea.getCompraComida() == null && tarea.getCompraLimpieza() == null && tarea.getCompraVarios() == null) {
+            throw new IllegalArgumentException("La tarea debe estar asociada al menos a una compra.");
+        }
+        Transaction transaction = null;
+        try (Session session = sessionFactory.openSession()) {
+            transaction = session.beginTransaction();
+            if (tarea.getCompraComida() != null) {
+                tarea.setCompraComida(session.getReference(CompraComida.class, tarea.getCompraComida().getIdUnico()));
+            }
+            if (tarea.getCompraLimpieza() != null) {
+                tarea.setCompraLimpieza(session.getReference(CompraLimpieza.class, tarea.getCompraLimpieza().getIdUnico()));
+            }
+            if (tarea.getCompraVarios() != null) {
+                tarea.setCompraVarios(session.getReference(ComprarVarios.class, tarea.getCompraVarios().getIdUnico()));
+            }
+            session.persist(tarea);
+            transaction.commit();
+            logger.info("Tarea agregada exitosamente: {}", tarea);
+            return true;
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Error al agregar la tarea: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Obtiene una tarea con sus compras asociadas cargadas en la misma consulta.
+     *
+     * @param id Identificador de la tarea.
+     * @return La tarea, o `null` si no existe o si ocurre un error.
+     */
+    @Override
+    public Tarea obtenerTarea(int id) {
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Tarea tarea = session.createQuery("from Tarea t where t.id = :id", Tarea.class)
+                    .setParameter("id", id)
+                    .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph(Tarea.GRAFO_COMPRAS))
+                    .uniqueResult();
+            if (tarea == null) {
+                logger.warn("Tarea con Id={} no encontrada.", id);
+            }
+            return tarea;
+        } catch (Exception e) {
+            logger.error("Error al obtener la tarea con Id={}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de tareas ordenadas por `Id`, con sus compras asociadas cargadas.
+     *
+     * <p>Se usa paginación por clave (`Id > cursor`). Como las tres relaciones son de tipo muchos a uno, los
+     * `JOIN` no multiplican filas y el límite se aplica en la base de datos: la página completa, con sus
+     * compras, se obtiene con una única consulta.</p>
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * @param despuesDeId `Id` de la última tarea de la página anterior, o `null` para la primera página.
+     * @param limite Número máximo de tareas de la página (entre 1 y 1000).
+     * @return Página de tareas, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public Pagina<Tarea> obtenerPagina(Integer despuesDeId, int limite) {
+        ConsultasCompra.validarLimite(limite);
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            Query<Tarea> query = session.createQuery(despuesDeId == null
+                    ? "from Tarea t order by t.id"
+                    : "from Tarea t where t.id > :despuesDeId order by t.id", Tarea.class);
+            if (despuesDeId != null) {
+                query.setParameter("despuesDeId", despuesDeId);
+            }
+            query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph(Tarea.GRAFO_COMPRAS));
+            // Se pide un elemento más para saber si hay página siguiente sin una consulta COUNT
+            query.setMaxResults(limite + 1);
+
+            List<Tarea> tareas = query.list();
+            Pagina<Tarea> pagina = tareas.size() <= limite
+                    ? new Pagina<>(tareas, null)
+                    : new Pagina<>(tareas.subList(0, limite), tareas.get(limite - 1).getId());
+            logger.info("Página de tareas obtenida: {}", pagina);
+            return pagina;
+        } catch (Exception e) {
+            logger.error("Error al obtener la página de tareas: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Elimina una tarea de la base de datos.
+     *
+     * @param id Identificador de la tarea.
+     * @return `true` si la tarea existía y se eliminó, `false` en caso contrario.
+     */
+    @Override
+    public boolean eliminarTarea(int id) {
+        Transaction transaction = null;
+        try (Session session = sessionFactory.openSession()) {
+            transaction = session.beginTransaction();
+            int eliminadas = session.createMutationQuery("delete from Tarea t where t.id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            transaction.commit();
+            if (eliminadas == 0) {
+                logger.error("Tarea con Id={} no encontrada.", id);
+                return false;
+            }
+            logger.info("Tarea con Id={} eliminada exitosamente.", id);
+            return true;
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Error al eliminar la tarea con Id={}: {}", id, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package dao;
+
+import modelo.CategoriaCompra;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Interfaz para las consultas de solo lectura que reúnen las compras de todas las categorías.
+ *
+ * <p>Cada consulta lee las tres tablas en una sola sentencia, en lugar de consultar cada DAO por separado y
+ * unir los resultados en memoria.</p>
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public interface TodasLasComprasDAO {
+
+    /**
+     * Obtiene las filas de listado de las categorías indicadas que cumplen el filtro.
+     *
+     * <p>Las filas se ordenan por supermercado, nombre de producto, categoría e `IdUnico`, y el límite se aplica
+     * sobre el resultado conjunto.</p>
+     *
+     * @param categorias Categorías a incluir, o `null` para incluir todas.
+     * @param filtro     Criterios de filtrado, o `null` para no filtrar.
+     * @param limite     Número máximo de filas (entre 1 y 1000).
+     * @return Lista de filas, o null si ocurre un error.
+     */
+    List<FilaCompraCategoria> obtenerFilas(Set<CategoriaCompra> categorias, FiltroCompras filtro, int limite);
+
+    /**
+     * Obtiene las compras pendientes (no realizadas) de todas las categorías.
+     *
+     * @param limite Número máximo de filas (entre 1 y 1000).
+     * @return Lista de filas pendientes, o null si ocurre un error.
+     */
+    List<FilaCompraCategoria> obtenerPendientes(int limite);
+
+    /**
+     * Busca las compras de las categorías indicadas cuyo nombre o descripción contienen los términos del texto.
+     *
+     * @param texto      Texto a buscar.
+     * @param categorias Categorías a incluir, o `null` para incluir todas.
+     * @param limite     Número máximo de resultados (entre 1 y 1000).
+     * @return Resultados ordenados de más a menos relevantes, o null si ocurre un error.
+     */
+    List<ResultadoBusqueda> buscar(String texto, Set<CategoriaCompra> categorias, int limite);
+
+    /**
+     * Sugiere nombres de producto ya usados en cualquier categoría que empiezan por el prefijo.
+     *
+     * @param prefijo Comienzo del nombre.
+     * @param limite  Número máximo de sugerencias (entre 1 y 1000).
+     * @return Nombres de más a menos usado.
+     */
+    List<String> sugerirNombres(String prefijo, int limite);
+}
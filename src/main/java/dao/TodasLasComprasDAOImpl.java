@@ -0,0 +1,179 @@
+package dao;
+
+import Util.HibernateUtil;
+import modelo.CategoriaCompra;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementación de {@link TodasLasComprasDAO} con una única consulta `UNION ALL` sobre las tres tablas.
+ *
+ * <p>Cada rama de la unión añade el nombre de su categoría como discriminador. El orden y el límite se aplican
+ * en la base de datos sobre el resultado conjunto, por lo que solo viajan las filas que se van a mostrar.</p>
+ *
+ * <p>Mientras la base de datos no está disponible al arrancar, las filas se leen de {@link InstantaneaCompras}.</p>
+ *
+ * <p>La consulta es SQL nativo porque HQL no admite orden ni límite sobre una unión de entidades distintas.
+ * Se declaran las tres entidades como espacios sincronizados para que el resultado pueda guardarse en la caché
+ * de consultas y Hibernate lo descarte en cuanto se modifica cualquiera de las tablas.</p>
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public class TodasLasComprasDAOImpl implements TodasLasComprasDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodasLasComprasDAOImpl.class);
+
+    private static final String ORDEN = " ORDER BY SuperMercado, NombreProducto, Categoria, IdUnico";
+
+    public TodasLasComprasDAOImpl() {
+        logger.info("TodasLasComprasDAOImpl inicializado.");
+    }
+
+    /**
+     * Obtiene las filas de listado de las categorías indicadas que cumplen el filtro.
+     *
+     * <p><strong>Gestión de Excepciones:</strong></p>
+     * <ul>
+     *     <li>Si ocurre un error, se registra el error y se retorna `null`.</li>
+     * </ul>
+     *
+     * <p>Hasta que la base de datos está disponible tras arrancar, responde con las filas de la instantánea local,
+     * si la hay.</p>
+     *
+     * @param categorias Categorías a incluir, o `null` para incluir todas.
+     * @param filtro     Criterios de filtrado, o `null` para no filtrar.
+     * @param limite     Número máximo de filas (entre 1 y 1000).
+     * @return Lista de filas, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido o no se indica ninguna categoría.
+     */
+    @Override
+    public List<FilaCompraCategoria> obtenerFilas(Set<CategoriaCompra> categorias, FiltroCompras filtro, int limite) {
+        ConsultasCompra.validarLimite(limite);
+        if (categorias != null && categorias.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicarse al menos una categoría.");
+        }
+        Set<CategoriaCompra> incluidas = categorias == null ? EnumSet.allOf(CategoriaCompra.class) : EnumSet.copyOf(categorias);
+        List<FilaCompraCategoria> instantanea = InstantaneaCompras.getInstancia().obtenerFilas(incluidas, filtro, limite);
+        if (instantanea != null) {
+            logger.info("Se recuperaron {} filas de la instantánea local mientras se conecta la base de datos.",
+                    instantanea.size());
+            return instantanea;
+        }
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            NativeQuery<Object[]> query = session.createNativeQuery(construirConsulta(incluidas, filtro), Object[].class)
+                    .addScalar("Categoria", StandardBasicTypes.STRING)
+                    .addScalar("IdUnico", StandardBasicTypes.INTEGER)
+                    .addScalar("NombreProducto", StandardBasicTypes.STRING)
+                    .addScalar("Cantidad", StandardBasicTypes.INTEGER)
+                    .addScalar("Realizado", StandardBasicTypes.BOOLEAN)
+                    .addScalar("SuperMercado", StandardBasicTypes.STRING);
+            for (CategoriaCompra categoria : incluidas) {
+                query.addSynchronizedEntityClass(categoria.getEntidad());
+            }
+            if (filtro != null && filtro.getRealizado() != null) {
+                query.setParameter("realizado", filtro.getRealizado());
+            }
+            if (filtro != null && filtro.getSupermercado() != null) {
+                query.setParameter("supermercado", filtro.getSupermercado());
+            }
+            query.setMaxResults(limite);
+            query.setCacheable(true);
+            query.setCacheRegion(ConsultasCompra.REGION_CONSULTAS);
+
+            List<FilaCompraCategoria> filas = new ArrayList<>();
+            for (Object[] fila : query.list()) {
+                filas.add(new FilaCompraCategoria(CategoriaCompra.valueOf((String) fila[0]), (Integer) fila[1],
+                        (String) fila[2], (Integer) fila[3], (Boolean) fila[4], (String) fila[5]));
+            }
+            logger.info("Se recuperaron {} filas de {} categorías en una consulta.", filas.size(), incluidas.size());
+            return filas;
+        } catch (Exception e) {
+            logger.error("Error al obtener las compras de todas las categorías: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene las compras pendientes (no realizadas) de todas las categorías.
+     *
+     * @param limite Número máximo de filas (entre 1 y 1000).
+     * @return Lista de filas pendientes, o `null` si ocurre un error.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    @Override
+    public List<FilaCompraCategoria> obtenerPendientes(int limite) {
+        return obtenerFilas(null, new FiltroCompras(false, null), limite);
+    }
+
+    /**
+     * Busca las compras cuyo nombre o descripción contienen los términos del texto.
+     *
+     * <p>No consulta la base de datos: usa el índice en memoria de {@link BusquedaCompras}, que se construye en la
+     * primera búsqueda y se mantiene con las escrituras de los DAO de compras.</p>
+     *
+     * @param texto      Texto a buscar.
+     * @param categorias Categorías a incluir, o `null` para incluir todas.
+     * @param limite     Número máximo de resultados (entre 1 y 1000).
+     * @return Resultados ordenados de más a menos relevantes, o `null` si no se pudo construir el índice.
+     * @throws IllegalArgumentException Si el texto es nulo, el límite no es válido o no se indica ninguna categoría.
+     */
+    @Override
+    public List<ResultadoBusqueda> buscar(String texto, Set<CategoriaCompra> categorias, int limite) {
+        List<ResultadoBusqueda> resultados = BusquedaCompras.getInstancia().buscar(texto, categorias, limite);
+        if (resultados != null) {
+            logger.info("La búsqueda '{}' devolvió {} compras.", texto, resultados.size());
+        }
+        return resultados;
+    }
+
+    /**
+     * Sugiere nombres de producto ya usados en cualquier categoría que empiezan por el prefijo.
+     *
+     * <p>No consulta la base de datos: usa los nombres en memoria de {@link AutocompletadoProductos}. Mientras se
+     * cargan al arrancar, no hay sugerencias.</p>
+     *
+     * @param prefijo Comienzo del nombre.
+     * @param limite  Número máximo de sugerencias (entre 1 y 1000).
+     * @return Nombres de más a menos usado.
+     * @throws IllegalArgumentException Si el prefijo es nulo o el límite no es válido.
+     */
+    @Override
+    public List<String> sugerirNombres(String prefijo, int limite) {
+        return AutocompletadoProductos.getInstancia().sugerir(prefijo, limite);
+    }
+
+    /**
+     * Construye la unión de una rama por categoría. Los parámetros con nombre se repiten en cada rama y
+     * se asignan una sola vez.
+     */
+    static String construirConsulta(Set<CategoriaCompra> categorias, FiltroCompras filtro) {
+        StringBuilder where = new StringBuilder();
+        if (filtro != null && filtro.getRealizado() != null) {
+            where.append(" AND Realizado = :realizado");
+        }
+        if (filtro != null && filtro.getSupermercado() != null) {
+            where.append(" AND SuperMercado = :supermercado");
+        }
+        String condiciones = where.length() == 0 ? "" : " WHERE" + where.substring(4);
+
+        StringBuilder sql = new StringBuilder();
+        for (CategoriaCompra categoria : categorias) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            // El nombre de la categoría viene del enum, nunca de datos del usuario
+            sql.append("SELECT '").append(categoria.name()).append("' AS Categoria, IdUnico, NombreProducto, Cantidad, ")
+                    .append("Realizado, SuperMercado FROM ").append(categoria.getTabla()).append(condiciones);
+        }
+        return sql.append(ORDEN).toString();
+    }
+}
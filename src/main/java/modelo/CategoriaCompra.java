@@ -0,0 +1,43 @@
+package modelo;
+
+/**
+ * Categorías de compra, una por cada tabla de compras.
+ *
+ * <p>Se usa como discriminador en las consultas que reúnen las tres tablas en un único resultado.</p>
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public enum CategoriaCompra {
+
+    COMIDA("CompraComida", CompraComida.class),
+    LIMPIEZA("CompraLimpieza", CompraLimpieza.class),
+    VARIOS("CompraVarios", ComprarVarios.class);
+
+    private final String tabla;
+    private final Class<? extends Compra> entidad;
+
+    CategoriaCompra(String tabla, Class<? extends Compra> entidad) {
+        this.tabla = tabla;
+        this.entidad = entidad;
+    }
+
+    /**
+     * Devuelve el nombre de la tabla de la base de datos de esta categoría.
+     *
+     * @return Nombre de la tabla.
+     */
+    public String getTabla() {
+        return tabla;
+    }
+
+    /**
+     * Devuelve la clase de entidad mapeada sobre la tabla de esta categoría.
+     *
+     * @return Clase de la entidad.
+     */
+    public Class<? extends Compra> getEntidad() {
+        return entidad;
+    }
+}
@@ -0,0 +1,37 @@
+package modelo;
+
+/**
+ * Interfaz común a las entidades de compra (`CompraComida`, `CompraLimpieza` y `ComprarVarios`).
+ *
+ * Las tres tablas comparten la misma estructura de columnas, por lo que esta interfaz permite a la capa DAO
+ * reutilizar las operaciones que trabajan directamente con columnas (lotes JDBC, exportaciones, etc.)
+ * sin depender de la clase concreta.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public interface Compra {
+
+    int getIdUnico();
+
+    void setIdUnico(int idUnico);
+
+    String getNombreProducto();
+
+    String getDescripcion();
+
+    boolean isFoto();
+
+    Integer getNumeroUnicoFoto();
+
+    int getCantidad();
+
+    boolean isRealizado();
+
+    String getSupermercado();
+
+    int getVersion();
+
+    void setVersion(int version);
+}
@@ -1,6 +1,9 @@
 package modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +27,8 @@ import org.slf4j.LoggerFactory;
  *
  * **Relación con Hibernate:**
  * Este modelo será gestionado por Hibernate en la capa DAO para realizar operaciones CRUD.
+ * Cuando `todolist.cache.habilitada` es `true`, las entidades se guardan en la caché de segundo nivel
+ * (región `modelo.CompraComida`, estrategia READ_WRITE).
  *
  * @author Diego
  * @version 1.3
@@ -31,7 +36,10 @@ import org.slf4j.LoggerFactory;
  */
 @Entity
 @Table(name = "CompraComida")
-public class CompraComida {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
+public class CompraComida implements Compra {
 
     private static final Logger logger = LoggerFactory.getLogger(CompraComida.class);
 
@@ -86,6 +94,14 @@ public class CompraComida {
     @Column(name = "SuperMercado", nullable = false, length = 255)
     private String supermercado;
 
+    /**
+     * Versión del registro para el bloqueo optimista. Hibernate la incrementa en cada actualización y rechaza
+     * la escritura si el registro cambió desde que se leyó.
+     */
+    @Version
+    @Column(name = "Version", nullable = false)
+    private int version;
+
     // ========================
     // Constructores
     // ========================
@@ -218,6 +234,14 @@ public class CompraComida {
         this.supermercado = supermercado;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "CompraComida{" +
@@ -229,6 +253,7 @@ public class CompraComida {
                 ", cantidad=" + cantidad +
                 ", realizado=" + realizado +
                 ", supermercado='" + supermercado + '\'' +
+                ", version=" + version +
                 '}';
     }
 
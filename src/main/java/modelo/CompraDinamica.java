@@ -0,0 +1,152 @@
+package modelo;
+
+/**
+ * Compra de una tabla creada con {@link DynamicTableCreator}.
+ *
+ * **Propósito:**
+ * Representar las filas de las listas que crea el usuario. Estas tablas tienen las mismas columnas que
+ * `CompraComida`, `CompraLimpieza` y `CompraVarios`, pero Hibernate no las conoce, así que esta clase no es una
+ * entidad: la lee y escribe con JDBC el DAO `dao.TablaDinamicaDAO`.
+ *
+ * **Restricciones:**
+ * - Las mismas que las entidades de compra; el DAO las valida antes de escribir.
+ * - `version` la mantiene el DAO para el bloqueo optimista: no debe modificarse a mano.
+ *
+ * @author Diego Diaz
+ * @version 1.0
+ * @since 2024
+ */
+public class CompraDinamica implements Compra {
+
+    private int idUnico;
+    private String nombreProducto;
+    private String descripcion;
+    private boolean foto;
+    private Integer numeroUnicoFoto;
+    private int cantidad;
+    private boolean realizado;
+    private String supermercado;
+    private int version;
+
+    /**
+     * Constructor con los datos de una compra nueva.
+     *
+     * @param nombreProducto  Nombre del producto comprado.
+     * @param descripcion     Descripción detallada del producto.
+     * @param foto            Indica si el producto tiene una foto asociada.
+     * @param numeroUnicoFoto Número único de la foto, o `null` si no tiene.
+     * @param cantidad        Cantidad del producto comprado.
+     * @param realizado       Indica si la compra ya ha sido realizada.
+     * @param supermercado    Nombre del supermercado donde se realizó la compra.
+     */
+    public CompraDinamica(String nombreProducto, String descripcion, boolean foto, Integer numeroUnicoFoto,
+                          int cantidad, boolean realizado, String supermercado) {
+        this.nombreProducto = nombreProducto;
+        this.descripcion = descripcion;
+        this.foto = foto;
+        this.numeroUnicoFoto = numeroUnicoFoto;
+        this.cantidad = cantidad;
+        this.realizado = realizado;
+        this.supermercado = supermercado;
+    }
+
+    /**
+     * Constructor vacío para rellenar la compra desde una fila de la base de datos.
+     */
+    public CompraDinamica() {
+    }
+
+    // ========================
+    // Getters y Setters
+    // ========================
+
+    public int getIdUnico() {
+        return idUnico;
+    }
+
+    public void setIdUnico(int idUnico) {
+        this.idUnico = idUnico;
+    }
+
+    public String getNombreProducto() {
+        return nombreProducto;
+    }
+
+    public void setNombreProducto(String nombreProducto) {
+        this.nombreProducto = nombreProducto;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public void setDescripcion(String descripcion) {
+        this.descripcion = descripcion;
+    }
+
+    public boolean isFoto() {
+        return foto;
+    }
+
+    public void setFoto(boolean foto) {
+        this.foto = foto;
+        if (!foto) {
+            this.numeroUnicoFoto = null;
+        }
+    }
+
+    public Integer getNumeroUnicoFoto() {
+        return numeroUnicoFoto;
+    }
+
+    public void setNumeroUnicoFoto(Integer numeroUnicoFoto) {
+        this.numeroUnicoFoto = numeroUnicoFoto;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(int cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public boolean isRealizado() {
+        return realizado;
+    }
+
+    public void setRealizado(boolean realizado) {
+        this.realizado = realizado;
+    }
+
+    public String getSupermercado() {
+        return supermercado;
+    }
+
+    public void setSupermercado(String supermercado) {
+        this.supermercado = supermercado;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "CompraDinamica{" +
+                "idUnico=" + idUnico +
+                ", nombreProducto='" + nombreProducto + '\'' +
+                ", descripcion='" + descripcion + '\'' +
+                ", foto=" + foto +
+                ", numeroUnicoFoto=" + numeroUnicoFoto +
+                ", cantidad=" + cantidad +
+                ", realizado=" + realizado +
+                ", supermercado='" + supermercado + '\'' +
+                ", version=" + version +
+                '}';
+    }
+}
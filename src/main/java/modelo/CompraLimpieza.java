@@ -1,6 +1,9 @@
 package modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +16,7 @@ import org.slf4j.LoggerFactory;
  * <ul>
  *   <li>Almacena datos como nombre, descripción, cantidad, foto asociada, y estado de la compra.</li>
  *   <li>Si "foto" es true, genera automáticamente un número único para "NumeroUnicoFoto".</li>
+ *   <li>Puede guardarse en la caché de segundo nivel (región `modelo.CompraLimpieza`) si `todolist.cache.habilitada` es `true`.</li>
  * </ul>
  *
  * <p><strong>Restricciones:</strong></p>
@@ -29,7 +33,10 @@ import org.slf4j.LoggerFactory;
  */
 @Entity
 @Table(name = "CompraLimpieza")
-public class CompraLimpieza {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
+public class CompraLimpieza implements Compra {
 
     private static final Logger logger = LoggerFactory.getLogger(CompraLimpieza.class);
 
@@ -84,6 +91,14 @@ public class CompraLimpieza {
     @Column(name = "SuperMercado", nullable = false, length = 255)
     private String supermercado;
 
+    /**
+     * Versión del registro para el bloqueo optimista. Hibernate la incrementa en cada actualización y rechaza
+     * la escritura si el registro cambió desde que se leyó.
+     */
+    @Version
+    @Column(name = "Version", nullable = false)
+    private int version;
+
     // ========================
     // Constructores
     // ========================
@@ -216,6 +231,14 @@ public class CompraLimpieza {
         this.supermercado = supermercado;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "CompraLimpieza{" +
@@ -227,6 +250,7 @@ public class CompraLimpieza {
                 ", cantidad=" + cantidad +
                 ", realizado=" + realizado +
                 ", supermercado='" + supermercado + '\'' +
+                ", version=" + version +
                 '}';
     }
 
@@ -1,6 +1,9 @@
 package modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,6 +15,7 @@ import org.slf4j.LoggerFactory;
  * <ul>
  *     <li>Almacena datos como nombre, descripción, cantidad, foto asociada, y estado de la compra.</li>
  *     <li>Si "Foto" es true, genera automáticamente un número único para "NumeroUnicoFoto".</li>
+ *     <li>Puede guardarse en la caché de segundo nivel (región `modelo.ComprarVarios`) si `todolist.cache.habilitada` es `true`.</li>
  * </ul>
  *
  * <p><strong>Restricciones:</strong></p>
@@ -35,7 +39,10 @@ import org.slf4j.LoggerFactory;
  */
 @Entity
 @Table(name = "CompraVarios")
-public class ComprarVarios {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
+public class ComprarVarios implements Compra {
 
     // Logger para registrar eventos importantes en la clase
     private static final Logger logger = LoggerFactory.getLogger(ComprarVarios.class);
@@ -69,6 +76,14 @@ public class ComprarVarios {
     @Column(name = "SuperMercado", nullable = false, length = 255)
     private String supermercado;
 
+    /**
+     * Versión del registro para el bloqueo optimista. Hibernate la incrementa en cada actualización y rechaza
+     * la escritura si el registro cambió desde que se leyó.
+     */
+    @Version
+    @Column(name = "Version", nullable = false)
+    private int version;
+
     /**
      * Constructor con parámetros para inicializar los atributos de la clase.
      * Realiza validaciones estrictas antes de asignar los valores a los campos.
@@ -202,6 +217,14 @@ public class ComprarVarios {
         this.supermercado = supermercado;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "ComprarVarios{" +
@@ -213,6 +236,7 @@ public class ComprarVarios {
                 ", cantidad=" + cantidad +
                 ", realizado=" + realizado +
                 ", supermercado='" + supermercado + '\'' +
+                ", version=" + version +
                 '}';
     }
 
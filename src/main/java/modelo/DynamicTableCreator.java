@@ -1,37 +1,44 @@
 package modelo;
 
+import Util.PoolConexiones;
+import dao.TablasDAOImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.Statement;
 
 /**
  * Clase que permite la creación dinámica de tablas en una base de datos MySQL.
  *
  * Esta clase está diseñada para que un usuario pueda especificar el nombre de una tabla
- * y crearla con una estructura predefinida. La estructura incluye campos como IdUnico,
- * NombreProducto, Descripcion, Foto, entre otros.
+ * y crearla con una estructura predefinida. La estructura es la misma que la de las tablas de compras
+ * (IdUnico, NombreProducto, Descripcion, Foto, NumeroUnicoFoto, Cantidad, Realizado, SuperMercado y Version),
+ * de modo que `dao.TablaDinamicaDAO` puede leerla y escribirla.
  *
  * **Características:**
  * - Valida el nombre de la tabla para evitar inyecciones SQL.
  * - Crea la tabla con restricciones específicas para garantizar la integridad de los datos.
- * - Utiliza conexiones seguras y gestionadas para la interacción con la base de datos.
+ * - Usa una conexión del pool de la aplicación ({@link PoolConexiones}), con la URL y las credenciales de
+ *   `hibernate.cfg.xml`.
  *
  * **Requisitos:**
- * - Una base de datos MySQL accesible con las credenciales proporcionadas.
  * - Permisos para ejecutar comandos CREATE TABLE.
  *
  * @author [Tu Nombre]
- * @version 1.1
+ * @version 1.2
  * @since 2024
  */
 public class DynamicTableCreator {
 
-    // URL de la base de datos
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/Tienda"; // Cambiar "Tienda" por el nombre real de tu base de datos.
+    private static final Logger logger = LoggerFactory.getLogger(DynamicTableCreator.class);
 
-    // Credenciales de la base de datos
-    private static final String DB_USER = "root"; // Usuario de la base de datos.
-    private static final String DB_PASSWORD = "password"; // Contraseña de la base de datos.
+    /**
+     * Longitud máxima de un identificador en MySQL (tablas y restricciones).
+     */
+    private static final int MAXIMO_IDENTIFICADOR = 64;
+
+    private static final String PREFIJO_RESTRICCION = "chk_Foto_";
 
     /**
      * Método para crear una tabla con el nombre especificado por el usuario.
@@ -46,16 +53,17 @@ public class DynamicTableCreator {
     public void createTable(String tableName) throws Exception {
         // Validar el nombre de la tabla para evitar inyecciones SQL
         if (!isValidTableName(tableName)) {
-            throw new IllegalArgumentException("Nombre de tabla no válido. Solo se permiten caracteres alfanuméricos y guiones bajos.");
+            throw new IllegalArgumentException("Nombre de tabla no válido. Solo se permiten caracteres alfanuméricos y "
+                    + "guiones bajos, hasta " + MAXIMO_IDENTIFICADOR + " caracteres.");
         }
 
         // Crear la conexión y ejecutar el comando SQL
-        try (Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection connection = PoolConexiones.abrirConexionServidor();
              Statement statement = connection.createStatement()) {
 
-            // Crear la tabla con la estructura especificada
+            // Crear la tabla con la estructura especificada; el nombre de la restricción debe ser único en el esquema
             String createTableSQL = String.format("""
-                CREATE TABLE %s (
+                CREATE TABLE %1$s (
                     IdUnico INT AUTO_INCREMENT PRIMARY KEY,
                     NombreProducto VARCHAR(255) NOT NULL,
                     Descripcion VARCHAR(455) NOT NULL,
@@ -63,15 +71,18 @@ public class DynamicTableCreator {
                     NumeroUnicoFoto INT NULL,
                     Cantidad INT NOT NULL,
                     Realizado BOOLEAN NOT NULL DEFAULT FALSE,
-                    CONSTRAINT chk_Foto CHECK (Foto = 0 OR NumeroUnicoFoto IS NOT NULL)
+                    SuperMercado VARCHAR(255) NOT NULL,
+                    Version INT NOT NULL DEFAULT 0,
+                    CONSTRAINT %2$s CHECK (Foto = 0 OR NumeroUnicoFoto IS NOT NULL)
                 );
-                """, tableName);
+                """, tableName, nombreRestriccion(tableName));
 
             statement.executeUpdate(createTableSQL);
-            System.out.println("Tabla '" + tableName + "' creada exitosamente.");
+            TablasDAOImpl.invalidarCache();  // La lista de tablas en caché ya no incluye la nueva
+            logger.info("Tabla '{}' creada exitosamente.", tableName);
         } catch (Exception e) {
             // Registrar y volver a lanzar la excepción
-            System.err.println("Error al crear la tabla '" + tableName + "': " + e.getMessage());
+            logger.error("Error al crear la tabla '{}': {}", tableName, e.getMessage());
             throw e;
         }
     }
@@ -82,8 +93,21 @@ public class DynamicTableCreator {
      * @param tableName El nombre de la tabla a validar.
      * @return true si el nombre es válido, false en caso contrario.
      */
-    private boolean isValidTableName(String tableName) {
-        // Permitir solo caracteres alfanuméricos y guiones bajos
-        return tableName != null && tableName.matches("[a-zA-Z0-9_]+");
+    public static boolean isValidTableName(String tableName) {
+        // Permitir solo caracteres alfanuméricos y guiones bajos, con la longitud máxima de MySQL
+        return tableName != null && tableName.length() <= MAXIMO_IDENTIFICADOR && tableName.matches("[a-zA-Z0-9_]+");
+    }
+
+    /**
+     * Nombre de la restricción de la foto: `chk_Foto_<tabla>`. Si supera la longitud máxima de MySQL, se recorta el
+     * nombre de la tabla y se añade el hash del nombre completo para que siga siendo único en el esquema.
+     */
+    private static String nombreRestriccion(String tableName) {
+        String nombre = PREFIJO_RESTRICCION + tableName;
+        if (nombre.length() <= MAXIMO_IDENTIFICADOR) {
+            return nombre;
+        }
+        String hash = String.format("%08x", tableName.toLowerCase().hashCode());
+        return nombre.substring(0, MAXIMO_IDENTIFICADOR - hash.length() - 1) + "_" + hash;
     }
 }
@@ -1,6 +1,7 @@
 package modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.proxy.HibernateProxy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +24,8 @@ import org.slf4j.LoggerFactory;
  * **Consideraciones:**
  * - Las relaciones con las entidades CompraComida, CompraLimpieza y CompraVarios son opcionales.
  * - Las claves foráneas son gestionadas mediante Hibernate.
+ * - Las tres relaciones son perezosas; para listar tareas con sus compras se usa el grafo {@link #GRAFO_COMPRAS},
+ *   que las carga en la misma consulta.
  *
  * @author Diego Diaz
  * @version 1.0
@@ -30,8 +33,18 @@ import org.slf4j.LoggerFactory;
  */
 @Entity
 @Table(name = "Tarea")
+@NamedEntityGraph(name = Tarea.GRAFO_COMPRAS, attributeNodes = {
+        @NamedAttributeNode("compraComida"),
+        @NamedAttributeNode("compraLimpieza"),
+        @NamedAttributeNode("compraVarios")
+})
 public class Tarea {
 
+    /**
+     * Nombre del grafo de entidad que carga las tres compras asociadas junto con la tarea.
+     */
+    public static final String GRAFO_COMPRAS = "Tarea.compras";
+
     // Logger para registrar eventos relacionados con esta clase
     private static final Logger logger = LoggerFactory.getLogger(Tarea.class);
 
@@ -176,15 +189,25 @@ public class Tarea {
     /**
      * Método toString sobrecargado que devuelve una representación de la tarea.
      *
+     * <p>De las compras asociadas solo se muestra el identificador, que se obtiene sin inicializar los proxies
+     * perezosos: escribir una tarea en el log no lanza consultas ni falla fuera de la sesión.</p>
+     *
      * @return una cadena que representa la tarea.
      */
     @Override
     public String toString() {
         return "Tarea{" +
                 "id=" + id +
-                ", compraComida=" + compraComida +
-                ", compraLimpieza=" + compraLimpieza +
-                ", compraVarios=" + compraVarios +
+                ", idCompraComida=" + idDe(compraComida) +
+                ", idCompraLimpieza=" + idDe(compraLimpieza) +
+                ", idCompraVarios=" + idDe(compraVarios) +
                 '}';
     }
+
+    private static Object idDe(Compra compra) {
+        if (compra instanceof HibernateProxy proxy) {
+            return proxy.getHibernateLazyInitializer().getInternalIdentifier();
+        }
+        return compra == null ? null : compra.getIdUnico();
+    }
 }
@@ -4,14 +4,26 @@ import controlador.ControladorTablas;
 import controlador.ControladorCompraComida;
 import controlador.ControladorCompraLimpieza;
 import controlador.ControladorCompraVarios;
+import controlador.ControladorExportacion;
+import controlador.ControladorImportacion;
+import controlador.ControladorTodasLasCompras;
+import controlador.ProgresoImportacion;
+import controlador.ResultadoExportacion;
+import controlador.ResultadoImportacion;
+import modelo.CategoriaCompra;
 import vista.gestionMenuPrincipal.SceneManager;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.stage.FileChooser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.io.File;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador para gestionar el formulario de agregar elementos.
@@ -21,6 +33,8 @@ import java.util.List;
  * - Llenar el ComboBox con los nombres de las tablas disponibles en la base de datos.
  * - Cambiar el comportamiento del formulario según la tabla seleccionada en el ComboBox.
  * - Validar y agregar los datos del formulario al sistema.
+ * - Sugerir, mientras se escribe el nombre del producto, los nombres ya usados para no crear otros casi iguales.
+ * - Importar compras desde un archivo CSV o JSON y exportarlas a uno, en segundo plano y mostrando el progreso.
  * - Registrar los eventos con un logger para depuración.
  *
  * **Mejoras en Seguridad y Robustez:**
@@ -35,6 +49,9 @@ public class AgregarElementos {
 
     private static final Logger logger = LoggerFactory.getLogger(AgregarElementos.class);
 
+    private static final int MAXIMO_SUGERENCIAS = 8;
+    private static final int ERRORES_MOSTRADOS = 10;
+
     // Referencias a los componentes de la interfaz FXML
     @FXML
     private ComboBox<String> comboBoxTablas;
@@ -52,13 +69,23 @@ public class AgregarElementos {
     private TextField SuperMercado;
     @FXML
     private Button btnAgregarElemento;
+    @FXML
+    private Button btnImportar;
+    @FXML
+    private Button btnExportar;
+    @FXML
+    private Label estadoArchivo;
 
     // Instancias de los controladores para cada tipo de tabla
     private ControladorTablas controladorTablas;
     private ControladorCompraComida controladorCompraComida;
     private ControladorCompraLimpieza controladorCompraLimpieza;
     private ControladorCompraVarios controladorCompraVarios;
+    private ControladorTodasLasCompras controladorTodasLasCompras;
+    private ControladorImportacion controladorImportacion;
+    private ControladorExportacion controladorExportacion;
     private SceneManager sceneManager;
+    private ContextMenu sugerenciasNombre;
 
 
     /**
@@ -69,6 +96,7 @@ public class AgregarElementos {
         controladorCompraComida = new ControladorCompraComida();
         controladorCompraLimpieza = new ControladorCompraLimpieza();
         controladorCompraVarios = new ControladorCompraVarios();
+        controladorTodasLasCompras = new ControladorTodasLasCompras();
     }
 
     /**
@@ -84,6 +112,52 @@ public class AgregarElementos {
             String tablaSeleccionada = comboBoxTablas.getValue();
             cargarFormulario(tablaSeleccionada);
         });
+
+        configurarAutocompletado();
+    }
+
+    /**
+     * Muestra bajo el campo NombreProducto los nombres ya usados que empiezan por lo escrito.
+     * Las sugerencias salen de memoria, sin consultar la base de datos en cada pulsación.
+     */
+    private void configurarAutocompletado() {
+        sugerenciasNombre = new ContextMenu();
+        NombreProducto.textProperty().addListener((observable, anterior, texto) -> mostrarSugerencias(texto));
+        NombreProducto.focusedProperty().addListener((observable, anterior, enfocado) -> {
+            if (!enfocado) {
+                sugerenciasNombre.hide();
+            }
+        });
+    }
+
+    /**
+     * Actualiza las sugerencias para el texto escrito en NombreProducto.
+     *
+     * @param texto Texto actual del campo.
+     */
+    private void mostrarSugerencias(String texto) {
+        if (texto == null || texto.isBlank()) {
+            sugerenciasNombre.hide();
+            return;
+        }
+        sugerenciasNombre.getItems().clear();
+        for (String nombre : controladorTodasLasCompras.sugerirNombres(texto, MAXIMO_SUGERENCIAS)) {
+            if (nombre.equalsIgnoreCase(texto.strip())) {
+                continue;  // Ya está escrito
+            }
+            MenuItem item = new MenuItem(nombre);
+            item.setOnAction(event -> {
+                NombreProducto.setText(nombre);
+                NombreProducto.positionCaret(nombre.length());
+                sugerenciasNombre.hide();
+            });
+            sugerenciasNombre.getItems().add(item);
+        }
+        if (sugerenciasNombre.getItems().isEmpty()) {
+            sugerenciasNombre.hide();
+        } else if (!sugerenciasNombre.isShowing()) {
+            sugerenciasNombre.show(NombreProducto, Side.BOTTOM, 0, 0);
+        }
     }
 
     /**
@@ -209,6 +283,143 @@ public class AgregarElementos {
     private boolean isCheckBoxSelected(CheckBox checkBox) {
         return checkBox.isSelected();  // Devuelve true si está marcado, false si no lo está
     }
+
+    /**
+     * Maneja la acción del botón "Importar archivo".
+     * Las filas del archivo que no indican su categoría se guardan en la tabla seleccionada en el ComboBox.
+     * La importación se ejecuta en un hilo en segundo plano para no bloquear la interfaz.
+     */
+    @FXML
+    private void importarArchivo() {
+        FileChooser selector = new FileChooser();
+        selector.setTitle("Importar compras");
+        selector.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV o JSON", "*.csv", "*.json", "*.jsonl", "*.ndjson", "*.csv.gz",
+                        "*.json.gz", "*.jsonl.gz", "*.ndjson.gz"),
+                new FileChooser.ExtensionFilter("CSV", "*.csv", "*.csv.gz"),
+                new FileChooser.ExtensionFilter("JSON", "*.json", "*.jsonl", "*.ndjson", "*.json.gz", "*.jsonl.gz",
+                        "*.ndjson.gz"));
+        File archivo = selector.showOpenDialog(btnImportar.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
+
+        CategoriaCompra categoria = categoriaSeleccionada();
+        if (controladorImportacion == null) {
+            controladorImportacion = new ControladorImportacion();
+        }
+        btnImportar.setDisable(true);
+        estadoArchivo.setText("Importando " + archivo.getName() + "...");
+        logger.info("Importando {} (categoría por defecto: {}).", archivo, categoria);
+
+        Thread hilo = new Thread(() -> {
+            ResultadoImportacion resultado = controladorImportacion.importar(archivo.toPath(), categoria,
+                    progreso -> Platform.runLater(() -> mostrarProgreso(progreso)));
+            Platform.runLater(() -> mostrarResultado(archivo, resultado));
+        }, "importacion-archivo");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Maneja la acción del botón "Exportar compras".
+     * Exporta las compras de las tres tablas; el formato depende de la extensión elegida y, si termina en `.gz`,
+     * el archivo se comprime. La exportación se ejecuta en un hilo en segundo plano para no bloquear la interfaz.
+     */
+    @FXML
+    private void exportarArchivo() {
+        FileChooser selector = new FileChooser();
+        selector.setTitle("Exportar compras");
+        selector.setInitialFileName("compras.csv");
+        selector.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("CSV comprimido", "*.csv.gz"),
+                new FileChooser.ExtensionFilter("JSON", "*.json"),
+                new FileChooser.ExtensionFilter("JSON comprimido", "*.json.gz"));
+        File archivo = selector.showSaveDialog(btnExportar.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
+
+        if (controladorExportacion == null) {
+            controladorExportacion = new ControladorExportacion();
+        }
+        btnExportar.setDisable(true);
+        estadoArchivo.setText("Exportando a " + archivo.getName() + "...");
+        logger.info("Exportando las compras a {}.", archivo);
+
+        Thread hilo = new Thread(() -> {
+            ResultadoExportacion resultado = controladorExportacion.exportar(archivo.toPath(),
+                    filas -> Platform.runLater(() -> estadoArchivo.setText("Exportando... " + filas + " compras")));
+            Platform.runLater(() -> {
+                btnExportar.setDisable(false);
+                if (resultado.isCompleto()) {
+                    estadoArchivo.setText(String.format("%s: %d compras exportadas.", archivo.getName(),
+                            resultado.getFilas()));
+                } else {
+                    estadoArchivo.setText("No se pudo exportar a " + archivo.getName() + ".");
+                    mostrarAlertaError("Exportación fallida", resultado.fallo());
+                }
+            });
+        }, "exportacion-archivo");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Devuelve la categoría de la tabla seleccionada en el ComboBox.
+     *
+     * @return Categoría, o `null` si no hay ninguna tabla de compras seleccionada.
+     */
+    private CategoriaCompra categoriaSeleccionada() {
+        String tabla = comboBoxTablas.getValue();
+        for (CategoriaCompra categoria : CategoriaCompra.values()) {
+            if (categoria.getTabla().equals(tabla)) {
+                return categoria;
+            }
+        }
+        return null;
+    }
+
+    private void mostrarProgreso(ProgresoImportacion progreso) {
+        estadoArchivo.setText(String.format("Importando... %d%% (%d guardadas, %d rechazadas)",
+                Math.round(progreso.getFraccion() * 100), progreso.filasInsertadas(), progreso.filasRechazadas()));
+    }
+
+    /**
+     * Muestra el resumen de una importación terminada y vuelve a habilitar el botón.
+     *
+     * @param archivo   Archivo importado.
+     * @param resultado Resultado de la importación.
+     */
+    private void mostrarResultado(File archivo, ResultadoImportacion resultado) {
+        btnImportar.setDisable(false);
+        estadoArchivo.setText(String.format("%s: %d guardadas, %d rechazadas.", archivo.getName(),
+                resultado.getInsertadas(), resultado.getRechazadas()));
+
+        StringBuilder detalle = new StringBuilder()
+                .append("Filas leídas: ").append(resultado.getLeidas())
+                .append("\nFilas guardadas: ").append(resultado.getInsertadas())
+                .append("\nFilas rechazadas: ").append(resultado.getRechazadas());
+        if (resultado.getFalloGeneral() != null) {
+            detalle.append("\n\nImportación interrumpida: ").append(resultado.getFalloGeneral());
+        }
+        int mostrados = 0;
+        for (Map.Entry<Long, String> error : resultado.getErrores().entrySet()) {
+            if (mostrados++ == ERRORES_MOSTRADOS) {
+                detalle.append("\n...");
+                break;
+            }
+            detalle.append(mostrados == 1 ? "\n\nFilas rechazadas:" : "")
+                    .append("\n- Fila ").append(error.getKey()).append(": ").append(error.getValue());
+        }
+
+        Alert alert = new Alert(resultado.isCompleto() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Importación");
+        alert.setHeaderText(resultado.getFalloGeneral() == null ? "Importación terminada" : "Importación incompleta");
+        alert.setContentText(detalle.toString());
+        alert.showAndWait();
+    }
     /**
      * Maneja la acción del botón "Volver al Menú Principal".
      */